@@ -0,0 +1,171 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Descrizione di un benchmark: un nome, uno spazio di parametri e la preparazione dell'operazione
+ * da misurare, eseguita da {@link BenchmarkRunner} una volta per ogni combinazione di parametri.
+ * <p>
+ * Esempio:
+ * <pre>
+ * Benchmark.of("Tuple.getDistance", p -&gt; {
+ *         Tuple[] tuples = ...;                      // preparazione, non misurata
+ *         return () -&gt; tuples[0].getDistance(tuples[1]);   // operazione misurata
+ *     })
+ *     .param("mix", "4c0d", "2c2d", "0c4d");
+ * </pre>
+ * L'operazione restituisce un numero ricavato dal proprio risultato: il runner lo accumula, così
+ * che il compilatore JIT non possa eliminare il calcolo come codice morto.
+ * </p>
+ */
+public class Benchmark {
+
+	/**
+	 * Preparazione di un'operazione per una combinazione di parametri.
+	 */
+	public interface Setup {
+
+		/**
+		 * Prepara i dati e restituisce l'operazione da misurare.
+		 *
+		 * @param params valore di ciascun parametro
+		 * @return operazione da misurare
+		 * @throws Exception se la preparazione fallisce
+		 */
+		Operation prepare(Map<String, String> params) throws Exception;
+	}
+
+	/**
+	 * Operazione misurata, eseguita ripetutamente.
+	 */
+	public interface Operation {
+
+		/**
+		 * Esegue una volta l'operazione.
+		 *
+		 * @return un valore ricavato dal risultato, che il runner consuma
+		 * @throws Exception se l'operazione fallisce
+		 */
+		double run() throws Exception;
+	}
+
+	private final String name;
+	private final Setup setup;
+	private final Map<String, String[]> params = new LinkedHashMap<>();
+	private TimeUnit unit = TimeUnit.NANOSECONDS;
+
+	private Benchmark(String name, Setup setup) {
+		this.name = name;
+		this.setup = setup;
+	}
+
+	/**
+	 * Crea un benchmark senza parametri, con risultati in nanosecondi per operazione.
+	 *
+	 * @param name nome del benchmark
+	 * @param setup preparazione dell'operazione
+	 * @return il benchmark
+	 * @throws IllegalArgumentException se un argomento e' null
+	 */
+	public static Benchmark of(String name, Setup setup) {
+		if (name == null || setup == null) {
+			throw new IllegalArgumentException("Nome e preparazione del benchmark non possono essere null.");
+		}
+		return new Benchmark(name, setup);
+	}
+
+	/**
+	 * Aggiunge un parametro con i suoi valori predefiniti, che si possono sostituire dalla riga di comando.
+	 *
+	 * @param param nome del parametro
+	 * @param values valori predefiniti
+	 * @return questo benchmark
+	 * @throws IllegalArgumentException se non e' indicato alcun valore
+	 */
+	public Benchmark param(String param, String... values) {
+		if (values.length == 0) {
+			throw new IllegalArgumentException("Il parametro " + param + " richiede almeno un valore.");
+		}
+		params.put(param, values.clone());
+		return this;
+	}
+
+	/**
+	 * Imposta l'unità di tempo con cui riportare i risultati.
+	 *
+	 * @param unit unità di tempo per operazione
+	 * @return questo benchmark
+	 */
+	public Benchmark unit(TimeUnit unit) {
+		this.unit = unit;
+		return this;
+	}
+
+	/**
+	 * Restituisce il nome del benchmark.
+	 *
+	 * @return nome
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Restituisce l'unità di tempo dei risultati.
+	 *
+	 * @return unità di tempo per operazione
+	 */
+	public TimeUnit getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Restituisce i nomi dei parametri, nell'ordine di dichiarazione.
+	 *
+	 * @return nomi dei parametri
+	 */
+	public List<String> getParamNames() {
+		return Collections.unmodifiableList(new ArrayList<>(params.keySet()));
+	}
+
+	/**
+	 * Prepara l'operazione per una combinazione di parametri.
+	 *
+	 * @param values valore di ciascun parametro
+	 * @return operazione da misurare
+	 * @throws Exception se la preparazione fallisce
+	 */
+	Operation prepare(Map<String, String> values) throws Exception {
+		return setup.prepare(values);
+	}
+
+	/**
+	 * Restituisce tutte le combinazioni dei valori dei parametri (prodotto cartesiano), sostituendo i
+	 * valori predefiniti dei parametri presenti in {@code overrides}.
+	 *
+	 * @param overrides valori indicati dalla riga di comando, per nome di parametro
+	 * @return combinazioni di parametri, nell'ordine di dichiarazione dei valori
+	 */
+	List<Map<String, String>> combinations(Map<String, String[]> overrides) {
+		List<Map<String, String>> result = new ArrayList<>();
+		result.add(new LinkedHashMap<>());
+		for (Map.Entry<String, String[]> param : params.entrySet()) {
+			String[] values = overrides.containsKey(param.getKey()) ? overrides.get(param.getKey()) : param.getValue();
+			List<Map<String, String>> next = new ArrayList<>();
+			for (Map<String, String> partial : result) {
+				for (String value : values) {
+					Map<String, String> combination = new LinkedHashMap<>(partial);
+					combination.put(param.getKey(), value);
+					next.add(combination);
+				}
+			}
+			result = next;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,210 @@
+package benchmark;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Risultato di un benchmark per una combinazione di parametri: il tempo medio per operazione
+ * misurato in ciascuna iterazione e le statistiche ricavate.
+ * <p>
+ * L'errore e' la semiampiezza dell'intervallo di confidenza al 99,9% della media (distribuzione t di
+ * Student sulle iterazioni), come nei risultati di JMH, di cui {@link #toJson()} riproduce il formato.
+ * </p>
+ */
+public class BenchmarkResult {
+
+	/**
+	 * Quantili 0.9995 della distribuzione t di Student per 1..30 gradi di libertà.
+	 */
+	private static final double[] T_999 = {
+			636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+			4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+			3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+
+	private final String benchmark;
+	private final Map<String, String> params;
+	private final TimeUnit unit;
+	private final int warmupIterations;
+	private final long iterationMillis;
+	private final double[] scores;		// tempo medio per operazione in ogni iterazione, nell'unità del benchmark
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param benchmark nome del benchmark
+	 * @param params valori dei parametri
+	 * @param unit unità di tempo dei punteggi
+	 * @param warmupIterations numero di iterazioni di riscaldamento eseguite
+	 * @param iterationMillis durata di ciascuna iterazione in millisecondi
+	 * @param scores tempo medio per operazione di ciascuna iterazione misurata
+	 */
+	BenchmarkResult(String benchmark, Map<String, String> params, TimeUnit unit, int warmupIterations,
+			long iterationMillis, double[] scores) {
+		this.benchmark = benchmark;
+		this.params = params;
+		this.unit = unit;
+		this.warmupIterations = warmupIterations;
+		this.iterationMillis = iterationMillis;
+		this.scores = scores;
+	}
+
+	/**
+	 * Restituisce il nome del benchmark.
+	 *
+	 * @return nome
+	 */
+	public String getBenchmark() {
+		return benchmark;
+	}
+
+	/**
+	 * Restituisce i valori dei parametri.
+	 *
+	 * @return valori per nome di parametro
+	 */
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	/**
+	 * Restituisce il tempo medio per operazione, media delle iterazioni.
+	 *
+	 * @return punteggio, nell'unità di {@link #getUnitLabel()}
+	 */
+	public double getScore() {
+		double sum = 0;
+		for (double s : scores) {
+			sum += s;
+		}
+		return sum / scores.length;
+	}
+
+	/**
+	 * Restituisce la semiampiezza dell'intervallo di confidenza al 99,9% del punteggio.
+	 *
+	 * @return errore, oppure {@code NaN} con una sola iterazione
+	 */
+	public double getScoreError() {
+		int n = scores.length;
+		if (n < 2) {
+			return Double.NaN;
+		}
+		double mean = getScore();
+		double squares = 0;
+		for (double s : scores) {
+			squares += (s - mean) * (s - mean);
+		}
+		double t = n - 1 <= T_999.length ? T_999[n - 2] : 3.291;
+		return t * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+	}
+
+	/**
+	 * Restituisce l'unità del punteggio, ad esempio {@code ns/op}.
+	 *
+	 * @return unità del punteggio
+	 */
+	public String getUnitLabel() {
+		switch (unit) {
+		case NANOSECONDS: return "ns/op";
+		case MICROSECONDS: return "us/op";
+		case MILLISECONDS: return "ms/op";
+		case SECONDS: return "s/op";
+		default: return unit.name().toLowerCase(Locale.ROOT) + "/op";
+		}
+	}
+
+	/**
+	 * Restituisce una riga di testo con nome, parametri e punteggio.
+	 *
+	 * @return descrizione del risultato
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%-40s %-30s %14.3f +- %10.3f %s",
+				benchmark, params.isEmpty() ? "" : params.toString(), getScore(), getScoreError(), getUnitLabel());
+	}
+
+	/**
+	 * Restituisce il risultato come oggetto JSON nel formato di JMH (modalità {@code avgt}), leggibile
+	 * dagli strumenti che ne elaborano i risultati.
+	 *
+	 * @return oggetto JSON
+	 */
+	public String toJson() {
+		double score = getScore();
+		double error = getScoreError();
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("    \"jmhVersion\" : \"n/a\",\n");
+		sb.append("    \"benchmark\" : ").append(string(benchmark)).append(",\n");
+		sb.append("    \"mode\" : \"avgt\",\n");
+		sb.append("    \"threads\" : 1,\n");
+		sb.append("    \"forks\" : 0,\n");
+		sb.append("    \"jvm\" : ").append(string(System.getProperty("java.home"))).append(",\n");
+		sb.append("    \"jdkVersion\" : ").append(string(System.getProperty("java.version"))).append(",\n");
+		sb.append("    \"vmName\" : ").append(string(System.getProperty("java.vm.name"))).append(",\n");
+		sb.append("    \"warmupIterations\" : ").append(warmupIterations).append(",\n");
+		sb.append("    \"warmupTime\" : ").append(string(iterationMillis + " ms")).append(",\n");
+		sb.append("    \"measurementIterations\" : ").append(scores.length).append(",\n");
+		sb.append("    \"measurementTime\" : ").append(string(iterationMillis + " ms")).append(",\n");
+		if (!params.isEmpty()) {
+			sb.append("    \"params\" : {\n");
+			int i = 0;
+			for (Map.Entry<String, String> p : params.entrySet()) {
+				sb.append("        ").append(string(p.getKey())).append(" : ").append(string(p.getValue()));
+				sb.append(++i < params.size() ? ",\n" : "\n");
+			}
+			sb.append("    },\n");
+		}
+		sb.append("    \"primaryMetric\" : {\n");
+		sb.append("        \"score\" : ").append(number(score)).append(",\n");
+		sb.append("        \"scoreError\" : ").append(number(error)).append(",\n");
+		sb.append("        \"scoreConfidence\" : [ ").append(number(score - error)).append(", ")
+				.append(number(score + error)).append(" ],\n");
+		sb.append("        \"scoreUnit\" : ").append(string(getUnitLabel())).append(",\n");
+		sb.append("        \"rawData\" : [ [ ");
+		for (int i = 0; i < scores.length; i++) {
+			sb.append(i > 0 ? ", " : "").append(number(scores[i]));
+		}
+		sb.append(" ] ]\n");
+		sb.append("    },\n");
+		sb.append("    \"secondaryMetrics\" : {}\n");
+		sb.append("}");
+		return sb.toString();
+	}
+
+	/**
+	 * Restituisce un numero in formato JSON; come JMH, i valori non finiti diventano stringhe.
+	 *
+	 * @param value numero
+	 * @return testo JSON
+	 */
+	private static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "\"" + value + "\"" : Double.toString(value);
+	}
+
+	/**
+	 * Restituisce una stringa in formato JSON, con i caratteri speciali codificati.
+	 *
+	 * @param value stringa, anche null
+	 * @return testo JSON
+	 */
+	private static String string(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
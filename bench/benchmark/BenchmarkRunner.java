@@ -0,0 +1,210 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import data.DataBenchmarks;
+import mining.MiningBenchmarks;
+
+/**
+ * Esegue i benchmark del progetto e ne scrive i risultati in JSON nel formato di JMH.
+ * <p>
+ * Per ogni benchmark e ogni combinazione di parametri l'operazione viene preparata una volta ed eseguita
+ * ripetutamente per un numero di iterazioni di riscaldamento, i cui tempi vengono scartati, e poi per le
+ * iterazioni misurate. Ogni iterazione dura almeno il tempo indicato ed esegue almeno un'operazione;
+ * il punteggio di un'iterazione e' il tempo medio per operazione.
+ * </p>
+ * <p>
+ * A differenza di JMH i benchmark vengono eseguiti tutti nella stessa JVM: per confronti precisi
+ * conviene eseguire solo quelli di interesse, selezionandoli con un'espressione regolare.
+ * </p>
+ * <pre>
+ * java benchmark.BenchmarkRunner [opzioni] [regex]
+ *   -wi &lt;n&gt;          iterazioni di riscaldamento (predefinito 3)
+ *   -i &lt;n&gt;           iterazioni misurate (predefinito 5)
+ *   -r &lt;ms&gt;          durata di ogni iterazione in millisecondi (predefinito 1000)
+ *   -p nome=v1,v2    valori di un parametro, al posto di quelli predefiniti
+ *   -rf &lt;file&gt;       file JSON dei risultati (predefinito bench-result.json)
+ *   -l               elenca i benchmark senza eseguirli
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Valore accumulato dalle operazioni, letto solo per impedire che il loro calcolo venga eliminato.
+	 */
+	private static volatile double sink;
+
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private long iterationMillis = 1000;
+	private final Map<String, String[]> overrides = new LinkedHashMap<>();
+
+	/**
+	 * Restituisce tutti i benchmark del progetto.
+	 *
+	 * @return benchmark, nell'ordine di esecuzione
+	 */
+	static List<Benchmark> all() {
+		List<Benchmark> all = new ArrayList<>();
+		all.addAll(DataBenchmarks.all());
+		all.addAll(MiningBenchmarks.all());
+		return all;
+	}
+
+	/**
+	 * Punto di ingresso: interpreta le opzioni, esegue i benchmark selezionati e scrive i risultati.
+	 *
+	 * @param args opzioni e, facoltativamente, l'espressione regolare dei benchmark da eseguire
+	 */
+	public static void main(String[] args) {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		String resultFile = "bench-result.json";
+		Pattern filter = null;
+		boolean list = false;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-wi": runner.warmupIterations = Integer.parseInt(args[++i]); break;
+				case "-i": runner.iterations = Integer.parseInt(args[++i]); break;
+				case "-r": runner.iterationMillis = Long.parseLong(args[++i]); break;
+				case "-rf": resultFile = args[++i]; break;
+				case "-l": list = true; break;
+				case "-p":
+					String[] p = args[++i].split("=", 2);
+					if (p.length != 2 || p[1].isEmpty()) {
+						throw new IllegalArgumentException("Parametro non valido (atteso nome=v1,v2): " + args[i]);
+					}
+					runner.overrides.put(p[0], p[1].split(","));
+					break;
+				default:
+					if (args[i].startsWith("-") || filter != null) {
+						throw new IllegalArgumentException("Opzione non riconosciuta: " + args[i]);
+					}
+					filter = Pattern.compile(args[i]);
+				}
+			}
+			if (runner.warmupIterations < 0 || runner.iterations < 1 || runner.iterationMillis < 1) {
+				throw new IllegalArgumentException("Numero di iterazioni o durata non validi.");
+			}
+		} catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			System.err.println("Argomenti non validi: " + e.getMessage());
+			System.err.println("Uso: BenchmarkRunner [-wi n] [-i n] [-r ms] [-p nome=v1,v2] [-rf file] [-l] [regex]");
+			System.exit(1);
+			return;
+		}
+
+		List<Benchmark> selected = new ArrayList<>();
+		for (Benchmark b : all()) {
+			if (filter == null || filter.matcher(b.getName()).find()) {
+				selected.add(b);
+			}
+		}
+		if (list) {
+			for (Benchmark b : selected) {
+				System.out.println(b.getName() + " " + b.getParamNames());
+			}
+			return;
+		}
+
+		List<BenchmarkResult> results = new ArrayList<>();
+		try {
+			for (Benchmark b : selected) {
+				for (Map<String, String> params : b.combinations(runner.overrides)) {
+					BenchmarkResult result = runner.run(b, params);
+					System.out.println(result);
+					results.add(result);
+				}
+			}
+		} catch (Exception e) {
+			System.err.println("Benchmark interrotto: " + e);
+			e.printStackTrace();
+		}
+
+		try {
+			write(results, resultFile);
+			System.out.println("Risultati scritti in " + resultFile + " (" + results.size() + " misure).");
+		} catch (IOException e) {
+			System.err.println("Impossibile scrivere " + resultFile + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Esegue un benchmark per una combinazione di parametri.
+	 *
+	 * @param benchmark benchmark da eseguire
+	 * @param params valori dei parametri
+	 * @return risultato delle iterazioni misurate
+	 * @throws Exception se la preparazione o l'operazione falliscono
+	 */
+	BenchmarkResult run(Benchmark benchmark, Map<String, String> params) throws Exception {
+		Benchmark.Operation operation = benchmark.prepare(params);
+		long iterationNanos = TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+		double nanosPerUnit = benchmark.getUnit().toNanos(1);
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(operation, iterationNanos);
+		}
+		System.gc();
+		double[] scores = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			scores[i] = iteration(operation, iterationNanos) / nanosPerUnit;
+		}
+		return new BenchmarkResult(benchmark.getName(), params, benchmark.getUnit(), warmupIterations, iterationMillis, scores);
+	}
+
+	/**
+	 * Esegue l'operazione per almeno {@code iterationNanos} nanosecondi, a lotti di dimensione crescente
+	 * così che la lettura dell'orologio non pesi sulle operazioni più brevi.
+	 *
+	 * @param operation operazione da eseguire
+	 * @param iterationNanos durata minima dell'iterazione
+	 * @return tempo medio per operazione in nanosecondi
+	 * @throws Exception se l'operazione fallisce
+	 */
+	private static double iteration(Benchmark.Operation operation, long iterationNanos) throws Exception {
+		double consumed = 0;
+		long operations = 0;
+		long batch = 1;
+		long start = System.nanoTime();
+		long now;
+		do {
+			long batchStart = System.nanoTime();
+			for (long k = 0; k < batch; k++) {
+				consumed += operation.run();
+			}
+			operations += batch;
+			now = System.nanoTime();
+			if (now - batchStart < iterationNanos / 100) {
+				batch *= 2;
+			}
+		} while (now - start < iterationNanos);
+		sink = consumed;
+		return (double) (now - start) / operations;
+	}
+
+	/**
+	 * Scrive i risultati in un array JSON.
+	 *
+	 * @param results risultati da scrivere
+	 * @param fileName percorso del file
+	 * @throws IOException se il file non può essere scritto
+	 */
+	private static void write(List<BenchmarkResult> results, String fileName) throws IOException {
+		StringBuilder sb = new StringBuilder("[\n");
+		for (int i = 0; i < results.size(); i++) {
+			sb.append(results.get(i).toJson().replace("\n", "\n    ").replaceFirst("^", "    "));
+			sb.append(i + 1 < results.size() ? ",\n" : "\n");
+		}
+		sb.append("]\n");
+		Files.write(Paths.get(fileName), sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,46 @@
+package benchmark;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import data.Data;
+import data.SyntheticDataSource;
+
+/**
+ * Dataset generati per i benchmark con {@link SyntheticDataSource}, descritti dal numero di righe e da
+ * una composizione degli attributi nella forma {@code <continui>c<discreti>d}, ad esempio {@code 2c2d}.
+ * <p>
+ * Lo stesso seme produce sempre lo stesso dataset, così che esecuzioni diverse misurino lo stesso lavoro.
+ * Con pochi attributi discreti le righe duplicate vengono eliminate da {@link Data}: il dataset può
+ * quindi avere meno righe di quelle richieste.
+ * </p>
+ */
+public final class Datasets {
+
+	private static final Pattern MIX = Pattern.compile("(\\d+)c(\\d+)d");
+
+	/**
+	 * Seme dei dataset generati.
+	 */
+	public static final long SEED = 20260418L;
+
+	private Datasets() {
+	}
+
+	/**
+	 * Genera un dataset con 4 cluster piantati e domini discreti di 5 valori.
+	 *
+	 * @param rows numero di righe da generare
+	 * @param mix composizione degli attributi, ad esempio {@code 2c2d}
+	 * @return il dataset
+	 * @throws IllegalArgumentException se la composizione non e' valida
+	 * @throws Exception se il dataset non può essere costruito
+	 */
+	public static Data generate(int rows, String mix) throws Exception {
+		Matcher m = MIX.matcher(mix);
+		if (!m.matches()) {
+			throw new IllegalArgumentException("Composizione degli attributi non valida (atteso ad esempio 2c2d): " + mix);
+		}
+		return new Data(new SyntheticDataSource(rows, Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), SEED));
+	}
+}
@@ -0,0 +1,527 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import data.Data;
+import data.DelimitedFileSource;
+import data.EmptyDatasetException;
+import data.SyntheticDataSource;
+import database.InMemoryDatabase;
+import mining.ClusteringRadiusException;
+import mining.DistanceCalls;
+import mining.QTMiner;
+
+/**
+ * Controllo delle regressioni di prestazioni: esegue una matrice fissa di scenari (clustering con
+ * {@link QTMiner#compute(Data)} e caricamento di {@link Data} da sorgenti diverse) e ne confronta le misure
+ * con quelle di riferimento salvate nel repository, terminando con codice 1 se una metrica controllata
+ * peggiora oltre la tolleranza.
+ * <p>
+ * Per ogni scenario vengono misurati:
+ * </p>
+ * <ul>
+ *   <li>{@code throughput}: operazioni al secondo, dal tempo mediano delle esecuzioni misurate;</li>
+ *   <li>{@code relativeThroughput}: il throughput diviso per quello del nucleo di riferimento
+ *       ({@link ReferenceKernel}), misurato nella stessa esecuzione prima e dopo gli scenari; e' solo un
+ *       indizio per confrontare macchine diverse, perché il nucleo non alloca mentre gli scenari dipendono
+ *       da allocazione, garbage collector e hashing, e il rapporto cambia da una macchina all'altra;</li>
+ *   <li>{@code allocation}: byte allocati per operazione dal thread che la esegue (gli scenari sono a
+ *       thread singolo); tenerli separati dal throughput permette di distinguere un codice più lento da
+ *       uno che alloca di più;</li>
+ *   <li>{@code peakHeap}: picco della memoria heap usata durante le esecuzioni misurate, a partire da
+ *       un heap appena ripulito; comprende la generazione giovane, per questo {@code gate.sh} ne fissa la dimensione;</li>
+ *   <li>{@code distances}: chiamate a {@link data.Tuple#getDistance(data.Tuple)} di un clustering, contate
+ *       da {@link DistanceCalls} in un'esecuzione separata e non cronometrata (zero per gli scenari di caricamento).</li>
+ * </ul>
+ * <p>
+ * Per default vengono controllate solo le metriche che non dipendono dalla velocità della macchina:
+ * le distanze, deterministiche e con tolleranza nulla, e l'allocazione per operazione, che dipende dal codice
+ * e dalla JVM ma non dal processore. Throughput e picco dello heap vengono controllati solo se se ne indica
+ * la tolleranza con {@code -t} (vedi {@link #GATEABLE}), e hanno senso solo contro riferimenti rigenerati
+ * sulla stessa macchina: variano con il processore, il carico e il garbage collector, e contro quelli di
+ * un'altra macchina segnalerebbero regressioni inesistenti. Il throughput relativo e' sempre informativo.
+ * I riferimenti vanno comunque rigenerati con {@code -update} quando cambia la JVM.
+ * </p>
+ * <pre>
+ * java benchmark.RegressionGate [opzioni] [regex]
+ *   -b &lt;file&gt;          file dei riferimenti (predefinito baseline.txt)
+ *   -update            riscrive i riferimenti degli scenari eseguiti invece di confrontarli
+ *   -w &lt;ms&gt;            riscaldamento per scenario (predefinito 2000)
+ *   -m &lt;ms&gt;            misura per scenario (predefinito 3000, almeno 5 esecuzioni)
+ *   -t metrica=tolleranza  controlla la metrica con la tolleranza relativa indicata, ad esempio throughput=0.2
+ * </pre>
+ */
+public class RegressionGate {
+
+	/**
+	 * Metriche misurate, nell'ordine del file dei riferimenti.
+	 */
+	static final List<String> METRICS = Arrays.asList("throughput", "relativeThroughput", "allocation", "peakHeap", "distances");
+
+	/**
+	 * Metriche che possono essere confrontate con una tolleranza; sono controllate quelle presenti in
+	 * {@link #tolerances}, le altre sono informative.
+	 */
+	static final List<String> GATEABLE = Arrays.asList("throughput", "allocation", "peakHeap", "distances");
+
+	/**
+	 * Nome con cui il nucleo di riferimento compare nei risultati e nel file dei riferimenti.
+	 */
+	static final String REFERENCE = "reference/kernel";
+
+	private static final int MIN_RUNS = 5;
+
+	/**
+	 * Valore accumulato dalle operazioni, letto solo per impedire che il loro calcolo venga eliminato.
+	 */
+	private static volatile double sink;
+
+	/**
+	 * Tolleranze relative delle metriche controllate.
+	 */
+	private final Map<String, Double> tolerances = new LinkedHashMap<>();
+	private long warmupMillis = 2000;
+	private long measureMillis = 3000;
+
+	/**
+	 * Costruttore: imposta le tolleranze predefinite.
+	 */
+	RegressionGate() {
+		tolerances.put("allocation", 0.10);
+		tolerances.put("distances", 0.0);
+	}
+
+	/**
+	 * Nucleo di riferimento per il throughput relativo: somma delle distanze di Manhattan tra tutte le
+	 * coppie di 600 punti a 4 dimensioni generati con un seme fisso. Usa solo array di double, senza
+	 * allocazioni né codice del progetto: misura la velocità di calcolo della macchina, non quella di
+	 * allocazione e garbage collector da cui dipendono gli scenari, per questo il throughput relativo e' solo informativo.
+	 */
+	static final class ReferenceKernel implements Benchmark.Operation {
+
+		private final double[][] points = new double[600][4];
+
+		ReferenceKernel() {
+			Random random = new Random(Datasets.SEED);
+			for (double[] point : points) {
+				for (int k = 0; k < point.length; k++) {
+					point[k] = random.nextDouble();
+				}
+			}
+		}
+
+		@Override
+		public double run() {
+			double sum = 0;
+			for (int i = 0; i < points.length; i++) {
+				for (int j = 0; j < i; j++) {
+					for (int k = 0; k < 4; k++) {
+						sum += Math.abs(points[i][k] - points[j][k]);
+					}
+				}
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Scenario di clustering: esegue {@link QTMiner#compute(Data)} con un nuovo miner; le distanze
+	 * calcolate vengono contate a parte con {@link DistanceCalls}.
+	 */
+	static final class ComputeOperation implements Benchmark.Operation {
+
+		private final Data data;
+		private final double radius;
+
+		ComputeOperation(Data data, double radius) {
+			this.data = data;
+			this.radius = radius;
+		}
+
+		@Override
+		public double run() throws EmptyDatasetException {
+			try {
+				return new QTMiner(radius).compute(data);
+			} catch (ClusteringRadiusException e) {
+				return 1;
+			}
+		}
+
+		/**
+		 * Esegue lo stesso clustering contando le chiamate a {@link data.Tuple#getDistance(data.Tuple)}.
+		 *
+		 * @return numero di distanze calcolate
+		 */
+		long distances() {
+			return DistanceCalls.count(data, radius);
+		}
+	}
+
+	/**
+	 * Restituisce la matrice degli scenari: il clustering al crescere del numero di tuple per diverse
+	 * composizioni degli attributi, e il caricamento dello stesso dataset generato, letto da un file
+	 * delimitato e tramite JDBC dal database in memoria.
+	 *
+	 * @param workDir cartella per i file temporanei degli scenari
+	 * @return scenari, per nome
+	 */
+	static Map<String, Benchmark.Setup> scenarios(File workDir) {
+		Map<String, Benchmark.Setup> scenarios = new LinkedHashMap<>();
+		for (String mix : new String[] { "4c0d", "2c2d", "0c4d" }) {
+			for (int n : new int[] { 500, 1000, 2000 }) {
+				scenarios.put("compute/" + mix + "/n=" + n + "/r=1.0", p -> new ComputeOperation(Datasets.generate(n, mix), 1.0));
+			}
+		}
+		for (int n : new int[] { 20000, 100000 }) {
+			scenarios.put("load/synthetic/2c2d/n=" + n, p -> {
+				SyntheticDataSource source = new SyntheticDataSource(n, 2, 2, Datasets.SEED);
+				return () -> new Data(source).getNumberOfExamples();
+			});
+		}
+		scenarios.put("load/delimited/2c2d/n=100000", p -> {
+			String file = new File(workDir, "gate-load.csv").getPath();
+			new SyntheticDataSource(100000, 2, 2, Datasets.SEED).writeDelimited(file, ',');
+			DelimitedFileSource source = new DelimitedFileSource(file, ',', 1);
+			return () -> new Data(source).getNumberOfExamples();
+		});
+		scenarios.put("load/jdbc/2c2d/n=20000", p -> {
+			InMemoryDatabase database = new InMemoryDatabase();
+			new SyntheticDataSource(20000, 2, 2, Datasets.SEED).populate(database, "gate");
+			database.install();
+			return () -> new Data("gate").getNumberOfExamples();
+		});
+		return scenarios;
+	}
+
+	/**
+	 * Punto di ingresso: esegue gli scenari selezionati e li confronta con i riferimenti, oppure
+	 * aggiorna i riferimenti con {@code -update}. Termina con codice 1 se una metrica peggiora oltre la
+	 * tolleranza, con codice 2 per argomenti o riferimenti non validi.
+	 *
+	 * @param args opzioni e, facoltativamente, l'espressione regolare degli scenari da eseguire
+	 */
+	public static void main(String[] args) {
+		RegressionGate gate = new RegressionGate();
+		String baselineFile = "baseline.txt";
+		boolean update = false;
+		Pattern filter = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-b": baselineFile = args[++i]; break;
+				case "-update": update = true; break;
+				case "-w": gate.warmupMillis = Long.parseLong(args[++i]); break;
+				case "-m": gate.measureMillis = Long.parseLong(args[++i]); break;
+				case "-t":
+					String[] t = args[++i].split("=", 2);
+					if (t.length != 2 || !GATEABLE.contains(t[0])) {
+						throw new IllegalArgumentException("Tolleranza non valida (atteso metrica=valore, metriche " + GATEABLE + "): " + args[i]);
+					}
+					gate.tolerances.put(t[0], Double.parseDouble(t[1]));
+					break;
+				default:
+					if (args[i].startsWith("-") || filter != null) {
+						throw new IllegalArgumentException("Opzione non riconosciuta: " + args[i]);
+					}
+					filter = Pattern.compile(args[i]);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			System.err.println("Argomenti non validi: " + e.getMessage());
+			System.err.println("Uso: RegressionGate [-b file] [-update] [-w ms] [-m ms] [-t metrica=tolleranza] [regex]");
+			System.exit(2);
+			return;
+		}
+
+		Map<String, Map<String, Double>> baseline;
+		try {
+			baseline = new File(baselineFile).exists() ? readBaseline(baselineFile) : new TreeMap<>();
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Riferimenti non leggibili da " + baselineFile + ": " + e.getMessage());
+			System.exit(2);
+			return;
+		}
+		if (baseline.isEmpty() && !update) {
+			System.err.println("Nessun riferimento in " + baselineFile + ": eseguire prima con -update.");
+			System.exit(2);
+			return;
+		}
+
+		Map<String, Map<String, Double>> current = new LinkedHashMap<>();
+		File workDir = new File(System.getProperty("java.io.tmpdir"));
+		try {
+			double before = gate.measure(new ReferenceKernel()).get("throughput");
+			for (Map.Entry<String, Benchmark.Setup> scenario : scenarios(workDir).entrySet()) {
+				if (filter == null || filter.matcher(scenario.getKey()).find()) {
+					Map<String, Double> measures = gate.measure(scenario.getValue().prepare(new LinkedHashMap<>()));
+					current.put(scenario.getKey(), measures);
+					System.out.println(scenario.getKey() + " " + format(measures));
+				}
+			}
+			double after = gate.measure(new ReferenceKernel()).get("throughput");
+			double reference = Math.sqrt(before * after);
+			System.out.println(String.format(Locale.ROOT, "%s throughput=%s (inizio %s, fine %s)",
+					REFERENCE, number(reference), number(before), number(after)));
+			for (Map.Entry<String, Map<String, Double>> scenario : current.entrySet()) {
+				Map<String, Double> measures = new LinkedHashMap<>(scenario.getValue());
+				measures.put("relativeThroughput", measures.get("throughput") / reference);
+				scenario.setValue(new LinkedHashMap<>());
+				for (String metric : METRICS) {
+					scenario.getValue().put(metric, measures.get(metric));
+				}
+			}
+			current.put(REFERENCE, new LinkedHashMap<>(Collections.singletonMap("throughput", reference)));
+		} catch (Exception e) {
+			System.err.println("Scenario interrotto: " + e);
+			e.printStackTrace();
+			System.exit(2);
+			return;
+		} finally {
+			InMemoryDatabase.uninstall();
+			new File(workDir, "gate-load.csv").delete();
+		}
+
+		if (update) {
+			baseline.putAll(current);
+			try {
+				writeBaseline(baseline, baselineFile);
+			} catch (IOException e) {
+				System.err.println("Impossibile scrivere " + baselineFile + ": " + e.getMessage());
+				System.exit(2);
+				return;
+			}
+			System.out.println("Riferimenti aggiornati in " + baselineFile + " (" + current.size() + " scenari).");
+			return;
+		}
+
+		List<String> regressions = gate.compare(baseline, current);
+		if (!regressions.isEmpty()) {
+			System.out.println();
+			System.out.println("REGRESSIONI (" + regressions.size() + "):");
+			for (String r : regressions) {
+				System.out.println("  " + r);
+			}
+			System.exit(1);
+		}
+		System.out.println();
+		System.out.println("Nessuna regressione oltre le tolleranze " + gate.tolerances + ".");
+	}
+
+	/**
+	 * Misura uno scenario: riscaldamento ed esecuzioni misurate (tempo, allocazione, picco dello heap).
+	 * Se lo scenario e' un {@link ComputeOperation}, le distanze vengono contate da un'ulteriore esecuzione non cronometrata.
+	 *
+	 * @param operation operazione dello scenario
+	 * @return valore di ciascuna metrica
+	 * @throws Exception se l'operazione fallisce
+	 */
+	Map<String, Double> measure(Benchmark.Operation operation) throws Exception {
+		double consumed = 0;
+		long start = System.nanoTime();
+		int warmups = 0;
+		while (warmups < 2 || System.nanoTime() - start < warmupMillis * 1_000_000) {
+			consumed += operation.run();
+			warmups++;
+		}
+
+		List<MemoryPoolMXBean> heap = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				heap.add(pool);
+			}
+		}
+		System.gc();
+		for (MemoryPoolMXBean pool : heap) {
+			pool.resetPeakUsage();
+		}
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long allocatedBefore = allocatedBytes(threads);
+
+		List<Long> times = new ArrayList<>();
+		start = System.nanoTime();
+		while (times.size() < MIN_RUNS || System.nanoTime() - start < measureMillis * 1_000_000) {
+			long t0 = System.nanoTime();
+			consumed += operation.run();
+			times.add(System.nanoTime() - t0);
+		}
+		long allocatedAfter = allocatedBytes(threads);
+		long peak = 0;
+		for (MemoryPoolMXBean pool : heap) {
+			peak += pool.getPeakUsage().getUsed();
+		}
+		sink = consumed;
+		long distances = operation instanceof ComputeOperation ? ((ComputeOperation) operation).distances() : 0;
+
+		times.sort(null);
+		long median = times.get(times.size() / 2);
+		Map<String, Double> measures = new LinkedHashMap<>();
+		measures.put("throughput", 1e9 / median);
+		measures.put("allocation", allocatedBefore < 0 ? Double.NaN : (double) (allocatedAfter - allocatedBefore) / times.size());
+		measures.put("peakHeap", (double) peak);
+		measures.put("distances", (double) distances);
+		return measures;
+	}
+
+	/**
+	 * Restituisce i byte allocati finora dal thread corrente, se la JVM lo permette.
+	 *
+	 * @param threads bean dei thread della JVM
+	 * @return byte allocati, oppure -1 se la misura non e' disponibile
+	 */
+	private static long allocatedBytes(ThreadMXBean threads) {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+				return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Confronta le misure con i riferimenti e stampa una riga per metrica; solo le metriche di
+	 * cui e' stata indicata una tolleranza possono essere regressioni, le altre sono segnate come informative.
+	 * Il throughput peggiora se diminuisce, le altre metriche se aumentano.
+	 *
+	 * @param baseline misure di riferimento, per scenario
+	 * @param current misure correnti, per scenario
+	 * @return descrizione delle regressioni oltre la tolleranza
+	 */
+	List<String> compare(Map<String, Map<String, Double>> baseline, Map<String, Map<String, Double>> current) {
+		List<String> regressions = new ArrayList<>();
+		System.out.println();
+		System.out.println(String.format(Locale.ROOT, "%-36s %-18s %16s %16s %9s", "Scenario", "Metrica", "Riferimento", "Attuale", "Delta"));
+		for (Map.Entry<String, Map<String, Double>> scenario : current.entrySet()) {
+			Map<String, Double> reference = baseline.get(scenario.getKey());
+			if (reference == null) {
+				System.out.println(String.format(Locale.ROOT, "%-36s (nessun riferimento: eseguire con -update)", scenario.getKey()));
+				continue;
+			}
+			for (String metric : METRICS) {
+				Double expected = reference.get(metric);
+				Double actual = scenario.getValue().get(metric);
+				if (expected == null || actual == null || Double.isNaN(expected) || Double.isNaN(actual)) {
+					continue;
+				}
+				double delta = expected == 0 ? (actual == 0 ? 0 : Double.POSITIVE_INFINITY) : (actual - expected) / expected;
+				double worse = metric.equals("throughput") || metric.equals("relativeThroughput") ? -delta : delta;
+				String status = "";
+				if (!tolerances.containsKey(metric)) {
+					status = "(informativo)";
+				} else if (worse > tolerances.get(metric)) {
+					status = "REGRESSIONE";
+					regressions.add(String.format(Locale.ROOT, "%s %s: %s -> %s (%+.1f%%, tolleranza %.1f%%)",
+							scenario.getKey(), metric, number(expected), number(actual), delta * 100, tolerances.get(metric) * 100));
+				} else if (worse < -tolerances.get(metric)) {
+					status = "migliorato";
+				}
+				System.out.println(String.format(Locale.ROOT, "%-36s %-18s %16s %16s %+8.1f%% %s",
+						scenario.getKey(), metric, number(expected), number(actual), delta * 100, status));
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * Legge il file dei riferimenti: una riga per scenario con il nome seguito da coppie
+	 * {@code metrica=valore}; le righe vuote e quelle che iniziano con {@code #} vengono ignorate.
+	 *
+	 * @param fileName percorso del file
+	 * @return misure per scenario
+	 * @throws IOException se il file non può essere letto
+	 * @throws IllegalArgumentException se una riga non e' valida
+	 */
+	static Map<String, Map<String, Double>> readBaseline(String fileName) throws IOException {
+		Map<String, Map<String, Double>> baseline = new TreeMap<>();
+		for (String line : Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\\s+");
+			Map<String, Double> measures = new LinkedHashMap<>();
+			for (int i = 1; i < fields.length; i++) {
+				String[] kv = fields[i].split("=", 2);
+				if (kv.length != 2) {
+					throw new IllegalArgumentException("Misura non valida nella riga: " + line);
+				}
+				measures.put(kv[0], Double.parseDouble(kv[1]));
+			}
+			baseline.put(fields[0], measures);
+		}
+		return baseline;
+	}
+
+	/**
+	 * Scrive il file dei riferimenti, con gli scenari in ordine alfabetico e un'intestazione che
+	 * descrive la macchina su cui sono state fatte le misure.
+	 *
+	 * @param baseline misure per scenario
+	 * @param fileName percorso del file
+	 * @throws IOException se il file non può essere scritto
+	 */
+	static void writeBaseline(Map<String, Map<String, Double>> baseline, String fileName) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# Riferimenti del controllo delle regressioni, generati con: gate.sh -update\n");
+		sb.append("# ").append(System.getProperty("java.vm.name")).append(' ').append(System.getProperty("java.version"))
+				.append(", ").append(System.getProperty("os.name")).append(' ').append(System.getProperty("os.arch"))
+				.append(", ").append(Runtime.getRuntime().availableProcessors()).append(" processori\n");
+		sb.append("# throughput in operazioni/s, relativeThroughput rispetto a " + REFERENCE + ", allocation in byte/operazione,\n");
+		sb.append("# peakHeap in byte, distances per operazione; throughput e peakHeap sono controllati solo con -t, relativeThroughput mai\n");
+		for (Map.Entry<String, Map<String, Double>> scenario : new TreeMap<>(baseline).entrySet()) {
+			sb.append(scenario.getKey()).append(' ').append(format(scenario.getValue())).append('\n');
+		}
+		Files.write(Paths.get(fileName), sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Restituisce le misure come coppie {@code metrica=valore} separate da spazi.
+	 *
+	 * @param measures misure
+	 * @return testo delle misure
+	 */
+	private static String format(Map<String, Double> measures) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Double> m : measures.entrySet()) {
+			sb.append(sb.length() > 0 ? " " : "").append(m.getKey()).append('=').append(number(m.getValue()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Restituisce un numero senza decimali se intero, con tre cifre decimali se almeno 1 in valore
+	 * assoluto, altrimenti con sei cifre significative (i throughput relativi sono spesso molto piccoli).
+	 *
+	 * @param value numero
+	 * @return testo del numero
+	 */
+	private static String number(double value) {
+		if (value == Math.rint(value) && !Double.isInfinite(value)) {
+			return String.format(Locale.ROOT, "%.0f", value);
+		}
+		if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1) {
+			return String.format(Locale.ROOT, "%.3f", value);
+		}
+		return new BigDecimal(value).round(new MathContext(6)).stripTrailingZeros().toPlainString();
+	}
+}
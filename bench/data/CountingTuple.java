@@ -0,0 +1,54 @@
+package data;
+
+/**
+ * Tupla che conta le chiamate a {@link Tuple#getDistance(Tuple)}, per misurare nei benchmark il numero
+ * reale di distanze calcolate da un algoritmo senza strumentare il codice del progetto.
+ * <p>
+ * Il contatore e' condiviso dalle tuple create con lo stesso array e non e' sincronizzato: va usato
+ * con algoritmi eseguiti da un solo thread.
+ * </p>
+ */
+public final class CountingTuple extends Tuple {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Contatore delle chiamate, nella prima posizione.
+	 */
+	private final long[] calls;
+
+	/**
+	 * Costruttore: copia gli item di una tupla.
+	 *
+	 * @param source tupla da copiare
+	 * @param calls contatore delle chiamate, nella prima posizione
+	 */
+	private CountingTuple(Tuple source, long[] calls) {
+		super(source.getLength());
+		for (int i = 0; i < source.getLength(); i++) {
+			add(source.get(i), i);
+		}
+		this.calls = calls;
+	}
+
+	@Override
+	public double getDistance(Tuple obj) {
+		calls[0]++;
+		return super.getDistance(obj);
+	}
+
+	/**
+	 * Restituisce le tuple del dataset, nell'ordine delle righe, con un contatore comune.
+	 *
+	 * @param data dataset
+	 * @param calls contatore delle chiamate, incrementato nella prima posizione
+	 * @return tuple che contano le chiamate a {@link Tuple#getDistance(Tuple)}
+	 */
+	public static Tuple[] of(Data data, long[] calls) {
+		Tuple[] tuples = new Tuple[data.getNumberOfExamples()];
+		for (int i = 0; i < tuples.length; i++) {
+			tuples[i] = new CountingTuple(data.getItemSet(i), calls);
+		}
+		return tuples;
+	}
+}
@@ -0,0 +1,53 @@
+package data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import benchmark.Benchmark;
+import benchmark.Datasets;
+
+/**
+ * Microbenchmark delle operazioni sulle transazioni usate in ogni confronto del clustering:
+ * il calcolo della distanza tra tuple e la costruzione di una tupla da una riga del dataset.
+ */
+public final class DataBenchmarks {
+
+	private static final int ROWS = 1000;
+
+	private DataBenchmarks() {
+	}
+
+	/**
+	 * Restituisce i benchmark del package.
+	 *
+	 * @return benchmark
+	 */
+	public static List<Benchmark> all() {
+		return Arrays.asList(
+				Benchmark.of("Tuple.getDistance", p -> {
+					Data data = Datasets.generate(ROWS, p.get("mix"));
+					int n = data.getNumberOfExamples();
+					Tuple[] tuples = new Tuple[n];
+					for (int i = 0; i < n; i++) {
+						tuples[i] = data.getItemSet(i);
+					}
+					int[] next = { 0 };
+					return () -> {
+						int i = next[0];
+						next[0] = i + 1 < n ? i + 1 : 0;
+						return tuples[i].getDistance(tuples[n - 1 - i]);
+					};
+				}).param("mix", "4c0d", "2c2d", "0c4d"),
+
+				Benchmark.of("Data.getItemSet", p -> {
+					Data data = Datasets.generate(ROWS, p.get("mix"));
+					int n = data.getNumberOfExamples();
+					int[] next = { 0 };
+					return () -> {
+						int i = next[0];
+						next[0] = i + 1 < n ? i + 1 : 0;
+						return data.getItemSet(i).getLength();
+					};
+				}).param("mix", "4c0d", "2c2d", "0c4d"));
+	}
+}
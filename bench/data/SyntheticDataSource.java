@@ -0,0 +1,343 @@
+package data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import database.InMemoryDatabase;
+import database.RowSink;
+
+/**
+ * Sorgente di transazioni sintetiche con una struttura a cluster nota, per misure di prestazioni e
+ * test senza database.
+ * <p>
+ * Le colonne sono {@code c0, c1, ...} (continue) seguite da {@code d0, d1, ...} (discrete, con valori
+ * {@code v0, v1, ...}). Ogni riga appartiene a uno dei cluster piantati (vedi {@link #getPlantedCluster(long)}):
+ * ogni cluster ha un centro in [0, 100] per ciascuna colonna continua e un valore preferito per ciascuna
+ * colonna discreta; i valori continui della riga sono il centro più un rumore gaussiano con deviazione
+ * standard {@code spread * 100}, quelli discreti il valore preferito oppure, con probabilità {@code noise},
+ * un valore qualunque del dominio.
+ * </p>
+ * <p>
+ * Le righe sono generate a blocchi di {@value #BLOCK_ROWS}, ciascuno con un generatore inizializzato dal
+ * seme e dall'indice del blocco: lo stesso seme produce le stesse righe qualunque sia il numero di partizioni.
+ * Con sole colonne discrete righe uguali sono frequenti, e {@link Data} conserva solo quelle distinte.
+ * </p>
+ */
+public class SyntheticDataSource implements DataSource {
+
+	/**
+	 * Righe generate da ciascun generatore pseudo-casuale.
+	 */
+	static final int BLOCK_ROWS = 4096;
+
+	private long rows;					// Numero di righe
+	private int continuous;				// Numero di colonne continue
+	private int discrete;				// Numero di colonne discrete
+	private long seed;					// Seme
+	private int domainSize = 5;			// Valori distinti di ciascuna colonna discreta
+	private int clusters = 4;			// Numero di cluster piantati
+	private double spread = 0.05;		// Deviazione standard dei valori continui, in frazione dell'intervallo
+	private double noise = 0.1;			// Probabilità di un valore discreto casuale
+	private int partitions = 1;			// Numero di partizioni generate in parallelo
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param rows numero di righe da generare
+	 * @param continuous numero di colonne continue
+	 * @param discrete numero di colonne discrete
+	 * @param seed seme del generatore
+	 * @throws IllegalArgumentException se il numero di righe o di colonne non e' valido
+	 */
+	public SyntheticDataSource(long rows, int continuous, int discrete, long seed) {
+		if (rows < 0 || continuous < 0 || discrete < 0 || continuous + discrete == 0) {
+			throw new IllegalArgumentException("Dimensioni non valide: " + rows + " righe, " + continuous
+					+ " colonne continue, " + discrete + " colonne discrete.");
+		}
+		this.rows = rows;
+		this.continuous = continuous;
+		this.discrete = discrete;
+		this.seed = seed;
+	}
+
+	/**
+	 * Imposta il numero di valori distinti di ciascuna colonna discreta (5 per default).
+	 *
+	 * @param size dimensione dei domini
+	 * @return questa sorgente
+	 * @throws IllegalArgumentException se la dimensione non e' positiva
+	 */
+	public SyntheticDataSource withDomainSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("La dimensione dei domini deve essere positiva: " + size);
+		}
+		this.domainSize = size;
+		return this;
+	}
+
+	/**
+	 * Imposta la struttura a cluster (per default 4 cluster con dispersione 0.05).
+	 *
+	 * @param clusters numero di cluster piantati
+	 * @param spread deviazione standard dei valori continui attorno al centro, in frazione dell'intervallo [0, 100]
+	 * @return questa sorgente
+	 * @throws IllegalArgumentException se il numero di cluster non e' positivo o la dispersione e' negativa
+	 */
+	public SyntheticDataSource withClusters(int clusters, double spread) {
+		if (clusters < 1 || !(spread >= 0)) {
+			throw new IllegalArgumentException("Struttura a cluster non valida: " + clusters + " cluster, dispersione " + spread);
+		}
+		this.clusters = clusters;
+		this.spread = spread;
+		return this;
+	}
+
+	/**
+	 * Imposta la probabilità che un valore discreto sia scelto a caso invece che dal cluster (0.1 per default).
+	 *
+	 * @param noise probabilità in [0, 1]
+	 * @return questa sorgente
+	 * @throws IllegalArgumentException se la probabilità non e' in [0, 1]
+	 */
+	public SyntheticDataSource withNoise(double noise) {
+		if (!(noise >= 0 && noise <= 1)) {
+			throw new IllegalArgumentException("Probabilità di rumore non valida: " + noise);
+		}
+		this.noise = noise;
+		return this;
+	}
+
+	/**
+	 * Imposta il numero di partizioni, generate in parallelo (1 per default).
+	 *
+	 * @param partitions numero di partizioni
+	 * @return questa sorgente
+	 * @throws IllegalArgumentException se il numero non e' positivo
+	 */
+	public SyntheticDataSource withPartitions(int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("Il numero di partizioni deve essere positivo: " + partitions);
+		}
+		this.partitions = partitions;
+		return this;
+	}
+
+	@Override
+	public String getName() {
+		return "sintetico_" + rows + "x" + continuous + "c" + discrete + "d";
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		String[] names = new String[continuous + discrete];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = i < continuous ? "c" + i : "d" + (i - continuous);
+		}
+		return names;
+	}
+
+	@Override
+	public boolean[] getNumericColumns() {
+		boolean[] numeric = new boolean[continuous + discrete];
+		for (int i = 0; i < continuous; i++) {
+			numeric[i] = true;
+		}
+		return numeric;
+	}
+
+	@Override
+	public int getNumberOfPartitions() {
+		return partitions;
+	}
+
+	/**
+	 * Restituisce il cluster piantato a cui appartiene una riga.
+	 *
+	 * @param row indice della riga, nell'ordine di generazione
+	 * @return indice del cluster, in [0, numero di cluster)
+	 */
+	public int getPlantedCluster(long row) {
+		return (int) Math.floorMod(mix(seed ^ mix(row + 1)), (long) clusters);
+	}
+
+	@Override
+	public void load(RowSink[] sinks) throws IOException {
+		if (sinks.length != partitions) {
+			throw new IllegalArgumentException("Occorre una destinazione per ciascuna delle " + partitions + " partizioni.");
+		}
+		double[][] centers = new double[clusters][continuous];
+		int[][] preferred = new int[clusters][discrete];
+		Random random = new Random(seed);
+		for (int k = 0; k < clusters; k++) {
+			for (int i = 0; i < continuous; i++) {
+				centers[k][i] = random.nextDouble() * 100;
+			}
+			for (int i = 0; i < discrete; i++) {
+				preferred[k][i] = random.nextInt(domainSize);
+			}
+		}
+		String[] domain = new String[domainSize];
+		for (int v = 0; v < domainSize; v++) {
+			domain[v] = "v" + v;
+		}
+
+		long blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+		if (partitions == 1) {
+			generate(0, blocks, centers, preferred, domain, sinks[0]);
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(partitions);
+		try {
+			List<Future<Void>> results = new ArrayList<>();
+			for (int p = 0; p < partitions; p++) {
+				long from = blocks * p / partitions;
+				long to = blocks * (p + 1) / partitions;
+				RowSink sink = sinks[p];
+				results.add(pool.submit(() -> {
+					generate(from, to, centers, preferred, domain, sink);
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Generazione interrotta.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Errore nella generazione di una partizione.", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Genera le righe dei blocchi indicati.
+	 *
+	 * @param fromBlock primo blocco (incluso)
+	 * @param toBlock ultimo blocco (escluso)
+	 * @param centers centri dei cluster sulle colonne continue
+	 * @param preferred valori preferiti dei cluster sulle colonne discrete
+	 * @param domain valori delle colonne discrete
+	 * @param sink destinazione delle righe
+	 */
+	private void generate(long fromBlock, long toBlock, double[][] centers, int[][] preferred, String[] domain, RowSink sink) {
+		for (long b = fromBlock; b < toBlock; b++) {
+			Random random = new Random(mix(seed + b));
+			long end = Math.min(rows, (b + 1) * BLOCK_ROWS);
+			for (long row = b * BLOCK_ROWS; row < end; row++) {
+				int k = getPlantedCluster(row);
+				for (int i = 0; i < continuous; i++) {
+					sink.numberValue(i, centers[k][i] + random.nextGaussian() * spread * 100);
+				}
+				for (int i = 0; i < discrete; i++) {
+					int v = random.nextDouble() < noise ? random.nextInt(domainSize) : preferred[k][i];
+					sink.stringValue(continuous + i, domain[v]);
+				}
+				sink.endRow();
+			}
+		}
+	}
+
+	/**
+	 * Crea nel database in memoria una tabella con le righe generate, inserite in parallelo se la sorgente
+	 * ha più partizioni.
+	 *
+	 * @param database database in memoria
+	 * @param table nome della tabella da creare (o sostituire)
+	 * @throws IOException se la generazione viene interrotta
+	 */
+	public void populate(InMemoryDatabase database, String table) throws IOException {
+		database.createTable(table, getColumnNames(), getNumericColumns());
+		RowSink[] sinks = new RowSink[partitions];
+		for (int p = 0; p < partitions; p++) {
+			sinks[p] = database.inserter(table);
+		}
+		load(sinks);
+	}
+
+	/**
+	 * Scrive le righe generate in un file delimitato con intestazione, leggibile da {@link DelimitedFileSource}.
+	 *
+	 * @param fileName percorso del file
+	 * @param delimiter separatore dei campi
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	public void writeDelimited(String fileName, char delimiter) throws IOException {
+		String[] names = getColumnNames();
+		try (Writer out = new BufferedWriter(Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8), 1 << 16)) {
+			out.write(String.join(String.valueOf(delimiter), names));
+			out.write('\n');
+			int partitions = this.partitions;
+			this.partitions = 1;
+			try {
+				load(new RowSink[] { new RowSink() {
+					private IOException failure;
+
+					@Override
+					public void numberValue(int column, double value) {
+						field(column, Double.toString(value));
+					}
+
+					@Override
+					public void stringValue(int column, String value) {
+						field(column, value);
+					}
+
+					@Override
+					public void endRow() {
+						field(-1, "\n");
+						if (failure != null) {
+							throw new IllegalStateException(failure);
+						}
+					}
+
+					private void field(int column, String text) {
+						try {
+							if (column > 0) {
+								out.write(delimiter);
+							}
+							out.write(text);
+						} catch (IOException e) {
+							failure = e;
+						}
+					}
+				} });
+			} catch (IllegalStateException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw e;
+			} finally {
+				this.partitions = partitions;
+			}
+		}
+	}
+
+	/**
+	 * Mescola i bit di un valore (funzione finale di SplitMix64), per ricavare semi indipendenti da
+	 * valori consecutivi.
+	 *
+	 * @param z valore
+	 * @return valore mescolato
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
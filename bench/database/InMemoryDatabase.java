@@ -0,0 +1,742 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Database in memoria che sostituisce MySQL nello stesso processo, per eseguire caricamenti, test di
+ * concorrenza e misure di prestazioni senza un server.
+ * <p>
+ * Le connessioni restituite da {@link #connect()} implementano le interfacce JDBC con
+ * {@link java.lang.reflect.Proxy} ed eseguono solo le istruzioni generate da {@link TableData},
+ * {@link TableSchema} e {@link PartitionedTableData} (vedi {@link InMemoryQuery}), più
+ * {@code CHECKSUM TABLE} e la lettura della firma delle colonne e della colonna {@code AUTO_INCREMENT} da
+ * {@code information_schema.COLUMNS}; i metadati
+ * delle colonne sono disponibili da {@link DatabaseMetaData#getColumns(String, String, String, String)}.
+ * Ogni altra operazione solleva {@link SQLFeatureNotSupportedException}. Le tabelle sono in sola lettura
+ * per JDBC: le righe si inseriscono con {@link #insert(String, Object...)} o con una {@link RowSink}
+ * restituita da {@link #inserter(String)}.
+ * </p>
+ * <p>
+ * Con {@link #install()} il database viene registrato nel {@link DriverManager} con l'URL {@value #URL},
+ * indicato come {@code mapdb.url} (vedi {@link DbConfig}), così che il pool condiviso di {@link DbAccess},
+ * {@code new Data(tabella)} e tutte le altre letture lo interroghino al posto di MySQL:
+ * </p>
+ * <pre>
+ * InMemoryDatabase db = new InMemoryDatabase();
+ * db.createTable("playtennis", new String[] {"outlook", "temperature"}, new boolean[] {false, true});
+ * db.insert("playtennis", "sunny", 30.3);
+ * db.install();
+ * Data data = new Data("playtennis");
+ * InMemoryDatabase.uninstall();
+ * </pre>
+ */
+public class InMemoryDatabase {
+
+	/**
+	 * URL JDBC del database installato con {@link #install()}.
+	 */
+	public static final String URL = "jdbc:mapdb-memory:";
+
+	/**
+	 * Proprietà di configurazione con cui {@link DbAccess} legge l'URL del database (vedi {@link DbConfig}).
+	 */
+	private static final String URL_PROPERTY = "mapdb.url";
+
+	/**
+	 * Database installato, {@code null} se nessuno.
+	 */
+	private static volatile InMemoryDatabase installed;
+
+	/**
+	 * Valore di {@link #URL_PROPERTY} prima di {@link #install()}, ripristinato da {@link #uninstall()}.
+	 */
+	private static String previousUrl;
+
+	/**
+	 * Driver registrato nel {@link DriverManager}, {@code null} prima della prima installazione.
+	 */
+	private static Driver driver;
+
+	/**
+	 * Interrogazione della firma delle colonne di una tabella eseguita da {@link TableSchema}.
+	 */
+	private static final Pattern SIGNATURE = Pattern.compile("(?is)\\s*SELECT\\s+COUNT\\(\\*\\)\\s*,\\s*GROUP_CONCAT\\(.*\\bFROM\\s+information_schema\\.COLUMNS\\b.*");
+
+	/**
+	 * Interrogazione della colonna {@code AUTO_INCREMENT} di una tabella eseguita da {@link TableData}.
+	 */
+	private static final Pattern AUTO_INCREMENT = Pattern.compile("(?is)\\s*SELECT\\s+COLUMN_NAME\\s+FROM\\s+information_schema\\.COLUMNS\\b.*auto_increment.*");
+
+	/**
+	 * Istruzione {@code CHECKSUM TABLE}.
+	 */
+	private static final Pattern CHECKSUM = Pattern.compile("(?is)\\s*CHECKSUM\\s+TABLE\\s+([A-Za-z0-9_$]+)\\s*");
+
+	/**
+	 * Tabella in memoria.
+	 */
+	static class Table {
+
+		private String name;			// Nome della tabella
+		private String[] columns;		// Nomi delle colonne
+		private boolean[] numeric;		// Tipo delle colonne: true per le numeriche
+		private List<Object[]> rows = new ArrayList<>();	// Righe: Double, String o null
+		private long checksum;			// Somma degli hash delle righe
+		private volatile String autoIncrement;	// Colonna dichiarata AUTO_INCREMENT, null se assente
+
+		Table(String name, String[] columns, boolean[] numeric) {
+			this.name = name;
+			this.columns = columns.clone();
+			this.numeric = numeric.clone();
+		}
+
+		String getName() {
+			return name;
+		}
+
+		String[] getColumns() {
+			return columns.clone();
+		}
+
+		/**
+		 * Restituisce l'indice di una colonna, senza distinguere maiuscole e minuscole come MySQL.
+		 *
+		 * @param column nome della colonna
+		 * @return indice della colonna, -1 se assente
+		 */
+		int indexOf(String column) {
+			for (int i = 0; i < columns.length; i++) {
+				if (columns[i].equalsIgnoreCase(column)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		synchronized void add(Object[] row) {
+			rows.add(row);
+			checksum += Arrays.hashCode(row);
+		}
+
+		/**
+		 * Restituisce una copia dell'elenco delle righe, così che un'interrogazione non veda gli inserimenti
+		 * concorrenti.
+		 *
+		 * @return righe presenti
+		 */
+		synchronized Object[][] snapshot() {
+			return rows.toArray(new Object[0][]);
+		}
+
+		synchronized long getChecksum() {
+			return checksum;
+		}
+	}
+
+	/**
+	 * Nome del database restituito da {@link Connection#getCatalog()}.
+	 */
+	private String name;
+
+	/**
+	 * Tabelle per nome.
+	 */
+	private Map<String, Table> tables = new ConcurrentHashMap<>();
+
+	/**
+	 * Costruttore: crea un database vuoto con il nome predefinito della configurazione.
+	 */
+	public InMemoryDatabase() {
+		this(new DbConfig().getDatabase());
+	}
+
+	/**
+	 * Costruttore: crea un database vuoto.
+	 *
+	 * @param name nome del database
+	 */
+	public InMemoryDatabase(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Crea una tabella vuota, sostituendo quella con lo stesso nome.
+	 *
+	 * @param table nome della tabella
+	 * @param columns nomi delle colonne
+	 * @param numeric per ogni colonna, {@code true} se numerica ({@code DOUBLE}), {@code false} se testuale ({@code VARCHAR})
+	 * @throws IllegalArgumentException se il nome non e' un identificatore valido o nomi e tipi non sono coerenti
+	 */
+	public void createTable(String table, String[] columns, boolean[] numeric) {
+		if (table == null || !table.matches("[A-Za-z0-9_$]+")) {
+			throw new IllegalArgumentException("Nome di tabella non valido: " + table);
+		}
+		if (columns.length == 0 || columns.length != numeric.length) {
+			throw new IllegalArgumentException("Occorrono un tipo per ciascuna colonna e almeno una colonna.");
+		}
+		tables.put(table, new Table(table, columns, numeric));
+		TableSchema.invalidate(table);
+	}
+
+	/**
+	 * Dichiara {@code AUTO_INCREMENT} una colonna numerica, come la chiave primaria di una tabella MySQL.
+	 * I valori non vengono generati: li fornisce {@link #insert(String, Object...)}, crescenti.
+	 *
+	 * @param table nome della tabella
+	 * @param column nome della colonna
+	 * @throws IllegalArgumentException se la tabella non esiste o la colonna non e' numerica
+	 */
+	public void setAutoIncrement(String table, String column) {
+		Table t = requireTable(table);
+		int c = t.indexOf(column);
+		if (c < 0 || !t.numeric[c]) {
+			throw new IllegalArgumentException("La colonna " + column + " non e' una colonna numerica della tabella " + table);
+		}
+		t.autoIncrement = t.columns[c];
+	}
+
+	/**
+	 * Elimina una tabella.
+	 *
+	 * @param table nome della tabella
+	 */
+	public void dropTable(String table) {
+		tables.remove(table);
+		TableSchema.invalidate(table);
+	}
+
+	/**
+	 * Inserisce una riga.
+	 *
+	 * @param table nome della tabella
+	 * @param values un valore per colonna: {@link Number} per le colonne numeriche, {@link String} per le
+	 *        testuali, {@code null} per NULL
+	 * @throws IllegalArgumentException se la tabella non esiste o i valori non rispettano le colonne
+	 */
+	public void insert(String table, Object... values) {
+		Table t = requireTable(table);
+		if (values.length != t.columns.length) {
+			throw new IllegalArgumentException("Attesi " + t.columns.length + " valori per la tabella " + table + ", ricevuti " + values.length);
+		}
+		Object[] row = new Object[values.length];
+		for (int i = 0; i < values.length; i++) {
+			Object v = values[i];
+			if (v != null && t.numeric[i] != (v instanceof Number)) {
+				throw new IllegalArgumentException("Valore " + v + " non ammesso nella colonna " + t.columns[i]);
+			}
+			row[i] = v instanceof Number ? (Object) ((Number) v).doubleValue() : v;
+		}
+		t.add(row);
+	}
+
+	/**
+	 * Restituisce una destinazione che inserisce nella tabella le righe ricevute. Ogni destinazione
+	 * accumula la propria riga corrente: più thread possono inserire contemporaneamente, ciascuno con
+	 * la propria destinazione.
+	 *
+	 * @param table nome della tabella
+	 * @return destinazione delle righe
+	 * @throws IllegalArgumentException se la tabella non esiste
+	 */
+	public RowSink inserter(String table) {
+		Table t = requireTable(table);
+		return new RowSink() {
+			private Object[] row = new Object[t.columns.length];
+
+			@Override
+			public void numberValue(int column, double value) {
+				row[column] = value;
+			}
+
+			@Override
+			public void numberNull(int column) {
+				row[column] = null;
+			}
+
+			@Override
+			public void stringValue(int column, String value) {
+				row[column] = value;
+			}
+
+			@Override
+			public void endRow() {
+				t.add(row);
+				row = new Object[t.columns.length];
+			}
+		};
+	}
+
+	/**
+	 * Restituisce il numero di righe di una tabella.
+	 *
+	 * @param table nome della tabella
+	 * @return numero di righe
+	 * @throws IllegalArgumentException se la tabella non esiste
+	 */
+	public int size(String table) {
+		return requireTable(table).snapshot().length;
+	}
+
+	/**
+	 * Restituisce una tabella.
+	 *
+	 * @param table nome della tabella
+	 * @return tabella, {@code null} se non esiste
+	 */
+	Table getTable(String table) {
+		return tables.get(table);
+	}
+
+	private Table requireTable(String table) {
+		Table t = tables.get(table);
+		if (t == null) {
+			throw new IllegalArgumentException("Tabella inesistente: " + table);
+		}
+		return t;
+	}
+
+	/**
+	 * Rende questo database la destinazione dell'URL {@link #URL}, imposta quell'URL come {@code mapdb.url}
+	 * e chiude il pool condiviso di {@link DbAccess}, che alla prossima richiesta viene ricreato con
+	 * connessioni a questo database; svuota inoltre la cache degli schemi. Le connessioni già prese dal
+	 * pool precedente restano valide.
+	 *
+	 * @throws IllegalStateException se il driver non può essere registrato
+	 */
+	public void install() {
+		synchronized (InMemoryDatabase.class) {
+			if (driver == null) {
+				Driver d = new MemoryDriver();
+				try {
+					DriverManager.registerDriver(d);
+				} catch (SQLException e) {
+					throw new IllegalStateException("Driver del database in memoria non registrato: " + e.getMessage(), e);
+				}
+				driver = d;
+			}
+			if (installed == null) {
+				previousUrl = System.getProperty(URL_PROPERTY);
+			}
+			installed = this;
+			System.setProperty(URL_PROPERTY, URL);
+		}
+		DbAccess.closePool();
+		TableSchema.invalidateAll();
+	}
+
+	/**
+	 * Ripristina {@code mapdb.url}, chiude il pool del database in memoria e svuota la cache degli schemi:
+	 * le richieste successive tornano a usare MySQL secondo la configurazione.
+	 */
+	public static void uninstall() {
+		synchronized (InMemoryDatabase.class) {
+			if (installed != null) {
+				if (previousUrl == null) {
+					System.clearProperty(URL_PROPERTY);
+				} else {
+					System.setProperty(URL_PROPERTY, previousUrl);
+				}
+				installed = null;
+			}
+		}
+		DbAccess.closePool();
+		TableSchema.invalidateAll();
+	}
+
+	/**
+	 * Apre una connessione a questo database.
+	 *
+	 * @return connessione JDBC
+	 */
+	public Connection connect() {
+		return proxy(Connection.class, new ConnectionHandler());
+	}
+
+	// ---------------------------------------------------------------- implementazione JDBC
+
+	/**
+	 * Driver JDBC che apre le connessioni dell'URL {@link #URL} sul database installato.
+	 */
+	private static class MemoryDriver implements Driver {
+
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+			InMemoryDatabase database = installed;
+			if (database == null) {
+				throw new SQLException("Nessun database in memoria installato.");
+			}
+			return database.connect();
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return url != null && url.startsWith(URL);
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException("Log del driver non supportato.");
+		}
+	}
+
+	/**
+	 * Crea un'implementazione di un'interfaccia JDBC.
+	 *
+	 * @param <T> interfaccia
+	 * @param type interfaccia
+	 * @param handler gestore delle chiamate
+	 * @return oggetto che inoltra le chiamate al gestore
+	 */
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(InMemoryDatabase.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	/**
+	 * Gestore comune degli oggetti JDBC: metodi di {@link Object}, {@code close}, {@code isClosed},
+	 * {@code unwrap} e {@code isWrapperFor}; le altre chiamate vengono passate a {@link #handle(String, Object[])}.
+	 */
+	private abstract static class Handler implements InvocationHandler {
+
+		protected boolean closed;		// Indica se l'oggetto e' stato chiuso
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			Object[] a = args == null ? new Object[0] : args;
+			switch (name) {
+			case "toString": return "InMemoryDatabase." + getClass().getSimpleName();
+			case "hashCode": return System.identityHashCode(proxy);
+			case "equals": return proxy == a[0];
+			case "close": closed = true; onClose(); return null;
+			case "isClosed": return closed;
+			case "isWrapperFor": return false;
+			case "unwrap": throw new SQLException("Nessun oggetto incapsulato.");
+			default:
+				if (closed) {
+					throw new SQLException("Oggetto JDBC già chiuso: " + name);
+				}
+				try {
+					return handle(name, a);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+
+		/**
+		 * Chiamato alla chiusura dell'oggetto.
+		 */
+		protected void onClose() {
+		}
+
+		/**
+		 * Gestisce una chiamata.
+		 *
+		 * @param method nome del metodo
+		 * @param args argomenti
+		 * @return risultato della chiamata
+		 * @throws Exception se la chiamata fallisce
+		 */
+		protected abstract Object handle(String method, Object[] args) throws Exception;
+
+		protected static SQLException unsupported(String method) {
+			return new SQLFeatureNotSupportedException("Operazione non supportata dal database in memoria: " + method);
+		}
+	}
+
+	private class ConnectionHandler extends Handler {
+
+		private boolean autoCommit = true;
+
+		@Override
+		protected Object handle(String method, Object[] args) throws Exception {
+			switch (method) {
+			case "createStatement":
+				return proxy(Statement.class, new StatementHandler(null));
+			case "prepareStatement":
+				if (args.length != 1 && args.length != 3) {
+					throw unsupported(method);
+				}
+				return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+			case "getMetaData":
+				return proxy(DatabaseMetaData.class, new MetaDataHandler());
+			case "isValid":
+				return true;
+			case "getCatalog":
+				return name;
+			case "getAutoCommit":
+				return autoCommit;
+			case "setAutoCommit":
+				autoCommit = (Boolean) args[0];
+				return null;
+			case "commit":
+			case "rollback":
+			case "clearWarnings":
+				return null;
+			case "getWarnings":
+				return null;
+			default:
+				throw unsupported(method);
+			}
+		}
+	}
+
+	private class MetaDataHandler extends Handler {
+
+		@Override
+		protected Object handle(String method, Object[] args) throws Exception {
+			if (!method.equals("getColumns")) {
+				throw unsupported(method);
+			}
+			Table t = tables.get((String) args[2]);
+			List<Object[]> rows = new ArrayList<>();
+			if (t != null) {
+				for (int i = 0; i < t.columns.length; i++) {
+					rows.add(new Object[] { name, null, t.name, t.columns[i], t.numeric[i] ? "DOUBLE" : "VARCHAR", (double) (i + 1) });
+				}
+			}
+			return resultSet(new String[] { "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "TYPE_NAME", "ORDINAL_POSITION" }, rows);
+		}
+	}
+
+	private class StatementHandler extends Handler {
+
+		private String sql;						// Testo dell'istruzione preparata, null per uno Statement
+		private Object[] parameters = new Object[1];	// Valori dei segnaposto, dall'indice 1
+
+		StatementHandler(String sql) {
+			this.sql = sql;
+		}
+
+		@Override
+		protected Object handle(String method, Object[] args) throws Exception {
+			switch (method) {
+			case "executeQuery":
+				if (args.length == 0 && sql == null || args.length == 1 && sql != null) {
+					throw new SQLException("executeQuery con il testo solo per gli Statement non preparati.");
+				}
+				return execute(args.length == 1 ? (String) args[0] : sql, parameters);
+			case "setDouble":
+			case "setString":
+			case "setInt":
+			case "setLong":
+			case "setObject":
+				set((Integer) args[0], args[1] instanceof Number ? (Object) ((Number) args[1]).doubleValue() : args[1]);
+				return null;
+			case "setNull":
+				set((Integer) args[0], null);
+				return null;
+			case "clearParameters":
+				parameters = new Object[1];
+				return null;
+			case "setFetchSize":
+			case "setMaxRows":
+			case "setQueryTimeout":
+			case "clearWarnings":
+				return null;
+			case "getWarnings":
+				return null;
+			default:
+				throw unsupported(method);
+			}
+		}
+
+		private void set(int index, Object value) throws SQLException {
+			if (index < 1) {
+				throw new SQLException("Indice di parametro non valido: " + index);
+			}
+			if (index >= parameters.length) {
+				parameters = Arrays.copyOf(parameters, index + 1);
+			}
+			parameters[index] = value;
+		}
+	}
+
+	/**
+	 * Esegue un'interrogazione.
+	 *
+	 * @param sql testo dell'interrogazione
+	 * @param parameters valori dei segnaposto, dall'indice 1
+	 * @return risultato
+	 * @throws SQLException se l'istruzione non e' supportata o fa riferimento a tabelle o colonne inesistenti
+	 */
+	private ResultSet execute(String sql, Object[] parameters) throws SQLException {
+		Matcher checksum = CHECKSUM.matcher(sql);
+		if (checksum.matches()) {
+			Table t = tables.get(checksum.group(1));
+			Object value = t == null ? null : (Object) t.getChecksum();
+			return resultSet(new String[] { "Table", "Checksum" },
+					Collections.singletonList(new Object[] { name + "." + checksum.group(1), value }));
+		}
+		if (AUTO_INCREMENT.matcher(sql).matches()) {
+			Table t = parameters.length > 1 && parameters[1] != null ? tables.get(parameters[1].toString()) : null;
+			List<Object[]> rows = new ArrayList<>();
+			if (t != null && t.autoIncrement != null) {
+				rows.add(new Object[] { t.autoIncrement });
+			}
+			return resultSet(new String[] { "COLUMN_NAME" }, rows);
+		}
+		if (SIGNATURE.matcher(sql).matches()) {
+			Table t = parameters.length > 1 && parameters[1] != null ? tables.get(parameters[1].toString()) : null;
+			StringBuilder columns = new StringBuilder();
+			for (int i = 0; t != null && i < t.columns.length; i++) {
+				columns.append(i == 0 ? "" : ",").append(t.columns[i]).append(t.numeric[i] ? " double" : " varchar");
+			}
+			Object[] row = { (double) (t == null ? 0 : t.columns.length), t == null ? null : columns.toString() };
+			return resultSet(new String[] { "COUNT(*)", "GROUP_CONCAT" }, Collections.singletonList(row));
+		}
+		if (!sql.trim().toUpperCase(Locale.ROOT).startsWith("SELECT")) {
+			throw new SQLFeatureNotSupportedException("Istruzione non supportata dal database in memoria: " + sql);
+		}
+		InMemoryQuery query = new InMemoryQuery(this, sql, parameters);
+		return resultSet(query.getLabels(), query.execute());
+	}
+
+	/**
+	 * Crea un {@link ResultSet} in avanti sulle righe indicate.
+	 *
+	 * @param labels etichette delle colonne
+	 * @param rows righe
+	 * @return risultato
+	 */
+	private static ResultSet resultSet(String[] labels, List<Object[]> rows) {
+		return proxy(ResultSet.class, new ResultSetHandler(labels, rows));
+	}
+
+	private static class ResultSetHandler extends Handler {
+
+		private String[] labels;		// Etichette delle colonne
+		private List<Object[]> rows;	// Righe del risultato
+		private int current = -1;		// Indice della riga corrente
+		private boolean wasNull;		// Indica se l'ultimo valore letto era NULL
+
+		ResultSetHandler(String[] labels, List<Object[]> rows) {
+			this.labels = labels;
+			this.rows = rows;
+		}
+
+		@Override
+		protected Object handle(String method, Object[] args) throws Exception {
+			switch (method) {
+			case "next":
+				current++;
+				return current < rows.size();
+			case "wasNull":
+				return wasNull;
+			case "findColumn":
+				return column(args[0]) + 1;
+			case "setFetchSize":
+				return null;
+			case "getObject":
+				return value(args[0]);
+			case "getString": {
+				Object v = value(args[0]);
+				return v == null ? null : InMemoryQuery.text(v);
+			}
+			case "getDouble":
+			case "getFloat":
+			case "getLong":
+			case "getInt": {
+				Object v = value(args[0]);
+				double d = v == null ? 0 : v instanceof Number ? ((Number) v).doubleValue() : parse(v.toString());
+				switch (method) {
+				case "getDouble": return d;
+				case "getFloat": return (float) d;
+				case "getLong": return (long) d;
+				default: return (int) d;
+				}
+			}
+			case "getTimestamp": {
+				Object v = value(args[0]);
+				if (v != null && !(v instanceof Timestamp)) {
+					throw new SQLException("Il valore non e' una data: " + v);
+				}
+				return v;
+			}
+			default:
+				throw unsupported(method);
+			}
+		}
+
+		private Object value(Object column) throws SQLException {
+			if (current < 0 || current >= rows.size()) {
+				throw new SQLException("Nessuna riga corrente.");
+			}
+			Object v = rows.get(current)[column(column)];
+			wasNull = v == null;
+			return v;
+		}
+
+		private int column(Object column) throws SQLException {
+			if (column instanceof Integer) {
+				int index = (Integer) column;
+				if (index < 1 || index > labels.length) {
+					throw new SQLException("Indice di colonna non valido: " + index);
+				}
+				return index - 1;
+			}
+			for (int i = 0; i < labels.length; i++) {
+				if (labels[i].equalsIgnoreCase((String) column)) {
+					return i;
+				}
+			}
+			throw new SQLException("Colonna inesistente nel risultato: " + column);
+		}
+
+		private static double parse(String value) throws SQLException {
+			try {
+				return Double.parseDouble(value.trim());
+			} catch (NumberFormatException e) {
+				throw new SQLException("Valore non numerico: " + value, e);
+			}
+		}
+	}
+}
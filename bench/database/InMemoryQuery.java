@@ -0,0 +1,611 @@
+package database;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Interrogazione {@code SELECT} eseguita da {@link InMemoryDatabase} sulle tabelle in memoria.
+ * <p>
+ * E' supportato solo il sottoinsieme di SQL generato da questo progetto:
+ * </p>
+ * <pre>
+ * SELECT [DISTINCT] voce {, voce} FROM sorgente [WHERE condizione] [ORDER BY colonna]
+ * voce       := * | colonna | MIN(colonna) | MAX(colonna) | COUNT(*)
+ * sorgente   := tabella | ( interrogazione ) alias
+ * condizione := condizione OR condizione | condizione AND condizione | NOT condizione | ( condizione )
+ *             | valore op valore | valore IS [NOT] NULL | valore IN ( valore {, valore} )
+ * op         := = | &lt;&gt; | != | &lt; | &lt;= | &gt; | &gt;=
+ * valore     := colonna | numero | 'stringa' | ? | MOD(valore, valore) | CRC32(valore) | WEIGHT_STRING(valore) | RAND(seme)
+ * </pre>
+ * <p>
+ * Le condizioni seguono la logica a tre valori di SQL (un confronto con NULL e' sconosciuto e la riga
+ * viene scartata); le stringhe sono confrontate carattere per carattere, senza la collation di MySQL,
+ * e per coerenza {@code WEIGHT_STRING} restituisce il valore stesso, come per una collation binaria.
+ * {@code RAND(seme)} produce una sequenza deterministica per seme e interrogazione, diversa da quella di MySQL.
+ * Una sottointerrogazione nella clausola FROM viene eseguita per prima e le sue righe diventano la tabella
+ * dell'interrogazione esterna, con le etichette delle sue voci come nomi delle colonne.
+ * </p>
+ */
+class InMemoryQuery {
+
+	/**
+	 * Espressione valutata su una riga.
+	 */
+	private interface Expr {
+
+		/**
+		 * Valuta l'espressione.
+		 *
+		 * @param row valori della riga (Double, String o {@code null})
+		 * @return valore: Double, Long, String, Boolean o {@code null} (NULL o sconosciuto)
+		 */
+		Object eval(Object[] row);
+	}
+
+	/**
+	 * Tipi di voce della clausola SELECT.
+	 */
+	private enum ItemKind { COLUMN, MIN, MAX, COUNT }
+
+	private String sql;					// Testo dell'interrogazione, per i messaggi di errore
+	private List<String> tokens;		// Simboli dell'interrogazione
+	private int next;					// Indice del prossimo simbolo da leggere
+	private Object[] parameters;		// Valori dei segnaposto ?, dall'indice 1
+	private int nextParameter = 1;		// Indice del prossimo segnaposto
+
+	private InMemoryDatabase.Table table;	// Tabella interrogata, o risultato della sottointerrogazione
+	private InMemoryQuery source;			// Sottointerrogazione nella clausola FROM, null se assente
+	private boolean distinct;
+	private List<ItemKind> kinds = new ArrayList<>();
+	private List<Integer> columns = new ArrayList<>();	// Colonna di ogni voce, -1 per COUNT(*)
+	private List<String> labels = new ArrayList<>();
+	private Expr where;
+	private int orderBy = -1;			// Indice della voce su cui ordinare, -1 se assente
+
+	/**
+	 * Costruttore: analizza l'interrogazione.
+	 *
+	 * @param database database su cui risolvere la tabella
+	 * @param sql testo dell'interrogazione
+	 * @param parameters valori dei segnaposto, dall'indice 1
+	 * @throws SQLException se l'interrogazione non appartiene al sottoinsieme supportato o la tabella non esiste
+	 */
+	InMemoryQuery(InMemoryDatabase database, String sql, Object[] parameters) throws SQLException {
+		this.sql = sql;
+		this.parameters = parameters;
+		this.tokens = tokenize(sql);
+		parse(database, false);
+	}
+
+	/**
+	 * Costruttore di una sottointerrogazione: analizza i simboli dell'interrogazione esterna a partire
+	 * da quello corrente, fino alla parentesi che la chiude.
+	 *
+	 * @param database database su cui risolvere la tabella
+	 * @param outer interrogazione esterna
+	 * @throws SQLException se la sottointerrogazione non appartiene al sottoinsieme supportato
+	 */
+	private InMemoryQuery(InMemoryDatabase database, InMemoryQuery outer) throws SQLException {
+		this.sql = outer.sql;
+		this.parameters = outer.parameters;
+		this.tokens = outer.tokens;
+		this.next = outer.next;
+		this.nextParameter = outer.nextParameter;
+		parse(database, true);
+	}
+
+	/**
+	 * Restituisce le etichette delle colonne del risultato.
+	 *
+	 * @return etichette, nell'ordine delle voci
+	 */
+	String[] getLabels() {
+		return labels.toArray(new String[0]);
+	}
+
+	/**
+	 * Esegue l'interrogazione su una copia delle righe della tabella.
+	 *
+	 * @return righe del risultato
+	 */
+	List<Object[]> execute() {
+		Object[][] rows = source != null ? source.execute().toArray(new Object[0][]) : table.snapshot();
+		boolean aggregate = kinds.get(0) != ItemKind.COLUMN;
+		if (aggregate) {
+			Object[] result = new Object[kinds.size()];
+			long count = 0;
+			for (Object[] row : rows) {
+				if (!matches(row)) {
+					continue;
+				}
+				count++;
+				for (int i = 0; i < kinds.size(); i++) {
+					if (kinds.get(i) == ItemKind.COUNT) {
+						continue;
+					}
+					Object value = row[columns.get(i)];
+					if (value != null && (result[i] == null
+							|| (compare(value, result[i]) < 0) == (kinds.get(i) == ItemKind.MIN))) {
+						result[i] = value;
+					}
+				}
+			}
+			for (int i = 0; i < kinds.size(); i++) {
+				if (kinds.get(i) == ItemKind.COUNT) {
+					result[i] = count;
+				}
+			}
+			return Arrays.<Object[]>asList(result);
+		}
+
+		List<Object[]> result = new ArrayList<>();
+		Set<List<Object>> seen = distinct ? new LinkedHashSet<>() : null;
+		for (Object[] row : rows) {
+			if (!matches(row)) {
+				continue;
+			}
+			Object[] values = new Object[columns.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = row[columns.get(i)];
+			}
+			if (seen == null || seen.add(Arrays.asList(values))) {
+				result.add(values);
+			}
+		}
+		if (orderBy >= 0) {
+			int k = orderBy;
+			result.sort(Comparator.comparing((Object[] r) -> r[k], Comparator.nullsFirst(InMemoryQuery::compare)));
+		}
+		return result;
+	}
+
+	/**
+	 * Indica se una riga soddisfa la clausola WHERE.
+	 *
+	 * @param row valori della riga
+	 * @return {@code true} se la condizione e' vera (non falsa né sconosciuta)
+	 */
+	private boolean matches(Object[] row) {
+		return where == null || Boolean.TRUE.equals(where.eval(row));
+	}
+
+	// ---------------------------------------------------------------- analisi sintattica
+
+	private void parse(InMemoryDatabase database, boolean nested) throws SQLException {
+		expect("SELECT");
+		distinct = accept("DISTINCT");
+		List<String[]> items = new ArrayList<>();	// {tipo, colonna}
+		boolean all = accept("*");
+		while (!all) {
+			String word = word();
+			String upper = word.toUpperCase(Locale.ROOT);
+			if ((upper.equals("MIN") || upper.equals("MAX") || upper.equals("COUNT")) && accept("(")) {
+				String column;
+				if (upper.equals("COUNT")) {
+					expect("*");
+					column = "*";
+				} else {
+					column = word();
+				}
+				expect(")");
+				items.add(new String[] { upper, column });
+				labels.add(upper + "(" + column + ")");
+			} else {
+				items.add(new String[] { "COLUMN", word });
+				labels.add(word);
+			}
+			if (!accept(",")) {
+				break;
+			}
+		}
+		expect("FROM");
+		if (accept("(")) {
+			source = new InMemoryQuery(database, this);
+			next = source.next;
+			nextParameter = source.nextParameter;
+			expect(")");
+			String[] names = source.getLabels();
+			table = new InMemoryDatabase.Table(word(), names, new boolean[names.length]);
+		} else {
+			String tableName = word();
+			table = database.getTable(tableName);
+			if (table == null) {
+				throw new SQLSyntaxErrorException("Tabella inesistente: " + tableName);
+			}
+		}
+		if (all) {
+			for (String name : table.getColumns()) {
+				items.add(new String[] { "COLUMN", name });
+				labels.add(name);
+			}
+		}
+
+		for (String[] item : items) {
+			ItemKind kind = ItemKind.valueOf(item[0]);
+			if ((kind == ItemKind.COLUMN) != (items.get(0)[0].equals("COLUMN"))) {
+				throw error("colonne e funzioni di aggregazione insieme senza GROUP BY");
+			}
+			kinds.add(kind);
+			columns.add(kind == ItemKind.COUNT ? -1 : column(item[1]));
+		}
+		if (accept("WHERE")) {
+			where = or();
+		}
+		if (accept("ORDER")) {
+			expect("BY");
+			int c = column(word());
+			orderBy = columns.indexOf(c);
+			if (orderBy < 0) {
+				throw error("ORDER BY su una colonna non selezionata");
+			}
+		}
+		if (next < tokens.size() && !(nested && peek(")"))) {
+			throw error("simbolo inatteso " + tokens.get(next));
+		}
+	}
+
+	private Expr or() throws SQLException {
+		Expr left = and();
+		while (accept("OR")) {
+			Expr l = left;
+			Expr r = and();
+			left = row -> {
+				Object a = l.eval(row);
+				Object b = r.eval(row);
+				if (Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b)) {
+					return true;
+				}
+				return a == null || b == null ? null : false;
+			};
+		}
+		return left;
+	}
+
+	private Expr and() throws SQLException {
+		Expr left = not();
+		while (accept("AND")) {
+			Expr l = left;
+			Expr r = not();
+			left = row -> {
+				Object a = l.eval(row);
+				if (Boolean.FALSE.equals(a)) {
+					return false;
+				}
+				Object b = r.eval(row);
+				if (Boolean.FALSE.equals(b)) {
+					return false;
+				}
+				return a == null || b == null ? null : true;
+			};
+		}
+		return left;
+	}
+
+	private Expr not() throws SQLException {
+		if (accept("NOT")) {
+			Expr e = not();
+			return row -> {
+				Object v = e.eval(row);
+				return v == null ? null : !Boolean.TRUE.equals(v);
+			};
+		}
+		return predicate();
+	}
+
+	private Expr predicate() throws SQLException {
+		if (peek("(")) {
+			// parentesi di una condizione o di un valore: si prova prima la condizione
+			int mark = next;
+			int markParameter = nextParameter;
+			next++;
+			try {
+				Expr inner = or();
+				if (accept(")") && !isOperator(peekToken())) {
+					return inner;
+				}
+			} catch (SQLException e) {
+				// non e' una condizione: si rilegge come valore
+			}
+			next = mark;
+			nextParameter = markParameter;
+		}
+		Expr left = value();
+		if (accept("IS")) {
+			boolean negated = accept("NOT");
+			expect("NULL");
+			return row -> (left.eval(row) == null) != negated;
+		}
+		if (accept("IN")) {
+			expect("(");
+			List<Expr> list = new ArrayList<>();
+			do {
+				list.add(value());
+			} while (accept(","));
+			expect(")");
+			return row -> {
+				Object v = left.eval(row);
+				if (v == null) {
+					return null;
+				}
+				boolean unknown = false;
+				for (Expr e : list) {
+					Object w = e.eval(row);
+					if (w == null) {
+						unknown = true;
+					} else if (compare(v, w) == 0) {
+						return true;
+					}
+				}
+				return unknown ? null : false;
+			};
+		}
+		String op = peekToken();
+		if (!isOperator(op)) {
+			throw error("operatore di confronto atteso invece di " + op);
+		}
+		next++;
+		Expr right = value();
+		return row -> {
+			Object a = left.eval(row);
+			Object b = right.eval(row);
+			if (a == null || b == null) {
+				return null;
+			}
+			int c = compare(a, b);
+			switch (op) {
+			case "=": return c == 0;
+			case "<>": case "!=": return c != 0;
+			case "<": return c < 0;
+			case "<=": return c <= 0;
+			case ">": return c > 0;
+			default: return c >= 0;
+			}
+		};
+	}
+
+	private Expr value() throws SQLException {
+		String token = peekToken();
+		if (token == null) {
+			throw error("valore atteso alla fine dell'interrogazione");
+		}
+		next++;
+		if (token.equals("(")) {
+			Expr inner = value();
+			expect(")");
+			return inner;
+		}
+		if (token.equals("?")) {
+			if (nextParameter >= parameters.length) {
+				throw error("segnaposto senza valore");
+			}
+			Object v = parameters[nextParameter++];
+			return row -> v;
+		}
+		if (token.startsWith("'")) {
+			String s = token.substring(1, token.length() - 1).replace("''", "'");
+			return row -> s;
+		}
+		char first = token.charAt(0);
+		if (Character.isDigit(first) || first == '-' || first == '.') {
+			try {
+				Double d = Double.valueOf(token);
+				return row -> d;
+			} catch (NumberFormatException e) {
+				throw error("numero non valido " + token);
+			}
+		}
+		String upper = token.toUpperCase(Locale.ROOT);
+		if (accept("(")) {
+			switch (upper) {
+			case "MOD": {
+				Expr a = value();
+				expect(",");
+				Expr b = value();
+				expect(")");
+				return row -> {
+					Object x = a.eval(row);
+					Object y = b.eval(row);
+					if (x == null || y == null || toDouble(y) == 0) {
+						return null;
+					}
+					return toDouble(x) % toDouble(y);
+				};
+			}
+			case "CRC32": {
+				Expr a = value();
+				expect(")");
+				return row -> {
+					Object x = a.eval(row);
+					if (x == null) {
+						return null;
+					}
+					CRC32 crc = new CRC32();
+					crc.update(text(x).getBytes(StandardCharsets.UTF_8));
+					return (double) crc.getValue();
+				};
+			}
+			case "WEIGHT_STRING": {
+				Expr a = value();
+				expect(")");
+				return row -> {
+					Object x = a.eval(row);
+					return x == null ? null : text(x);
+				};
+			}
+			case "RAND": {
+				String seed = peekToken();
+				next++;
+				expect(")");
+				Random random;
+				try {
+					random = new Random(Long.parseLong(seed));
+				} catch (NumberFormatException | NullPointerException e) {
+					throw error("seme di RAND non valido " + seed);
+				}
+				return row -> random.nextDouble();
+			}
+			default:
+				throw error("funzione non supportata " + token);
+			}
+		}
+		int c = column(token);
+		return row -> row[c];
+	}
+
+	// ---------------------------------------------------------------- simboli
+
+	/**
+	 * Divide l'interrogazione in simboli: identificatori, numeri, stringhe tra apici, segnaposto e operatori.
+	 *
+	 * @param sql testo dell'interrogazione
+	 * @return simboli
+	 * @throws SQLException se l'interrogazione contiene un carattere non previsto
+	 */
+	private static List<String> tokenize(String sql) throws SQLException {
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			int start = i;
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			String previous = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+			boolean signed = c == '-' && i + 1 < sql.length()
+					&& (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')
+					&& (previous == null || isOperator(previous) || previous.equals("(") || previous.equals(","));
+			if (Character.isDigit(c) || c == '.' || signed) {
+				i++;
+				while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.'
+						|| ((sql.charAt(i) == '-' || sql.charAt(i) == '+') && Character.toUpperCase(sql.charAt(i - 1)) == 'E'))) {
+					i++;
+				}
+			} else if (Character.isLetter(c) || c == '_' || c == '$') {
+				while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+						|| sql.charAt(i) == '$' || sql.charAt(i) == '.')) {
+					i++;
+				}
+			} else if (c == '\'') {
+				i++;
+				while (i < sql.length() && (sql.charAt(i) != '\'' || (i + 1 < sql.length() && sql.charAt(i + 1) == '\''))) {
+					i += sql.charAt(i) == '\'' ? 2 : 1;
+				}
+				if (i >= sql.length()) {
+					throw new SQLSyntaxErrorException("Stringa non terminata: " + sql);
+				}
+				i++;
+			} else if ((c == '<' || c == '>' || c == '!') && i + 1 < sql.length()
+					&& (sql.charAt(i + 1) == '=' || (c == '<' && sql.charAt(i + 1) == '>'))) {
+				i += 2;
+			} else if ("(),*=<>?".indexOf(c) >= 0) {
+				i++;
+			} else {
+				throw new SQLSyntaxErrorException("Carattere non previsto '" + c + "' in: " + sql);
+			}
+			tokens.add(sql.substring(start, i));
+		}
+		return tokens;
+	}
+
+	private static boolean isOperator(String token) {
+		return token != null && (token.equals("=") || token.equals("<>") || token.equals("!=") || token.equals("<")
+				|| token.equals("<=") || token.equals(">") || token.equals(">="));
+	}
+
+	private String peekToken() {
+		return next < tokens.size() ? tokens.get(next) : null;
+	}
+
+	private boolean peek(String expected) {
+		return expected.equalsIgnoreCase(peekToken());
+	}
+
+	private boolean accept(String expected) {
+		if (peek(expected)) {
+			next++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String expected) throws SQLException {
+		if (!accept(expected)) {
+			throw error(expected + " atteso invece di " + peekToken());
+		}
+	}
+
+	private String word() throws SQLException {
+		String token = peekToken();
+		if (token == null || !(Character.isLetter(token.charAt(0)) || token.charAt(0) == '_' || token.charAt(0) == '$')) {
+			throw error("identificatore atteso invece di " + token);
+		}
+		next++;
+		return token;
+	}
+
+	private int column(String name) throws SQLException {
+		int c = table.indexOf(name);
+		if (c < 0) {
+			throw new SQLSyntaxErrorException("Colonna inesistente " + name + " nella tabella " + table.getName());
+		}
+		return c;
+	}
+
+	private SQLException error(String detail) {
+		return new SQLSyntaxErrorException("Interrogazione non supportata (" + detail + "): " + sql);
+	}
+
+	// ---------------------------------------------------------------- valori
+
+	/**
+	 * Confronta due valori non nulli: numericamente se entrambi numeri, altrimenti come stringhe.
+	 *
+	 * @param a primo valore
+	 * @param b secondo valore
+	 * @return esito del confronto
+	 */
+	static int compare(Object a, Object b) {
+		if (a instanceof Number && b instanceof Number) {
+			return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+		}
+		return text(a).compareTo(text(b));
+	}
+
+	private static double toDouble(Object v) {
+		if (v instanceof Number) {
+			return ((Number) v).doubleValue();
+		}
+		try {
+			return Double.parseDouble(v.toString().trim());
+		} catch (NumberFormatException e) {
+			return 0;		// come MySQL, una stringa non numerica vale 0
+		}
+	}
+
+	/**
+	 * Rappresentazione testuale di un valore: i numeri interi senza parte decimale, come in MySQL.
+	 *
+	 * @param v valore non nullo
+	 * @return testo del valore
+	 */
+	static String text(Object v) {
+		if (v instanceof Double) {
+			double d = (Double) v;
+			if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 1e15) {
+				return Long.toString((long) d);
+			}
+		}
+		return v.toString();
+	}
+}
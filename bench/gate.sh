@@ -0,0 +1,16 @@
+#!/bin/bash
+# Controllo delle regressioni: compila progetto e benchmark in bench/out ed esegue RegressionGate
+# confrontando le misure con baseline.txt (codice di uscita 1 se distanze o allocazione peggiorano
+# oltre la tolleranza). Heap e generazione giovane hanno dimensione fissa perché
+# il picco dello heap sia confrontabile.
+# Per rigenerare i riferimenti: ./gate.sh -update
+# Throughput e picco dello heap dipendono dalla macchina e per default sono solo informativi; per
+# controllarli si rigenerano i riferimenti in locale e si indica la tolleranza (gli argomenti
+# successivi sostituiscono -b baseline.txt), maggiore della variazione tra due esecuzioni sulla macchina:
+#   ./gate.sh -b local.txt -update
+#   ./gate.sh -b local.txt -t throughput=0.3 -t peakHeap=0.1
+cd "$(dirname "$0")"
+CP="out:../libs/mysql-connector-java-8.0.17.jar"
+mkdir -p out
+javac -encoding UTF-8 -d out -cp "$CP" ../src/*/*.java */*.java || exit 2
+java -Xms1g -Xmx1g -Xmn64m -XX:+UseSerialGC -cp "$CP" benchmark.RegressionGate -b baseline.txt "$@"
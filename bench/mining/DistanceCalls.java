@@ -0,0 +1,34 @@
+package mining;
+
+import data.CountingTuple;
+import data.Data;
+import data.Tuple;
+
+/**
+ * Conta le chiamate a {@link Tuple#getDistance(Tuple)} eseguite dal QT-Clustering di un dataset, con le
+ * tuple di {@link CountingTuple}. A differenza delle distanze riportate da {@link QTMiner#getStats()}, contate
+ * dall'algoritmo stesso, il conteggio cambia anche se una modifica calcola più volte la stessa distanza.
+ */
+public final class DistanceCalls {
+
+	private DistanceCalls() {
+	}
+
+	/**
+	 * Esegue il QT-Clustering dell'intero dataset e restituisce le distanze calcolate.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param radius raggio di clustering
+	 * @return numero di chiamate a {@link Tuple#getDistance(Tuple)}
+	 */
+	public static long count(Data data, double radius) {
+		long[] calls = new long[1];
+		Tuple[] tuples = CountingTuple.of(data, calls);
+		int[] ids = new int[tuples.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		QTMiner.cluster(ids, tuples, radius, 0, null);
+		return calls[0];
+	}
+}
@@ -0,0 +1,86 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import benchmark.Benchmark;
+import benchmark.Datasets;
+import data.Data;
+import data.Tuple;
+
+/**
+ * Benchmark del QT-Clustering: le operazioni sui cluster, la costruzione di un cluster candidato
+ * (un passo dell'algoritmo, quadratico nel numero di tuple) e il calcolo completo di {@link QTMiner#compute(Data)}.
+ */
+public final class MiningBenchmarks {
+
+	private MiningBenchmarks() {
+	}
+
+	/**
+	 * Restituisce i benchmark del package.
+	 *
+	 * @return benchmark
+	 */
+	public static List<Benchmark> all() {
+		return Arrays.asList(
+				Benchmark.of("Cluster.addData", p -> {
+					int size = Integer.parseInt(p.get("size"));
+					Tuple centroid = Datasets.generate(100, "2c2d").getItemSet(0);
+					Cluster[] cluster = { new Cluster(centroid) };
+					int[] next = { 0 };
+					return () -> {
+						if (next[0] == size) {
+							cluster[0] = new Cluster(centroid);
+							next[0] = 0;
+						}
+						return cluster[0].addData(next[0]++) ? 1 : 0;
+					};
+				}).param("size", "100", "10000"),
+
+				Benchmark.of("Cluster.contain", p -> {
+					int size = Integer.parseInt(p.get("size"));
+					Cluster cluster = new Cluster(Datasets.generate(100, "2c2d").getItemSet(0));
+					for (int id = 0; id < size; id += 2) {
+						cluster.addData(id);
+					}
+					Random random = new Random(Datasets.SEED);
+					int[] probes = new int[4096];
+					for (int i = 0; i < probes.length; i++) {
+						probes[i] = random.nextInt(size);
+					}
+					int[] next = { 0 };
+					return () -> cluster.contain(probes[next[0]++ & (probes.length - 1)]) ? 1 : 0;
+				}).param("size", "100", "10000"),
+
+				Benchmark.of("QTMiner.buildCandidateCluster", p -> {
+					Data data = Datasets.generate(Integer.parseInt(p.get("n")), p.get("mix"));
+					double radius = Double.parseDouble(p.get("radius"));
+					int n = data.getNumberOfExamples();
+					int[] rows = new int[n];
+					Tuple[] tuples = new Tuple[n];
+					for (int i = 0; i < n; i++) {
+						rows[i] = i;
+						tuples[i] = data.getItemSet(i);
+					}
+					boolean[] isClustered = new boolean[n];
+					return () -> QTMiner.buildCandidateCluster(rows, tuples, isClustered, radius).getSize();
+				}).param("n", "500", "2000").param("mix", "4c0d", "2c2d").param("radius", "0.5", "1.5")
+						.unit(TimeUnit.MILLISECONDS),
+
+				Benchmark.of("QTMiner.compute", p -> {
+					Data data = Datasets.generate(Integer.parseInt(p.get("n")), p.get("mix"));
+					double radius = Double.parseDouble(p.get("radius"));
+					return () -> {
+						try {
+							return new QTMiner(radius).compute(data);
+						} catch (ClusteringRadiusException e) {
+							return 1;
+						}
+					};
+				}).param("n", "500", "2000").param("mix", "4c0d", "2c2d", "0c4d").param("radius", "0.5", "1.5")
+						.unit(TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,8 @@
+#!/bin/bash
+# Compila progetto e benchmark in bench/out ed esegue i benchmark; gli argomenti vengono passati a
+# BenchmarkRunner, ad esempio: ./run.sh -wi 2 -i 5 -p n=1000 -rf risultati.json "QTMiner.compute"
+cd "$(dirname "$0")"
+CP="out:../libs/mysql-connector-java-8.0.17.jar"
+mkdir -p out
+javac -encoding UTF-8 -d out -cp "$CP" ../src/*/*.java */*.java || exit 1
+java -cp "$CP" benchmark.BenchmarkRunner "$@"
@@ -1,5 +1,6 @@
 import data.Data;
 import data.EmptyDatasetException;
+import data.RefreshableData;
 import database.DatabaseConnectionException;
 import database.EmptySetException;
 import database.NoValueException;
@@ -7,11 +8,15 @@ import keyboardinput.Keyboard;
 import mining.ClusteringRadiusException;
 import mining.QTMiner;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class MainTest {
 
 	public static void main(String[] args) {
 		char scelta;
+		// Tabelle già caricate: alla richiesta successiva vengono solo aggiornate
+		Map<String, RefreshableData> loaded = new HashMap<>();
 		
 		// L'OUTER TRY cattura solo DatabaseConnectionException (errore di connessione critico)
 		try { 
@@ -26,9 +31,16 @@ public class MainTest {
 				// L'INNER TRY cattura gli errori legati all'esistenza della tabella e al clustering
 				try { 
                     
-                    System.out.println("\nTentativo di caricamento dati dalla tabella '" + tableName + "'...");
-                    // Data lancia: DatabaseConnectionException (propagata), SQLException, EmptySetException, NoValueException
-					data = new Data(tableName); 
+                    RefreshableData handle = loaded.get(tableName);
+                    if (handle == null) {
+                        System.out.println("\nTentativo di caricamento dati dalla tabella '" + tableName + "'...");
+                        // lancia: DatabaseConnectionException (propagata), SQLException, EmptySetException, NoValueException
+                        handle = new RefreshableData(tableName);
+                        loaded.put(tableName, handle);
+                    } else {
+                        System.out.println("\nAggiornamento dei dati della tabella '" + tableName + "': " + handle.refresh());
+                    }
+					data = handle.getData();
 
 					System.out.println("\n--- Dataset Caricato con " + data.getNumberOfExamples() + " Transazioni Distinte ---");
 					System.out.println(data);
@@ -43,6 +55,7 @@ public class MainTest {
 					
 					System.out.println("\n--- Risultato del Clustering ---");
 					System.out.println("Numero di cluster trovati: " + numIter);
+					System.out.println(qt.getStats());
 					System.out.println(qt.getC().toString(data));
                     
 				} catch (ClusteringRadiusException e) {
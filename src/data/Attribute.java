@@ -12,6 +12,11 @@ import java.io.Serializable;
  */
 public abstract class Attribute implements Serializable{
 	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = 6989864111128758201L;
+	
 	/**
 	 * Nome simbolico dell'attributo.
 	 */
@@ -0,0 +1,467 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import database.RowSink;
+
+/**
+ * Rappresentazione colonnare compatta delle transazioni di un dataset.
+ * <p>
+ * Ogni colonna numerica e' un array di {@code double}; ogni colonna discreta e' un array di
+ * codici {@code int} che rimandano a un dizionario dei valori distinti della colonna (il codice
+ * -1 rappresenta NULL). Le righe vengono aggiunte una alla volta tramite l'interfaccia {@link RowSink},
+ * così che il risultato di una query letto in streaming venga codificato senza oggetti intermedi per riga.
+ * </p>
+ * <p>
+ * Durante l'inserimento vengono raccolti anche gli estremi delle colonne numeriche e i dizionari delle
+ * colonne discrete, da cui {@link Data} costruisce lo schema degli attributi senza altre letture della tabella.
+ * </p>
+ */
+class ColumnStore implements RowSink, ColumnarData {
+
+	/**
+	 * Capacità iniziale delle colonne, in righe.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Valori delle colonne numeriche ({@code null} per le colonne discrete).
+	 */
+	private double[][] numbers;
+
+	/**
+	 * Codici dei valori delle colonne discrete ({@code null} per le colonne numeriche).
+	 */
+	private int[][] codes;
+
+	/**
+	 * Valori distinti delle colonne discrete, nell'ordine dei codici.
+	 */
+	private List<List<String>> dictionaries = new ArrayList<>();
+
+	/**
+	 * Codice di ciascun valore distinto delle colonne discrete.
+	 */
+	private List<Map<String, Integer>> lookups = new ArrayList<>();
+
+	/**
+	 * Righe con valore NULL di ciascuna colonna numerica ({@code null} per le colonne discrete).
+	 */
+	private BitSet[] nulls;
+
+	/**
+	 * Minimo dei valori non NULL di ciascuna colonna numerica.
+	 */
+	private double[] min;
+
+	/**
+	 * Massimo dei valori non NULL di ciascuna colonna numerica.
+	 */
+	private double[] max;
+
+	/**
+	 * Indica, per ciascuna colonna numerica, se e' stato ricevuto almeno un valore non NULL.
+	 */
+	private boolean[] hasValues;
+
+	/**
+	 * Numero di righe complete.
+	 */
+	private int rows;
+
+	/**
+	 * Capacità corrente delle colonne, in righe.
+	 */
+	private int capacity = INITIAL_CAPACITY;
+
+	/**
+	 * Costruttore: crea un archivio vuoto con le colonne indicate.
+	 *
+	 * @param isNumber per ogni colonna, {@code true} se numerica
+	 */
+	ColumnStore(boolean[] isNumber) {
+		numbers = new double[isNumber.length][];
+		codes = new int[isNumber.length][];
+		nulls = new BitSet[isNumber.length];
+		min = new double[isNumber.length];
+		max = new double[isNumber.length];
+		hasValues = new boolean[isNumber.length];
+		for (int i = 0; i < isNumber.length; i++) {
+			if (isNumber[i]) {
+				numbers[i] = new double[capacity];
+				nulls[i] = new BitSet();
+				dictionaries.add(null);
+				lookups.add(null);
+			} else {
+				codes[i] = new int[capacity];
+				dictionaries.add(new ArrayList<>());
+				lookups.add(new HashMap<>());
+			}
+		}
+	}
+
+	@Override
+	public void numberValue(int column, double value) {
+		if (numbers[column] == null) {
+			throw new IllegalArgumentException("La colonna " + column + " non e' numerica.");
+		}
+		numbers[column][rows] = value;
+		nulls[column].clear(rows);
+		if (!hasValues[column] || value < min[column]) {
+			min[column] = value;
+		}
+		if (!hasValues[column] || value > max[column]) {
+			max[column] = value;
+		}
+		hasValues[column] = true;
+	}
+
+	/**
+	 * Registra un valore NULL di una colonna numerica come 0, senza considerarlo negli estremi della colonna.
+	 */
+	@Override
+	public void numberNull(int column) {
+		if (numbers[column] == null) {
+			throw new IllegalArgumentException("La colonna " + column + " non e' numerica.");
+		}
+		numbers[column][rows] = 0;
+		nulls[column].set(rows);
+	}
+
+	@Override
+	public void stringValue(int column, String value) {
+		if (codes[column] == null) {
+			throw new IllegalArgumentException("La colonna " + column + " e' numerica.");
+		}
+		int code = -1;
+		if (value != null) {
+			Integer known = lookups.get(column).get(value);
+			if (known == null) {
+				known = dictionaries.get(column).size();
+				dictionaries.get(column).add(value);
+				lookups.get(column).put(value, known);
+			}
+			code = known;
+		}
+		codes[column][rows] = code;
+	}
+
+	@Override
+	public void endRow() {
+		rows++;
+		if (rows == capacity) {
+			resize(capacity + (capacity >> 1));
+		}
+	}
+
+	/**
+	 * Sostituisce una riga completa con la riga in corso di inserimento, che non viene aggiunta.
+	 * <p>
+	 * I valori della riga in corso hanno già aggiornato estremi e dizionari: chi campiona le righe
+	 * (vedi {@link ReservoirSink}) ottiene così le statistiche di tutte le righe lette, non solo di quelle conservate.
+	 * Per scartare la riga in corso basta non chiamare {@link #endRow()}: la riga successiva la sovrascrive.
+	 * </p>
+	 *
+	 * @param row indice della riga da sostituire
+	 */
+	void replaceRow(int row) {
+		for (int i = 0; i < numbers.length; i++) {
+			if (numbers[i] != null) {
+				numbers[i][row] = numbers[i][rows];
+				nulls[i].set(row, nulls[i].get(rows));
+			} else {
+				codes[i][row] = codes[i][rows];
+			}
+		}
+	}
+
+	/**
+	 * Imposta gli estremi di una colonna numerica, sostituendo quelli raccolti durante l'inserimento
+	 * (ad esempio con gli estremi dell'intera tabella quando le righe sono un campione).
+	 *
+	 * @param column indice della colonna
+	 * @param min valore minimo
+	 * @param max valore massimo
+	 */
+	void setBounds(int column, double min, double max) {
+		this.min[column] = min;
+		this.max[column] = max;
+		hasValues[column] = true;
+	}
+
+	/**
+	 * Unisce gli archivi delle partizioni di una tabella in un solo archivio senza righe duplicate.
+	 * <p>
+	 * Le righe vengono accodate nell'ordine delle partizioni; una riga uguale, in tutte le colonne, a una
+	 * riga già accodata viene scartata (vedi {@link #appendMissing(ColumnStore[])}).
+	 * </p>
+	 *
+	 * @param isNumber per ogni colonna, {@code true} se numerica
+	 * @param parts archivi delle partizioni, con le stesse colonne
+	 * @return archivio con le righe distinte di tutte le partizioni
+	 */
+	static ColumnStore mergeDistinct(boolean[] isNumber, ColumnStore[] parts) {
+		ColumnStore merged = new ColumnStore(isNumber);
+		merged.appendMissing(parts);
+		return merged;
+	}
+
+	/**
+	 * Accoda le righe degli archivi indicati che non sono già presenti in questo archivio, senza duplicati.
+	 * <p>
+	 * Il confronto usa una tabella hash a indirizzamento aperto degli indici delle righe presenti,
+	 * calcolata sulle colonne stesse, senza creare oggetti per riga. Le righe già presenti restano
+	 * al loro indice.
+	 * </p>
+	 *
+	 * @param sources archivi con le stesse colonne
+	 * @return numero di righe degli archivi già presenti in questo archivio prima dell'unione
+	 */
+	int appendMissing(ColumnStore[] sources) {
+		return appendMissing(sources, 0);
+	}
+
+	/**
+	 * Accoda le righe degli archivi indicati che non sono già presenti in questo archivio, come
+	 * {@link #appendMissing(ColumnStore[])}, solo se almeno {@code required} di esse sono già presenti:
+	 * le righe presenti vengono cercate prima di accodarne qualcuna, quindi se sono meno di
+	 * {@code required} l'archivio resta invariato.
+	 *
+	 * @param sources archivi con le stesse colonne
+	 * @param required numero minimo di righe già presenti perché l'unione venga eseguita
+	 * @return numero di righe degli archivi già presenti in questo archivio prima dell'unione
+	 */
+	int appendMissing(ColumnStore[] sources, int required) {
+		long total = rows;
+		for (ColumnStore source : sources) {
+			total += source.rows;
+		}
+		int slots = Integer.highestOneBit((int) Math.max(2, Math.min(1 << 29, total * 2 - 1))) << 1;
+		int[] table = new int[slots];
+		Arrays.fill(table, -1);
+		for (int row = 0; row < rows; row++) {
+			int slot = hashRow(row) & (slots - 1);
+			while (table[slot] >= 0) {
+				slot = (slot + 1) & (slots - 1);
+			}
+			table[slot] = row;
+		}
+
+		// prima le righe già presenti, senza modificare l'archivio
+		int matched = 0;
+		BitSet[] missing = new BitSet[sources.length];
+		for (int k = 0; k < sources.length; k++) {
+			ColumnStore source = sources[k];
+			missing[k] = new BitSet(source.rows);
+			for (int row = 0; row < source.rows; row++) {
+				if (find(table, source, row) >= 0) {
+					matched++;
+				} else {
+					missing[k].set(row);
+				}
+			}
+		}
+		if (matched < required) {
+			return matched;
+		}
+
+		if (rows == capacity) {
+			resize(capacity + (capacity >> 1) + 1);		// archivio compattato da trim()
+		}
+		for (int k = 0; k < sources.length; k++) {
+			ColumnStore source = sources[k];
+			for (int row = missing[k].nextSetBit(0); row >= 0; row = missing[k].nextSetBit(row + 1)) {
+				if (find(table, source, row) < 0) {		// non ancora accodata da un'altra partizione
+					int slot = source.hashRow(row) & (slots - 1);
+					while (table[slot] >= 0) {
+						slot = (slot + 1) & (slots - 1);
+					}
+					table[slot] = rows;
+					source.copyRow(row, this);
+				}
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * Cerca una riga di un altro archivio nella tabella hash delle righe di questo archivio.
+	 *
+	 * @param table tabella hash degli indici delle righe, -1 per le posizioni libere
+	 * @param source archivio della riga cercata
+	 * @param row indice della riga in {@code source}
+	 * @return indice della riga uguale in questo archivio, -1 se assente
+	 */
+	private int find(int[] table, ColumnStore source, int row) {
+		int slot = source.hashRow(row) & (table.length - 1);
+		while (table[slot] >= 0) {
+			if (sameRow(table[slot], source, row)) {
+				return table[slot];
+			}
+			slot = (slot + 1) & (table.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Calcola l'hash del contenuto di una riga, coerente con {@link #sameRow(int, ColumnStore, int)}.
+	 *
+	 * @param row indice della riga
+	 * @return hash della riga
+	 */
+	private int hashRow(int row) {
+		int h = 1;
+		for (int i = 0; i < numbers.length; i++) {
+			int cell;
+			if (numbers[i] != null) {
+				cell = nulls[i].get(row) ? -1 : Double.hashCode(numbers[i][row]);
+			} else {
+				String value = getString(row, i);
+				cell = value == null ? -1 : value.hashCode();
+			}
+			h = 31 * h + cell;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Confronta una riga di questo archivio con una riga di un altro archivio con le stesse colonne.
+	 *
+	 * @param row indice della riga in questo archivio
+	 * @param other altro archivio
+	 * @param otherRow indice della riga nell'altro archivio
+	 * @return {@code true} se le due righe hanno gli stessi valori in tutte le colonne
+	 */
+	private boolean sameRow(int row, ColumnStore other, int otherRow) {
+		for (int i = 0; i < numbers.length; i++) {
+			if (numbers[i] != null) {
+				boolean isNull = nulls[i].get(row);
+				if (isNull != other.nulls[i].get(otherRow)
+						|| (!isNull && Double.compare(numbers[i][row], other.numbers[i][otherRow]) != 0)) {
+					return false;
+				}
+			} else {
+				String value = getString(row, i);
+				String otherValue = other.getString(otherRow, i);
+				if (value == null ? otherValue != null : !value.equals(otherValue)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Consegna i valori di una riga a una destinazione, come se la riga fosse letta dal database.
+	 *
+	 * @param row indice della riga
+	 * @param sink destinazione dei valori
+	 */
+	private void copyRow(int row, RowSink sink) {
+		for (int i = 0; i < numbers.length; i++) {
+			if (numbers[i] == null) {
+				sink.stringValue(i, getString(row, i));
+			} else if (nulls[i].get(row)) {
+				sink.numberNull(i);
+			} else {
+				sink.numberValue(i, numbers[i][row]);
+			}
+		}
+		sink.endRow();
+	}
+
+	/**
+	 * Riduce le colonne al numero di righe presenti, al termine del caricamento.
+	 */
+	void trim() {
+		resize(Math.max(rows, 1));
+	}
+
+	/**
+	 * Porta tutte le colonne alla capacità indicata.
+	 *
+	 * @param newCapacity nuova capacità in righe
+	 */
+	private void resize(int newCapacity) {
+		for (int i = 0; i < numbers.length; i++) {
+			if (numbers[i] != null) {
+				numbers[i] = Arrays.copyOf(numbers[i], newCapacity);
+			} else {
+				codes[i] = Arrays.copyOf(codes[i], newCapacity);
+			}
+		}
+		capacity = newCapacity;
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return numbers.length;
+	}
+
+	@Override
+	public boolean isNumber(int column) {
+		return numbers[column] != null;
+	}
+
+	/**
+	 * Indica se una colonna numerica contiene almeno un valore non NULL.
+	 *
+	 * @param column indice della colonna
+	 * @return {@code true} se gli estremi della colonna sono definiti
+	 */
+	boolean hasValues(int column) {
+		return hasValues[column];
+	}
+
+	/**
+	 * Restituisce il minimo dei valori non NULL di una colonna numerica.
+	 *
+	 * @param column indice della colonna
+	 * @return valore minimo
+	 */
+	double getMin(int column) {
+		return min[column];
+	}
+
+	/**
+	 * Restituisce il massimo dei valori non NULL di una colonna numerica.
+	 *
+	 * @param column indice della colonna
+	 * @return valore massimo
+	 */
+	double getMax(int column) {
+		return max[column];
+	}
+
+	/**
+	 * Restituisce i valori distinti non NULL di una colonna discreta, in ordine crescente.
+	 *
+	 * @param column indice della colonna
+	 * @return dominio della colonna
+	 */
+	TreeSet<String> getDomain(int column) {
+		return new TreeSet<>(dictionaries.get(column));
+	}
+
+	@Override
+	public double getDouble(int row, int column) {
+		return numbers[column][row];
+	}
+
+	@Override
+	public String getString(int row, int column) {
+		int code = codes[column][row];
+		return code < 0 ? null : dictionaries.get(column).get(code);
+	}
+}
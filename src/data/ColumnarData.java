@@ -0,0 +1,64 @@
+package data;
+
+/**
+ * Accesso in lettura alle transazioni di un dataset memorizzate per colonne.
+ * <p>
+ * {@link Data} legge le celle solo attraverso questa interfaccia: le transazioni possono così stare
+ * in memoria ({@link ColumnStore}, costruito durante il caricamento dal database) oppure in uno snapshot
+ * mappato in memoria ({@link MappedColumnStore}). Le colonne numeriche restituiscono 0 per i valori NULL.
+ * </p>
+ */
+interface ColumnarData {
+
+	/**
+	 * Restituisce il numero di righe.
+	 *
+	 * @return numero di righe
+	 */
+	int size();
+
+	/**
+	 * Restituisce il numero di colonne.
+	 *
+	 * @return numero di colonne
+	 */
+	int getNumberOfColumns();
+
+	/**
+	 * Indica se la colonna e' numerica.
+	 *
+	 * @param column indice della colonna
+	 * @return {@code true} se la colonna e' numerica
+	 */
+	boolean isNumber(int column);
+
+	/**
+	 * Restituisce il valore di una cella di una colonna numerica.
+	 *
+	 * @param row indice della riga
+	 * @param column indice della colonna
+	 * @return valore della cella
+	 */
+	double getDouble(int row, int column);
+
+	/**
+	 * Restituisce il valore di una cella di una colonna discreta.
+	 *
+	 * @param row indice della riga
+	 * @param column indice della colonna
+	 * @return valore della cella, {@code null} se NULL
+	 */
+	String getString(int row, int column);
+
+	/**
+	 * Restituisce il valore di una cella come oggetto: {@link Double} per le colonne numeriche,
+	 * {@link String} per quelle discrete.
+	 *
+	 * @param row indice della riga
+	 * @param column indice della colonna
+	 * @return valore della cella
+	 */
+	default Object get(int row, int column) {
+		return isNumber(column) ? (Object) getDouble(row, column) : getString(row, column);
+	}
+}
@@ -6,10 +6,18 @@ package data;
  * definito da un valore minimo {@code min} e un valore massimo {@code max}.
  * La classe fornisce metodi per scalare i valori dell'attributo, mappandoli nell'intervallo [0, 1], 
  * per poter confrontare valori appartenenti a domini numerici diversi.
+ * L'intervallo può ridursi a un solo valore ({@code min == max}), ad esempio quando un filtro seleziona
+ * righe con lo stesso valore della colonna: in quel caso tutti i valori scalati valgono 0.
  * 
  * @see Attribute
  */
 public class ContinuousAttribute extends Attribute {
+	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = 5133119043725693813L;
+
 	/**
 	 * L'estremo superiore dell'intervallo di valori che l'attributo può reamente assumere nel dataset considerato.
 	 */
@@ -29,28 +37,50 @@ public class ContinuousAttribute extends Attribute {
 	 * @param index identificativo numerico dell'attributo
 	 * @param min estremo inferiore dell'intervallo di valori assumibili
 	 * @param max estremo superiore dell'intervallo di valori assumibili
-	 * @throws IllegalArgumentException se min >= max oppure se name non e' valido o index < 0
+	 * @throws IllegalArgumentException se min > max (o uno dei due non e' un numero) oppure se name non e' valido o index < 0
 	 */
 	public ContinuousAttribute(String name, int index, double min, double max){
 		super(name, index);
 		
-		if (min >= max) {
-	        throw new IllegalArgumentException("Il valore minimo deve essere inferiore al massimo.");
+		if (!(min <= max)) {
+	        throw new IllegalArgumentException("Il valore minimo non può superare il massimo.");
 	    }
 		this.min = min;
 		this.max = max;	
 	}
 	
+	/**
+	 * Restituisce l'estremo inferiore dell'intervallo di valori dell'attributo.
+	 * 
+	 * @return valore minimo
+	 */
+	double getMin() {
+		return min;
+	}
+	
+	/**
+	 * Restituisce l'estremo superiore dell'intervallo di valori dell'attributo.
+	 * 
+	 * @return valore massimo
+	 */
+	double getMax() {
+		return max;
+	}
+	
 	/**
 	 * Calcola e restituisce il valore scalato del parametro passato in input.
 	 * Lo scaling mappa il valore nell'intervallo [0,1] utilizzando la formula:
 	 * <pre>{@code v' = (v - min) / (max - min)}</pre>
-	 * dove {@code v} e' il valore dell'attributo da scalare.
+	 * dove {@code v} e' il valore dell'attributo da scalare. Se l'intervallo contiene un solo valore
+	 * ({@code min == max}) il valore scalato e' 0, così che l'attributo non contribuisca alle distanze.
      * 
 	 * @param v valore dell'attributo da scalare
 	 * @return valore scalato dell'attributo, compreso nell'intervallo [0,1]
 	 */
 	double getScaledValue(double v) {
+		if (max == min) {
+			return 0;
+		}
 	    v = (v - min) / (max - min);
 	    return v;
 	}
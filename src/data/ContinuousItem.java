@@ -5,6 +5,12 @@ package data;
  * @see Item
  */
 public class ContinuousItem extends Item{
+	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = -8119654458578530266L;
+
 	/**
 	 * 
 	 * @param attribute
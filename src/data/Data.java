@@ -1,7 +1,8 @@
 package data;
 
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -10,8 +11,10 @@ import java.util.TreeSet;
 import database.DatabaseConnectionException;
 import database.DbAccess;
 import database.EmptySetException;
-import database.Example;
 import database.NoValueException;
+import database.PartitionedTableData;
+import database.QueryFilter;
+import database.Sampling;
 import database.TableData;
 import database.TableSchema;
 import database.TableSchema.Column;
@@ -39,10 +42,10 @@ import database.TableSchema.Column;
 public class Data implements Iterable<Attribute>{
 	
 	/**
-	 * Lista di oggetti {@code Example} che rappresenta le transazioni distinte del dataset,
-     * caricate dal database. Ogni {@code Example} e' una lista di valori.
+	 * Transazioni distinte del dataset in forma colonnare: in memoria se caricate dal database
+	 * (vedi {@link ColumnStore}), mappate da file se lette da uno snapshot (vedi {@link MappedColumnStore}).
 	 */
-	private List<Example> data = new ArrayList<Example>();
+	private ColumnarData data;
 	
 	/**
 	 * Rappresenta la cardinalità dell’insieme di transazioni contenuti nel dataset (numero di righe in {@code Object[][] data})
@@ -54,59 +57,459 @@ public class Data implements Iterable<Attribute>{
 	 */
 	private List<Attribute> attributeSet ;
 	
+	/**
+	 * Nome della tabella del database da cui sono state caricate le transazioni.
+	 */
+	private String tableName;
+	
 	/**
 	 * Costruttore: Carica i dati di addestramento da una tabella del database.
-	 * * @param tableName Il nome della tabella da cui caricare i dati.
+	 * <p>
+	 * Lo schema della tabella viene letto una sola volta dai metadati JDBC e le transazioni distinte
+	 * con una sola query letta in streaming: estremi degli attributi continui e domini di quelli discreti
+	 * vengono calcolati durante la stessa lettura, invece che con query MIN, MAX e DISTINCT per ogni colonna.
+	 * </p>
+	 * @param tableName Il nome della tabella da cui caricare i dati.
 	 * @throws DatabaseConnectionException se fallisce la connessione al database.
 	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
 	 * @throws EmptySetException se la tabella e' vuota.
-	 * @throws NoValueException se il valore non viene trovato nel ResultSet
-	 * @throws IllegalArgumentException se un attributo ha valori numerici e non e' gestito come ContinuousAttribute.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
 	 */
 	public Data(String tableName) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		this(tableName, 1);
+	}
+	
+	/**
+	 * Costruttore: Carica i dati di addestramento da una tabella del database leggendola in parallelo
+	 * su più connessioni.
+	 * <p>
+	 * Con più di una connessione la tabella viene divisa in partizioni lette contemporaneamente
+	 * (vedi {@link PartitionedTableData}); le righe delle partizioni vengono poi unite eliminando
+	 * i duplicati, così che il dataset contenga le stesse transazioni distinte del caricamento su una
+	 * sola connessione, eventualmente in ordine diverso.
+	 * </p>
+	 * <p>
+	 * Ogni partizione tiene una connessione del pool per tutta la lettura: il numero di connessioni
+	 * viene quindi limitato a {@link DbAccess#getMaxConnections()}, oltre il quale le letture
+	 * resterebbero in attesa di connessioni che non si liberano.
+	 * </p>
+	 * @param tableName Il nome della tabella da cui caricare i dati.
+	 * @param connections Il numero di connessioni (e di partizioni) con cui leggere la tabella,
+	 *        limitato alla dimensione massima del pool.
+	 * @throws DatabaseConnectionException se fallisce la connessione al database.
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
+	 * @throws EmptySetException se la tabella e' vuota.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 * @throws IllegalArgumentException se il numero di connessioni non e' positivo.
+	 */
+	public Data(String tableName, int connections) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		this(tableName, null, null, connections);
+	}
+	
+	/**
+	 * Costruttore: Carica un sottoinsieme dei dati di una tabella del database: solo le colonne indicate
+	 * e solo le righe che soddisfano il filtro. Proiezione e filtro vengono eseguiti dal database
+	 * (vedi {@link TableData#streamDistinctTransazioni(TableSchema, String, QueryFilter, database.RowSink)}),
+	 * quindi le righe escluse non vengono trasferite; gli estremi degli attributi continui sono calcolati
+	 * sulle sole righe caricate. Se in queste righe una colonna numerica ha un solo valore (ad esempio con
+	 * un filtro di uguaglianza su quella colonna) l'attributo ha {@code min == max} e non contribuisce alle
+	 * distanze (vedi {@link ContinuousAttribute}).
+	 * @param tableName Il nome della tabella da cui caricare i dati.
+	 * @param columns I nomi delle colonne da caricare, nell'ordine degli attributi; {@code null} per tutte le colonne.
+	 * @param filter Il filtro sulle righe; {@code null} per tutte le righe.
+	 * @throws DatabaseConnectionException se fallisce la connessione al database.
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
+	 * @throws EmptySetException se nessuna riga soddisfa il filtro.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL nelle righe caricate
+	 * @throws IllegalArgumentException se una colonna della proiezione o del filtro non appartiene alla tabella
+	 *         o un valore del filtro non e' del tipo della colonna.
+	 */
+	public Data(String tableName, List<String> columns, QueryFilter filter) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		this(tableName, columns, filter, 1);
+	}
+	
+	/**
+	 * Costruttore: Carica un sottoinsieme dei dati di una tabella del database, come
+	 * {@link #Data(String, List, QueryFilter)}, leggendolo in parallelo su più connessioni come
+	 * {@link #Data(String, int)}.
+	 * @param tableName Il nome della tabella da cui caricare i dati.
+	 * @param columns I nomi delle colonne da caricare; {@code null} per tutte le colonne.
+	 * @param filter Il filtro sulle righe; {@code null} per tutte le righe.
+	 * @param connections Il numero di connessioni (e di partizioni) con cui leggere la tabella,
+	 *        limitato alla dimensione massima del pool.
+	 * @throws DatabaseConnectionException se fallisce la connessione al database.
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
+	 * @throws EmptySetException se nessuna riga soddisfa il filtro.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL nelle righe caricate
+	 * @throws IllegalArgumentException se il numero di connessioni non e' positivo o proiezione e filtro non sono validi.
+	 */
+	public Data(String tableName, List<String> columns, QueryFilter filter, int connections) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		
+		if (connections < 1) {
+			throw new IllegalArgumentException("Il numero di connessioni deve essere positivo: " + connections);
+		}
 		
+		connections = Math.min(connections, DbAccess.getMaxConnections());
 		DbAccess db = new DbAccess();
 		db.initConnection();
-		
-		TableSchema tSchema = new TableSchema(db, tableName);
-		TableData tData = new TableData(db);
-
-		// Inizializzazione di attributeSet
-		attributeSet = new LinkedList<>();
-
-		// Popolamento di attributeSet (logica invariata)
-		for (int i = 0; i < tSchema.getNumberOfAttributes(); i++) {
-			Column column = tSchema.getColumn(i);
-			
-			if (column.isNumber()) {
-				Object min = tData.getAggregateColumnValue(tableName, column, database.QUERY_TYPE.MIN);
-				Object max = tData.getAggregateColumnValue(tableName, column, database.QUERY_TYPE.MAX);
-				
-				if (!(min instanceof Double && max instanceof Double)) {
-					throw new IllegalArgumentException("Attributo numerico con valore min/max non Double: " + column.getColumnName());
-				}
-				
-				attributeSet.add(new ContinuousAttribute(column.getColumnName(), i, (Double)min, (Double)max));
+		try {
+			TableSchema tSchema = schema(db, tableName, columns);
 
+			// Caricamento in streaming delle transazioni distinte, codificate direttamente in colonne:
+			// durante la stessa lettura vengono raccolti estremi e domini degli attributi
+			boolean[] isNumber = isNumber(tSchema);
+			ColumnStore store;
+			if (connections == 1) {
+				store = new ColumnStore(isNumber);
+				new TableData(db).streamDistinctTransazioni(tSchema, tableName, filter, store);
 			} else {
-				TreeSet<String> discreteValues = new TreeSet<>();
-				
-				for (Object val : tData.getDistinctColumnValues(tableName, column)) {
-					if (!(val instanceof String)) {
-						throw new IllegalArgumentException("Attributo discreto con valore non String: " + column.getColumnName());
+				DbAccess[] access = new DbAccess[connections];
+				access[0] = db;
+				ColumnStore[] parts = new ColumnStore[connections];
+				try {
+					for (int k = 0; k < connections; k++) {
+						if (access[k] == null) {
+							access[k] = new DbAccess();
+							access[k].initConnection();
+						}
+						parts[k] = new ColumnStore(isNumber);
+					}
+					new PartitionedTableData(access).streamDistinctTransazioni(tSchema, tableName, filter, parts);
+				} finally {
+					// anche in caso di errore le letture delle partizioni sono già terminate:
+					// la connessione 0 e' quella di db, restituita dal finally esterno
+					for (int k = 1; k < connections; k++) {
+						if (access[k] != null) {
+							access[k].closeConnection();
+						}
 					}
-					discreteValues.add((String) val);
 				}
-				
-				attributeSet.add(new DiscreteAttribute(column.getColumnName(), i, discreteValues));
+				store = ColumnStore.mergeDistinct(isNumber, parts);
 			}
+			initAttributes(columnNames(tSchema), store);
+		} finally {
+			db.closeConnection();
+		}
+	}
+	
+	/**
+	 * Costruttore: Carica un campione delle transazioni di una tabella del database.
+	 * @param tableName Il nome della tabella da cui caricare i dati.
+	 * @param sampling Il campionamento da applicare (vedi {@link Sampling}).
+	 * @throws DatabaseConnectionException se fallisce la connessione al database.
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
+	 * @throws EmptySetException se la tabella o il campione sono vuoti.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 */
+	public Data(String tableName, Sampling sampling) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		this(tableName, null, null, sampling);
+	}
+	
+	/**
+	 * Costruttore: Carica un campione delle transazioni di una tabella del database, limitato alle colonne
+	 * e alle righe indicate come in {@link #Data(String, List, QueryFilter)}.
+	 * <p>
+	 * Gli estremi degli attributi continui sono quelli di tutte le righe che soddisfano il filtro, non solo
+	 * di quelle campionate, così che le distanze scalate siano confrontabili con quelle di un caricamento
+	 * completo: per un campione a frazione, eseguito dal database, vengono letti con una query MIN/MAX;
+	 * per un campione a dimensione fissa vengono raccolti durante la lettura di tutte le righe.
+	 * </p>
+	 * @param tableName Il nome della tabella da cui caricare i dati.
+	 * @param columns I nomi delle colonne da caricare; {@code null} per tutte le colonne.
+	 * @param filter Il filtro sulle righe; {@code null} per tutte le righe.
+	 * @param sampling Il campionamento da applicare.
+	 * @throws DatabaseConnectionException se fallisce la connessione al database.
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database.
+	 * @throws EmptySetException se nessuna riga soddisfa il filtro o il campione e' vuoto.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL nelle righe che soddisfano il filtro
+	 * @throws IllegalArgumentException se il campionamento manca o proiezione e filtro non sono validi.
+	 */
+	public Data(String tableName, List<String> columns, QueryFilter filter, Sampling sampling) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException{
+		
+		if (sampling == null) {
+			throw new IllegalArgumentException("Campionamento non specificato.");
+		}
+		
+		DbAccess db = new DbAccess();
+		db.initConnection();
+		try {
+			TableSchema tSchema = schema(db, tableName, columns);
+			
+			TableData tData = new TableData(db);
+			ColumnStore store = new ColumnStore(isNumber(tSchema));
+			if (sampling.isFraction()) {
+				tData.streamSampledTransazioni(tSchema, tableName, filter, sampling, store);
+				double[][] bounds = tData.getColumnBounds(tSchema, tableName, filter);
+				for (int i = 0; i < bounds.length; i++) {
+					if (bounds[i] != null) {
+						store.setBounds(i, bounds[i][0], bounds[i][1]);
+					}
+				}
+			} else {
+				tData.streamDistinctTransazioni(tSchema, tableName, filter, new ReservoirSink(store, sampling.getSize(), sampling.getSeed()));
+			}
+			if (store.size() == 0) {
+				throw new EmptySetException("Il campione della tabella " + tableName + " (" + sampling + ") non contiene transazioni.");
+			}
+			initAttributes(columnNames(tSchema), store);
+		} finally {
+			db.closeConnection();
+		}
+	}
+	
+	/**
+	 * Costruttore: Carica le transazioni distinte di una sorgente diversa da una tabella del database,
+	 * ad esempio un file CSV (vedi {@link DelimitedFileSource}).
+	 * <p>
+	 * Ogni partizione della sorgente viene consegnata a un proprio archivio colonnare; gli archivi vengono
+	 * poi uniti eliminando le righe duplicate, come per il caricamento parallelo da database. Estremi e
+	 * domini degli attributi sono raccolti durante la stessa lettura.
+	 * </p>
+	 * @param source La sorgente delle transazioni.
+	 * @throws IOException se la sorgente non può essere letta.
+	 * @throws EmptyDatasetException se la sorgente non contiene transazioni.
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 * @throws IllegalArgumentException se nomi e tipi delle colonne della sorgente non sono coerenti.
+	 */
+	public Data(DataSource source) throws IOException, EmptyDatasetException, NoValueException {
+		String[] names = source.getColumnNames();
+		boolean[] isNumber = source.getNumericColumns();
+		if (names.length == 0 || names.length != isNumber.length) {
+			throw new IllegalArgumentException("Schema della sorgente " + source.getName() + " non valido: "
+					+ names.length + " nomi e " + isNumber.length + " tipi di colonna.");
+		}
+		
+		ColumnStore[] parts = new ColumnStore[source.getNumberOfPartitions()];
+		for (int k = 0; k < parts.length; k++) {
+			parts[k] = new ColumnStore(isNumber);
+		}
+		source.load(parts);
+		ColumnStore store = ColumnStore.mergeDistinct(isNumber, parts);
+		if (store.size() == 0) {
+			throw new EmptyDatasetException("La sorgente " + source.getName() + " non contiene transazioni.");
+		}
+		
+		this.tableName = source.getName();
+		initAttributes(names, store);
+	}
+	
+	/**
+	 * Costruttore: inizializza un dataset con schema e transazioni già pronti.
+	 * 
+	 * @param tableName nome della tabella di origine
+	 * @param schema attributi del dataset, nell'ordine delle colonne
+	 * @param data transazioni del dataset
+	 */
+	private Data(String tableName, Attribute[] schema, ColumnarData data) {
+		this.tableName = tableName;
+		this.attributeSet = new LinkedList<>(Arrays.asList(schema));
+		this.data = data;
+		this.numberOfExamples = data.size();
+	}
+	
+	/**
+	 * Apre un dataset salvato con {@link #salvaSnapshot(String)}, senza accedere al database.
+	 * <p>
+	 * Vengono letti solo l'intestazione e lo schema degli attributi; le colonne vengono mappate in memoria
+	 * in sola lettura e lette direttamente dal file (vedi {@link DatasetSnapshot}), quindi l'apertura non
+	 * dipende dal numero di righe e più processi che aprono lo stesso snapshot condividono la memoria fisica.
+	 * Il dataset ottenuto non può essere aggiornato con {@link RefreshableData}. Le mappature restano
+	 * attive fino a {@link #chiudiSnapshot()}: su Windows, finché non vengono rilasciate, lo snapshot
+	 * non può essere sovrascritto con {@link #salvaSnapshot(String)} né cancellato.
+	 * </p>
+	 * 
+	 * @param fileName percorso dello snapshot
+	 * @return dataset letto dallo snapshot
+	 * @throws IOException se il file non può essere letto o non e' uno snapshot valido
+	 */
+	public static Data apriSnapshot(String fileName) throws IOException {
+		DatasetSnapshot snapshot = DatasetSnapshot.open(fileName);
+		return new Data(snapshot.getTableName(), snapshot.getSchema(), snapshot.getColumns());
+	}
+	
+	/**
+	 * Salva il dataset (schema, estremi e domini degli attributi, transazioni per colonne) in uno snapshot
+	 * da riaprire con {@link #apriSnapshot(String)}. Le transazioni mantengono il loro indice.
+	 * 
+	 * @param fileName percorso del file da scrivere
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	public void salvaSnapshot(String fileName) throws IOException {
+		DatasetSnapshot.write(fileName, tableName, getAttributeSchema(), data);
+	}
+	
+	/**
+	 * Rilascia le mappature in memoria di un dataset aperto con {@link #apriSnapshot(String)}, senza
+	 * attendere il garbage collector, così che il file dello snapshot possa essere sostituito o cancellato.
+	 * Dopo la chiusura le transazioni del dataset non possono più essere lette e ogni accesso solleva
+	 * {@link IllegalStateException}. Per i dataset non letti da uno snapshot il metodo non ha effetto.
+	 */
+	public void chiudiSnapshot() {
+		if (data instanceof MappedColumnStore) {
+			((MappedColumnStore) data).close();
+		}
+	}
+	
+	/**
+	 * Prepara il caricamento da una tabella del database: registra il nome della tabella e ne legge
+	 * lo schema, ridotto alle colonne indicate.
+	 * 
+	 * @param db accesso al database, con la connessione già aperta
+	 * @param tableName nome della tabella
+	 * @param columns colonne da caricare, {@code null} per tutte le colonne
+	 * @return schema delle colonne da caricare
+	 * @throws SQLException se lo schema non può essere letto
+	 * @throws IllegalArgumentException se una colonna della proiezione non appartiene alla tabella
+	 */
+	private TableSchema schema(DbAccess db, String tableName, List<String> columns) throws SQLException {
+		this.tableName = tableName;
+		TableSchema tSchema = TableSchema.forTable(db, tableName);
+		return columns == null ? tSchema : tSchema.project(columns);
+	}
+	
+	/**
+	 * Restituisce i nomi delle colonne dello schema.
+	 * 
+	 * @param tSchema schema delle colonne caricate
+	 * @return nomi delle colonne, nell'ordine dello schema
+	 */
+	private static String[] columnNames(TableSchema tSchema) {
+		String[] names = new String[tSchema.getNumberOfAttributes()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = tSchema.getColumn(i).getColumnName();
+		}
+		return names;
+	}
+	
+	/**
+	 * Restituisce, per ogni colonna dello schema, se e' numerica.
+	 * 
+	 * @param tSchema schema delle colonne caricate
+	 * @return {@code true} per le colonne numeriche
+	 */
+	private static boolean[] isNumber(TableSchema tSchema) {
+		boolean[] isNumber = new boolean[tSchema.getNumberOfAttributes()];
+		for (int i = 0; i < isNumber.length; i++) {
+			isNumber[i] = tSchema.getColumn(i).isNumber();
 		}
+		return isNumber;
+	}
+	
+	/**
+	 * Completa il caricamento: compatta le colonne e popola {@code attributeSet} dalle statistiche
+	 * raccolte nell'archivio durante il caricamento.
+	 * 
+	 * @param names nomi delle colonne caricate
+	 * @param store transazioni caricate
+	 * @throws NoValueException se una colonna numerica non ha estremi (solo valori NULL)
+	 */
+	private void initAttributes(String[] names, ColumnStore store) throws NoValueException {
+		store.trim();
+		data = store;
+		numberOfExamples = store.size();
 
-		// Caricamento delle transazioni distinte. Il tipo restituito e' List<Example>, compatibile con List<Example> data.
-		data = tData.getDistinctTransazioni(tableName);
-		numberOfExamples = data.size();
+		attributeSet = new LinkedList<>();
+		for (int i = 0; i < names.length; i++) {
+			if (store.isNumber(i)) {
+				if (!store.hasValues(i)) {
+					throw new NoValueException("Nessun valore trovato per le operazioni MIN e MAX sulla colonna " + names[i]);
+				}
+				attributeSet.add(new ContinuousAttribute(names[i], i, store.getMin(i), store.getMax(i)));
+			} else {
+				attributeSet.add(new DiscreteAttribute(names[i], i, store.getDomain(i)));
+			}
+		}
+	}
+	
+	/**
+	 * Crea un archivio vuoto con le stesse colonne del dataset, in cui leggere le righe da aggiungere.
+	 * 
+	 * @return archivio vuoto
+	 */
+	ColumnStore newStore() {
+		boolean[] isNumber = new boolean[data.getNumberOfColumns()];
+		for (int i = 0; i < isNumber.length; i++) {
+			isNumber[i] = data.isNumber(i);
+		}
+		return new ColumnStore(isNumber);
+	}
+	
+	/**
+	 * Indica se lo schema della tabella ha le stesse colonne, con gli stessi nomi e tipi e nello stesso
+	 * ordine, degli attributi del dataset.
+	 * 
+	 * @param tSchema schema della tabella
+	 * @return {@code true} se lo schema corrisponde al dataset
+	 */
+	boolean matches(TableSchema tSchema) {
+		if (tSchema.getNumberOfAttributes() != attributeSet.size()) {
+			return false;
+		}
+		for (int i = 0; i < attributeSet.size(); i++) {
+			Column column = tSchema.getColumn(i);
+			Attribute attr = attributeSet.get(i);
+			if (!column.getColumnName().equals(attr.getName()) || column.isNumber() != (attr instanceof ContinuousAttribute)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Accoda al dataset le transazioni di {@code fresh} non già presenti e aggiorna gli attributi i cui
+	 * estremi o domini sono cambiati. Le righe già presenti conservano il loro indice.
+	 * 
+	 * @param fresh transazioni lette dalla tabella, con le stesse colonne del dataset
+	 * @param removedCheck se {@code true}, {@code fresh} contiene tutte le transazioni della tabella e il
+	 * risultato segnala quante righe del dataset non vi compaiono più
+	 * @return esito dell'aggiornamento; {@code null}, senza modificare il dataset, se {@code removedCheck}
+	 * e' attivo e righe del dataset non compaiono più in {@code fresh} (il dataset va ricaricato)
+	 * @throws IllegalStateException se il dataset e' stato aperto da uno snapshot, in sola lettura
+	 */
+	RefreshResult append(ColumnStore fresh, boolean removedCheck) {
+		if (!(data instanceof ColumnStore)) {
+			throw new IllegalStateException("Il dataset aperto da uno snapshot e' in sola lettura.");
+		}
+		ColumnStore store = (ColumnStore) data;
+		int before = numberOfExamples;
+		// con removedCheck le righe presenti vengono contate prima di accodare: se ne manca qualcuna
+		// il dataset resta invariato
+		int matched = store.appendMissing(new ColumnStore[] { fresh }, removedCheck ? before : 0);
+		if (removedCheck && matched < before) {
+			return null;
+		}
+		store.trim();
+		numberOfExamples = store.size();
 		
-		db.closeConnection();
+		List<String> changed = new LinkedList<>();
+		boolean rescale = false;
+		for (int i = 0; i < attributeSet.size(); i++) {
+			Attribute attr = attributeSet.get(i);
+			if (attr instanceof ContinuousAttribute) {
+				ContinuousAttribute c = (ContinuousAttribute) attr;
+				if (store.getMin(i) < c.getMin() || store.getMax(i) > c.getMax()) {
+					attributeSet.set(i, new ContinuousAttribute(c.getName(), i, Math.min(c.getMin(), store.getMin(i)), Math.max(c.getMax(), store.getMax(i))));
+					changed.add(c.getName());
+					rescale = true;
+				}
+			} else if (attr instanceof DiscreteAttribute) {
+				TreeSet<String> domain = store.getDomain(i);
+				if (domain.size() > ((DiscreteAttribute) attr).getNumberOfDistinctValues()) {
+					attributeSet.set(i, new DiscreteAttribute(attr.getName(), i, domain));
+					changed.add(attr.getName());
+				}
+			}
+		}
+		return new RefreshResult(numberOfExamples - before, false, rescale, changed);
+	}
+	
+	/**
+	 * Restituisce il nome della tabella da cui sono state caricate le transazioni.
+	 * 
+	 * @return nome della tabella
+	 */
+	public String getTableName(){
+		return tableName;
 	}
 	
 	/**
@@ -137,8 +540,8 @@ public class Data implements Iterable<Attribute>{
 	}
 	
 	/**
-	 * Restituisce il valore corrispondente a una determinata cella del dataset.
-	 * Il valore viene estratto dalla transazione {@link Example} all'indice specificato.
+	 * Restituisce il valore corrispondente a una determinata cella del dataset:
+	 * {@link Double} per gli attributi continui, {@link String} per quelli discreti.
 	 * @param exampleIndex indice della riga (transazione)
 	 * @param attributeIndex indice della colonna (attributo)
 	 * @return valore dell'attributo per la transazione specificata
@@ -153,9 +556,8 @@ public class Data implements Iterable<Attribute>{
 	        throw new IndexOutOfBoundsException(
 	            "Indice dell'attributo non valido: " + attributeIndex);
 	    }
-	    Example example = data.get(exampleIndex); 
 		// Restituisce il valore all'indice dell'attributo (la colonna)
-		return example.get(attributeIndex); 
+		return data.get(exampleIndex, attributeIndex); 
 	}
 	
 	/**
@@ -195,7 +597,6 @@ public class Data implements Iterable<Attribute>{
 	    }
 		
 		Tuple tuple = new Tuple(attributeSet.size());
-		Example example = data.get(index); // Ottiene l'Example (la riga)
 		
 	    Iterator<Attribute> it = attributeSet.iterator();
 	    int i = 0;
@@ -203,24 +604,21 @@ public class Data implements Iterable<Attribute>{
 	    while(it.hasNext()) {
 	    	
 	    	Attribute attr = it.next();
-	        Object value = example.get(i);
 
 	        if (attr instanceof ContinuousAttribute) {
-	        	if (!(value instanceof Double)) {
-	                throw new IllegalStateException(
-	                    "Valore atteso Double per " + attr.getName() + " ma trovato " +
-	                    (value == null ? "null" : value.getClass().getSimpleName())
-	                );
+	        	if (!data.isNumber(i)) {
+	                throw new IllegalStateException("Valore atteso Double per " + attr.getName() + " ma trovato String");
 	            }
-	            tuple.add(new ContinuousItem(attr, (Double) value), i);
+	            tuple.add(new ContinuousItem(attr, data.getDouble(index, i)), i);
 	        } else if (attr instanceof DiscreteAttribute) {
-	            if (!(value instanceof String)) {
+	            String value = data.isNumber(i) ? null : data.getString(index, i);
+	            if (value == null) {
 	                throw new IllegalStateException(
 	                    "Valore atteso String per " + attr.getName() + " ma trovato " + 
-	                    (value == null ? "null" : value.getClass().getSimpleName())
+	                    (data.isNumber(i) ? "Double" : "null")
 	                );
 	            }
-	            tuple.add(new DiscreteItem((DiscreteAttribute) attr, (String) value), i);
+	            tuple.add(new DiscreteItem((DiscreteAttribute) attr, value), i);
 	        } else {
 	            throw new IllegalStateException("Tipo di attributo non gestito :" + attr.getClass());
 	        }
@@ -263,7 +661,9 @@ public class Data implements Iterable<Attribute>{
 	    // Stampa dei dati (transazioni)
 	    for (int i = 0; i < numberOfExamples; i++) {
 	        sb.append(i).append(": ");
-	        sb.append(data.get(i).toString()); // data.get(i) e' garantito essere Example
+	        for (int j = 0; j < attributeSet.size(); j++) {
+	            sb.append(data.get(i, j)).append(" ");
+	        }
 	        sb.append("\n");
 	    }
 	    
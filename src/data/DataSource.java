@@ -0,0 +1,59 @@
+package data;
+
+import java.io.IOException;
+
+import database.RowSink;
+
+/**
+ * Sorgente di transazioni da cui costruire un {@link Data} con {@link Data#Data(DataSource)}, in
+ * alternativa alle tabelle del database lette dagli altri costruttori di {@link Data}.
+ * <p>
+ * Una sorgente dichiara nomi e tipi delle colonne e consegna le righe, divise in partizioni, a una
+ * {@link RowSink} per partizione, con le stesse regole della lettura da database: per ogni riga un valore
+ * per colonna nell'ordine dello schema, numerico o stringa secondo il tipo della colonna, poi
+ * {@link RowSink#endRow()}. Le partizioni possono essere consegnate da thread diversi, ciascuno alla propria
+ * destinazione. La sorgente non deve eliminare le righe duplicate: lo fa {@link Data}, che conserva la
+ * semantica di {@code SELECT DISTINCT} qualunque sia la sorgente.
+ * </p>
+ */
+public interface DataSource {
+
+	/**
+	 * Restituisce il nome della sorgente, usato come nome della tabella del dataset.
+	 *
+	 * @return nome della sorgente
+	 */
+	String getName();
+
+	/**
+	 * Restituisce i nomi delle colonne, nell'ordine in cui i valori vengono consegnati.
+	 *
+	 * @return nomi delle colonne
+	 * @throws IOException se lo schema non può essere letto
+	 */
+	String[] getColumnNames() throws IOException;
+
+	/**
+	 * Restituisce, per ogni colonna, se e' numerica (attributo continuo) o no (attributo discreto).
+	 *
+	 * @return {@code true} per le colonne numeriche
+	 * @throws IOException se lo schema non può essere letto
+	 */
+	boolean[] getNumericColumns() throws IOException;
+
+	/**
+	 * Restituisce il numero di partizioni in cui la sorgente consegna le righe.
+	 *
+	 * @return numero di partizioni, almeno 1
+	 */
+	int getNumberOfPartitions();
+
+	/**
+	 * Consegna tutte le righe della sorgente: le righe della partizione {@code k} a {@code sinks[k]}.
+	 *
+	 * @param sinks destinazioni delle righe, una per partizione
+	 * @throws IOException se le righe non possono essere lette o non rispettano lo schema
+	 * @throws IllegalArgumentException se il numero di destinazioni e' diverso dal numero di partizioni
+	 */
+	void load(RowSink[] sinks) throws IOException;
+}
@@ -0,0 +1,304 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formato binario degli snapshot di un dataset, scritti da {@link Data#salvaSnapshot(String)} e
+ * aperti da {@link Data#apriSnapshot(String)}.
+ * <p>
+ * Struttura del file (versione 1):
+ * </p>
+ * <pre>
+ * int     MAGIC ("QTDS")
+ * short   versione del formato
+ * short   flag (riservati, 0)
+ * int     numero di righe
+ * UTF     nome della tabella di origine ("" se non noto)
+ * schema  tabella degli attributi con estremi e domini (vedi {@link TupleCodec#writeSchema(java.io.DataOutput)})
+ * per ogni colonna:
+ *   long    posizione dei valori della colonna dall'inizio del file
+ * per ogni colonna, a partire da una posizione multipla di 8:
+ *   double[] valori di una colonna numerica (0 per NULL), oppure
+ *   int[]    posizioni dei valori di una colonna discreta nel dominio ordinato (-1 per NULL)
+ *   zeri fino alla posizione multipla di 8 successiva
+ * </pre>
+ * <p>
+ * I valori sono in big-endian, l'ordine predefinito di {@link java.nio.ByteBuffer}: all'apertura ogni
+ * colonna viene mappata in memoria e letta come {@link DoubleBuffer} o {@link IntBuffer} senza alcuna
+ * decodifica (vedi {@link MappedColumnStore}); vengono letti solo l'intestazione e lo schema. La mappatura
+ * e' in sola lettura, quindi più processi che aprono lo stesso snapshot condividono le pagine della cache
+ * del sistema operativo. Ogni colonna e' mappata separatamente e non può superare i 2 GiB. Su Windows
+ * un file mappato non può essere sostituito né cancellato finché le mappature non vengono rilasciate
+ * con {@link Data#chiudiSnapshot()} (o dal garbage collector).
+ * </p>
+ */
+class DatasetSnapshot {
+
+	/**
+	 * Numero magico che identifica il formato ("QTDS").
+	 */
+	static final int MAGIC = 0x51544453;
+
+	/**
+	 * Versione corrente del formato.
+	 */
+	static final short VERSION = 1;
+
+	/**
+	 * Allineamento in byte dell'inizio di ciascuna colonna.
+	 */
+	private static final int ALIGNMENT = Long.BYTES;
+
+	/**
+	 * Nome della tabella di origine, {@code null} se non noto.
+	 */
+	private String tableName;
+
+	/**
+	 * Attributi del dataset, nell'ordine delle colonne.
+	 */
+	private Attribute[] schema;
+
+	/**
+	 * Colonne mappate in memoria.
+	 */
+	private MappedColumnStore columns;
+
+	/**
+	 * Costruttore: inizializza il contenuto di uno snapshot aperto.
+	 *
+	 * @param tableName nome della tabella di origine
+	 * @param schema attributi del dataset
+	 * @param columns colonne mappate
+	 */
+	private DatasetSnapshot(String tableName, Attribute[] schema, MappedColumnStore columns) {
+		this.tableName = tableName;
+		this.schema = schema;
+		this.columns = columns;
+	}
+
+	/**
+	 * Restituisce il nome della tabella di origine.
+	 *
+	 * @return nome della tabella, {@code null} se non noto
+	 */
+	String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Restituisce gli attributi del dataset.
+	 *
+	 * @return attributi nell'ordine delle colonne
+	 */
+	Attribute[] getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Restituisce le colonne mappate in memoria.
+	 *
+	 * @return colonne dello snapshot
+	 */
+	MappedColumnStore getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Scrive uno snapshot.
+	 * <p>
+	 * Come per i file di clustering, il file viene scritto in un file temporaneo nella stessa cartella e
+	 * poi rinominato sulla destinazione: chi ha già mappato lo snapshot precedente continua a leggerlo intatto.
+	 * </p>
+	 *
+	 * @param fileName percorso del file da scrivere
+	 * @param tableName nome della tabella di origine, {@code null} se non noto
+	 * @param schema attributi del dataset, nell'ordine delle colonne
+	 * @param rows transazioni del dataset
+	 * @throws IOException se si verifica un errore di scrittura
+	 * @throws IllegalStateException se un valore discreto non appartiene al dominio del proprio attributo
+	 */
+	static void write(String fileName, String tableName, Attribute[] schema, ColumnarData rows) throws IOException {
+		int n = schema.length;
+		int size = rows.size();
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerOut = new DataOutputStream(header);
+		headerOut.writeInt(MAGIC);
+		headerOut.writeShort(VERSION);
+		headerOut.writeShort(0);
+		headerOut.writeInt(size);
+		headerOut.writeUTF(tableName == null ? "" : tableName);
+		new TupleCodec(schema).writeSchema(headerOut);
+
+		long[] offsets = new long[n];
+		long position = align(headerOut.size() + (long) Long.BYTES * n);
+		for (int i = 0; i < n; i++) {
+			offsets[i] = position;
+			position = align(position + (long) size * width(schema[i]));
+		}
+
+		Path target = Paths.get(fileName).toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				header.writeTo(out);
+				for (long offset : offsets) {
+					out.writeLong(offset);
+				}
+				long written = header.size() + (long) Long.BYTES * n;
+				for (int i = 0; i < n; i++) {
+					pad(out, written, offsets[i]);
+					written = offsets[i] + (long) size * width(schema[i]);
+					if (schema[i] instanceof ContinuousAttribute) {
+						for (int row = 0; row < size; row++) {
+							out.writeDouble(rows.getDouble(row, i));
+						}
+					} else {
+						Map<String, Integer> codes = new HashMap<>();
+						for (String v : (DiscreteAttribute) schema[i]) {
+							codes.put(v, codes.size());
+						}
+						for (int row = 0; row < size; row++) {
+							String value = rows.getString(row, i);
+							Integer code = value == null ? Integer.valueOf(-1) : codes.get(value);
+							if (code == null) {
+								throw new IllegalStateException("Valore fuori dal dominio di " + schema[i].getName() + ": " + value);
+							}
+							out.writeInt(code);
+						}
+					}
+				}
+				pad(out, written, position);
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Apre uno snapshot: legge intestazione e schema e mappa in memoria ciascuna colonna.
+	 * Il canale viene chiuso subito dopo: le mappature restano valide fino alla chiusura delle colonne.
+	 *
+	 * @param fileName percorso dello snapshot
+	 * @return snapshot aperto
+	 * @throws IOException se il file non può essere letto o non e' uno snapshot valido
+	 */
+	static DatasetSnapshot open(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			if (fileSize < 8 || in.readInt() != MAGIC) {
+				throw new IOException("Il file non e' uno snapshot di dataset: " + fileName);
+			}
+			short version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException("Versione dello snapshot non supportata: " + version);
+			}
+			in.readShort();
+			int size = in.readInt();
+			if (size < 0) {
+				throw new IOException("Numero di righe non valido: " + size);
+			}
+			String tableName = in.readUTF();
+			Attribute[] schema = TupleCodec.readSchema(in).getSchema();
+
+			int n = schema.length;
+			long[] offsets = new long[n];
+			for (int i = 0; i < n; i++) {
+				offsets[i] = in.readLong();
+			}
+
+			DoubleBuffer[] numbers = new DoubleBuffer[n];
+			IntBuffer[] codes = new IntBuffer[n];
+			String[][] dictionaries = new String[n][];
+			MappedByteBuffer[] regions = new MappedByteBuffer[n];
+			MappedColumnStore columns = new MappedColumnStore(size, numbers, codes, dictionaries, regions);
+			try {
+				for (int i = 0; i < n; i++) {
+					long length = (long) size * width(schema[i]);
+					if (offsets[i] < 0 || offsets[i] % ALIGNMENT != 0 || offsets[i] + length > fileSize) {
+						throw new IOException("Posizione della colonna " + schema[i].getName() + " non valida: " + offsets[i]);
+					}
+					if (length > Integer.MAX_VALUE) {
+						throw new IOException("Colonna " + schema[i].getName() + " troppo grande per essere mappata: " + length + " byte");
+					}
+					regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], length);
+					if (schema[i] instanceof ContinuousAttribute) {
+						numbers[i] = regions[i].asDoubleBuffer();
+					} else {
+						DiscreteAttribute a = (DiscreteAttribute) schema[i];
+						codes[i] = regions[i].asIntBuffer();
+						dictionaries[i] = new String[a.getNumberOfDistinctValues()];
+						int k = 0;
+						for (String v : a) {
+							dictionaries[i][k++] = v;
+						}
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				columns.close();		// rilascia le colonne già mappate
+				throw e;
+			}
+			return new DatasetSnapshot(tableName.isEmpty() ? null : tableName, schema, columns);
+		}
+	}
+
+	/**
+	 * Restituisce la dimensione in byte di un valore della colonna di un attributo.
+	 *
+	 * @param attribute attributo della colonna
+	 * @return 8 per gli attributi continui, 4 per quelli discreti
+	 */
+	private static int width(Attribute attribute) {
+		return attribute instanceof ContinuousAttribute ? Double.BYTES : Integer.BYTES;
+	}
+
+	/**
+	 * Arrotonda una posizione al multiplo di {@link #ALIGNMENT} successivo.
+	 *
+	 * @param position posizione nel file
+	 * @return posizione allineata
+	 */
+	private static long align(long position) {
+		return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Scrive zeri dalla posizione corrente fino a quella indicata. Le posizioni sono tenute come
+	 * {@code long} perché {@link DataOutputStream#size()} si ferma a {@link Integer#MAX_VALUE}.
+	 *
+	 * @param out flusso di destinazione
+	 * @param from posizione corrente nel file
+	 * @param to posizione da raggiungere, al più {@link #ALIGNMENT} byte dopo {@code from}
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	private static void pad(DataOutputStream out, long from, long to) throws IOException {
+		for (long p = from; p < to; p++) {
+			out.writeByte(0);
+		}
+	}
+}
@@ -0,0 +1,483 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import database.RowSink;
+
+/**
+ * Sorgente di transazioni lette da un file di testo delimitato (CSV, TSV, ...) in UTF-8.
+ * <p>
+ * La prima riga del file contiene i nomi delle colonne. I campi sono separati dal delimitatore e
+ * possono essere racchiusi tra virgolette doppie, con {@code ""} per una virgoletta nel valore; un campo
+ * vuoto non tra virgolette e' NULL. Le righe possono terminare con {@code \n} o {@code \r\n}.
+ * </p>
+ * <p>
+ * Il file viene diviso in tante porzioni quanti sono i thread, con i confini spostati all'inizio della
+ * riga successiva, e le porzioni vengono lette e decodificate contemporaneamente, ciascuna nella propria
+ * partizione (vedi {@link DataSource}). Per questo, con più di un thread, i campi tra virgolette non
+ * possono contenere a capo.
+ * </p>
+ * <p>
+ * Il tipo di ogni colonna può essere indicato con {@link #withType(String, boolean)}; altrimenti viene
+ * dedotto dalle prime {@link #INFERENCE_ROWS} righe: e' numerica una colonna i cui valori non NULL sono
+ * tutti numeri finiti. Se più avanti nel file una colonna dedotta numerica contiene un valore non
+ * numerico il caricamento fallisce, indicando la posizione del valore: basta allora dichiararne il tipo.
+ * </p>
+ */
+public class DelimitedFileSource implements DataSource {
+
+	/**
+	 * Numero di righe lette all'inizio del file per dedurre il tipo delle colonne.
+	 */
+	static final int INFERENCE_ROWS = 10000;
+
+	/**
+	 * Dimensione del buffer di lettura di ciascun thread.
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/**
+	 * Percorso del file.
+	 */
+	private Path file;
+
+	/**
+	 * Separatore dei campi.
+	 */
+	private byte delimiter;
+
+	/**
+	 * Numero di thread (e di partizioni) con cui leggere il file.
+	 */
+	private int threads;
+
+	/**
+	 * Tipi dichiarati con {@link #withType(String, boolean)}, per nome di colonna.
+	 */
+	private Map<String, Boolean> declaredTypes = new LinkedHashMap<>();
+
+	/**
+	 * Nomi delle colonne, letti alla prima richiesta.
+	 */
+	private String[] names;
+
+	/**
+	 * Tipi delle colonne, dichiarati o dedotti alla prima richiesta.
+	 */
+	private boolean[] numeric;
+
+	/**
+	 * Posizione della prima riga dopo l'intestazione.
+	 */
+	private long dataStart;
+
+	/**
+	 * Costruttore: legge il file con un thread per processore disponibile.
+	 *
+	 * @param fileName percorso del file
+	 * @param delimiter separatore dei campi, ad esempio {@code ','} o {@code '\t'}
+	 * @throws IllegalArgumentException se il separatore non e' un carattere ASCII ammesso
+	 */
+	public DelimitedFileSource(String fileName, char delimiter) {
+		this(fileName, delimiter, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param fileName percorso del file
+	 * @param delimiter separatore dei campi, ad esempio {@code ','} o {@code '\t'}
+	 * @param threads numero di thread con cui leggere il file
+	 * @throws IllegalArgumentException se il separatore non e' un carattere ASCII ammesso
+	 *         o il numero di thread non e' positivo
+	 */
+	public DelimitedFileSource(String fileName, char delimiter, int threads) {
+		if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+			throw new IllegalArgumentException("Separatore non ammesso: " + delimiter);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Il numero di thread deve essere positivo: " + threads);
+		}
+		this.file = Paths.get(fileName);
+		this.delimiter = (byte) delimiter;
+		this.threads = threads;
+	}
+
+	/**
+	 * Dichiara il tipo di una colonna, che non viene più dedotto dai valori.
+	 *
+	 * @param column nome della colonna, come nell'intestazione del file
+	 * @param isNumeric {@code true} per una colonna numerica, {@code false} per una discreta
+	 * @return questa sorgente
+	 * @throws IllegalStateException se lo schema e' già stato letto
+	 */
+	public DelimitedFileSource withType(String column, boolean isNumeric) {
+		if (names != null) {
+			throw new IllegalStateException("Lo schema del file e' già stato letto.");
+		}
+		declaredTypes.put(column, isNumeric);
+		return this;
+	}
+
+	@Override
+	public String getName() {
+		return file.getFileName().toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException se un tipo e' stato dichiarato per una colonna che non compare nell'intestazione
+	 */
+	@Override
+	public String[] getColumnNames() throws IOException {
+		describe();
+		return names.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException se un tipo e' stato dichiarato per una colonna che non compare nell'intestazione
+	 */
+	@Override
+	public boolean[] getNumericColumns() throws IOException {
+		describe();
+		return numeric.clone();
+	}
+
+	@Override
+	public int getNumberOfPartitions() {
+		return threads;
+	}
+
+	@Override
+	public void load(RowSink[] sinks) throws IOException {
+		if (sinks.length != threads) {
+			throw new IllegalArgumentException("Occorre una destinazione per ciascuna delle " + threads + " partizioni.");
+		}
+		describe();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel);
+			if (threads == 1) {
+				parse(channel, bounds[0], bounds[1], new SinkVisitor(sinks[0]), Long.MAX_VALUE);
+				return;
+			}
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<Void>> results = new ArrayList<>();
+				for (int k = 0; k < threads; k++) {
+					long from = bounds[k];
+					long to = bounds[k + 1];
+					RowSink sink = sinks[k];
+					results.add(pool.submit(() -> {
+						parse(channel, from, to, new SinkVisitor(sink), Long.MAX_VALUE);
+						return null;
+					}));
+				}
+				for (Future<Void> result : results) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Lettura del file " + file + " interrotta.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException("Errore nella lettura di una porzione del file.", e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Legge l'intestazione e, per le colonne senza tipo dichiarato, deduce il tipo dalle prime righe.
+	 *
+	 * @throws IOException se il file non può essere letto o l'intestazione manca
+	 * @throws IllegalArgumentException se un tipo e' stato dichiarato per una colonna sconosciuta
+	 */
+	private synchronized void describe() throws IOException {
+		if (names != null) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			List<String> header = new ArrayList<>();
+			long start = parse(channel, 0, channel.size(), new FieldVisitor() {
+				@Override
+				public void field(int column, byte[] value, int length, boolean quoted, long position) {
+					String name = new String(value, 0, length, StandardCharsets.UTF_8).trim();
+					header.add(column == 0 && name.startsWith("\uFEFF") ? name.substring(1).trim() : name);	// BOM
+				}
+
+				@Override
+				public void endLine(int fields, long position) {
+				}
+			}, 1);
+			if (header.isEmpty()) {
+				throw new IOException("Il file " + file + " non contiene l'intestazione con i nomi delle colonne.");
+			}
+
+			String[] columns = header.toArray(new String[0]);
+			Map<String, Integer> index = new HashMap<>();
+			for (int i = 0; i < columns.length; i++) {
+				index.put(columns[i], i);
+			}
+			Boolean[] types = new Boolean[columns.length];
+			for (Map.Entry<String, Boolean> e : declaredTypes.entrySet()) {
+				Integer i = index.get(e.getKey());
+				if (i == null) {
+					throw new IllegalArgumentException("La colonna " + e.getKey() + " non compare nell'intestazione di " + file);
+				}
+				types[i] = e.getValue();
+			}
+
+			// deduzione: numerica finché tutti i valori non NULL del campione sono numeri finiti
+			boolean[] inferred = new boolean[columns.length];
+			Arrays.fill(inferred, true);
+			parse(channel, start, channel.size(), new FieldVisitor() {
+				@Override
+				public void field(int column, byte[] value, int length, boolean quoted, long position) {
+					if (column < inferred.length && inferred[column] && (length > 0 || quoted)) {
+						inferred[column] = parseNumber(value, length) != null;
+					}
+				}
+
+				@Override
+				public void endLine(int fields, long position) {
+				}
+			}, INFERENCE_ROWS);
+
+			numeric = new boolean[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				numeric[i] = types[i] != null ? types[i] : inferred[i];
+			}
+			dataStart = start;
+			names = columns;
+		}
+	}
+
+	/**
+	 * Calcola i confini delle porzioni del file, uno per thread più la fine del file: ogni confine
+	 * nominale viene spostato all'inizio della riga che lo segue, così che ogni riga appartenga a una
+	 * sola porzione.
+	 *
+	 * @param channel canale del file
+	 * @return posizioni di inizio di ciascuna porzione, seguite dalla dimensione del file
+	 * @throws IOException se si verifica un errore di lettura
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long[] bounds = new long[threads + 1];
+		bounds[0] = dataStart;
+		bounds[threads] = size;
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for (int k = 1; k < threads; k++) {
+			long nominal = Math.max(dataStart + (size - dataStart) * k / threads, bounds[k - 1]);
+			if (nominal == dataStart) {
+				bounds[k] = dataStart;
+				continue;
+			}
+			// il confine e' il primo byte dopo un a capo, a partire dal byte che precede quello nominale
+			long scan = nominal - 1;
+			long found = size;
+			while (found == size && scan < size) {
+				buffer.clear();
+				int read = channel.read(buffer, scan);
+				if (read <= 0) {
+					break;
+				}
+				for (int i = 0; i < read && found == size; i++) {
+					if (buffer.get(i) == '\n') {
+						found = scan + i + 1;
+					}
+				}
+				scan += read;
+			}
+			bounds[k] = found;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Riceve i campi delle righe decodificate da {@link DelimitedFileSource#parse(FileChannel, long, long, FieldVisitor, long)}.
+	 */
+	private interface FieldVisitor {
+
+		/**
+		 * Riceve un campo della riga corrente.
+		 *
+		 * @param column indice del campo nella riga
+		 * @param value byte del valore, senza virgolette; validi solo durante la chiamata
+		 * @param length numero di byte del valore
+		 * @param quoted {@code true} se il campo era tra virgolette
+		 * @param position posizione nel file della fine del campo
+		 * @throws IOException se il campo non e' valido
+		 */
+		void field(int column, byte[] value, int length, boolean quoted, long position) throws IOException;
+
+		/**
+		 * Segnala la fine della riga corrente.
+		 *
+		 * @param fields numero di campi della riga
+		 * @param position posizione nel file della fine della riga
+		 * @throws IOException se la riga non e' valida
+		 */
+		void endLine(int fields, long position) throws IOException;
+	}
+
+	/**
+	 * Decodifica le righe che iniziano tra {@code from} (incluso) e {@code to} (escluso).
+	 * Le righe vuote vengono ignorate.
+	 *
+	 * @param channel canale del file, letto con letture posizionali (sicure tra thread)
+	 * @param from posizione di inizio di una riga
+	 * @param to posizione di inizio di una riga o fine del file
+	 * @param visitor destinazione dei campi
+	 * @param maxLines numero massimo di righe da decodificare
+	 * @return posizione successiva all'ultima riga decodificata
+	 * @throws IOException se si verifica un errore di lettura o di decodifica
+	 */
+	private long parse(FileChannel channel, long from, long to, FieldVisitor visitor, long maxLines) throws IOException {
+		final int start = 0, unquoted = 1, quoted = 2, quoteSeen = 3;
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		byte[] field = new byte[256];
+		int length = 0;
+		int state = start;
+		int column = 0;
+		long lines = 0;
+		long position = from;
+
+		while (position < to && lines < maxLines) {
+			buffer.clear();
+			buffer.limit((int) Math.min(BUFFER_BYTES, to - position));
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			byte[] bytes = buffer.array();
+			for (int i = 0; i < read && lines < maxLines; i++) {
+				byte b = bytes[i];
+				position++;
+				if (state == quoted) {
+					if (b == '"') {
+						state = quoteSeen;
+						continue;
+					}
+				} else if (b == '\r') {
+					continue;
+				} else if (b == delimiter || b == '\n') {
+					if (b == '\n' && state == start && column == 0) {
+						continue;	// riga vuota
+					}
+					visitor.field(column++, field, length, state == quoteSeen, position);
+					length = 0;
+					state = start;
+					if (b == '\n') {
+						visitor.endLine(column, position);
+						column = 0;
+						lines++;
+					}
+					continue;
+				} else if (state == start && b == '"') {
+					state = quoted;
+					continue;
+				} else if (state == quoteSeen) {
+					// virgoletta raddoppiata nel valore, oppure testo dopo la chiusura (accettato com'e')
+					state = b == '"' ? quoted : unquoted;
+				} else {
+					state = unquoted;
+				}
+				if (length == field.length) {
+					field = Arrays.copyOf(field, field.length * 2);
+				}
+				field[length++] = b;
+			}
+		}
+		if (lines < maxLines && (column > 0 || state != start)) {
+			// ultima riga senza a capo finale
+			visitor.field(column++, field, length, state == quoteSeen, position);
+			visitor.endLine(column, position);
+		}
+		return position;
+	}
+
+	/**
+	 * Interpreta un valore come numero.
+	 *
+	 * @param value byte del valore
+	 * @param length numero di byte del valore
+	 * @return il numero, {@code null} se il valore non e' un numero finito
+	 */
+	private static Double parseNumber(byte[] value, int length) {
+		try {
+			double d = Double.parseDouble(new String(value, 0, length, StandardCharsets.US_ASCII).trim());
+			return Double.isNaN(d) || Double.isInfinite(d) ? null : d;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Consegna i campi decodificati a una destinazione secondo lo schema.
+	 */
+	private class SinkVisitor implements FieldVisitor {
+
+		private RowSink sink;		// Destinazione delle righe
+
+		SinkVisitor(RowSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void field(int column, byte[] value, int length, boolean quoted, long position) throws IOException {
+			if (column >= names.length) {
+				return;		// segnalato a fine riga
+			}
+			boolean isNull = length == 0 && !quoted;
+			if (numeric[column]) {
+				if (isNull) {
+					sink.numberNull(column);
+					return;
+				}
+				Double d = parseNumber(value, length);
+				if (d == null) {
+					throw new IOException("Valore non numerico nella colonna numerica " + names[column] + " di " + file
+							+ " (byte " + position + "): " + new String(value, 0, length, StandardCharsets.UTF_8));
+				}
+				sink.numberValue(column, d);
+			} else {
+				sink.stringValue(column, isNull ? null : new String(value, 0, length, StandardCharsets.UTF_8));
+			}
+		}
+
+		@Override
+		public void endLine(int fields, long position) throws IOException {
+			if (fields != names.length) {
+				throw new IOException("Riga con " + fields + " campi invece di " + names.length + " in " + file
+						+ " (byte " + position + ").");
+			}
+			sink.endRow();
+		}
+	}
+}
@@ -27,6 +27,12 @@ import java.util.TreeSet;
  * @see java.util.TreeSet
  */
 public class DiscreteAttribute extends Attribute implements Iterable<String>{
+	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = -5297713767003532725L;
+
 	/**
 	 * TeeSet contenente i valori distinti che costituiscono il dominio dell'attributo.
      * I valori sono memorizzati in ordine lessicografico.
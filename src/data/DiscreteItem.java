@@ -12,6 +12,11 @@ package data;
 
 public class DiscreteItem extends Item{
 	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = -6127603217351902318L;
+	
 	/**
 	 * Costruttore: inizializza l'oggetto {@code DiscreteItem} con un attributo discreto e un valore associato.
      * 
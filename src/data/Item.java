@@ -10,6 +10,12 @@ import java.io.Serializable;
  * ed e' progettata per essere estesa da classi concrete che definiscono specifici tipi di item.
  */
 public abstract class Item implements Serializable{
+	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = -5431885522543664515L;
+
 	/**
 	 * Attributo coinvolto nell'item.
 	 */
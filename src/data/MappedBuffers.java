@@ -0,0 +1,65 @@
+package data;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * La classe {@code MappedBuffers} rilascia le mappature in memoria dei file prima che vengano raccolte
+ * dal garbage collector.
+ * <p>
+ * Java non offre un'operazione pubblica per annullare una mappatura: finché il {@link MappedByteBuffer}
+ * non viene raccolto, su Windows il file mappato non può essere cancellato né sostituito con una rinomina.
+ * Il rilascio usa quindi {@code sun.misc.Unsafe.invokeCleaner} (Java 9 e successivi) oppure il
+ * {@code Cleaner} del buffer (Java 8); se nessuno dei due e' accessibile la mappatura resta in attesa
+ * del garbage collector.
+ * </p>
+ */
+public final class MappedBuffers {
+
+	/**
+	 * Costruttore privato: la classe contiene solo metodi statici.
+	 */
+	private MappedBuffers() {
+	}
+
+	/**
+	 * Rilascia la mappatura del buffer. Dopo la chiamata il buffer e tutte le viste ricavate da esso
+	 * ({@code duplicate}, {@code asDoubleBuffer}, ...) non devono più essere lette: l'accesso a una
+	 * mappatura rilasciata può terminare la JVM.
+	 *
+	 * @param buffer buffer da rilasciare, ignorato se {@code null}
+	 * @return {@code true} se la mappatura e' stata rilasciata, {@code false} se resta al garbage collector
+	 */
+	public static boolean release(MappedByteBuffer buffer) {
+		if (buffer == null) {
+			return false;
+		}
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (NoSuchMethodException e) {
+				invokeCleaner = null;		// Java 8
+			}
+			if (invokeCleaner != null) {
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+				return true;
+			}
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner == null) {
+				return false;
+			}
+			cleaner.getClass().getMethod("clean").invoke(cleaner);
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return false;
+		}
+	}
+}
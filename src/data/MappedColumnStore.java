@@ -0,0 +1,135 @@
+package data;
+
+import java.io.Closeable;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Transazioni di un dataset lette direttamente dalle colonne di uno snapshot mappato in memoria
+ * (vedi {@link DatasetSnapshot}).
+ * <p>
+ * Ogni colonna e' una vista su una regione del file: i valori non vengono copiati né decodificati
+ * all'apertura, ma letti con accessi assoluti al momento della richiesta. Solo i dizionari delle colonne
+ * discrete, piccoli rispetto alle righe, sono tenuti in memoria. Gli accessi non modificano lo stato dei
+ * buffer, quindi più thread possono leggere lo stesso archivio contemporaneamente.
+ * </p>
+ * <p>
+ * Le mappature restano valide fino a {@link #close()}, che le rilascia senza attendere il garbage collector;
+ * la chiusura non deve avvenire mentre altri thread leggono l'archivio.
+ * </p>
+ */
+class MappedColumnStore implements ColumnarData, Closeable {
+
+	/**
+	 * Valori delle colonne numeriche ({@code null} per le colonne discrete).
+	 */
+	private DoubleBuffer[] numbers;
+
+	/**
+	 * Codici dei valori delle colonne discrete ({@code null} per le colonne numeriche);
+	 * il codice e' la posizione del valore nel dominio ordinato, -1 per NULL.
+	 */
+	private IntBuffer[] codes;
+
+	/**
+	 * Domini ordinati delle colonne discrete ({@code null} per le colonne numeriche).
+	 */
+	private String[][] dictionaries;
+
+	/**
+	 * Regioni mappate da cui sono ricavate le viste, una per colonna.
+	 */
+	private MappedByteBuffer[] regions;
+
+	/**
+	 * Numero di righe.
+	 */
+	private int rows;
+
+	/**
+	 * Indica se le mappature sono state rilasciate con {@link #close()}.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param rows numero di righe
+	 * @param numbers viste sulle colonne numeriche, {@code null} per le colonne discrete
+	 * @param codes viste sui codici delle colonne discrete, {@code null} per le colonne numeriche
+	 * @param dictionaries domini ordinati delle colonne discrete, {@code null} per le colonne numeriche
+	 * @param regions regioni mappate da cui sono ricavate le viste, una per colonna
+	 */
+	MappedColumnStore(int rows, DoubleBuffer[] numbers, IntBuffer[] codes, String[][] dictionaries, MappedByteBuffer[] regions) {
+		this.rows = rows;
+		this.numbers = numbers;
+		this.codes = codes;
+		this.dictionaries = dictionaries;
+		this.regions = regions;
+	}
+
+	/**
+	 * Rilascia le mappature delle colonne; le letture successive sollevano {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			for (MappedByteBuffer region : regions) {
+				MappedBuffers.release(region);
+			}
+		}
+	}
+
+	/**
+	 * Verifica che le mappature non siano state rilasciate.
+	 *
+	 * @throws IllegalStateException se l'archivio e' stato chiuso
+	 */
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Lo snapshot del dataset e' stato chiuso.");
+		}
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return numbers.length;
+	}
+
+	@Override
+	public boolean isNumber(int column) {
+		return numbers[column] != null;
+	}
+
+	@Override
+	public double getDouble(int row, int column) {
+		checkOpen();
+		return numbers[column].get(row);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalStateException se il codice letto dallo snapshot e' fuori dal dominio della colonna
+	 *         oppure se l'archivio e' stato chiuso
+	 */
+	@Override
+	public String getString(int row, int column) {
+		checkOpen();
+		int code = codes[column].get(row);
+		if (code < 0) {
+			return null;
+		}
+		if (code >= dictionaries[column].length) {
+			throw new IllegalStateException("Codice " + code + " fuori dal dominio della colonna " + column + " alla riga " + row);
+		}
+		return dictionaries[column][code];
+	}
+}
@@ -0,0 +1,128 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esito di un aggiornamento di {@link RefreshableData}: righe aggiunte, attributi il cui schema
+ * e' cambiato e necessità di ricalcolare le tuple già costruite.
+ * <p>
+ * Se cambiano gli estremi di un attributo continuo cambiano i valori scalati, quindi le distanze tra
+ * tuple: le {@link Tuple} ottenute prima dell'aggiornamento (e i clustering calcolati su di esse) non sono
+ * più confrontabili con quelle nuove e {@link #isRescaleRequired()} restituisce {@code true}. Un dominio
+ * discreto più ampio non cambia le distanze tra i valori già presenti.
+ * </p>
+ */
+public class RefreshResult {
+
+	/**
+	 * Numero di transazioni distinte aggiunte al dataset.
+	 */
+	private int addedRows;
+
+	/**
+	 * Indica se il dataset e' stato ricaricato da zero.
+	 */
+	private boolean reloaded;
+
+	/**
+	 * Indica se gli estremi di almeno un attributo continuo sono cambiati.
+	 */
+	private boolean rescaleRequired;
+
+	/**
+	 * Nomi degli attributi sostituiti per estremi o dominio cambiati.
+	 */
+	private List<String> changedAttributes;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param addedRows transazioni aggiunte
+	 * @param reloaded {@code true} se il dataset e' stato ricaricato da zero
+	 * @param rescaleRequired {@code true} se gli estremi di un attributo continuo sono cambiati
+	 * @param changedAttributes nomi degli attributi cambiati
+	 */
+	RefreshResult(int addedRows, boolean reloaded, boolean rescaleRequired, List<String> changedAttributes) {
+		this.addedRows = addedRows;
+		this.reloaded = reloaded;
+		this.rescaleRequired = rescaleRequired;
+		this.changedAttributes = Collections.unmodifiableList(new ArrayList<>(changedAttributes));
+	}
+
+	/**
+	 * Crea l'esito di un aggiornamento senza modifiche.
+	 *
+	 * @return esito senza modifiche
+	 */
+	static RefreshResult unchanged() {
+		return new RefreshResult(0, false, false, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Indica se il dataset non e' cambiato.
+	 *
+	 * @return {@code true} se non sono state aggiunte righe né ricaricata la tabella
+	 */
+	public boolean isUnchanged() {
+		return addedRows == 0 && !reloaded;
+	}
+
+	/**
+	 * Restituisce il numero di transazioni distinte aggiunte in coda al dataset.
+	 *
+	 * @return righe aggiunte (0 se il dataset e' stato ricaricato)
+	 */
+	public int getAddedRows() {
+		return addedRows;
+	}
+
+	/**
+	 * Indica se il dataset e' stato ricaricato da zero perché righe già caricate sono state modificate o
+	 * cancellate, o perché e' cambiato lo schema della tabella. In questo caso gli indici delle righe
+	 * precedenti non sono più validi.
+	 *
+	 * @return {@code true} se il dataset e' stato ricaricato
+	 */
+	public boolean isReloaded() {
+		return reloaded;
+	}
+
+	/**
+	 * Indica se le tuple costruite prima dell'aggiornamento devono essere ricalcolate perché sono
+	 * cambiati gli estremi di un attributo continuo (o il dataset e' stato ricaricato).
+	 *
+	 * @return {@code true} se occorre ricalcolare tuple e clustering
+	 */
+	public boolean isRescaleRequired() {
+		return rescaleRequired;
+	}
+
+	/**
+	 * Restituisce i nomi degli attributi sostituiti per estremi o dominio cambiati.
+	 *
+	 * @return nomi degli attributi cambiati
+	 */
+	public List<String> getChangedAttributes() {
+		return changedAttributes;
+	}
+
+	/**
+	 * Restituisce una descrizione dell'esito.
+	 *
+	 * @return descrizione dell'esito
+	 */
+	@Override
+	public String toString() {
+		if (reloaded) {
+			return "dataset ricaricato";
+		}
+		if (isUnchanged()) {
+			return "nessuna modifica";
+		}
+		return addedRows + " transazioni aggiunte"
+				+ (changedAttributes.isEmpty() ? "" : ", attributi cambiati " + changedAttributes)
+				+ (rescaleRequired ? ", riscalatura necessaria" : "");
+	}
+}
@@ -0,0 +1,284 @@
+package data;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import database.DatabaseConnectionException;
+import database.DbAccess;
+import database.EmptySetException;
+import database.NoValueException;
+import database.QueryFilter;
+import database.TableData;
+import database.TableSchema;
+
+/**
+ * Dataset caricato da una tabella e mantenuto aggiornato senza ricaricarlo da zero.
+ * <p>
+ * {@link #refresh()} verifica con una query economica se la tabella e' cambiata e, in caso affermativo,
+ * aggiunge in coda al dataset solo le transazioni distinte nuove, aggiornando estremi e domini degli
+ * attributi. Sono disponibili due modalità di rilevamento:
+ * </p>
+ * <ul>
+ *   <li><b>automatica</b> (costruttore con il solo nome della tabella). Se la tabella ha una colonna
+ *       {@code AUTO_INCREMENT} si contano le righe fino alla chiave massima già letta e quelle oltre: se le
+ *       prime sono invariate vengono lette solo le righe oltre la chiave; se sono cambiate (righe cancellate
+ *       o inserite con una chiave inferiore) si passa al confronto completo. Le modifiche di righe già lette
+ *       che non cambiano i conteggi non vengono rilevate. Senza colonna {@code AUTO_INCREMENT} l'impronta e'
+ *       il numero di righe con {@code CHECKSUM TABLE}, che il database calcola leggendo l'intera tabella:
+ *       se cambia si esegue il confronto completo. Nel confronto completo la tabella viene riletta e confrontata
+ *       con il dataset: le righe nuove vengono accodate; se alcune righe del dataset non compaiono più
+ *       (modificate o cancellate) il dataset viene ricaricato da zero;</li>
+ *   <li><b>chiave crescente</b> (costruttore con il nome di una colonna numerica, ad esempio una chiave
+ *       {@code AUTO_INCREMENT}): vengono lette solo le righe con chiave maggiore del massimo già letto.
+ *       Modifiche e cancellazioni di righe già lette non vengono rilevate.</li>
+ * </ul>
+ * <p>
+ * Le righe già presenti conservano il loro indice, così che i clustering calcolati restino riferiti alle
+ * stesse righe; se però gli estremi di un attributo continuo cambiano, le tuple già costruite non sono più
+ * confrontabili con le nuove e l'esito lo segnala (vedi {@link RefreshResult#isRescaleRequired()}).
+ * Il dataset non va letto da altri thread durante {@link #refresh()}.
+ * </p>
+ */
+public class RefreshableData {
+
+	/**
+	 * Nome della tabella.
+	 */
+	private String tableName;
+
+	/**
+	 * Colonna numerica crescente per la modalità a chiave, {@code null} per la modalità automatica.
+	 */
+	private String keyColumn;
+
+	/**
+	 * Colonna {@code AUTO_INCREMENT} della tabella (modalità automatica), {@code null} se la tabella non
+	 * ne ha una e si usa l'impronta.
+	 */
+	private String appendKey;
+
+	/**
+	 * Valore massimo di {@link #appendKey} già letto.
+	 */
+	private long appendMark;
+
+	/**
+	 * Numero di righe della tabella con {@link #appendKey} non maggiore di {@link #appendMark}.
+	 */
+	private long appendRows;
+
+	/**
+	 * Dataset corrente.
+	 */
+	private Data data;
+
+	/**
+	 * Impronta della tabella all'ultimo caricamento (modalità automatica senza {@link #appendKey}).
+	 */
+	private String fingerprint;
+
+	/**
+	 * Valore massimo della chiave all'ultimo caricamento (modalità a chiave), {@code null} se la chiave
+	 * non aveva valori.
+	 */
+	private Double highWaterMark;
+
+	/**
+	 * Costruttore: carica la tabella e ne registra la colonna {@code AUTO_INCREMENT} con i relativi
+	 * conteggi oppure, se non c'e', l'impronta.
+	 *
+	 * @param tableName nome della tabella
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella e' vuota
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 */
+	public RefreshableData(String tableName) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		this(tableName, null);
+	}
+
+	/**
+	 * Costruttore: carica la tabella e registra il valore massimo di una colonna crescente.
+	 *
+	 * @param tableName nome della tabella
+	 * @param keyColumn colonna numerica i cui valori crescono con l'inserimento delle righe;
+	 *        {@code null} per la modalità automatica
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella e' vuota
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 * @throws IllegalArgumentException se la colonna non appartiene alla tabella o non e' numerica
+	 */
+	public RefreshableData(String tableName, String keyColumn) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		this.tableName = tableName;
+		this.keyColumn = keyColumn;
+		reload();
+	}
+
+	/**
+	 * Restituisce il dataset corrente. Dopo un aggiornamento con ricaricamento (vedi
+	 * {@link RefreshResult#isReloaded()}) e' un oggetto diverso dal precedente.
+	 *
+	 * @return dataset corrente
+	 */
+	public Data getData() {
+		return data;
+	}
+
+	/**
+	 * Aggiorna il dataset con le modifiche della tabella dall'ultimo caricamento.
+	 *
+	 * @return esito dell'aggiornamento
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella ricaricata e' vuota
+	 * @throws NoValueException se una colonna numerica della tabella ricaricata contiene solo valori NULL
+	 */
+	public RefreshResult refresh() throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		DbAccess db = new DbAccess();
+		db.initConnection();
+		try {
+			TableData tData = new TableData(db);
+			TableSchema tSchema = TableSchema.forTable(db, tableName);
+			if (!data.matches(tSchema)) {
+				return reloaded(db);
+			}
+
+			ColumnStore fresh = data.newStore();
+			if (keyColumn == null && appendKey != null) {
+				long[] state = tData.getAppendState(tableName, appendKey, appendMark);
+				if (state[0] == appendRows) {
+					if (state[1] == 0) {
+						return RefreshResult.unchanged();
+					}
+					tData.streamAppendedTransazioni(tSchema, tableName, appendKey, appendMark, state[2], fresh);
+					appendRows += state[1];
+					appendMark = state[2];
+					return data.append(fresh, false);
+				}
+				// righe cancellate o inserite con una chiave inferiore: confronto completo
+				state = tData.getAppendState(tableName, appendKey, Long.MIN_VALUE);
+				RefreshResult result = compareAll(db, tData, tSchema, fresh);
+				if (!result.isReloaded()) {
+					appendRows = state[1];
+					appendMark = state[2];
+				}
+				return result;
+			}
+			if (keyColumn == null) {
+				String current = tData.getFingerprint(tableName);
+				if (current.equals(fingerprint)) {
+					return RefreshResult.unchanged();
+				}
+				RefreshResult result = compareAll(db, tData, tSchema, fresh);
+				if (!result.isReloaded()) {
+					fingerprint = current;
+				}
+				return result;
+			}
+
+			Double current = maxKey(db, tData);
+			if (current == null || current.equals(highWaterMark)) {
+				return RefreshResult.unchanged();
+			}
+			QueryFilter newer = highWaterMark == null ? null : new QueryFilter().and(keyColumn, QueryFilter.Operator.GT, highWaterMark);
+			try {
+				tData.streamDistinctTransazioni(tSchema, tableName, newer, fresh);
+			} catch (EmptySetException e) {
+				// le righe oltre il massimo precedente sono state cancellate nel frattempo
+			}
+			highWaterMark = current;
+			return data.append(fresh, false);
+		} finally {
+			db.closeConnection();
+		}
+	}
+
+	/**
+	 * Rilegge tutte le transazioni della tabella, accoda al dataset quelle nuove e, se alcune righe del
+	 * dataset non compaiono più, lo ricarica da zero.
+	 *
+	 * @param db accesso al database, chiuso prima di un ricaricamento
+	 * @param tData accesso alla tabella
+	 * @param tSchema schema della tabella, uguale a quello del dataset
+	 * @param fresh archivio vuoto in cui leggere le transazioni
+	 * @return esito dell'aggiornamento
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella e' vuota
+	 * @throws NoValueException se una colonna numerica della tabella ricaricata contiene solo valori NULL
+	 */
+	private RefreshResult compareAll(DbAccess db, TableData tData, TableSchema tSchema, ColumnStore fresh)
+			throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		tData.streamDistinctTransazioni(tSchema, tableName, fresh);
+		RefreshResult result = data.append(fresh, true);
+		return result != null ? result : reloaded(db);
+	}
+
+	/**
+	 * Chiude la connessione e ricarica il dataset da zero.
+	 *
+	 * @param db accesso al database
+	 * @return esito di un ricaricamento
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella e' vuota
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 */
+	private RefreshResult reloaded(DbAccess db) throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		db.closeConnection();
+		reload();
+		return new RefreshResult(0, true, true, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Carica il dataset da zero e registra conteggi, impronta o valore massimo della chiave, letti prima delle
+	 * transazioni: una riga inserita durante il caricamento viene così riletta al prossimo aggiornamento
+	 * (e scartata se già presente) invece di essere persa.
+	 *
+	 * @throws DatabaseConnectionException se fallisce la connessione al database
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws EmptySetException se la tabella e' vuota
+	 * @throws NoValueException se una colonna numerica contiene solo valori NULL
+	 */
+	private void reload() throws DatabaseConnectionException, SQLException, EmptySetException, NoValueException {
+		DbAccess db = new DbAccess();
+		db.initConnection();
+		try {
+			TableData tData = new TableData(db);
+			if (keyColumn != null) {
+				highWaterMark = maxKey(db, tData);
+			} else {
+				appendKey = tData.getAutoIncrementColumn(tableName);
+				if (appendKey != null) {
+					long[] state = tData.getAppendState(tableName, appendKey, Long.MIN_VALUE);
+					appendRows = state[1];
+					appendMark = state[2];
+				} else {
+					fingerprint = tData.getFingerprint(tableName);
+				}
+			}
+		} finally {
+			db.closeConnection();
+		}
+		data = new Data(tableName);
+	}
+
+	/**
+	 * Legge il valore massimo della colonna chiave.
+	 *
+	 * @param db accesso al database
+	 * @param tData accesso alla tabella
+	 * @return valore massimo, {@code null} se la colonna non ha valori
+	 * @throws SQLException se si verifica un errore durante l'interrogazione del database
+	 * @throws IllegalArgumentException se la colonna non appartiene alla tabella o non e' numerica
+	 */
+	private Double maxKey(DbAccess db, TableData tData) throws SQLException {
+		TableSchema key = TableSchema.forTable(db, tableName).project(Collections.singletonList(keyColumn));
+		if (!key.getColumn(0).isNumber()) {
+			throw new IllegalArgumentException("La colonna chiave " + keyColumn + " non e' numerica.");
+		}
+		double[][] bounds = tData.getColumnBounds(key, tableName, null);
+		return bounds[0] == null ? null : bounds[0][1];
+	}
+}
@@ -0,0 +1,88 @@
+package data;
+
+import java.util.Random;
+
+import database.RowSink;
+
+/**
+ * Destinazione delle righe lette in streaming che ne conserva in un {@link ColumnStore} un campione
+ * uniforme di dimensione fissa (reservoir sampling, algoritmo R).
+ * <p>
+ * Le prime {@code size} righe vengono conservate; la riga {@code n}-esima successiva sostituisce una riga
+ * conservata scelta a caso con probabilità {@code size / n}. Tutte le righe passano comunque
+ * dall'archivio (vedi {@link ColumnStore#replaceRow(int)}), così che estremi e domini degli attributi
+ * siano quelli di tutte le righe lette e le distanze scalate restino confrontabili con un caricamento completo.
+ * </p>
+ */
+class ReservoirSink implements RowSink {
+
+	/**
+	 * Archivio delle righe conservate.
+	 */
+	private ColumnStore store;
+
+	/**
+	 * Dimensione del campione.
+	 */
+	private int size;
+
+	/**
+	 * Generatore pseudo-casuale.
+	 */
+	private Random random;
+
+	/**
+	 * Numero di righe lette.
+	 */
+	private long seen;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param store archivio in cui conservare il campione
+	 * @param size dimensione del campione
+	 * @param seed seme del generatore
+	 */
+	ReservoirSink(ColumnStore store, int size, long seed) {
+		this.store = store;
+		this.size = size;
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public void numberValue(int column, double value) {
+		store.numberValue(column, value);
+	}
+
+	@Override
+	public void numberNull(int column) {
+		store.numberNull(column);
+	}
+
+	@Override
+	public void stringValue(int column, String value) {
+		store.stringValue(column, value);
+	}
+
+	@Override
+	public void endRow() {
+		seen++;
+		if (store.size() < size) {
+			store.endRow();
+			return;
+		}
+		long slot = (long) (random.nextDouble() * seen);
+		if (slot < size) {
+			store.replaceRow((int) slot);
+		}
+	}
+
+	/**
+	 * Restituisce il numero di righe lette, conservate o no.
+	 *
+	 * @return righe lette
+	 */
+	long getSeen() {
+		return seen;
+	}
+}
@@ -15,6 +15,11 @@ import java.util.Set;
  */
 public class Tuple implements Serializable{
 	
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = 8142157847770240899L;
+	
 	/**
      * Array di oggetti {@link Item}, ognuno dei quali rappresenta una coppia {@code <Attributo, Valore>}.
      */
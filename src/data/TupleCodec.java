@@ -0,0 +1,267 @@
+package data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * La classe {@code TupleCodec} codifica in formato binario compatto lo schema degli attributi
+ * e le tuple che lo rispettano.
+ * <p>
+ * Lo schema viene scritto una sola volta (nome, tipo, estremi degli attributi continui e dominio
+ * di quelli discreti); ogni tupla viene poi codificata come riga: un {@code double} per ogni valore
+ * continuo e, per ogni valore discreto, la posizione del valore nel dominio ordinato dell'attributo
+ * come intero a lunghezza variabile (varint). Le tuple decodificate condividono gli stessi oggetti
+ * {@link Attribute}, invece di trascinarne una copia ciascuna come la serializzazione Java.
+ * </p>
+ */
+public class TupleCodec {
+
+	/**
+	 * Tipo di attributo discreto nello schema codificato.
+	 */
+	private static final byte DISCRETE = 0;
+
+	/**
+	 * Tipo di attributo continuo nello schema codificato.
+	 */
+	private static final byte CONTINUOUS = 1;
+
+	/**
+	 * Attributi dello schema, nell'ordine della tupla.
+	 */
+	private Attribute[] schema;
+
+	/**
+	 * Domini ordinati degli attributi discreti ({@code null} per gli attributi continui).
+	 */
+	private String[][] domains;
+
+	/**
+	 * Posizioni dei valori nei domini degli attributi discreti ({@code null} per gli attributi continui).
+	 */
+	private List<Map<String, Integer>> codes;
+
+	/**
+	 * Costruttore: ricava lo schema dagli attributi degli item della tupla di esempio.
+	 *
+	 * @param sample tupla da cui ricavare lo schema, oppure {@code null} per uno schema vuoto
+	 */
+	public TupleCodec(Tuple sample) {
+		Attribute[] attributes = new Attribute[sample == null ? 0 : sample.getLength()];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = sample.get(i).getAttribute();
+		}
+		init(attributes);
+	}
+
+	/**
+	 * Costruttore: usa lo schema indicato.
+	 *
+	 * @param schema attributi dello schema
+	 */
+	TupleCodec(Attribute[] schema) {
+		init(schema);
+	}
+
+	/**
+	 * Inizializza lo schema e le tabelle di codifica dei valori discreti.
+	 *
+	 * @param attributes attributi dello schema
+	 */
+	private void init(Attribute[] attributes) {
+		this.schema = attributes;
+		this.domains = new String[attributes.length][];
+		this.codes = new ArrayList<>(attributes.length);
+		for (int i = 0; i < attributes.length; i++) {
+			Map<String, Integer> code = null;
+			if (attributes[i] instanceof DiscreteAttribute) {
+				DiscreteAttribute a = (DiscreteAttribute) attributes[i];
+				domains[i] = new String[a.getNumberOfDistinctValues()];
+				code = new HashMap<>();
+				int k = 0;
+				for (String v : a) {
+					domains[i][k] = v;
+					code.put(v, k);
+					k++;
+				}
+			} else if (!(attributes[i] instanceof ContinuousAttribute)) {
+				throw new IllegalArgumentException("Tipo di attributo non gestito :" + attributes[i].getClass());
+			}
+			codes.add(code);
+		}
+	}
+
+	/**
+	 * Restituisce il numero di attributi dello schema.
+	 *
+	 * @return numero di attributi
+	 */
+	public int getNumberOfAttributes() {
+		return schema.length;
+	}
+
+	/**
+	 * Restituisce gli attributi dello schema, nell'ordine della tupla.
+	 *
+	 * @return attributi dello schema
+	 */
+	Attribute[] getSchema() {
+		return schema.clone();
+	}
+
+	/**
+	 * Scrive lo schema degli attributi.
+	 *
+	 * @param out flusso di destinazione
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	public void writeSchema(DataOutput out) throws IOException {
+		writeVarInt(out, schema.length);
+		for (int i = 0; i < schema.length; i++) {
+			Attribute a = schema[i];
+			if (a instanceof ContinuousAttribute) {
+				out.writeByte(CONTINUOUS);
+				out.writeUTF(a.getName());
+				out.writeDouble(((ContinuousAttribute) a).getMin());
+				out.writeDouble(((ContinuousAttribute) a).getMax());
+			} else {
+				out.writeByte(DISCRETE);
+				out.writeUTF(a.getName());
+				writeVarInt(out, domains[i].length);
+				for (String v : domains[i]) {
+					out.writeUTF(v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Legge uno schema scritto da {@link #writeSchema(DataOutput)} e restituisce il codec corrispondente.
+	 *
+	 * @param in flusso di origine
+	 * @return codec per lo schema letto
+	 * @throws IOException se si verifica un errore di lettura o lo schema non e' valido
+	 */
+	public static TupleCodec readSchema(DataInput in) throws IOException {
+		int n = readVarInt(in);
+		Attribute[] attributes = new Attribute[n];
+		try {
+			for (int i = 0; i < n; i++) {
+				byte type = in.readByte();
+				String name = in.readUTF();
+				if (type == CONTINUOUS) {
+					attributes[i] = new ContinuousAttribute(name, i, in.readDouble(), in.readDouble());
+				} else if (type == DISCRETE) {
+					int size = readVarInt(in);
+					TreeSet<String> values = new TreeSet<>();
+					for (int k = 0; k < size; k++) {
+						values.add(in.readUTF());
+					}
+					attributes[i] = new DiscreteAttribute(name, i, values);
+				} else {
+					throw new IOException("Tipo di attributo sconosciuto nello schema: " + type);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Schema non valido: " + e.getMessage(), e);
+		}
+		return new TupleCodec(attributes);
+	}
+
+	/**
+	 * Scrive una tupla come riga codificata secondo lo schema.
+	 *
+	 * @param out flusso di destinazione
+	 * @param tuple tupla da codificare
+	 * @throws IOException se si verifica un errore di scrittura
+	 * @throws IllegalArgumentException se la tupla non rispetta lo schema
+	 */
+	public void writeTuple(DataOutput out, Tuple tuple) throws IOException {
+		if (tuple.getLength() != schema.length) {
+			throw new IllegalArgumentException("La tupla non rispetta lo schema.");
+		}
+		for (int i = 0; i < schema.length; i++) {
+			Object value = tuple.get(i).getValue();
+			if (domains[i] == null) {
+				out.writeDouble((Double) value);
+			} else {
+				Integer code = codes.get(i).get(value);
+				if (code == null) {
+					throw new IllegalArgumentException("Valore fuori dal dominio di " + schema[i].getName() + ": " + value);
+				}
+				writeVarInt(out, code);
+			}
+		}
+	}
+
+	/**
+	 * Legge una tupla scritta da {@link #writeTuple(DataOutput, Tuple)}.
+	 *
+	 * @param in flusso di origine
+	 * @return tupla decodificata, i cui item condividono gli attributi dello schema
+	 * @throws IOException se si verifica un errore di lettura o un valore non e' valido
+	 */
+	public Tuple readTuple(DataInput in) throws IOException {
+		Tuple tuple = new Tuple(schema.length);
+		for (int i = 0; i < schema.length; i++) {
+			if (domains[i] == null) {
+				tuple.add(new ContinuousItem(schema[i], in.readDouble()), i);
+			} else {
+				int code = readVarInt(in);
+				if (code < 0 || code >= domains[i].length) {
+					throw new IOException("Codice fuori dal dominio di " + schema[i].getName() + ": " + code);
+				}
+				tuple.add(new DiscreteItem((DiscreteAttribute) schema[i], domains[i][code]), i);
+			}
+		}
+		return tuple;
+	}
+
+	/**
+	 * Scrive un intero non negativo come varint: 7 bit per byte, con il bit più significativo
+	 * a indicare che seguono altri byte.
+	 *
+	 * @param out flusso di destinazione
+	 * @param value intero non negativo da scrivere
+	 * @throws IOException se si verifica un errore di scrittura
+	 * @throws IllegalArgumentException se {@code value} e' negativo
+	 */
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		if (value < 0) {
+			throw new IllegalArgumentException("Il valore da codificare non può essere negativo: " + value);
+		}
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Legge un intero scritto da {@link #writeVarInt(DataOutput, int)}.
+	 *
+	 * @param in flusso di origine
+	 * @return intero letto
+	 * @throws IOException se si verifica un errore di lettura o il varint non e' valido
+	 */
+	public static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					throw new IOException("Varint non valido.");
+				}
+				return value;
+			}
+		}
+		throw new IOException("Varint non valido.");
+	}
+}
@@ -0,0 +1,316 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool di connessioni JDBC condiviso dalle istanze di {@link DbAccess}.
+ * <p>
+ * Le connessioni vengono aperte su richiesta fino a {@link DbConfig#getMaxPoolSize()}; oltre questo limite
+ * una richiesta attende che una connessione venga restituita, al più per {@link DbConfig#getBorrowTimeoutMillis()}
+ * millisecondi. Una connessione inutilizzata da più di {@value #VALIDATE_AFTER_MILLIS} ms viene verificata con
+ * {@link Connection#isValid(int)} prima di essere consegnata, così che le connessioni chiuse dal server
+ * ({@code wait_timeout} di MySQL) vengano scartate invece di far fallire la query. Un thread di servizio chiude
+ * le connessioni inattive da più di {@link DbConfig#getIdleTimeoutMillis()} ms e tiene aperte almeno
+ * {@link DbConfig#getMinPoolSize()} connessioni.
+ * </p>
+ * <p>
+ * Le connessioni libere sono gestite in ordine LIFO: viene consegnata per prima quella usata più di recente,
+ * mentre quelle in fondo alla coda restano inattive e vengono chiuse dal thread di servizio.
+ * </p>
+ */
+class ConnectionPool {
+
+	/**
+	 * Apertura di una nuova connessione fisica.
+	 */
+	interface ConnectionFactory {
+
+		/**
+		 * Apre una nuova connessione.
+		 *
+		 * @return connessione aperta
+		 * @throws SQLException se la connessione fallisce
+		 */
+		Connection open() throws SQLException;
+	}
+
+	/**
+	 * Inattività oltre la quale una connessione libera viene verificata prima di essere consegnata.
+	 */
+	static final long VALIDATE_AFTER_MILLIS = 5000;
+
+	/**
+	 * Connessione libera con l'istante in cui e' stata restituita.
+	 */
+	private static class Idle {
+
+		private Connection connection;		// Connessione libera
+		private long since;					// Istante della restituzione, in millisecondi
+
+		Idle(Connection connection, long since) {
+			this.connection = connection;
+			this.since = since;
+		}
+	}
+
+	/**
+	 * Configurazione del pool.
+	 */
+	private DbConfig config;
+
+	/**
+	 * Apertura delle connessioni fisiche.
+	 */
+	private ConnectionFactory factory;
+
+	/**
+	 * Connessioni libere, la più recente in testa.
+	 */
+	private Deque<Idle> idle = new ArrayDeque<>();
+
+	/**
+	 * Connessioni aperte (libere, in uso o in apertura).
+	 */
+	private int open;
+
+	/**
+	 * Indica se il pool e' stato chiuso.
+	 */
+	private boolean closed;
+
+	/**
+	 * Thread di servizio che chiude le connessioni inattive e riapre quelle del minimo.
+	 */
+	private ScheduledExecutorService evictor;
+
+	/**
+	 * Costruttore: crea il pool e avvia il thread di servizio per la chiusura delle connessioni inattive.
+	 *
+	 * @param config configurazione del pool
+	 * @param factory apertura delle connessioni fisiche
+	 */
+	ConnectionPool(DbConfig config, ConnectionFactory factory) {
+		this.config = config;
+		this.factory = factory;
+		long period = Math.max(1000, config.getIdleTimeoutMillis() / 2);
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "mapdb-pool-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		evictor.execute(this::fillMinimum);
+		evictor.scheduleWithFixedDelay(() -> {
+			evictIdle();
+			fillMinimum();
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Restituisce una connessione valida, riusando una connessione libera o aprendone una nuova.
+	 *
+	 * @return connessione da restituire con {@link #release(Connection)}
+	 * @throws DatabaseConnectionException se la connessione non può essere aperta, se nessuna connessione
+	 *         si libera entro il tempo massimo di attesa o se il pool e' chiuso
+	 */
+	Connection borrow() throws DatabaseConnectionException {
+		long deadline = System.currentTimeMillis() + config.getBorrowTimeoutMillis();
+		while (true) {
+			Idle candidate = null;
+			synchronized (this) {
+				while (candidate == null && !closed && idle.isEmpty() && open >= config.getMaxPoolSize()) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						throw new DatabaseConnectionException("Nessuna connessione al database disponibile entro "
+								+ config.getBorrowTimeoutMillis() + " ms (massimo " + config.getMaxPoolSize() + " connessioni).");
+					}
+					try {
+						wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new DatabaseConnectionException("Attesa di una connessione al database interrotta.");
+					}
+				}
+				if (closed) {
+					throw new DatabaseConnectionException("Il pool di connessioni e' chiuso.");
+				}
+				if (!idle.isEmpty()) {
+					candidate = idle.pollFirst();
+				} else {
+					open++;
+				}
+			}
+
+			if (candidate == null) {
+				return openConnection();
+			}
+			if (System.currentTimeMillis() - candidate.since < VALIDATE_AFTER_MILLIS || isValid(candidate.connection)) {
+				return candidate.connection;
+			}
+			discard(candidate.connection);
+		}
+	}
+
+	/**
+	 * Restituisce al pool una connessione ottenuta con {@link #borrow()}. Una connessione chiusa viene scartata.
+	 *
+	 * @param connection connessione da restituire
+	 */
+	void release(Connection connection) {
+		boolean usable;
+		try {
+			usable = !connection.isClosed();
+			if (usable && !connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			usable = false;
+		}
+		synchronized (this) {
+			if (usable && !closed) {
+				idle.addFirst(new Idle(connection, System.currentTimeMillis()));
+				notifyAll();
+				return;
+			}
+		}
+		discard(connection);
+	}
+
+	/**
+	 * Chiude le connessioni libere inattive da più di {@link DbConfig#getIdleTimeoutMillis()} ms,
+	 * lasciandone aperte almeno {@link DbConfig#getMinPoolSize()}.
+	 */
+	void evictIdle() {
+		List<Connection> expired = new ArrayList<>();
+		long limit = System.currentTimeMillis() - config.getIdleTimeoutMillis();
+		synchronized (this) {
+			Iterator<Idle> it = idle.descendingIterator();
+			while (it.hasNext() && open - expired.size() > config.getMinPoolSize()) {
+				Idle entry = it.next();
+				if (entry.since >= limit) {
+					break;
+				}
+				it.remove();
+				expired.add(entry.connection);
+			}
+		}
+		for (Connection c : expired) {
+			discard(c);
+		}
+	}
+
+	/**
+	 * Apre connessioni libere fino a {@link DbConfig#getMinPoolSize()}. Un errore di connessione
+	 * interrompe il riempimento, che viene ritentato all'esecuzione successiva del thread di servizio.
+	 */
+	void fillMinimum() {
+		while (true) {
+			synchronized (this) {
+				if (closed || open >= config.getMinPoolSize()) {
+					return;
+				}
+				open++;
+			}
+			Connection connection;
+			try {
+				connection = openConnection();
+			} catch (DatabaseConnectionException e) {
+				return;
+			}
+			release(connection);
+		}
+	}
+
+	/**
+	 * Chiude il pool: le connessioni libere vengono chiuse subito, quelle in uso al momento della restituzione.
+	 */
+	void close() {
+		List<Idle> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			idle.clear();
+			notifyAll();
+		}
+		evictor.shutdownNow();
+		for (Idle entry : toClose) {
+			discard(entry.connection);
+		}
+	}
+
+	/**
+	 * Restituisce il numero di connessioni aperte.
+	 *
+	 * @return connessioni libere e in uso
+	 */
+	synchronized int getOpenConnections() {
+		return open;
+	}
+
+	/**
+	 * Restituisce il numero di connessioni libere.
+	 *
+	 * @return connessioni libere
+	 */
+	synchronized int getIdleConnections() {
+		return idle.size();
+	}
+
+	/**
+	 * Apre una nuova connessione fisica, il cui posto nel pool e' già stato riservato.
+	 *
+	 * @return connessione aperta
+	 * @throws DatabaseConnectionException se la connessione fallisce
+	 */
+	private Connection openConnection() throws DatabaseConnectionException {
+		try {
+			return factory.open();
+		} catch (SQLException | RuntimeException e) {
+			synchronized (this) {
+				open--;
+				notifyAll();
+			}
+			throw new DatabaseConnectionException("Connessione al DB fallita (SQL): " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Verifica una connessione libera.
+	 *
+	 * @param connection connessione da verificare
+	 * @return {@code true} se la connessione e' ancora utilizzabile
+	 */
+	private boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(config.getValidationTimeoutSeconds());
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Chiude una connessione e ne libera il posto nel pool.
+	 *
+	 * @param connection connessione da chiudere
+	 */
+	private void discard(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// la connessione e' comunque inutilizzabile
+		}
+		synchronized (this) {
+			open--;
+			notifyAll();
+		}
+	}
+}
@@ -28,6 +28,15 @@ public class DatabaseConnectionException extends Exception {
     public DatabaseConnectionException(String msg) {
         super(msg);
     }
+
+    /**
+     * Costruttore che conserva l'errore che ha causato il fallimento della connessione.
+     * @param msg Il messaggio di dettaglio dell'eccezione.
+     * @param cause L'errore originale (ad esempio la {@link java.sql.SQLException} del driver).
+     */
+    public DatabaseConnectionException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
     
     /**
      * Restituisce una rappresentazione testuale dell'eccezione.
@@ -1,59 +1,101 @@
 package database;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.SQLException;
 
 /**
- * Classe per l'accesso e la gestione della connessione alla base di dati MapDB 
+ * Classe per l'accesso e la gestione della connessione alla base di dati MapDB
  * utilizzando il driver JDBC di MySQL.
+ * <p>
+ * Le connessioni non vengono aperte a ogni {@link #initConnection()}: tutte le istanze condividono
+ * un pool ({@link ConnectionPool}) creato alla prima richiesta con la configurazione letta da
+ * {@link DbConfig#load()}. {@link #initConnection()} prende in prestito una connessione dal pool e
+ * {@link #closeConnection()} la restituisce, senza chiuderla, per la richiesta successiva.
+ * </p>
  */
 public class DbAccess {
 
 	// Attributi per la configurazione del Driver e del DBMS
-    private static final String DRIVER_CLASS_NAME = "com.mysql.cj.jdbc.Driver"; 
-    private final String DBMS = "jdbc:mysql";
-    private final String SERVER = "localhost"; 		// Identificativo del server
-    private final String DATABASE = "MapDB"; 		// Nome della base di dati
-    private final int PORT = 3306; 					// La porta su cui il DBMS MySQL accetta le connessioni
-    private final String USER_ID = "MapUser"; 		// Nome dell’utente per l’accesso
-    private final String PASSWORD = "map"; 			// Password di autenticazione
-    
+    private static final String DRIVER_CLASS_NAME = "com.mysql.cj.jdbc.Driver";
+
+    // Pool condiviso da tutte le istanze, creato alla prima connessione
+    private static ConnectionPool pool;
+    private static DbConfig poolConfig;
+
     // Attributo per la connessione
     private Connection conn; // Gestisce una connessione
+    private ConnectionPool owner; // Pool da cui e' stata presa la connessione
 
     /**
-     * Inizializza la connessione al database MapDB.
-     * Impartisce al class loader l’ordine di caricare il driver MySQL 
-     * e inizializza l'oggetto Connection.
-     * @throws DatabaseConnectionException in caso di fallimento nel caricamento del driver o nella connessione.
+     * Restituisce il pool condiviso, creandolo alla prima chiamata.
+     * Impartisce al class loader l’ordine di caricare il driver MySQL una sola volta.
+     * @return Il pool di connessioni.
+     * @throws DatabaseConnectionException se il driver non viene trovato o la configurazione non e' leggibile.
      */
-    public void initConnection() throws DatabaseConnectionException {
-        
-        // Caricamento del driver
-        try{
-            // Class.forName() forza il caricamento del driver
-            Class.forName(DRIVER_CLASS_NAME); 
-        } catch(ClassNotFoundException e) {
-            System.out.println("[!] Driver not found: " + e.getMessage());
-            // Incapsulamento dell'errore
-            throw new DatabaseConnectionException("Driver non trovato: " + e.getMessage());
+    private static synchronized ConnectionPool pool() throws DatabaseConnectionException {
+        if (pool == null) {
+            // Caricamento del driver
+            try{
+                // Class.forName() forza il caricamento del driver
+                Class.forName(DRIVER_CLASS_NAME);
+            } catch(ClassNotFoundException e) {
+                // Incapsulamento dell'errore
+                throw new DatabaseConnectionException("Driver non trovato: " + e.getMessage(), e);
+            }
+            DbConfig config;
+            try {
+                config = DbConfig.load();
+            } catch (IllegalArgumentException e) {
+                throw new DatabaseConnectionException("Configurazione del database non valida: " + e.getMessage(), e);
+            }
+            pool = new ConnectionPool(config,
+                    () -> DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword()));
+            poolConfig = config;
+        }
+        return pool;
+    }
+
+    /**
+     * Restituisce la configurazione del pool condiviso, o quella predefinita se il pool non e' ancora stato creato.
+     * @return La configurazione in uso.
+     */
+    static synchronized DbConfig getConfig() {
+        return poolConfig != null ? poolConfig : new DbConfig();
+    }
+
+    /**
+     * Restituisce il numero massimo di connessioni del pool condiviso ({@link DbConfig#getMaxPoolSize()}),
+     * cioè quante connessioni possono essere prese in prestito contemporaneamente.
+     * @return Il numero massimo di connessioni.
+     * @throws DatabaseConnectionException se il pool non può essere creato.
+     */
+    public static int getMaxConnections() throws DatabaseConnectionException {
+        pool();
+        return getConfig().getMaxPoolSize();
+    }
+
+    /**
+     * Chiude il pool condiviso e le sue connessioni libere; le connessioni in uso vengono chiuse
+     * quando restituite. Una richiesta successiva crea un nuovo pool rileggendo la configurazione.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
+    }
 
-        // Definizione della stringa di connessione (URL del database)
-        String connectionString = DBMS + "://" + SERVER + ":" + PORT + "/" + DATABASE
-                    + "?user=" + USER_ID + "&password=" + PASSWORD + "&serverTimezone=UTC";
-        
-        System.out.println("Connection's String: " + connectionString);
-        
-        try {
-            conn = DriverManager.getConnection(connectionString);		// stabilisce la connessione
-            System.out.println("[+] Connessione stabilita con successo.");
-        } catch(SQLException e) {
-            System.out.println("[!] SQL Exception: " + e.getMessage());
-            System.out.println("[!] SQLState: " + e.getSQLState());
-            // Incapsulamento dell'errore
-            throw new DatabaseConnectionException("Connessione al DB fallita (SQL): " + e.getMessage()); 
+    /**
+     * Inizializza la connessione al database MapDB prendendone una dal pool condiviso,
+     * che la apre se non ne ha di libere.
+     * @throws DatabaseConnectionException in caso di fallimento nel caricamento del driver o nella connessione,
+     *         o se nessuna connessione si libera entro il tempo massimo di attesa.
+     */
+    public void initConnection() throws DatabaseConnectionException {
+        if (conn != null) {
+            return;		// connessione già ottenuta
         }
+        owner = pool();
+        conn = owner.borrow();
     }
 
     /**
@@ -66,34 +108,33 @@ public class DbAccess {
     }
 
     /**
-     * Chiude la connessione al database.
-     * @throws SQLException se si verifica un errore durante la chiusura della connessione.
+     * Restituisce la connessione al pool da cui e' stata presa, che la riuserà per una richiesta
+     * successiva (o la chiude, se nel frattempo il pool e' stato chiuso).
+     * @throws DatabaseConnectionException mai con il pool; dichiarata per compatibilità con i chiamanti.
      */
     public void closeConnection() throws DatabaseConnectionException {
-        try {
-	    	if (conn != null && !conn.isClosed()) {
-	            conn.close();
-	            System.out.println("[-] Connessione chiusa.");
-	        }
-        }catch(SQLException e) {
-        	throw new DatabaseConnectionException("Errore durante la chiusura della connessione: " + e.getMessage());
+        if (conn != null) {
+            owner.release(conn);
+            conn = null;
+            owner = null;
         }
     }
-        
-     /** 
+
+     /**
       * Metodo toString per rappresentare lo stato dell'oggetto DbAccess.
       * @return Una stringa che rappresenta lo stato dell'oggetto DbAccess.
       */
       @Override
       public String toString() {
+            DbConfig config = getConfig();
             StringBuilder sb = new StringBuilder();
-            sb.append("DBMS: ").append(DBMS).append("\n");
-            sb.append("Server: ").append(SERVER).append("\n");
-            sb.append("Database: ").append(DATABASE).append("\n");
-            sb.append("Port: ").append(PORT).append("\n");
-            sb.append("User ID: ").append(USER_ID).append("\n");
+            sb.append("DBMS: ").append("jdbc:mysql").append("\n");
+            sb.append("Server: ").append(config.getServer()).append("\n");
+            sb.append("Database: ").append(config.getDatabase()).append("\n");
+            sb.append("Port: ").append(config.getPort()).append("\n");
+            sb.append("User ID: ").append(config.getUser()).append("\n");
             // Non includiamo la password per motivi di sicurezza
             return sb.toString();
       }
-    
+
 }
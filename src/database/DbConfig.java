@@ -0,0 +1,276 @@
+package database;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Configurazione dell'accesso al database MapDB e del pool di connessioni di {@link DbAccess}.
+ * <p>
+ * I valori vengono letti dal file di proprietà indicato dalla proprietà di sistema {@code mapdb.config}
+ * (per default {@code mapdb.properties} nella directory di lavoro, se esiste); una proprietà di sistema
+ * con la stessa chiave (es. {@code -Dmapdb.pool.max=20}) prevale sul file. Le chiavi assenti assumono
+ * i valori predefiniti, cioè quelli del database creato da {@code setup_mapdb.sql}.
+ * </p>
+ * <pre>
+ * mapdb.server                     localhost
+ * mapdb.port                       3306
+ * mapdb.database                   MapDB
+ * mapdb.url                        (assente) URL JDBC completo, al posto di quello ricavato da server, porta e database
+ * mapdb.user                       MapUser
+ * mapdb.password                   map
+ * mapdb.pool.min                   0      connessioni tenute aperte anche se inutilizzate
+ * mapdb.pool.max                   10     connessioni aperte al massimo
+ * mapdb.pool.borrowTimeoutMillis   10000  attesa massima di una connessione libera
+ * mapdb.pool.idleTimeoutMillis     300000 inattività dopo cui una connessione viene chiusa
+ * mapdb.pool.validationTimeoutSeconds 2   attesa massima della verifica di una connessione
+ * mapdb.schema.cacheTtlMillis      60000  validità degli schemi in cache prima di una nuova verifica
+ * </pre>
+ */
+public class DbConfig {
+
+	/**
+	 * Proprietà di sistema con il percorso del file di configurazione.
+	 */
+	public static final String CONFIG_PROPERTY = "mapdb.config";
+
+	/**
+	 * File di configurazione usato se {@link #CONFIG_PROPERTY} non e' impostata.
+	 */
+	public static final String DEFAULT_CONFIG_FILE = "mapdb.properties";
+
+	private String server = "localhost";		// Identificativo del server
+	private int port = 3306;					// La porta su cui il DBMS MySQL accetta le connessioni
+	private String database = "MapDB";			// Nome della base di dati
+	private String url;							// URL JDBC esplicito, null per ricavarlo dai valori precedenti
+	private String user = "MapUser";			// Nome dell'utente per l'accesso
+	private String password = "map";			// Password di autenticazione
+	private int minPoolSize = 0;				// Connessioni tenute aperte anche se inutilizzate
+	private int maxPoolSize = 10;				// Connessioni aperte al massimo
+	private long borrowTimeoutMillis = 10000;	// Attesa massima di una connessione libera
+	private long idleTimeoutMillis = 300000;	// Inattività dopo cui una connessione viene chiusa
+	private int validationTimeoutSeconds = 2;	// Attesa massima della verifica di una connessione
+	private long schemaCacheTtlMillis = 60000;	// Validità degli schemi in cache prima di una nuova verifica
+
+	/**
+	 * Costruttore: crea la configurazione con i valori predefiniti.
+	 */
+	public DbConfig() {
+	}
+
+	/**
+	 * Costruttore: crea la configurazione dai valori presenti in {@code props}; le chiavi assenti
+	 * assumono i valori predefiniti.
+	 *
+	 * @param props proprietà di configurazione
+	 * @throws IllegalArgumentException se un valore numerico non e' valido o i limiti del pool sono incoerenti
+	 */
+	public DbConfig(Properties props) {
+		server = props.getProperty("mapdb.server", server);
+		port = intValue(props, "mapdb.port", port);
+		database = props.getProperty("mapdb.database", database);
+		url = props.getProperty("mapdb.url");
+		user = props.getProperty("mapdb.user", user);
+		password = props.getProperty("mapdb.password", password);
+		minPoolSize = intValue(props, "mapdb.pool.min", minPoolSize);
+		maxPoolSize = intValue(props, "mapdb.pool.max", maxPoolSize);
+		borrowTimeoutMillis = longValue(props, "mapdb.pool.borrowTimeoutMillis", borrowTimeoutMillis);
+		idleTimeoutMillis = longValue(props, "mapdb.pool.idleTimeoutMillis", idleTimeoutMillis);
+		validationTimeoutSeconds = intValue(props, "mapdb.pool.validationTimeoutSeconds", validationTimeoutSeconds);
+		schemaCacheTtlMillis = longValue(props, "mapdb.schema.cacheTtlMillis", schemaCacheTtlMillis);
+
+		if (minPoolSize < 0 || maxPoolSize < 1 || minPoolSize > maxPoolSize) {
+			throw new IllegalArgumentException("Dimensioni del pool non valide: min=" + minPoolSize + " max=" + maxPoolSize);
+		}
+		if (borrowTimeoutMillis < 0 || idleTimeoutMillis <= 0 || validationTimeoutSeconds < 0 || schemaCacheTtlMillis < 0) {
+			throw new IllegalArgumentException("I tempi di pool e cache non possono essere negativi.");
+		}
+	}
+
+	/**
+	 * Carica la configurazione dal file indicato da {@link #CONFIG_PROPERTY} (o da {@link #DEFAULT_CONFIG_FILE}),
+	 * applicando poi le proprietà di sistema con le stesse chiavi.
+	 *
+	 * @return configurazione caricata
+	 * @throws DatabaseConnectionException se il file esiste ma non può essere letto
+	 * @throws IllegalArgumentException se un valore non e' valido
+	 */
+	public static DbConfig load() throws DatabaseConnectionException {
+		Properties props = new Properties();
+		String fileName = System.getProperty(CONFIG_PROPERTY, DEFAULT_CONFIG_FILE);
+		if (Files.isRegularFile(Paths.get(fileName))) {
+			try (InputStream in = new FileInputStream(fileName)) {
+				props.load(in);
+			} catch (IOException e) {
+				throw new DatabaseConnectionException("Impossibile leggere la configurazione " + fileName + ": " + e.getMessage());
+			}
+		} else if (System.getProperty(CONFIG_PROPERTY) != null) {
+			throw new DatabaseConnectionException("File di configurazione non trovato: " + fileName);
+		}
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith("mapdb.") && !key.equals(CONFIG_PROPERTY)) {
+				props.setProperty(key, System.getProperty(key));
+			}
+		}
+		return new DbConfig(props);
+	}
+
+	/**
+	 * Legge un valore intero dalle proprietà.
+	 *
+	 * @param props proprietà di configurazione
+	 * @param key chiave del valore
+	 * @param defaultValue valore se la chiave e' assente
+	 * @return valore letto
+	 * @throws IllegalArgumentException se il valore non e' un intero
+	 */
+	private static int intValue(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Valore non intero per " + key + ": " + value);
+		}
+	}
+
+	/**
+	 * Legge un valore intero lungo dalle proprietà, come i tempi in millisecondi.
+	 *
+	 * @param props proprietà di configurazione
+	 * @param key chiave del valore
+	 * @param defaultValue valore se la chiave e' assente
+	 * @return valore letto
+	 * @throws IllegalArgumentException se il valore non e' un intero
+	 */
+	private static long longValue(Properties props, String key, long defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Valore non intero per " + key + ": " + value);
+		}
+	}
+
+	/**
+	 * Restituisce la stringa di connessione JDBC, senza credenziali: quella di {@code mapdb.url}, se
+	 * impostata, altrimenti quella di MySQL ricavata da server, porta e database.
+	 *
+	 * @return URL del database
+	 */
+	public String getUrl() {
+		if (url != null) {
+			return url;
+		}
+		return "jdbc:mysql://" + server + ":" + port + "/" + database
+				+ "?serverTimezone=UTC"
+				+ "&useCursorFetch=true";		// abilita i cursori lato server per le letture con fetch size
+	}
+
+	/**
+	 * Restituisce il nome o indirizzo del server MySQL.
+	 *
+	 * @return nome o indirizzo del server MySQL
+	 */
+	public String getServer() {
+		return server;
+	}
+
+	/**
+	 * Restituisce la porta del server.
+	 *
+	 * @return porta del server
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Restituisce il nome della base di dati.
+	 *
+	 * @return nome della base di dati
+	 */
+	public String getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Restituisce il nome dell'utente per l'accesso.
+	 *
+	 * @return nome dell'utente per l'accesso
+	 */
+	public String getUser() {
+		return user;
+	}
+
+	/**
+	 * Restituisce la password di autenticazione.
+	 *
+	 * @return password di autenticazione
+	 */
+	String getPassword() {
+		return password;
+	}
+
+	/**
+	 * Restituisce il numero di connessioni tenute aperte anche se inutilizzate.
+	 *
+	 * @return numero di connessioni tenute aperte anche se inutilizzate
+	 */
+	public int getMinPoolSize() {
+		return minPoolSize;
+	}
+
+	/**
+	 * Restituisce il numero massimo di connessioni aperte.
+	 *
+	 * @return numero massimo di connessioni aperte
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * Restituisce l'attesa massima di una connessione libera, in millisecondi.
+	 *
+	 * @return attesa massima di una connessione libera, in millisecondi
+	 */
+	public long getBorrowTimeoutMillis() {
+		return borrowTimeoutMillis;
+	}
+
+	/**
+	 * Restituisce l'inattività dopo cui una connessione oltre il minimo viene chiusa, in millisecondi.
+	 *
+	 * @return inattività dopo cui una connessione oltre il minimo viene chiusa, in millisecondi
+	 */
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	/**
+	 * Restituisce l'attesa massima della verifica di una connessione, in secondi.
+	 *
+	 * @return attesa massima della verifica di una connessione, in secondi
+	 */
+	public int getValidationTimeoutSeconds() {
+		return validationTimeoutSeconds;
+	}
+
+	/**
+	 * Restituisce per quanto tempo uno schema in cache viene usato senza verificare se la tabella e' cambiata.
+	 *
+	 * @return validità degli schemi in cache, in millisecondi (0 per verificare a ogni richiesta)
+	 */
+	public long getSchemaCacheTtlMillis() {
+		return schemaCacheTtlMillis;
+	}
+}
@@ -0,0 +1,241 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import database.TableSchema.Column;
+
+/**
+ * Lettura parallela delle transazioni distinte di una tabella, divisa in partizioni lette
+ * contemporaneamente su connessioni diverse.
+ * <p>
+ * La tabella viene divisa in tante partizioni quante sono le connessioni:
+ * </p>
+ * <ul>
+ *   <li>se la tabella ha una colonna numerica, per intervalli di uguale ampiezza tra il minimo e il
+ *       massimo della prima colonna numerica (i valori NULL cadono nella prima partizione);</li>
+ *   <li>altrimenti per hash ({@code MOD(CRC32(WEIGHT_STRING(colonna)), n)}) della prima colonna.</li>
+ * </ul>
+ * <p>
+ * Ogni partizione e' letta con {@code SELECT DISTINCT ... WHERE predicato} dalla propria connessione
+ * e consegnata alla propria {@link RowSink}. Le partizioni sono disgiunte e due righe uguali secondo
+ * il DBMS cadono sempre nella stessa partizione, anche con una collation che non distingue maiuscole
+ * o accenti: l'hash e' calcolato sul peso di confronto della collation ({@code WEIGHT_STRING}), uguale
+ * per valori come {@code 'Roma'} e {@code 'roma'}, e l'intervallo numerico dipende solo da un valore
+ * numerico. Il {@code DISTINCT} di ciascuna partizione elimina quindi tutti i duplicati della tabella,
+ * come su una sola connessione; chi unisce i risultati elimina solo le righe identiche anche in Java.
+ * </p>
+ * <p>
+ * Le connessioni sono quelle dei {@link DbAccess} passati al costruttore, già inizializzati, quindi
+ * connessioni del pool condiviso verso il database indicato da {@link DbConfig#getUrl()}.
+ * Se la lettura di una partizione fallisce, le altre vengono annullate e la lettura termina solo
+ * quando tutte si sono fermate: al ritorno nessuna connessione ha più una query in corso e può
+ * quindi essere restituita al pool.
+ * </p>
+ */
+public class PartitionedTableData {
+
+	/**
+	 * Accessi al database, uno per partizione.
+	 */
+	private DbAccess[] connections;
+
+	/**
+	 * Costruttore.
+	 * @param connections Gli accessi al database già inizializzati, uno per ogni partizione da leggere in parallelo.
+	 * @throws IllegalArgumentException se non e' indicata alcuna connessione.
+	 */
+	public PartitionedTableData(DbAccess[] connections) {
+		if (connections == null || connections.length == 0) {
+			throw new IllegalArgumentException("Occorre almeno una connessione per leggere la tabella.");
+		}
+		this.connections = connections.clone();
+	}
+
+	/**
+	 * Restituisce il numero di partizioni in cui viene divisa la tabella, pari al numero di connessioni.
+	 * @return Il numero di partizioni.
+	 */
+	public int getNumberOfPartitions() {
+		return connections.length;
+	}
+
+	/**
+	 * Calcola i predicati SQL che dividono la tabella in {@link #getNumberOfPartitions()} partizioni disgiunte
+	 * la cui unione e' l'intera tabella.
+	 * @param tSchema Lo schema della tabella.
+	 * @param table Il nome della tabella.
+	 * @return Un predicato per ogni partizione.
+	 * @throws SQLException in caso di errore nell'esecuzione della query sugli estremi della colonna.
+	 */
+	public List<String> partitionPredicates(TableSchema tSchema, String table) throws SQLException {
+		int n = connections.length;
+		List<String> predicates = new ArrayList<>();
+		if (tSchema.getNumberOfAttributes() == 0)
+			throw new SQLException("La tabella non contiene attributi, colonne");
+
+		Column key = null;
+		for (int i = 0; i < tSchema.getNumberOfAttributes() && key == null; i++) {
+			if (tSchema.getColumn(i).isNumber())
+				key = tSchema.getColumn(i);
+		}
+
+		if (key == null) {
+			// Nessuna colonna numerica: partizioni per hash della prima colonna, calcolato sul peso
+			// di confronto della collation così che valori uguali per il DBMS abbiano lo stesso hash
+			String column = tSchema.getColumn(0).getColumnName();
+			for (int k = 0; k < n; k++) {
+				String predicate = "MOD(CRC32(WEIGHT_STRING(" + column + "))," + n + ")=" + k;
+				predicates.add(k == 0 ? "(" + predicate + " OR " + column + " IS NULL)" : predicate);
+			}
+			return predicates;
+		}
+
+		String column = key.getColumnName();
+		double min = 0;
+		double max = 0;
+		boolean empty;
+		try (Statement statement = connections[0].getConnection().createStatement();
+				ResultSet rs = statement.executeQuery("select MIN(" + column + "), MAX(" + column + ") FROM " + table)) {
+			empty = !rs.next();
+			if (!empty) {
+				min = rs.getDouble(1);
+				empty = rs.wasNull();
+				max = rs.getDouble(2);
+			}
+		}
+
+		if (empty || n == 1 || min == max) {
+			// Una sola partizione effettiva; le altre restano vuote
+			predicates.add("1=1");
+			for (int k = 1; k < n; k++)
+				predicates.add("1=0");
+			return predicates;
+		}
+
+		// Confini comuni a partizioni adiacenti: ogni riga soddisfa esattamente un predicato
+		for (int k = 0; k < n; k++) {
+			String lower = k == 0 ? null : column + ">=" + (min + (max - min) * k / n);
+			String upper = k == n - 1 ? null : column + "<" + (min + (max - min) * (k + 1) / n);
+			if (lower == null)
+				predicates.add("(" + upper + " OR " + column + " IS NULL)");
+			else if (upper == null)
+				predicates.add(lower);
+			else
+				predicates.add(lower + " AND " + upper);
+		}
+		return predicates;
+	}
+
+	/**
+	 * Legge in parallelo le transazioni distinte della tabella: la partizione {@code k} viene letta
+	 * dalla connessione {@code k} e consegnata a {@code sinks[k]}, ciascuna in un proprio thread.
+	 * @param tSchema Lo schema della tabella.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param sinks Le destinazioni delle righe, una per partizione.
+	 * @return Il numero totale di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione di una query SQL.
+	 * @throws EmptySetException se nessuna partizione contiene righe.
+	 * @throws IllegalArgumentException se il numero di destinazioni e' diverso dal numero di partizioni.
+	 */
+	public int streamDistinctTransazioni(TableSchema tSchema, String table, RowSink[] sinks) throws SQLException, EmptySetException {
+		return streamDistinctTransazioni(tSchema, table, null, sinks);
+	}
+
+	/**
+	 * Legge in parallelo le transazioni distinte della tabella che soddisfano un filtro, come
+	 * {@link #streamDistinctTransazioni(TableSchema, String, RowSink[])}: ogni partizione porta nella
+	 * propria query la proiezione di {@code tSchema} e il filtro. Al primo errore le letture ancora in
+	 * corso vengono annullate con {@link Statement#cancel()} e il metodo attende che terminino tutte.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param filter Il filtro sulle righe, {@code null} per leggere tutte le righe.
+	 * @param sinks Le destinazioni delle righe, una per partizione.
+	 * @return Il numero totale di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione di una query SQL.
+	 * @throws EmptySetException se nessuna partizione contiene righe.
+	 * @throws IllegalArgumentException se il numero di destinazioni e' diverso dal numero di partizioni o il filtro non e' valido.
+	 */
+	public int streamDistinctTransazioni(TableSchema tSchema, String table, QueryFilter filter, RowSink[] sinks) throws SQLException, EmptySetException {
+		if (sinks.length != connections.length) {
+			throw new IllegalArgumentException("Occorre una destinazione per ciascuna delle " + connections.length + " partizioni.");
+		}
+		if (filter != null) {
+			filter.toSql(TableSchema.forTable(connections[0], table));	// errori del filtro prima di avviare le letture
+		}
+		List<String> predicates = partitionPredicates(tSchema, table);
+
+		int rows = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(connections.length);
+		CompletionService<Integer> results = new ExecutorCompletionService<>(pool);
+		List<TableData> readers = new ArrayList<>();
+		boolean completed = false;
+		try {
+			for (int k = 0; k < connections.length; k++) {
+				TableData tData = new TableData(connections[k]);
+				String predicate = predicates.get(k);
+				RowSink sink = sinks[k];
+				readers.add(tData);
+				results.submit(() -> tData.streamDistinctTransazioni(tSchema, table, predicate, filter, sink));
+			}
+			// risultati nell'ordine di completamento, così che il primo errore venga visto subito
+			for (int k = 0; k < connections.length; k++) {
+				rows += results.take().get();
+			}
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Lettura delle partizioni interrotta.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Errore nella lettura di una partizione.", e.getCause());
+		} finally {
+			if (!completed) {
+				for (TableData tData : readers) {
+					tData.cancel();
+				}
+			}
+			pool.shutdown();
+			awaitTermination(pool);
+		}
+
+		if (rows == 0)
+			throw new EmptySetException();
+
+		return rows;
+	}
+
+	/**
+	 * Attende che tutte le letture dell'executor siano terminate, anche se il thread viene interrotto:
+	 * le letture JDBC non rispondono all'interruzione e le loro connessioni non possono essere
+	 * restituite al pool finché sono in corso. Lo stato di interruzione viene ripristinato al termine.
+	 * @param pool L'executor delle letture, già chiuso con {@link ExecutorService#shutdown()}.
+	 */
+	private static void awaitTermination(ExecutorService pool) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (pool.awaitTermination(1, TimeUnit.SECONDS))
+					break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+}
@@ -0,0 +1,266 @@
+package database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import database.TableSchema.Column;
+
+/**
+ * Filtro sulle righe di una tabella, congiunzione di condizioni su singole colonne, da applicare
+ * lato database con {@link TableData#streamDistinctTransazioni(TableSchema, String, QueryFilter, RowSink)}.
+ * <p>
+ * Il filtro non contiene testo SQL fornito dal chiamante: le colonne vengono verificate sullo schema
+ * della tabella, gli operatori sono quelli di {@link Operator} e i valori vengono passati come parametri
+ * di un {@link PreparedStatement}. Un valore numerico e' ammesso solo su una colonna numerica e una
+ * stringa solo su una colonna non numerica.
+ * </p>
+ * <pre>
+ * QueryFilter f = new QueryFilter()
+ *         .and("outlook", Operator.EQ, "sunny")
+ *         .and("temperature", Operator.GE, 20.0);
+ * </pre>
+ */
+public class QueryFilter {
+
+	/**
+	 * Operatori di confronto ammessi nelle condizioni.
+	 */
+	public enum Operator {
+
+		/** Uguale. */
+		EQ("="),
+		/** Diverso. */
+		NE("<>"),
+		/** Minore. */
+		LT("<"),
+		/** Minore o uguale. */
+		LE("<="),
+		/** Maggiore. */
+		GT(">"),
+		/** Maggiore o uguale. */
+		GE(">=");
+
+		private String sql;		// Operatore SQL corrispondente
+
+		Operator(String sql) {
+			this.sql = sql;
+		}
+	}
+
+	/**
+	 * Condizione su una colonna: confronto con un valore o appartenenza a un elenco di valori.
+	 */
+	private static class Condition {
+
+		private String column;		// Nome della colonna
+		private Operator operator;	// Operatore di confronto, null per l'appartenenza a values
+		private Object[] values;	// Valori (Double o String) da confrontare
+
+		Condition(String column, Operator operator, Object[] values) {
+			this.column = column;
+			this.operator = operator;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Condizioni del filtro, in congiunzione.
+	 */
+	private List<Condition> conditions = new ArrayList<>();
+
+	/**
+	 * Aggiunge una condizione su una colonna numerica.
+	 *
+	 * @param column nome della colonna
+	 * @param operator operatore di confronto
+	 * @param value valore da confrontare
+	 * @return questo filtro
+	 * @throws IllegalArgumentException se la colonna o l'operatore mancano o il valore non e' finito
+	 */
+	public QueryFilter and(String column, Operator operator, double value) {
+		requireOperator(column, operator);
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Valore non finito nel filtro sulla colonna " + column);
+		}
+		return add(column, operator, new Object[] { value });
+	}
+
+	/**
+	 * Aggiunge una condizione su una colonna non numerica.
+	 *
+	 * @param column nome della colonna
+	 * @param operator operatore di confronto
+	 * @param value valore da confrontare
+	 * @return questo filtro
+	 * @throws IllegalArgumentException se la colonna, l'operatore o il valore mancano
+	 */
+	public QueryFilter and(String column, Operator operator, String value) {
+		requireOperator(column, operator);
+		if (value == null) {
+			throw new IllegalArgumentException("Valore nullo nel filtro sulla colonna " + column);
+		}
+		return add(column, operator, new Object[] { value });
+	}
+
+	/**
+	 * Aggiunge una condizione di appartenenza a un elenco di valori su una colonna non numerica.
+	 *
+	 * @param column nome della colonna
+	 * @param values valori ammessi
+	 * @return questo filtro
+	 * @throws IllegalArgumentException se la colonna manca o l'elenco e' vuoto o contiene valori nulli
+	 */
+	public QueryFilter in(String column, String... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("Elenco di valori vuoto nel filtro sulla colonna " + column);
+		}
+		for (String v : values) {
+			if (v == null) {
+				throw new IllegalArgumentException("Valore nullo nel filtro sulla colonna " + column);
+			}
+		}
+		return add(column, null, values.clone());
+	}
+
+	/**
+	 * Aggiunge una condizione di intervallo chiuso su una colonna numerica.
+	 *
+	 * @param column nome della colonna
+	 * @param min estremo inferiore
+	 * @param max estremo superiore
+	 * @return questo filtro
+	 * @throws IllegalArgumentException se la colonna manca o gli estremi non sono validi
+	 */
+	public QueryFilter between(String column, double min, double max) {
+		if (min > max) {
+			throw new IllegalArgumentException("Intervallo vuoto nel filtro sulla colonna " + column + ": " + min + " > " + max);
+		}
+		return and(column, Operator.GE, min).and(column, Operator.LE, max);
+	}
+
+	/**
+	 * Indica se il filtro non contiene condizioni.
+	 *
+	 * @return {@code true} se il filtro accetta tutte le righe
+	 */
+	public boolean isEmpty() {
+		return conditions.isEmpty();
+	}
+
+	/**
+	 * Verifica che l'operatore di un confronto sia indicato.
+	 *
+	 * @param column nome della colonna
+	 * @param operator operatore di confronto
+	 * @throws IllegalArgumentException se l'operatore manca
+	 */
+	private static void requireOperator(String column, Operator operator) {
+		if (operator == null) {
+			throw new IllegalArgumentException("Operatore mancante nel filtro sulla colonna " + column);
+		}
+	}
+
+	/**
+	 * Registra una condizione.
+	 *
+	 * @param column nome della colonna
+	 * @param operator operatore, {@code null} per l'appartenenza
+	 * @param values valori della condizione
+	 * @return questo filtro
+	 * @throws IllegalArgumentException se la colonna manca
+	 */
+	private QueryFilter add(String column, Operator operator, Object[] values) {
+		if (column == null || column.isEmpty()) {
+			throw new IllegalArgumentException("Nome di colonna mancante nel filtro.");
+		}
+		conditions.add(new Condition(column, operator, values));
+		return this;
+	}
+
+	/**
+	 * Restituisce il predicato SQL del filtro, con un segnaposto {@code ?} per ogni valore, dopo averne
+	 * verificato colonne e tipi sullo schema della tabella.
+	 *
+	 * @param schema schema completo della tabella
+	 * @return predicato della clausola WHERE, {@code null} se il filtro e' vuoto
+	 * @throws IllegalArgumentException se una colonna non appartiene alla tabella o un valore non e' del tipo della colonna
+	 */
+	String toSql(TableSchema schema) {
+		if (conditions.isEmpty()) {
+			return null;
+		}
+		StringBuilder sql = new StringBuilder();
+		for (Condition c : conditions) {
+			Column column = schema.getColumn(c.column);
+			if (column == null) {
+				throw new IllegalArgumentException("La colonna " + c.column + " non appartiene alla tabella.");
+			}
+			boolean numeric = c.values[0] instanceof Double;
+			if (numeric != column.isNumber()) {
+				throw new IllegalArgumentException("Valore " + (numeric ? "numerico" : "testuale")
+						+ " nel filtro sulla colonna " + (column.isNumber() ? "numerica " : "non numerica ") + c.column);
+			}
+			if (sql.length() > 0) {
+				sql.append(" AND ");
+			}
+			sql.append(column.getColumnName());
+			if (c.operator != null) {
+				sql.append(' ').append(c.operator.sql).append(" ?");
+			} else {
+				sql.append(" IN (");
+				for (int i = 0; i < c.values.length; i++) {
+					sql.append(i == 0 ? "?" : ",?");
+				}
+				sql.append(')');
+			}
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Assegna i valori del filtro ai parametri dello statement, nell'ordine dei segnaposto di {@link #toSql(TableSchema)}.
+	 *
+	 * @param statement statement preparato
+	 * @param first indice del primo parametro da assegnare (1-based)
+	 * @return indice del parametro successivo all'ultimo assegnato
+	 * @throws SQLException se l'assegnazione di un parametro fallisce
+	 */
+	int bind(PreparedStatement statement, int first) throws SQLException {
+		int index = first;
+		for (Condition c : conditions) {
+			for (Object value : c.values) {
+				if (value instanceof Double) {
+					statement.setDouble(index++, (Double) value);
+				} else {
+					statement.setString(index++, (String) value);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Restituisce una descrizione del filtro, con i valori al posto dei segnaposto.
+	 *
+	 * @return descrizione del filtro
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Condition c : conditions) {
+			if (sb.length() > 0) {
+				sb.append(" AND ");
+			}
+			sb.append(c.column);
+			if (c.operator != null) {
+				sb.append(' ').append(c.operator.sql).append(' ').append(c.values[0]);
+			} else {
+				sb.append(" IN ").append(Arrays.toString(c.values));
+			}
+		}
+		return sb.length() == 0 ? "(nessun filtro)" : sb.toString();
+	}
+}
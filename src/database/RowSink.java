@@ -0,0 +1,44 @@
+package database;
+
+/**
+ * Destinazione delle righe lette in streaming da {@link TableData#streamDistinctTransazioni(String, RowSink)}.
+ * <p>
+ * Per ogni riga i valori arrivano nell'ordine delle colonne di {@link TableSchema}: un valore
+ * numerico per le colonne numeriche, una stringa per le altre. La fine della riga viene segnalata
+ * con {@link #endRow()}. I valori non vengono raccolti in oggetti intermedi, così che la destinazione
+ * possa codificarli direttamente nella propria rappresentazione.
+ * </p>
+ */
+public interface RowSink {
+
+	/**
+	 * Riceve il valore di una colonna numerica della riga corrente.
+	 *
+	 * @param column indice della colonna (0-based)
+	 * @param value valore letto
+	 */
+	void numberValue(int column, double value);
+
+	/**
+	 * Riceve un valore NULL di una colonna numerica della riga corrente. Per default viene
+	 * consegnato come 0, il valore restituito da {@link java.sql.ResultSet#getDouble(int)}.
+	 *
+	 * @param column indice della colonna (0-based)
+	 */
+	default void numberNull(int column) {
+		numberValue(column, 0);
+	}
+
+	/**
+	 * Riceve il valore di una colonna non numerica della riga corrente.
+	 *
+	 * @param column indice della colonna (0-based)
+	 * @param value valore letto, {@code null} se nel database e' NULL
+	 */
+	void stringValue(int column, String value);
+
+	/**
+	 * Segnala che tutti i valori della riga corrente sono stati consegnati.
+	 */
+	void endRow();
+}
@@ -0,0 +1,135 @@
+package database;
+
+import java.util.Locale;
+
+/**
+ * Modalità di campionamento delle righe di una tabella durante il caricamento.
+ * <p>
+ * Un campione a frazione conserva ogni transazione distinta con probabilità {@code fraction} e viene eseguito
+ * dal database ({@code WHERE RAND(seme) < frazione} sul risultato di {@code SELECT DISTINCT}), così che
+ * le righe scartate non vengano trasferite.
+ * Un campione a dimensione fissa contiene al più {@code size} righe scelte uniformemente e viene estratto
+ * durante la lettura in streaming (reservoir sampling), perché la dimensione della tabella non e' nota
+ * in anticipo. In entrambi i casi lo stesso seme sugli stessi dati produce lo stesso campione.
+ * </p>
+ */
+public class Sampling {
+
+	/**
+	 * Frazione delle righe da conservare, 0 per i campioni a dimensione fissa.
+	 */
+	private double fraction;
+
+	/**
+	 * Numero massimo di righe del campione, 0 per i campioni a frazione.
+	 */
+	private int size;
+
+	/**
+	 * Seme del generatore pseudo-casuale.
+	 */
+	private long seed;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param fraction frazione delle righe da conservare
+	 * @param size numero massimo di righe
+	 * @param seed seme del generatore
+	 */
+	private Sampling(double fraction, int size, long seed) {
+		this.fraction = fraction;
+		this.size = size;
+		this.seed = seed;
+	}
+
+	/**
+	 * Crea un campione a dimensione fissa.
+	 *
+	 * @param size numero massimo di righe del campione
+	 * @param seed seme del generatore
+	 * @return modalità di campionamento
+	 * @throws IllegalArgumentException se la dimensione non e' positiva
+	 */
+	public static Sampling ofSize(int size, long seed) {
+		if (size < 1) {
+			throw new IllegalArgumentException("La dimensione del campione deve essere positiva: " + size);
+		}
+		return new Sampling(0, size, seed);
+	}
+
+	/**
+	 * Crea un campione a frazione.
+	 *
+	 * @param fraction frazione delle righe da conservare, in (0, 1]
+	 * @param seed seme del generatore
+	 * @return modalità di campionamento
+	 * @throws IllegalArgumentException se la frazione non e' in (0, 1]
+	 */
+	public static Sampling ofFraction(double fraction, long seed) {
+		if (!(fraction > 0 && fraction <= 1)) {
+			throw new IllegalArgumentException("La frazione del campione deve essere in (0, 1]: " + fraction);
+		}
+		return new Sampling(fraction, 0, seed);
+	}
+
+	/**
+	 * Indica se il campione e' a frazione.
+	 *
+	 * @return {@code true} per un campione a frazione, {@code false} per uno a dimensione fissa
+	 */
+	public boolean isFraction() {
+		return size == 0;
+	}
+
+	/**
+	 * Restituisce la frazione delle righe da conservare.
+	 *
+	 * @return frazione, 0 per un campione a dimensione fissa
+	 */
+	public double getFraction() {
+		return fraction;
+	}
+
+	/**
+	 * Restituisce il numero massimo di righe del campione.
+	 *
+	 * @return dimensione, 0 per un campione a frazione
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Restituisce il seme del generatore.
+	 *
+	 * @return seme
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Restituisce il predicato SQL di un campione a frazione. Contiene solo valori numerici
+	 * generati da questa classe, quindi può essere concatenato alla query.
+	 *
+	 * @return predicato della clausola WHERE
+	 * @throws IllegalStateException se il campione e' a dimensione fissa
+	 */
+	String toSql() {
+		if (!isFraction()) {
+			throw new IllegalStateException("Un campione a dimensione fissa non si esprime in SQL.");
+		}
+		return String.format(Locale.ROOT, "RAND(%d) < %s", seed, Double.toString(fraction));
+	}
+
+	/**
+	 * Restituisce una descrizione del campionamento.
+	 *
+	 * @return descrizione
+	 */
+	@Override
+	public String toString() {
+		return (isFraction() ? "frazione " + fraction : "dimensione " + size) + ", seme " + seed;
+	}
+}
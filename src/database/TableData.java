@@ -1,5 +1,6 @@
 package database;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -29,6 +30,22 @@ public class TableData {
 		this.db = db;
 	}
 
+	/**
+	 * Numero di righe richieste al server per ogni lettura del cursore in
+	 * {@link #streamDistinctTransazioni(String, RowSink)}.
+	 */
+	private static final int FETCH_SIZE = 1000;
+
+	/**
+	 * Statement della lettura in corso, {@code null} se non ce n'e' alcuna.
+	 */
+	private volatile Statement running;
+
+	/**
+	 * Indica se le letture sono state annullate con {@link #cancel()}.
+	 */
+	private volatile boolean cancelled;
+
 	/**
 	 * Restituisce una lista di oggetti Example (transazioni) distinte presenti nella tabella.
 	 * @param table Il nome della tabella da interrogare.
@@ -41,12 +58,205 @@ public class TableData {
 		
 		// Scelta di LinkedList per efficienza nell'aggiunta in coda
 		LinkedList<Example> transSet = new LinkedList<Example>();		// LinkedList per memorizzare le transazioni distinte
-		Statement statement = null;
-		ResultSet rs = null;
+		
+		streamDistinctTransazioni(table, new RowSink() {
+			private Example currentTuple = new Example();
+
+			@Override
+			public void numberValue(int column, double value) {
+				currentTuple.add(value);
+			}
+
+			@Override
+			public void stringValue(int column, String value) {
+				currentTuple.add(value);
+			}
+
+			@Override
+			public void endRow() {
+				transSet.add(currentTuple); // Aggiunge l'oggetto Example alla lista
+				currentTuple = new Example();
+			}
+		});
+		
+		return transSet;
 
-		// Ricava lo schema della tabella
-		TableSchema tSchema = new TableSchema(db, table);
+	}
 
+	/**
+	 * Legge le transazioni distinte della tabella in streaming e ne consegna i valori a {@code sink}
+	 * riga per riga, senza materializzare il risultato.
+	 * <p>
+	 * Lo statement e' di sola lettura e a scorrimento in avanti, con dimensione di fetch {@value #FETCH_SIZE}:
+	 * con il parametro di connessione {@code useCursorFetch=true} (impostato da {@link DbAccess}) il driver
+	 * MySQL legge il risultato tramite un cursore lato server a blocchi di righe, invece di caricarlo per
+	 * intero in memoria prima di restituire la prima riga.
+	 * </p>
+	 * @param table Il nome della tabella da interrogare.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws EmptySetException se la query non restituisce alcun risultato.
+	 */
+	public int streamDistinctTransazioni(String table, RowSink sink) throws SQLException, EmptySetException{
+		return streamDistinctTransazioni(TableSchema.forTable(db, table), table, sink);
+	}
+
+	/**
+	 * Legge le transazioni distinte della tabella in streaming come {@link #streamDistinctTransazioni(String, RowSink)},
+	 * usando uno schema già letto.
+	 * @param tSchema Lo schema della tabella.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws EmptySetException se la query non restituisce alcun risultato.
+	 */
+	public int streamDistinctTransazioni(TableSchema tSchema, String table, RowSink sink) throws SQLException, EmptySetException{
+		
+		int rows = streamDistinctTransazioni(tSchema, table, null, null, sink);
+		
+		// Verifica ResultSet Vuoto
+		if(rows == 0) 
+			throw new EmptySetException();
+		
+		return rows;
+	}
+
+	/**
+	 * Legge in streaming le transazioni distinte della tabella come {@link #streamDistinctTransazioni(TableSchema, String, RowSink)},
+	 * portando nella query la proiezione e il filtro: vengono lette solo le colonne di {@code tSchema}
+	 * (anche uno schema ridotto con {@link TableSchema#project(java.util.List)}) e solo le righe che
+	 * soddisfano {@code filter}, i cui valori sono passati come parametri di un {@link PreparedStatement}.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param filter Il filtro sulle righe, {@code null} per leggere tutte le righe.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws EmptySetException se nessuna riga soddisfa il filtro.
+	 * @throws IllegalArgumentException se il filtro usa colonne che non appartengono alla tabella o valori di tipo errato.
+	 */
+	public int streamDistinctTransazioni(TableSchema tSchema, String table, QueryFilter filter, RowSink sink) throws SQLException, EmptySetException{
+		
+		int rows = streamDistinctTransazioni(tSchema, table, null, filter, sink);
+		
+		if(rows == 0) 
+			throw new EmptySetException("Nessuna transazione della tabella " + table + " soddisfa il filtro " + filter);
+		
+		return rows;
+	}
+
+	/**
+	 * Legge in streaming un campione a frazione delle transazioni distinte che soddisfano il filtro:
+	 * il campionamento viene eseguito dal database (vedi {@link Sampling}), quindi vengono trasferite
+	 * solo le righe campionate. Il campione viene estratto dopo l'eliminazione dei duplicati
+	 * ({@code SELECT * FROM (SELECT DISTINCT ...) t WHERE RAND(seme) < p}), così che ogni transazione
+	 * distinta abbia la stessa probabilità di essere scelta, qualunque sia il numero delle sue copie.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param filter Il filtro sulle righe, {@code null} per leggere tutte le righe.
+	 * @param sampling Il campionamento, a frazione.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette, anche 0.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws IllegalArgumentException se il campionamento e' a dimensione fissa o il filtro non e' valido.
+	 */
+	public int streamSampledTransazioni(TableSchema tSchema, String table, QueryFilter filter, Sampling sampling, RowSink sink) throws SQLException{
+		if(!sampling.isFraction())
+			throw new IllegalArgumentException("Solo i campioni a frazione vengono eseguiti dal database: " + sampling);
+		String predicate = filter == null ? null : filter.toSql(TableSchema.forTable(db, table));
+		String query = "SELECT * FROM (" + distinctQuery(tSchema, table, null, predicate) + ") t WHERE " + sampling.toSql();
+		return stream(tSchema, query, predicate == null ? null : filter, sink);
+	}
+
+	/**
+	 * Restituisce minimo e massimo di tutte le colonne numeriche dello schema con una sola query
+	 * di aggregazione sulle righe che soddisfano il filtro.
+	 * @param tSchema Lo schema delle colonne.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param filter Il filtro sulle righe, {@code null} per tutte le righe.
+	 * @return Per ogni colonna dello schema la coppia {minimo, massimo}; {@code null} per le colonne
+	 * non numeriche e per quelle senza valori non NULL.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella o il filtro non sono validi.
+	 */
+	public double[][] getColumnBounds(TableSchema tSchema, String table, QueryFilter filter) throws SQLException{
+		checkTableName(table);
+		
+		double[][] bounds = new double[tSchema.getNumberOfAttributes()][];
+		String query = "select ";
+		int aggregates = 0;
+		for(int i = 0; i < tSchema.getNumberOfAttributes(); i++){
+			Column c = tSchema.getColumn(i);
+			if(c.isNumber()){
+				query += (aggregates > 0 ? "," : "") + "MIN(" + c.getColumnName() + "),MAX(" + c.getColumnName() + ")";
+				aggregates++;
+			}
+		}
+		if(aggregates == 0)
+			return bounds;
+		query += (" FROM "+table);
+		String predicate = filter == null ? null : filter.toSql(TableSchema.forTable(db, table));
+		if(predicate != null)
+			query += (" WHERE "+predicate);
+		
+		try (PreparedStatement statement = db.getConnection().prepareStatement(query)) {
+			if(predicate != null)
+				filter.bind(statement, 1);
+			try (ResultSet rs = statement.executeQuery()) {
+				if(rs.next()){
+					int k = 1;
+					for(int i = 0; i < tSchema.getNumberOfAttributes(); i++){
+						if(!tSchema.getColumn(i).isNumber())
+							continue;
+						double min = rs.getDouble(k++);
+						boolean empty = rs.wasNull();
+						double max = rs.getDouble(k++);
+						if(!empty)
+							bounds[i] = new double[] {min, max};
+					}
+				}
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Legge in streaming le transazioni distinte della tabella che soddisfano un predicato SQL e un filtro,
+	 * usato anche da {@link PartitionedTableData} per leggere una partizione della tabella.
+	 * A differenza di {@link #streamDistinctTransazioni(TableSchema, String, RowSink)} un risultato
+	 * vuoto non e' un errore: una partizione può non contenere righe.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param where Il predicato generato internamente (senza parametri), {@code null} se assente.
+	 * @param filter Il filtro sulle righe, {@code null} se assente.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella non e' un identificatore valido o il filtro non e' valido.
+	 */
+	int streamDistinctTransazioni(TableSchema tSchema, String table, String where, QueryFilter filter, RowSink sink) throws SQLException{
+		// Il filtro viene verificato sullo schema completo: può usare colonne escluse dalla proiezione
+		String predicate = filter == null ? null : filter.toSql(TableSchema.forTable(db, table));
+		return stream(tSchema, distinctQuery(tSchema, table, where, predicate), predicate == null ? null : filter, sink);
+	}
+
+	/**
+	 * Costruisce la query SELECT DISTINCT delle colonne dello schema.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param where Il predicato generato internamente (senza parametri), {@code null} se assente.
+	 * @param predicate Il predicato del filtro, con i segnaposto, {@code null} se assente.
+	 * @return Il testo della query.
+	 * @throws SQLException se lo schema non contiene colonne.
+	 * @throws IllegalArgumentException se il nome della tabella non e' un identificatore valido.
+	 */
+	private static String distinctQuery(TableSchema tSchema, String table, String where, String predicate) throws SQLException{
+		
+		if(tSchema.getNumberOfAttributes()==0)
+			throw new SQLException("La tabella non contiene attributi, colonne");
+		checkTableName(table);
 
 		String query = "select distinct ";	 // Costruzione della Query SELECT DISTINCT
 
@@ -57,42 +267,82 @@ public class TableData {
 			query += c.getColumnName();	 	// Aggiunge il nome della colonna alla query
 		}
 		
-		if(tSchema.getNumberOfAttributes()==0)
-			throw new SQLException("La tabella non contiene attributi, colonne");
-		
 		query += (" FROM "+table);
 		
-		boolean empty = true;
+		if(where != null && predicate != null)
+			query += (" WHERE ("+where+") AND "+predicate);
+		else if(where != null || predicate != null)
+			query += (" WHERE "+(where != null ? where : predicate));
+		return query;
+	}
 
-		try{
-			statement = db.getConnection().createStatement();
-			rs = statement.executeQuery(query);
+	/**
+	 * Esegue una query sulle colonne dello schema e ne consegna le righe alla destinazione.
+	 * @param tSchema Lo schema delle colonne lette, nell'ordine della query.
+	 * @param query Il testo della query.
+	 * @param filter Il filtro i cui valori vanno assegnati ai segnaposto, {@code null} se la query non ne ha.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di righe lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 */
+	private int stream(TableSchema tSchema, String query, QueryFilter filter, RowSink sink) throws SQLException{
+		int n = tSchema.getNumberOfAttributes();
+		boolean[] isNumber = new boolean[n];
+		for(int i = 0; i < n; i++)
+			isNumber[i] = tSchema.getColumn(i).isNumber();
+		
+		int rows = 0;
 
-			while (rs.next()) {
-				empty=false;
-				Example currentTuple=new Example();
-				
-				for(int i = 0; i < tSchema.getNumberOfAttributes(); i++) {
-					if(tSchema.getColumn(i).isNumber())
-						currentTuple.add(rs.getDouble(i+1)); 	
-							// l'accesso posizionale alle colonne di un ResultSet parte da 1 per questo i+1
-					else
-						currentTuple.add(rs.getString(i+1));
+		try (PreparedStatement statement = db.getConnection().prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			running = statement;
+			statement.setFetchSize(FETCH_SIZE);
+			if(filter != null)
+				filter.bind(statement, 1);
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					// annullamento controllato a ogni blocco di righe, anche se il driver ignora Statement.cancel()
+					if(rows % FETCH_SIZE == 0 && cancelled)
+						throw new SQLException("Lettura della tabella annullata.");
+					for(int i = 0; i < n; i++) {
+						// l'accesso posizionale alle colonne di un ResultSet parte da 1 per questo i+1
+						if(isNumber[i]) {
+							double value = rs.getDouble(i+1);
+							if(rs.wasNull())
+								sink.numberNull(i);
+							else
+								sink.numberValue(i, value);
+						}
+						else
+							sink.stringValue(i, rs.getString(i+1));
+					}
+					sink.endRow();
+					rows++;
 				}
-				transSet.add(currentTuple); // Aggiunge l'oggetto Example alla lista
 			}
-			// Verifica ResultSet Vuoto
-			if(empty) 
-				throw new EmptySetException();
-			
+			if(cancelled)
+				throw new SQLException("Lettura della tabella annullata.");
 		} finally {
-			// Chiusura delle Risorse 
-			if (rs != null) rs.close();
-			if (statement != null) statement.close();
+			running = null;
 		}
 		
-		return transSet;
+		return rows;
+	}
 
+	/**
+	 * Annulla la lettura in corso e quelle successive di questo oggetto: lo statement in esecuzione
+	 * viene interrotto con {@link Statement#cancel()} e la lettura termina con una {@link SQLException}
+	 * dopo averlo chiuso. Usato da {@link PartitionedTableData} quando la lettura di un'altra partizione fallisce.
+	 */
+	void cancel() {
+		cancelled = true;
+		Statement statement = running;
+		if(statement != null) {
+			try {
+				statement.cancel();
+			} catch (SQLException e) {
+				// la lettura si ferma comunque al blocco di righe successivo
+			}
+		}
 	}
 
 	/**
@@ -108,7 +358,6 @@ public class TableData {
 		Statement statement = null;
 		ResultSet rs = null;
 		
-		TableSchema tSchema = new TableSchema(db,table);
 		
 		
 		String query="select distinct ";
@@ -152,7 +401,6 @@ public class TableData {
 		Statement statement = null;
 		ResultSet rs = null;
 		
-		TableSchema tSchema = new TableSchema(db,table);
 		Object value = null;
 		String aggregateOp = "";
 		
@@ -193,6 +441,125 @@ public class TableData {
 
 	}
 
+	/**
+	 * Restituisce un'impronta del contenuto della tabella, calcolata dal database senza trasferire righe:
+	 * numero di righe e {@code CHECKSUM TABLE}. Due impronte uguali indicano (salvo collisioni del checksum)
+	 * che il contenuto della tabella non e' cambiato.
+	 * @param table Il nome della tabella.
+	 * @return L'impronta della tabella, nella forma {@code righe/checksum}.
+	 * @throws SQLException in caso di errore nell'esecuzione delle query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella non e' valido.
+	 */
+	public String getFingerprint(String table) throws SQLException{
+		checkTableName(table);
+		String count = null;
+		String checksum = null;
+		try (Statement statement = db.getConnection().createStatement()) {
+			try (ResultSet rs = statement.executeQuery("select COUNT(*) FROM " + table)) {
+				if (rs.next())
+					count = rs.getString(1);
+			}
+			try (ResultSet rs = statement.executeQuery("CHECKSUM TABLE " + table)) {
+				if (rs.next())
+					checksum = rs.getString(2);		// colonne: Table, Checksum
+			}
+		}
+		return count + "/" + checksum;
+	}
+
+	/**
+	 * Restituisce la colonna {@code AUTO_INCREMENT} della tabella, letta da {@code information_schema.COLUMNS}:
+	 * i suoi valori crescono con l'inserimento delle righe, quindi le righe nuove si riconoscono dalla chiave
+	 * (vedi {@link #getAppendState(String, String, long)}).
+	 * @param table Il nome della tabella.
+	 * @return Il nome della colonna, {@code null} se la tabella non ne ha una o il nome non e' un identificatore semplice.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella non e' valido.
+	 */
+	public String getAutoIncrementColumn(String table) throws SQLException{
+		checkTableName(table);
+		String query = "SELECT COLUMN_NAME FROM information_schema.COLUMNS "
+				+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND EXTRA LIKE '%auto_increment%'";
+		try (PreparedStatement statement = db.getConnection().prepareStatement(query)) {
+			statement.setString(1, table);
+			try (ResultSet rs = statement.executeQuery()) {
+				String column = rs.next() ? rs.getString(1) : null;
+				return column != null && column.matches("[A-Za-z0-9_$]+") ? column : null;
+			}
+		}
+	}
+
+	/**
+	 * Conta le righe della tabella fino a un valore di una chiave intera crescente e oltre quel valore,
+	 * con due query di aggregazione sulla chiave, senza trasferire righe.
+	 * @param table Il nome della tabella.
+	 * @param key Il nome della colonna chiave (vedi {@link #getAutoIncrementColumn(String)}).
+	 * @param after Il valore della chiave che separa le righe già lette da quelle nuove.
+	 * @return {righe con chiave non maggiore di {@code after}, righe con chiave maggiore, chiave massima};
+	 * la chiave massima vale {@code after} se non ci sono righe oltre.
+	 * @throws SQLException in caso di errore nell'esecuzione delle query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella o della colonna non e' valido.
+	 */
+	public long[] getAppendState(String table, String key, long after) throws SQLException{
+		checkTableName(table);
+		checkColumnName(key);
+		long[] state = new long[] {0, 0, after};
+		try (Statement statement = db.getConnection().createStatement()) {
+			try (ResultSet rs = statement.executeQuery("select COUNT(*) FROM " + table + " WHERE " + key + "<=" + after)) {
+				if (rs.next())
+					state[0] = rs.getLong(1);
+			}
+			try (ResultSet rs = statement.executeQuery("select COUNT(*),MAX(" + key + ") FROM " + table + " WHERE " + key + ">" + after)) {
+				if (rs.next()) {
+					state[1] = rs.getLong(1);
+					long max = rs.getLong(2);
+					if (!rs.wasNull())
+						state[2] = max;
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Legge in streaming le transazioni distinte con la chiave nell'intervallo {@code (after, upTo]},
+	 * cioe' le righe accodate dopo una lettura precedente (vedi {@link #getAppendState(String, String, long)}).
+	 * L'estremo superiore esclude le righe inserite dopo il conteggio. Un risultato vuoto non e' un errore.
+	 * @param tSchema Lo schema delle colonne da leggere.
+	 * @param table Il nome della tabella da interrogare.
+	 * @param key Il nome della colonna chiave.
+	 * @param after Il valore della chiave delle ultime righe già lette.
+	 * @param upTo Il valore massimo della chiave da leggere.
+	 * @param sink La destinazione dei valori letti.
+	 * @return Il numero di transazioni lette.
+	 * @throws SQLException in caso di errore nell'esecuzione della query SQL.
+	 * @throws IllegalArgumentException se il nome della tabella o della colonna non e' valido.
+	 */
+	public int streamAppendedTransazioni(TableSchema tSchema, String table, String key, long after, long upTo, RowSink sink) throws SQLException{
+		checkColumnName(key);
+		return streamDistinctTransazioni(tSchema, table, key + ">" + after + " AND " + key + "<=" + upTo, null, sink);
+	}
+
+	/**
+	 * Verifica che il nome della tabella sia un identificatore semplice, che può essere concatenato alla query.
+	 * @param table Il nome della tabella.
+	 * @throws IllegalArgumentException se il nome contiene caratteri diversi da lettere, cifre, '_' e '$'.
+	 */
+	private static void checkTableName(String table){
+		if(table == null || !table.matches("[A-Za-z0-9_$]+"))
+			throw new IllegalArgumentException("Nome di tabella non valido: " + table);
+	}
+
+	/**
+	 * Verifica che il nome di una colonna sia un identificatore semplice, che può essere concatenato alla query.
+	 * @param column Il nome della colonna.
+	 * @throws IllegalArgumentException se il nome contiene caratteri diversi da lettere, cifre, '_' e '$'.
+	 */
+	private static void checkColumnName(String column){
+		if(column == null || !column.matches("[A-Za-z0-9_$]+"))
+			throw new IllegalArgumentException("Nome di colonna non valido: " + column);
+	}
+
 	/**
 	 * Restituisce una rappresentazione testuale dell'oggetto TableData.
 	 * Vengono incluse le informazioni sull'oggetto DbAccess utilizzato per la connessione.
@@ -2,11 +2,14 @@ package database;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 
@@ -16,11 +19,46 @@ import java.util.List;
  * Questa classe interroga i metadati JDBC per recuperare nomi e tipi delle colonne
  * e li mappa in tipi astratti semplici ("string" o "number") per l'uso nell'applicazione.
  * </p>
+ * <p>
+ * Gli schemi ottenuti con {@link #forTable(DbAccess, String)} vengono tenuti in una cache condivisa
+ * dal processo, per tabella. Uno schema in cache viene usato senza altre interrogazioni per
+ * {@link DbConfig#getSchemaCacheTtlMillis()} ms; scaduto questo tempo si confronta la firma delle colonne
+ * della tabella in {@code information_schema.COLUMNS} (numero di colonne e, nell'ordine, nome e tipo di
+ * ciascuna) con quella registrata alla lettura: se e' invariata lo schema resta valido per un altro periodo,
+ * altrimenti viene riletto dai metadati JDBC. La firma cambia anche con le modifiche {@code ALGORITHM=INSTANT}
+ * di MySQL 8, che aggiungono o eliminano colonne senza ricostruire la tabella e quindi senza aggiornare
+ * {@code information_schema.TABLES.CREATE_TIME}. L'elenco di nomi e tipi e' limitato da
+ * {@code group_concat_max_len} (1024 caratteri se non configurato): per le tabelle più larghe un cambio di tipo
+ * oltre quel limite non viene visto, mentre l'aggiunta o l'eliminazione di colonne si vede dal loro numero.
+ * {@link #invalidate(String)} e {@link #invalidateAll()} forzano la rilettura.
+ * </p>
+ * <p>
+ * Gli schemi non conservano la {@link DbAccess} con cui sono stati letti: la cache non trattiene connessioni.
+ * </p>
  */
 public class TableSchema {
 	
-	DbAccess db;	// Riferimento all'oggetto di accesso al DB per ottenere la connessione.
-	
+	/**
+	 * Schema in cache con l'istante della lettura o dell'ultima verifica e la firma delle colonne della tabella.
+	 */
+	private static class CachedSchema {
+
+		private TableSchema schema;			// Schema letto dai metadati
+		private volatile long checkedAt;	// Istante dell'ultima lettura o verifica, in millisecondi
+		private String signature;			// Firma delle colonne, null se non disponibile
+
+		CachedSchema(TableSchema schema, long checkedAt, String signature) {
+			this.schema = schema;
+			this.checkedAt = checkedAt;
+			this.signature = signature;
+		}
+	}
+
+	/**
+	 * Cache degli schemi, per database e tabella.
+	 */
+	private static final Map<String, CachedSchema> CACHE = new ConcurrentHashMap<>();
+
 	/**
 	 * Classe interna annidata per modellare una singola colonna (attributo) della tabella.
 	 * Incapsula il nome e il tipo astratto della colonna.
@@ -66,10 +104,17 @@ public class TableSchema {
 	
 	List<Column> tableSchema = new ArrayList<Column>();		// Lista delle colonne (attributi) della tabella.
 	
+	/**
+	 * Costruttore di uno schema senza colonne, usato per le proiezioni.
+	 */
+	private TableSchema(){
+	}
+
 	/**
 	 * Costruttore che inizializza lo schema della tabella interrogando i metadati JDBC.
 	 * <p>
 	 * Mappa i tipi SQL comuni a tipi astratti semplici ("string" o "number").
+	 * Interroga sempre i metadati: per riusare gli schemi già letti si usa {@link #forTable(DbAccess, String)}.
 	 * </p>
 	 * @param db Riferimento all'oggetto di accesso al DB per ottenere la connessione.
 	 * @param tableName Il nome della tabella di cui si vuole ottenere lo schema.
@@ -77,7 +122,6 @@ public class TableSchema {
 	 */
 	public TableSchema(DbAccess db, String tableName) throws SQLException{
 
-		this.db = db;
 		HashMap<String,String> mapSQL_JAVATypes = new HashMap<String, String>();	// Mappa per convertire tipi SQL a tipi astratti.
 		// Popolamento della mappa con tipi SQL comuni.
 		
@@ -109,6 +153,71 @@ public class TableSchema {
 	    
 	    }
 
+		/**
+		 * Restituisce lo schema della tabella, dalla cache condivisa se ancora valido (vedi la descrizione della classe).
+		 * @param db Riferimento all'oggetto di accesso al DB per ottenere la connessione.
+		 * @param tableName Il nome della tabella di cui si vuole ottenere lo schema.
+		 * @return Lo schema della tabella, condiviso e da non modificare.
+		 * @throws SQLException Se si verifica un errore durante l'accesso ai metadati del database.
+		 */
+		public static TableSchema forTable(DbAccess db, String tableName) throws SQLException {
+			DbConfig config = DbAccess.getConfig();
+			String key = config.getDatabase() + "." + tableName;
+			long now = System.currentTimeMillis();
+			CachedSchema cached = CACHE.get(key);
+			if (cached != null && now - cached.checkedAt < config.getSchemaCacheTtlMillis()) {
+				return cached.schema;
+			}
+
+			String signature = signature(db, tableName);
+			if (cached != null && signature != null && signature.equals(cached.signature)) {
+				cached.checkedAt = now;
+				return cached.schema;
+			}
+
+			TableSchema schema = new TableSchema(db, tableName);
+			CACHE.put(key, new CachedSchema(schema, now, signature));
+			return schema;
+		}
+
+		/**
+		 * Elimina dalla cache lo schema di una tabella, che verrà riletto alla prossima richiesta.
+		 * @param tableName Il nome della tabella.
+		 */
+		public static void invalidate(String tableName) {
+			CACHE.remove(DbAccess.getConfig().getDatabase() + "." + tableName);
+		}
+
+		/**
+		 * Svuota la cache degli schemi.
+		 */
+		public static void invalidateAll() {
+			CACHE.clear();
+		}
+
+		/**
+		 * Legge la firma delle colonne della tabella da {@code information_schema.COLUMNS}: il numero di colonne
+		 * seguito da nome e tipo di ciascuna, nell'ordine della tabella.
+		 * @param db Riferimento all'oggetto di accesso al DB per ottenere la connessione.
+		 * @param tableName Il nome della tabella.
+		 * @return La firma, {@code null} se non disponibile (tabella assente o DBMS senza {@code information_schema}).
+		 */
+		private static String signature(DbAccess db, String tableName) {
+			String query = "SELECT COUNT(*), GROUP_CONCAT(COLUMN_NAME, ' ', DATA_TYPE ORDER BY ORDINAL_POSITION) "
+					+ "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+			try (PreparedStatement statement = db.getConnection().prepareStatement(query)) {
+				statement.setString(1, tableName);
+				try (ResultSet rs = statement.executeQuery()) {
+					if (!rs.next() || rs.getLong(1) == 0) {
+						return null;
+					}
+					return rs.getLong(1) + ":" + rs.getString(2);
+				}
+			} catch (SQLException e) {
+				return null;	// senza firma lo schema viene sempre riletto
+			}
+		}
+
 		/**
 		 * Restituisce il numero di attributi (colonne) nella tabella.
 		 * @return Il numero di attributi (int).
@@ -126,6 +235,40 @@ public class TableSchema {
 			return tableSchema.get(index);
 		}
 
+		/**
+		 * Restituisce la colonna con il nome specificato.
+		 * @param name Il nome della colonna, confrontato senza distinguere maiuscole e minuscole come fa MySQL.
+		 * @return L'oggetto Column con quel nome, {@code null} se la tabella non ha una colonna con quel nome.
+		 */
+		public Column getColumn(String name){
+			for(Column c : tableSchema){
+				if(c.getColumnName().equalsIgnoreCase(name))
+					return c;
+			}
+			return null;
+		}
+
+		/**
+		 * Restituisce lo schema ridotto alle colonne indicate, nell'ordine indicato (proiezione).
+		 * @param columns I nomi delle colonne da conservare.
+		 * @return Un nuovo schema con le sole colonne indicate.
+		 * @throws IllegalArgumentException se l'elenco e' vuoto, contiene duplicati o colonne che non appartengono alla tabella.
+		 */
+		public TableSchema project(List<String> columns){
+			if(columns == null || columns.isEmpty())
+				throw new IllegalArgumentException("La proiezione deve contenere almeno una colonna.");
+			TableSchema projection = new TableSchema();
+			for(String name : columns){
+				Column c = getColumn(name);
+				if(c == null)
+					throw new IllegalArgumentException("La colonna " + name + " non appartiene alla tabella o non ha un tipo supportato.");
+				if(projection.tableSchema.contains(c))
+					throw new IllegalArgumentException("Colonna ripetuta nella proiezione: " + name);
+				projection.tableSchema.add(c);
+			}
+			return projection;
+		}
+
 		/**
 		 * Restituisce una rappresentazione testuale dello schema della tabella.
 		 * @return Una stringa che elenca tutte le colonne con i loro nomi e tipi.
@@ -0,0 +1,93 @@
+package mining;
+
+/**
+ * La classe {@code Assignment} rappresenta l'assegnazione di una tupla al cluster
+ * con il centroide più vicino, calcolata da {@link CentroidIndex}.
+ *
+ * @see CentroidIndex
+ */
+public class Assignment {
+
+	/**
+	 * Posizione del cluster nell'ordine di iterazione del {@link ClusterSet} indicizzato.
+	 */
+	private int clusterIndex;
+
+	/**
+	 * Cluster con il centroide più vicino.
+	 */
+	private Cluster cluster;
+
+	/**
+	 * Distanza tra la tupla e il centroide del cluster.
+	 */
+	private double distance;
+
+	/**
+	 * Indica se il centroide si trova entro il raggio di clustering.
+	 */
+	private boolean withinRadius;
+
+	/**
+	 * Costruttore: inizializza tutti i campi dell'assegnazione.
+	 *
+	 * @param clusterIndex posizione del cluster nel {@link ClusterSet}
+	 * @param cluster cluster con il centroide più vicino
+	 * @param distance distanza dal centroide
+	 * @param withinRadius {@code true} se la distanza non supera il raggio
+	 */
+	Assignment(int clusterIndex, Cluster cluster, double distance, boolean withinRadius) {
+		this.clusterIndex = clusterIndex;
+		this.cluster = cluster;
+		this.distance = distance;
+		this.withinRadius = withinRadius;
+	}
+
+	/**
+	 * Restituisce la posizione del cluster nell'ordine di iterazione del {@link ClusterSet},
+	 * la stessa usata da {@link ClusterSet#toString(data.Data)}.
+	 *
+	 * @return indice del cluster (a partire da 0)
+	 */
+	public int getClusterIndex() {
+		return clusterIndex;
+	}
+
+	/**
+	 * Restituisce il cluster con il centroide più vicino.
+	 *
+	 * @return cluster assegnato
+	 */
+	public Cluster getCluster() {
+		return cluster;
+	}
+
+	/**
+	 * Restituisce la distanza tra la tupla e il centroide del cluster.
+	 *
+	 * @return distanza dal centroide
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Indica se il centroide più vicino si trova entro il raggio di clustering,
+	 * cioè se la tupla sarebbe stata accettata dal cluster.
+	 *
+	 * @return {@code true} se la distanza non supera il raggio, {@code false} altrimenti
+	 */
+	public boolean isWithinRadius() {
+		return withinRadius;
+	}
+
+	/**
+	 * Restituisce una rappresentazione testuale dell'assegnazione.
+	 *
+	 * @return stringa rappresentante lo stato dell'assegnazione
+	 */
+	@Override
+	public String toString() {
+		return "cluster=" + clusterIndex + " dist=" + distance + (withinRadius ? "" : " (fuori raggio)");
+	}
+}
@@ -0,0 +1,195 @@
+package mining;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Flusso di lettura dei record di un file di clustering compresso a blocchi (vedi {@link ClusterModelFile}).
+ * <p>
+ * I record sono concatenati in un flusso logico diviso in blocchi di {@code blockSize} byte, ciascuno
+ * compresso separatamente con {@link Deflater}. Per leggere da una posizione del flusso logico basta
+ * decomprimere il blocco che la contiene (e i successivi, se il record prosegue): l'accesso ai singoli
+ * cluster resta diretto anche sui file compressi.
+ * </p>
+ */
+class BlockInputStream extends InputStream {
+
+	/**
+	 * Contenuto del file, da cui vengono letti i blocchi compressi.
+	 */
+	private ByteBuffer source;
+
+	/**
+	 * Posizione nel file di ciascun blocco compresso.
+	 */
+	private long[] offsets;
+
+	/**
+	 * Lunghezza in byte di ciascun blocco compresso.
+	 */
+	private int[] lengths;
+
+	/**
+	 * Dimensione dei blocchi decompressi (l'ultimo può essere più corto).
+	 */
+	private int blockSize;
+
+	/**
+	 * Decompressore riusato per tutti i blocchi letti dal flusso.
+	 */
+	private Inflater inflater = new Inflater();
+
+	/**
+	 * Contenuto decompresso del blocco corrente.
+	 */
+	private byte[] block;
+
+	/**
+	 * Numero di byte validi in {@code block}.
+	 */
+	private int blockLength;
+
+	/**
+	 * Posizione di lettura in {@code block}.
+	 */
+	private int position;
+
+	/**
+	 * Indice del prossimo blocco da decomprimere.
+	 */
+	private int next;
+
+	/**
+	 * Costruttore: posiziona il flusso sul byte {@code start} del flusso logico.
+	 *
+	 * @param source contenuto del file
+	 * @param offsets posizione nel file di ciascun blocco compresso
+	 * @param lengths lunghezza di ciascun blocco compresso
+	 * @param blockSize dimensione dei blocchi decompressi
+	 * @param start posizione nel flusso logico da cui iniziare a leggere
+	 * @throws IOException se il blocco iniziale non e' valido
+	 */
+	BlockInputStream(ByteBuffer source, long[] offsets, int[] lengths, int blockSize, long start) throws IOException {
+		this.source = source;
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.blockSize = blockSize;
+		this.block = new byte[blockSize + 1];
+		this.next = (int) (start / blockSize);
+		if (load()) {
+			position = (int) (start % blockSize);
+		}
+	}
+
+	/**
+	 * Decomprime il prossimo blocco.
+	 *
+	 * @return {@code false} se non ci sono altri blocchi
+	 * @throws IOException se il blocco non e' valido
+	 */
+	private boolean load() throws IOException {
+		if (next >= offsets.length) {
+			return false;
+		}
+		byte[] compressed = new byte[lengths[next]];
+		ByteBuffer view = source.duplicate();
+		view.position((int) offsets[next]);
+		view.get(compressed);
+		blockLength = inflate(inflater, compressed, block);
+		position = 0;
+		next++;
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position >= blockLength && !load()) {
+			return -1;
+		}
+		return block[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position >= blockLength && !load()) {
+			return -1;
+		}
+		int count = Math.min(len, blockLength - position);
+		System.arraycopy(block, position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * Rilascia la memoria nativa del decompressore.
+	 */
+	@Override
+	public void close() {
+		inflater.end();
+	}
+
+	/**
+	 * Comprime un blocco.
+	 *
+	 * @param deflater compressore da usare (viene reimpostato)
+	 * @param data contenuto del flusso logico
+	 * @param from inizio del blocco in {@code data}
+	 * @param length lunghezza del blocco
+	 * @return blocco compresso
+	 */
+	static byte[] deflate(Deflater deflater, byte[] data, int from, int length) {
+		deflater.reset();
+		deflater.setInput(data, from, length);
+		deflater.finish();
+		byte[] out = new byte[length + length / 8 + 64];
+		int size = 0;
+		while (!deflater.finished()) {
+			if (size == out.length) {
+				byte[] larger = new byte[out.length * 2];
+				System.arraycopy(out, 0, larger, 0, size);
+				out = larger;
+			}
+			size += deflater.deflate(out, size, out.length - size);
+		}
+		byte[] result = new byte[size];
+		System.arraycopy(out, 0, result, 0, size);
+		return result;
+	}
+
+	/**
+	 * Decomprime un blocco.
+	 *
+	 * @param inflater decompressore da usare (viene reimpostato)
+	 * @param compressed blocco compresso
+	 * @param out destinazione, lunga un byte più della dimensione dei blocchi per riconoscere i blocchi troppo lunghi
+	 * @return numero di byte decompressi
+	 * @throws IOException se il blocco non e' valido o supera la dimensione dei blocchi
+	 */
+	static int inflate(Inflater inflater, byte[] compressed, byte[] out) throws IOException {
+		inflater.reset();
+		inflater.setInput(compressed);
+		int size = 0;
+		try {
+			while (!inflater.finished() && size < out.length) {
+				int n = inflater.inflate(out, size, out.length - size);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				size += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Blocco compresso non valido: " + e.getMessage(), e);
+		}
+		if (!inflater.finished() || size == out.length) {
+			throw new IOException("Blocco compresso troncato o più lungo della dimensione dei blocchi.");
+		}
+		return size;
+	}
+}
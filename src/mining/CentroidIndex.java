@@ -0,0 +1,236 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import data.Tuple;
+
+/**
+ * La classe {@code CentroidIndex} assegna nuove tuple ai cluster di un clustering già calcolato
+ * (ad esempio letto con {@link QTMiner#QTMiner(String)}), cercando il centroide più vicino.
+ * <p>
+ * I centroidi sono indicizzati con un <i>vantage-point tree</i>: ogni nodo separa i centroidi
+ * in base alla distanza da un centroide di riferimento, e la disuguaglianza triangolare della
+ * distanza tra tuple (somma di distanze assolute scalate e simboliche) permette di scartare
+ * interi sottoalberi durante la ricerca del più vicino.
+ * </p>
+ * <p>
+ * L'indice e' immutabile dopo la costruzione e può essere interrogato da più thread;
+ * {@link #assignAll(Tuple[])} assegna in parallelo grandi lotti di tuple.
+ * </p>
+ *
+ * @see Assignment
+ * @see ClusterSet
+ */
+public class CentroidIndex {
+
+	/**
+	 * Nodo del vantage-point tree.
+	 */
+	private static class Node {
+
+		/**
+		 * Posizione del cluster del centroide di riferimento.
+		 */
+		private int clusterIndex;
+
+		/**
+		 * Distanza che separa il sottoalbero interno da quello esterno.
+		 */
+		private double threshold;
+
+		/**
+		 * Centroidi a distanza non superiore a {@code threshold} dal riferimento.
+		 */
+		private Node inside;
+
+		/**
+		 * Centroidi a distanza maggiore di {@code threshold} dal riferimento.
+		 */
+		private Node outside;
+	}
+
+	/**
+	 * Cluster indicizzati, nell'ordine di iterazione del {@link ClusterSet}.
+	 */
+	private Cluster[] clusters;
+
+	/**
+	 * Centroidi dei cluster indicizzati.
+	 */
+	private Tuple[] centroids;
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Radice del vantage-point tree.
+	 */
+	private Node root;
+
+	/**
+	 * Costruttore: indicizza i centroidi dei cluster.
+	 *
+	 * @param clusterSet insieme dei cluster da indicizzare
+	 * @param radius raggio con cui e' stato calcolato il clustering
+	 * @throws IllegalArgumentException se {@code clusterSet} e' {@code null} o vuoto, oppure se {@code radius} non e' positivo
+	 */
+	public CentroidIndex(ClusterSet clusterSet, double radius) {
+		if (clusterSet == null) {
+			throw new IllegalArgumentException("L'insieme dei cluster non può essere null.");
+		}
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + radius);
+		}
+		List<Cluster> list = new ArrayList<>();
+		for (Cluster c : clusterSet) {
+			list.add(c);
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("L'insieme dei cluster non può essere vuoto.");
+		}
+
+		this.radius = radius;
+		this.clusters = list.toArray(new Cluster[0]);
+		this.centroids = new Tuple[clusters.length];
+		int[] indexes = new int[clusters.length];
+		for (int i = 0; i < clusters.length; i++) {
+			centroids[i] = clusters[i].getCentroid();
+			indexes[i] = i;
+		}
+		this.root = build(indexes, 0, indexes.length);
+	}
+
+	/**
+	 * Costruisce ricorsivamente il sottoalbero sui centroidi {@code indexes[from, to)}.
+	 * Il primo centroide dell'intervallo fa da riferimento; gli altri vengono ordinati per
+	 * distanza dal riferimento e divisi a metà.
+	 *
+	 * @param indexes posizioni dei centroidi
+	 * @param from inizio dell'intervallo (incluso)
+	 * @param to fine dell'intervallo (escluso)
+	 * @return radice del sottoalbero, {@code null} se l'intervallo e' vuoto
+	 */
+	private Node build(int[] indexes, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		Node node = new Node();
+		node.clusterIndex = indexes[from];
+		if (to - from == 1) {
+			return node;
+		}
+
+		Tuple vantage = centroids[node.clusterIndex];
+		int count = to - from - 1;
+		double[] distances = new double[count];
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+			distances[i] = vantage.getDistance(centroids[indexes[from + 1 + i]]);
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+		int[] sorted = new int[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = indexes[from + 1 + order[i]];
+		}
+		System.arraycopy(sorted, 0, indexes, from + 1, count);
+
+		int median = (count - 1) / 2;
+		node.threshold = distances[order[median]];
+		int split = from + 1 + median + 1;
+		node.inside = build(indexes, from + 1, split);
+		node.outside = build(indexes, split, to);
+		return node;
+	}
+
+	/**
+	 * Restituisce il numero di cluster indicizzati.
+	 *
+	 * @return numero di centroidi nell'indice
+	 */
+	public int size() {
+		return clusters.length;
+	}
+
+	/**
+	 * Cerca il cluster con il centroide più vicino alla tupla.
+	 * A parità di distanza viene scelto il cluster che precede gli altri nel {@link ClusterSet}.
+	 *
+	 * @param tuple tupla da assegnare
+	 * @return assegnazione al centroide più vicino, con l'indicazione se si trova entro il raggio
+	 * @throws IllegalArgumentException se {@code tuple} e' {@code null} o ha dimensione diversa dai centroidi
+	 */
+	public Assignment nearest(Tuple tuple) {
+		if (tuple == null) {
+			throw new IllegalArgumentException("La tupla da assegnare non può essere null.");
+		}
+		double[] best = { Double.POSITIVE_INFINITY, -1 };
+		search(root, tuple, best);
+		int index = (int) best[1];
+		return new Assignment(index, clusters[index], best[0], best[0] <= radius);
+	}
+
+	/**
+	 * Assegna la tupla al cluster con il centroide più vicino, solo se si trova entro il raggio.
+	 *
+	 * @param tuple tupla da assegnare
+	 * @return assegnazione al centroide più vicino, oppure {@code null} se nessun centroide e' entro il raggio
+	 * @throws IllegalArgumentException se {@code tuple} e' {@code null} o ha dimensione diversa dai centroidi
+	 */
+	public Assignment assign(Tuple tuple) {
+		Assignment a = nearest(tuple);
+		return a.isWithinRadius() ? a : null;
+	}
+
+	/**
+	 * Cerca in parallelo il centroide più vicino per ciascuna tupla del lotto.
+	 *
+	 * @param tuples tuple da assegnare
+	 * @return assegnazioni, nello stesso ordine delle tuple
+	 * @throws IllegalArgumentException se {@code tuples} o uno dei suoi elementi e' {@code null}
+	 */
+	public Assignment[] assignAll(Tuple[] tuples) {
+		if (tuples == null) {
+			throw new IllegalArgumentException("Il lotto di tuple non può essere null.");
+		}
+		Assignment[] result = new Assignment[tuples.length];
+		IntStream.range(0, tuples.length).parallel().forEach(i -> result[i] = nearest(tuples[i]));
+		return result;
+	}
+
+	/**
+	 * Visita il sottoalbero aggiornando il miglior candidato {@code best = {distanza, indice}}.
+	 * Il sottoalbero lontano viene visitato solo se la sfera di raggio pari alla migliore
+	 * distanza corrente ne interseca la regione.
+	 *
+	 * @param node radice del sottoalbero
+	 * @param tuple tupla da assegnare
+	 * @param best migliore distanza e indice del cluster trovati finora
+	 */
+	private void search(Node node, Tuple tuple, double[] best) {
+		if (node == null) {
+			return;
+		}
+		double d = tuple.getDistance(centroids[node.clusterIndex]);
+		if (d < best[0] || (d == best[0] && node.clusterIndex < best[1])) {
+			best[0] = d;
+			best[1] = node.clusterIndex;
+		}
+		if (d <= node.threshold) {
+			search(node.inside, tuple, best);
+			if (d + best[0] >= node.threshold) {
+				search(node.outside, tuple, best);
+			}
+		} else {
+			search(node.outside, tuple, best);
+			if (d - best[0] <= node.threshold) {
+				search(node.inside, tuple, best);
+			}
+		}
+	}
+}
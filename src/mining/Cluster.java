@@ -23,6 +23,14 @@ import data.Tuple;
  * @see data.Tuple
  */
 public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializable{
+	
+	/**
+	 * Identificativo di versione per la serializzazione, fissato (come per le classi del package
+	 * {@code data}) al valore calcolato sulla prima versione della classe: i file salvati con la
+	 * serializzazione Java dalle versioni precedenti restano così leggibili da {@link QTMiner#QTMiner(String)}.
+	 */
+	private static final long serialVersionUID = 3415424359444012104L;
+
 	/**
 	 * Tupla che rappresenta il centroide del cluster.
 	 */
@@ -32,6 +40,17 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	 * Insieme di tuple associate al cluster.
 	 */
 	private Set<Integer> clusteredData;	// uso direttamente un Set<Integer> per salvare gli indici delle tuple già assegnate
+
+	/**
+	 * Più piccolo indice di tupla del cluster, valido solo se {@link #firstKnown} e' {@code true}.
+	 */
+	private transient int first;
+
+	/**
+	 * Indica se {@link #first} e' aggiornato; vale {@code false} anche dopo la deserializzazione,
+	 * così che il minimo venga ricalcolato al primo confronto.
+	 */
+	private transient boolean firstKnown;
 	
 	/**
 	 * Costruttore che inizializza un cluster con un centroide e un insieme di tuple già assegnate.
@@ -48,6 +67,14 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 		this.centroid = centroid;
 		clusteredData = new HashSet<>() ;
 	}
+	
+	/**
+	 * Costruttore per le sottoclassi che decodificano centroide e tuple solo all'accesso
+	 * (vedi {@link MappedClusterModel}): tali sottoclassi ridefiniscono {@link #getCentroid()},
+	 * {@link #members()} e {@link #getSize()}.
+	 */
+	Cluster() {
+	}
 		
 	/**
 	 * Restituisce il centroide del cluster.
@@ -58,6 +85,16 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 		return centroid;
 	}
 	
+	/**
+	 * Restituisce l'insieme degli identificatori delle tuple assegnate al cluster.
+	 * Tutti gli accessi alle tuple del cluster passano da questo metodo.
+	 *
+	 * @return insieme degli ID delle tuple del cluster
+	 */
+	Set<Integer> members(){
+		return clusteredData;
+	}
+	
 	/**
 	 * Aggiunge una tupla al cluster tramite il suo identificatore.
 	 * <p>
@@ -72,8 +109,11 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 		if (id < 0) {
             throw new IllegalArgumentException("L'ID della tupla non può essere negativo.");
         }
-		return clusteredData.add(id);
-		
+		boolean added = members().add(id);
+		if (added && firstKnown && id < first) {
+			first = id;
+		}
+		return added;
 	}
 
 	/**
@@ -87,7 +127,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	 * @throws IllegalArgumentException se {@code id} e' negativo
 	 */
 	boolean contain(int id){
-		return clusteredData.contains(id); // contains(Object o) ?!
+		return members().contains(id); // contains(Object o) ?!
 	}
 	
 
@@ -104,7 +144,9 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 		if (id < 0) {
             throw new IllegalArgumentException("L'ID della tupla non può essere negativo.");
         }
-		clusteredData.remove(id);	// remove(Object o) ?!
+		if (members().remove(id) && id == first) {	// remove(Object o) ?!
+			firstKnown = false;
+		}
 	}
 	
 	/**
@@ -115,7 +157,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	 * @return numero di tuple presenti nel cluster (dimensione)
 	 */
 	int getSize(){
-		return clusteredData.size();
+		return members().size();
 	}
 	
 	/**
@@ -124,20 +166,45 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	 * Utilizza {@link Integer#compare(int, int)} per restituire:
 	 * <ul>
 	 *   <li>un valore negativo se questo cluster ha meno elementi dell'altro,</li>
-	 *   <li>zero se hanno la stessa dimensione,</li>
-	 *   <li>un valore positivo se questo cluster ha più elementi dell'altro.</li>
+	 *   <li>un valore positivo se questo cluster ha più elementi dell'altro,</li>
+	 *   <li>a parità di dimensione, il confronto tra i più piccoli indici di tupla dei due cluster.</li>
 	 * </ul>
+	 * Poiché i cluster di un clustering non condividono tuple, il confronto restituisce zero solo per
+	 * cluster con le stesse tuple: un {@link ClusterSet} conserva così tutti i cluster della stessa dimensione.
 	 * </p>
 	 *
 	 * @param o il cluster con cui confrontare questo oggetto
-	 * @return un intero negativo, zero o positivo a seconda del confronto delle dimensioni
+	 * @return un intero negativo, zero o positivo a seconda del confronto
 	 */
 	@Override
 	public int compareTo(Cluster o) {
 		if (o == null) {
             throw new IllegalArgumentException("Il cluster da confrontare non può essere null.");
         }
-		return Integer.compare(this.getSize(), o.getSize());
+		int bySize = Integer.compare(this.getSize(), o.getSize());
+		return bySize != 0 ? bySize : Integer.compare(this.firstMember(), o.firstMember());
+	}
+
+	/**
+	 * Restituisce il più piccolo indice di tupla del cluster, usato da {@link #compareTo(Cluster)}
+	 * per ordinare i cluster della stessa dimensione. Il minimo viene calcolato al primo confronto
+	 * e poi mantenuto da {@link #addData(int)} e {@link #removeTuple(int)}, che lo ricalcolano solo
+	 * quando viene rimossa proprio la tupla minima.
+	 *
+	 * @return indice minimo, {@link Integer#MAX_VALUE} se il cluster e' vuoto
+	 */
+	int firstMember() {
+		if (!firstKnown) {
+			int min = Integer.MAX_VALUE;
+			for (int id : members()) {
+				if (id < min) {
+					min = id;
+				}
+			}
+			first = min;
+			firstKnown = true;
+		}
+		return first;
 	}
 
 	/**
@@ -145,7 +212,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	 */
 	@Override
 	public Iterator<Integer> iterator() {
-		return clusteredData.iterator();
+		return members().iterator();
 	}
 
 	/**
@@ -170,12 +237,12 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 		StringBuilder sb = new StringBuilder();
 	    sb.append("Centroid=(");
 
-	    for (int i = 0; i < centroid.getLength(); i++) {
-	        sb.append(centroid.get(i)).append(" ");
+	    for (int i = 0; i < getCentroid().getLength(); i++) {
+	        sb.append(getCentroid().get(i)).append(" ");
 	    }
 	    sb.append(")\nExamples:\n");
 
-	    Iterator<Integer> it = clusteredData.iterator();
+	    Iterator<Integer> it = members().iterator();
 	    while (it.hasNext()) {
 	        int id = it.next();
 	        sb.append("[");
@@ -185,7 +252,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	        sb.append("] dist=").append(getCentroid().getDistance(data.getItemSet(id))).append("\n");
 	    }
 
-	    sb.append("\nAvgDistance=").append(getCentroid().avgDistance(data, clusteredData));
+	    sb.append("\nAvgDistance=").append(getCentroid().avgDistance(data, members()));
 	    return sb.toString();
 	}
 	
@@ -199,8 +266,8 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 	public String toString() {
 	    StringBuilder sb = new StringBuilder();
 	    sb.append("Centroid=(");
-	    for (int i = 0; i < centroid.getLength(); i++) {
-	        sb.append(centroid.get(i)); // concatena i valori
+	    for (int i = 0; i < getCentroid().getLength(); i++) {
+	        sb.append(getCentroid().get(i)); // concatena i valori
 	    }
 	    sb.append(")");
 	    return sb.toString();
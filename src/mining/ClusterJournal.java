@@ -0,0 +1,282 @@
+package mining;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import data.Tuple;
+import data.TupleCodec;
+
+/**
+ * Journal su file dei cluster accettati durante un QT-Clustering, usato da
+ * {@link QTMiner#compute(data.Data, String)} e {@link QTMiner#riprendi(data.Data, String)}
+ * per riprendere un calcolo interrotto.
+ * <p>
+ * Struttura del file:
+ * </p>
+ * <pre>
+ * int     MAGIC ("QTCJ")
+ * short   versione del formato
+ * double  raggio di clustering
+ * int     numero di tuple del dataset
+ * long    CRC32 delle tuple del dataset, nell'ordine delle righe
+ * per ogni cluster accettato (record):
+ *   int     lunghezza del contenuto
+ *   int     CRC32 del contenuto
+ *   contenuto:
+ *     varint  riga del centroide
+ *     varint  numero di tuple
+ *     varint  righe delle tuple in ordine crescente, codificate come differenza dalla precedente
+ * </pre>
+ * <p>
+ * Ogni record viene forzato su disco prima che il calcolo prosegua. Un record incompleto o con CRC
+ * errato in coda al file (processo terminato durante la scrittura) viene scartato alla ripresa.
+ * </p>
+ */
+class ClusterJournal implements Closeable {
+
+	/**
+	 * Numero magico che identifica il journal ("QTCJ").
+	 */
+	static final int MAGIC = 0x5154434A;
+
+	/**
+	 * Versione corrente del formato.
+	 */
+	static final short VERSION = 1;
+
+	/**
+	 * Dimensione in byte dell'intestazione.
+	 */
+	private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Double.BYTES + Integer.BYTES + Long.BYTES;
+
+	/**
+	 * Canale del file, posizionato alla fine dell'ultimo record valido.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param channel canale del file del journal
+	 */
+	private ClusterJournal(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Crea un journal vuoto, sovrascrivendo un eventuale file esistente.
+	 *
+	 * @param fileName percorso del journal
+	 * @param radius raggio di clustering
+	 * @param tuples tuple del dataset, nell'ordine delle righe
+	 * @return journal pronto per l'aggiunta dei cluster
+	 * @throws IOException se il file non può essere scritto
+	 */
+	static ClusterJournal create(String fileName, double radius, Tuple[] tuples) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putShort(VERSION).putDouble(radius).putInt(tuples.length).putLong(checksum(tuples));
+			header.flip();
+			writeFully(channel, header);
+			channel.force(true);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new ClusterJournal(channel);
+	}
+
+	/**
+	 * Apre un journal esistente e ricostruisce lo stato del calcolo: i cluster registrati vengono
+	 * aggiunti a {@code found} e le relative tuple marcate in {@code isClustered}. Un record finale
+	 * incompleto viene eliminato dal file.
+	 *
+	 * @param fileName percorso del journal
+	 * @param radius raggio di clustering
+	 * @param tuples tuple del dataset, nell'ordine delle righe
+	 * @param isClustered flag delle righe clusterizzate, da aggiornare
+	 * @param found cluster trovati, da completare
+	 * @return journal posizionato dopo l'ultimo record valido, pronto per l'aggiunta dei cluster
+	 * @throws IOException se il file non può essere letto o non corrisponde a raggio e dataset
+	 */
+	static ClusterJournal resume(String fileName, double radius, Tuple[] tuples,
+			boolean[] isClustered, List<Cluster> found) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE, StandardOpenOption.READ);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			if (channel.size() < HEADER_BYTES || in.readInt() != MAGIC) {
+				throw new IOException("Il file non e' un journal di clustering: " + fileName);
+			}
+			short version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException("Versione del journal non supportata: " + version);
+			}
+			if (in.readDouble() != radius || in.readInt() != tuples.length || in.readLong() != checksum(tuples)) {
+				throw new IOException("Il journal " + fileName + " non corrisponde al raggio o al dataset indicati.");
+			}
+
+			long valid = HEADER_BYTES;
+			while (true) {
+				byte[] payload = readRecord(in, channel.size() - valid);
+				if (payload == null) {
+					break;
+				}
+				found.add(decode(payload, tuples, isClustered));
+				valid += 2 * Integer.BYTES + payload.length;
+			}
+			channel.truncate(valid);
+			channel.position(valid);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new ClusterJournal(channel);
+	}
+
+	/**
+	 * Aggiunge un cluster al journal e ne forza la scrittura su disco.
+	 *
+	 * @param centroidRow riga del centroide del cluster
+	 * @param cluster cluster accettato
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	void append(int centroidRow, Cluster cluster) throws IOException {
+		int[] rows = new int[cluster.getSize()];
+		int k = 0;
+		for (Integer id : cluster) {
+			rows[k++] = id;
+		}
+		Arrays.sort(rows);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream payload = new DataOutputStream(bytes);
+		TupleCodec.writeVarInt(payload, centroidRow);
+		TupleCodec.writeVarInt(payload, rows.length);
+		int previous = 0;
+		for (int row : rows) {
+			TupleCodec.writeVarInt(payload, row - previous);
+			previous = row;
+		}
+
+		byte[] content = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + content.length);
+		record.putInt(content.length).putInt((int) crc.getValue()).put(content);
+		record.flip();
+		writeFully(channel, record);
+		channel.force(false);
+	}
+
+	/**
+	 * Chiude il file del journal.
+	 *
+	 * @throws IOException se si verifica un errore di chiusura
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Legge il contenuto del prossimo record, verificandone lunghezza e CRC.
+	 *
+	 * @param in flusso posizionato all'inizio del record
+	 * @param remaining byte del file ancora da leggere
+	 * @return contenuto del record, {@code null} a fine file o se il record e' incompleto o corrotto
+	 * @throws IOException se si verifica un errore di lettura
+	 */
+	private static byte[] readRecord(DataInputStream in, long remaining) throws IOException {
+		if (remaining < 2 * Integer.BYTES) {
+			return null;
+		}
+		int length = in.readInt();
+		int expected = in.readInt();
+		if (length < 0 || length > remaining - 2 * Integer.BYTES) {
+			return null;
+		}
+		byte[] payload = new byte[length];
+		try {
+			in.readFully(payload);
+		} catch (EOFException e) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue() == expected ? payload : null;
+	}
+
+	/**
+	 * Decodifica un record e marca come clusterizzate le sue righe.
+	 *
+	 * @param payload contenuto del record
+	 * @param tuples tuple del dataset
+	 * @param isClustered flag delle righe clusterizzate, da aggiornare
+	 * @return cluster registrato nel record
+	 * @throws IOException se il record contiene righe non valide o già clusterizzate
+	 */
+	private static Cluster decode(byte[] payload, Tuple[] tuples, boolean[] isClustered) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		int centroidRow = TupleCodec.readVarInt(in);
+		if (centroidRow >= tuples.length) {
+			throw new IOException("Riga del centroide non valida nel journal: " + centroidRow);
+		}
+		Cluster cluster = new Cluster(tuples[centroidRow]);
+		int size = TupleCodec.readVarInt(in);
+		int row = 0;
+		for (int k = 0; k < size; k++) {
+			row += TupleCodec.readVarInt(in);
+			if (row >= tuples.length || isClustered[row]) {
+				throw new IOException("Riga non valida o già clusterizzata nel journal: " + row);
+			}
+			isClustered[row] = true;
+			cluster.addData(row);
+		}
+		return cluster;
+	}
+
+	/**
+	 * Calcola il CRC32 delle tuple del dataset, per riconoscere un journal scritto su dati diversi.
+	 *
+	 * @param tuples tuple del dataset, nell'ordine delle righe
+	 * @return CRC32 delle rappresentazioni testuali delle tuple
+	 */
+	private static long checksum(Tuple[] tuples) {
+		CRC32 crc = new CRC32();
+		for (Tuple t : tuples) {
+			crc.update(t.toString().getBytes(StandardCharsets.UTF_8));
+			crc.update('\n');
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Scrive per intero il contenuto del buffer nel canale.
+	 *
+	 * @param channel canale di destinazione
+	 * @param buffer buffer da scrivere
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package mining;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.Deflater;
+
+import data.TupleCodec;
+
+/**
+ * Formato binario versionato dei file di clustering scritti da {@link QTMiner#salva(String)}.
+ * <p>
+ * Struttura del file:
+ * </p>
+ * <pre>
+ * intestazione a dimensione fissa ({@link #HEADER_BYTES} byte):
+ *   int     MAGIC ("QTCM")
+ *   short   versione del formato ({@link #VERSION})
+ *   short   flag ({@link #FLAG_DEFLATE}: record compressi a blocchi)
+ *   long    data di creazione del clustering, in millisecondi dall'epoca
+ *   double  raggio di clustering
+ *   int     numero di cluster
+ *   int     numero di tuple clusterizzate
+ *   short   lunghezza in byte del nome della tabella (-1 se non nota)
+ *   byte[]  nome della tabella in UTF-8, completato con zeri fino a {@link #TABLE_NAME_BYTES} byte
+ *   byte[]  riservati (zeri) fino alla fine dell'intestazione
+ * schema  tabella degli attributi (vedi {@link TupleCodec#writeSchema(java.io.DataOutput)})
+ * per ogni cluster (tabella degli offset):
+ *   long    posizione del record del cluster dall'inizio del file
+ *   int     numero di tuple del cluster
+ * per ogni cluster (record):
+ *   riga    centroide codificato secondo lo schema
+ *   varint  numero di tuple
+ *   varint  indici delle tuple in ordine crescente, codificati come differenza dal precedente
+ * </pre>
+ * <p>
+ * Con il flag {@link #FLAG_DEFLATE} i record, concatenati, formano un flusso logico diviso in blocchi
+ * di dimensione fissa compressi separatamente con {@link Deflater}; le posizioni della tabella degli
+ * offset sono allora posizioni nel flusso logico e tra la tabella e i blocchi c'e' l'indice dei blocchi:
+ * </p>
+ * <pre>
+ * int     dimensione dei blocchi decompressi (l'ultimo può essere più corto)
+ * int     numero di blocchi
+ * per ogni blocco:
+ *   long    posizione del blocco compresso dall'inizio del file
+ *   int     lunghezza del blocco compresso
+ * blocchi compressi
+ * </pre>
+ * <p>
+ * L'intestazione a dimensione fissa permette a {@link ModelHeader} di leggere i metadati con una
+ * sola lettura; la tabella degli offset (e, nei file compressi, l'indice dei blocchi) permette a
+ * {@link MappedClusterModel} di raggiungere il record di un cluster senza decodificare i precedenti.
+ * </p>
+ * <p>
+ * I file salvati con la serializzazione Java non iniziano con {@code MAGIC} e vengono letti da
+ * {@link QTMiner#QTMiner(String)} con il vecchio meccanismo.
+ * </p>
+ */
+final class ClusterModelFile {
+
+	/**
+	 * Numero magico che identifica il formato ("QTCM").
+	 */
+	static final int MAGIC = 0x5154434D;
+
+	/**
+	 * Versione corrente del formato.
+	 */
+	static final short VERSION = 1;
+
+	/**
+	 * Dimensione in byte dell'intestazione fissa.
+	 */
+	static final int HEADER_BYTES = 256;
+
+	/**
+	 * Spazio in byte riservato al nome della tabella nell'intestazione: basta per i 64 caratteri
+	 * di un identificatore MySQL anche quando ciascuno occupa 3 byte in UTF-8.
+	 */
+	static final int TABLE_NAME_BYTES = 192;
+
+	/**
+	 * Dimensione in byte di una voce della tabella degli offset.
+	 */
+	static final int TABLE_ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+	/**
+	 * Flag dell'intestazione: record compressi a blocchi con {@link Deflater}.
+	 */
+	static final int FLAG_DEFLATE = 1;
+
+	/**
+	 * Dimensione dei blocchi decompressi dei file compressi: abbastanza grande da comprimere bene,
+	 * abbastanza piccola da non decomprimere troppo per leggere un solo cluster.
+	 */
+	static final int BLOCK_BYTES = 32 * 1024;
+
+	/**
+	 * Costruttore privato: la classe contiene solo metodi statici.
+	 */
+	private ClusterModelFile() {
+	}
+
+	/**
+	 * Restituisce la versione del formato binario del file.
+	 *
+	 * @param fileName percorso del file
+	 * @return versione del formato, 0 se il file non inizia con {@link #MAGIC}
+	 *         (file della serializzazione Java)
+	 * @throws IOException se si verifica un errore di lettura
+	 */
+	static int version(String fileName) throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+			if (in.available() < 6 || in.readInt() != MAGIC) {
+				return 0;
+			}
+			return in.readShort();
+		}
+	}
+
+	/**
+	 * Scrive i cluster nel formato binario corrente.
+	 * <p>
+	 * Il file viene prima scritto in un file temporaneo nella stessa cartella e poi rinominato
+	 * sulla destinazione: un file già aperto da un {@link MappedClusterModel} non viene mai
+	 * troncato o riscritto sotto i piedi del lettore, che continua a vedere il contenuto precedente.
+	 * </p>
+	 *
+	 * @param fileName percorso del file da scrivere
+	 * @param radius raggio di clustering
+	 * @param clusters cluster da scrivere
+	 * @param tableName nome della tabella di origine, {@code null} se non noto
+	 * @param numberOfTuples numero di tuple clusterizzate, -1 se non noto
+	 * @param createdAt data di creazione del clustering in millisecondi dall'epoca
+	 * @param compress {@code true} per comprimere i record a blocchi
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	static void write(String fileName, double radius, Collection<Cluster> clusters,
+			String tableName, int numberOfTuples, long createdAt, boolean compress) throws IOException {
+		TupleCodec codec = new TupleCodec(clusters.isEmpty() ? null : clusters.iterator().next().getCentroid());
+
+		// i record vengono codificati prima dell'intestazione per conoscerne le posizioni
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream recordsOut = new DataOutputStream(records);
+		long[] offsets = new long[clusters.size()];
+		int[] sizes = new int[clusters.size()];
+		int k = 0;
+		for (Cluster c : clusters) {
+			offsets[k] = recordsOut.size();
+			sizes[k] = c.getSize();
+			codec.writeTuple(recordsOut, c.getCentroid());
+			writeMembers(recordsOut, c);
+			k++;
+		}
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerOut = new DataOutputStream(header);
+		headerOut.writeInt(MAGIC);
+		headerOut.writeShort(VERSION);
+		headerOut.writeShort(compress ? FLAG_DEFLATE : 0);
+		headerOut.writeLong(createdAt);
+		headerOut.writeDouble(radius);
+		headerOut.writeInt(clusters.size());
+		headerOut.writeInt(numberOfTuples);
+		writeTableName(headerOut, tableName);
+		headerOut.write(new byte[HEADER_BYTES - headerOut.size()]);
+		codec.writeSchema(headerOut);
+		long base = headerOut.size() + (long) TABLE_ENTRY_BYTES * clusters.size();
+
+		byte[][] blocks = new byte[0][];
+		if (compress) {
+			byte[] stream = records.toByteArray();
+			blocks = new byte[(stream.length + BLOCK_BYTES - 1) / BLOCK_BYTES][];
+			Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+			try {
+				for (int b = 0; b < blocks.length; b++) {
+					int from = b * BLOCK_BYTES;
+					blocks[b] = BlockInputStream.deflate(deflater, stream, from, Math.min(BLOCK_BYTES, stream.length - from));
+				}
+			} finally {
+				deflater.end();
+			}
+		}
+
+		Path target = Paths.get(fileName).toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				header.writeTo(out);
+				for (int i = 0; i < offsets.length; i++) {
+					out.writeLong(compress ? offsets[i] : base + offsets[i]);
+					out.writeInt(sizes[i]);
+				}
+				if (compress) {
+					out.writeInt(BLOCK_BYTES);
+					out.writeInt(blocks.length);
+					long position = base + 2 * Integer.BYTES + (long) TABLE_ENTRY_BYTES * blocks.length;
+					for (byte[] block : blocks) {
+						out.writeLong(position);
+						out.writeInt(block.length);
+						position += block.length;
+					}
+					for (byte[] block : blocks) {
+						out.write(block);
+					}
+				} else {
+					records.writeTo(out);
+				}
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Scrive il nome della tabella nel campo a dimensione fissa dell'intestazione. Un nome più
+	 * lungo del campo viene troncato all'ultimo carattere che vi entra per intero.
+	 *
+	 * @param out flusso di destinazione
+	 * @param tableName nome della tabella, {@code null} se non noto
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	private static void writeTableName(DataOutput out, String tableName) throws IOException {
+		byte[] name = new byte[0];
+		if (tableName != null) {
+			String s = tableName;
+			name = s.getBytes(StandardCharsets.UTF_8);
+			while (name.length > TABLE_NAME_BYTES) {
+				s = s.substring(0, s.offsetByCodePoints(s.length(), -1));
+				name = s.getBytes(StandardCharsets.UTF_8);
+			}
+		}
+		out.writeShort(tableName == null ? -1 : name.length);
+		out.write(name);
+		out.write(new byte[TABLE_NAME_BYTES - name.length]);
+	}
+
+	/**
+	 * Scrive gli indici delle tuple del cluster ordinati e codificati per differenza.
+	 *
+	 * @param out flusso di destinazione
+	 * @param c cluster
+	 * @throws IOException se si verifica un errore di scrittura
+	 */
+	private static void writeMembers(DataOutputStream out, Cluster c) throws IOException {
+		int[] ids = new int[c.getSize()];
+		int k = 0;
+		for (Integer id : c) {
+			ids[k++] = id;
+		}
+		Arrays.sort(ids);
+		TupleCodec.writeVarInt(out, ids.length);
+		int previous = 0;
+		for (int id : ids) {
+			TupleCodec.writeVarInt(out, id - previous);
+			previous = id;
+		}
+	}
+
+	/**
+	 * Legge l'intestazione a dimensione fissa di un file di clustering, fino allo schema degli attributi escluso.
+	 *
+	 * @param in flusso posizionato all'inizio del file
+	 * @param fileName percorso del file
+	 * @return metadati letti
+	 * @throws IOException se si verifica un errore di lettura o il file non e' nel formato atteso
+	 */
+	static ModelHeader readHeader(DataInput in, String fileName) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Il file non e' un file di clustering: " + fileName);
+		}
+		short version = in.readShort();
+		if (version != VERSION) {
+			throw new IOException("Versione del formato non supportata: " + version);
+		}
+
+		int flags = in.readUnsignedShort();
+		if ((flags & ~FLAG_DEFLATE) != 0) {
+			throw new IOException("Flag del formato non supportati: " + flags);
+		}
+		long createdAt = in.readLong();
+		double radius = in.readDouble();
+		int numberOfClusters = in.readInt();
+		int numberOfTuples = in.readInt();
+		if (numberOfClusters < 0) {
+			throw new IOException("Numero di cluster non valido: " + numberOfClusters);
+		}
+		short nameLength = in.readShort();
+		if (nameLength > TABLE_NAME_BYTES) {
+			throw new IOException("Lunghezza del nome della tabella non valida: " + nameLength);
+		}
+		byte[] name = new byte[TABLE_NAME_BYTES];
+		in.readFully(name);
+		String tableName = nameLength < 0 ? null : new String(name, 0, nameLength, StandardCharsets.UTF_8);
+		// byte riservati: 4 + 2 + 2 + 2 sono MAGIC, versione, flag e lunghezza del nome
+		in.readFully(new byte[HEADER_BYTES - (4 + 2 + 2 + 2) - Long.BYTES - Double.BYTES - 2 * Integer.BYTES - TABLE_NAME_BYTES]);
+		return new ModelHeader(fileName, version, flags, createdAt, radius, numberOfClusters, numberOfTuples, tableName);
+	}
+}
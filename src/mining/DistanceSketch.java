@@ -0,0 +1,175 @@
+package mining;
+
+/**
+ * La classe {@code DistanceSketch} rappresenta uno sketch dei quantili della distribuzione
+ * delle distanze tra tuple ({@link data.Tuple#getDistance(data.Tuple)}).
+ * <p>
+ * Lo sketch e' un istogramma a intervalli di uguale ampiezza sul dominio {@code [0, maxDistance]}:
+ * la memoria occupata e' fissa (un contatore per intervallo) e non dipende dal numero di distanze
+ * registrate. Le distanze oltre {@code maxDistance} vengono conteggiate nell'ultimo intervallo.
+ * All'interno di ciascun intervallo le distanze sono considerate uniformemente distribuite.
+ * </p>
+ *
+ * @see RadiusAdvisor
+ */
+public class DistanceSketch {
+
+	/**
+	 * Contatori delle distanze ricadute in ciascun intervallo dell'istogramma.
+	 */
+	private long[] bins;
+
+	/**
+	 * Estremo superiore del dominio coperto dall'istogramma.
+	 */
+	private double maxDistance;
+
+	/**
+	 * Numero totale di distanze registrate.
+	 */
+	private long count;
+
+	/**
+	 * Minima distanza registrata.
+	 */
+	private double min = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Massima distanza registrata.
+	 */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Costruttore: crea uno sketch vuoto con {@code numberOfBins} intervalli su {@code [0, maxDistance]}.
+	 *
+	 * @param numberOfBins numero di intervalli dell'istogramma
+	 * @param maxDistance estremo superiore del dominio delle distanze
+	 * @throws IllegalArgumentException se {@code numberOfBins} o {@code maxDistance} non sono positivi
+	 */
+	public DistanceSketch(int numberOfBins, double maxDistance) {
+		if (numberOfBins <= 0) {
+			throw new IllegalArgumentException("Il numero di intervalli deve essere positivo: " + numberOfBins);
+		}
+		if (maxDistance <= 0) {
+			throw new IllegalArgumentException("La distanza massima deve essere positiva: " + maxDistance);
+		}
+		this.bins = new long[numberOfBins];
+		this.maxDistance = maxDistance;
+	}
+
+	/**
+	 * Registra una distanza nello sketch.
+	 *
+	 * @param distance distanza da registrare
+	 * @throws IllegalArgumentException se {@code distance} e' negativa o non e' un numero
+	 */
+	public void add(double distance) {
+		if (!(distance >= 0)) {
+			throw new IllegalArgumentException("Distanza non valida: " + distance);
+		}
+		int bin = (int) (distance / maxDistance * bins.length);
+		if (bin >= bins.length) {
+			bin = bins.length - 1;
+		}
+		bins[bin]++;
+		count++;
+		min = Math.min(min, distance);
+		max = Math.max(max, distance);
+	}
+
+	/**
+	 * Restituisce il numero di distanze registrate.
+	 *
+	 * @return numero di distanze registrate
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Restituisce la minima distanza registrata.
+	 *
+	 * @return minima distanza registrata, {@code NaN} se lo sketch e' vuoto
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	/**
+	 * Restituisce la massima distanza registrata.
+	 *
+	 * @return massima distanza registrata, {@code NaN} se lo sketch e' vuoto
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	/**
+	 * Stima la frazione di distanze minori o uguali a {@code distance}
+	 * (funzione di ripartizione empirica).
+	 *
+	 * @param distance soglia di distanza
+	 * @return frazione stimata, compresa nell'intervallo [0,1] ({@code 0} se lo sketch e' vuoto)
+	 */
+	public double fractionWithin(double distance) {
+		if (count == 0 || distance < min) {
+			return 0.0;
+		}
+		if (distance >= max) {
+			return 1.0;
+		}
+		double width = maxDistance / bins.length;
+		int bin = (int) (distance / width);
+		if (bin >= bins.length) {
+			return 1.0;
+		}
+		long below = 0;
+		for (int i = 0; i < bin; i++) {
+			below += bins[i];
+		}
+		double partial = (distance - bin * width) / width;
+		return Math.min(1.0, (below + bins[bin] * partial) / count);
+	}
+
+	/**
+	 * Stima il quantile di ordine {@code q} della distribuzione delle distanze.
+	 *
+	 * @param q ordine del quantile, compreso nell'intervallo [0,1]
+	 * @return distanza stimata al di sotto della quale ricade la frazione {@code q} delle distanze
+	 * @throws IllegalArgumentException se {@code q} non e' compreso in [0,1]
+	 * @throws IllegalStateException se lo sketch e' vuoto
+	 */
+	public double quantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("L'ordine del quantile deve essere compreso in [0,1]: " + q);
+		}
+		if (count == 0) {
+			throw new IllegalStateException("Lo sketch non contiene distanze.");
+		}
+		double target = q * count;
+		double width = maxDistance / bins.length;
+		long cumulative = 0;
+		for (int i = 0; i < bins.length; i++) {
+			if (bins[i] > 0 && cumulative + bins[i] >= target) {
+				double value = (i + (target - cumulative) / bins[i]) * width;
+				return Math.max(min, Math.min(max, value));
+			}
+			cumulative += bins[i];
+		}
+		return max;
+	}
+
+	/**
+	 * Restituisce una rappresentazione testuale dello sketch con i principali quantili.
+	 *
+	 * @return stringa rappresentante lo stato dello sketch
+	 */
+	@Override
+	public String toString() {
+		if (count == 0) {
+			return "DistanceSketch[vuoto]";
+		}
+		return "DistanceSketch[n=" + count + ", min=" + getMin() + ", q25=" + quantile(0.25)
+				+ ", q50=" + quantile(0.5) + ", q75=" + quantile(0.75) + ", max=" + getMax() + "]";
+	}
+}
@@ -0,0 +1,285 @@
+package mining;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import data.Data;
+import data.EmptyDatasetException;
+import data.Tuple;
+
+/**
+ * La classe {@code DistributedQTMiner} e' il coordinatore del QT-Clustering distribuito su
+ * più processi JVM ({@link QTWorker}) collegati tramite socket.
+ * <p>
+ * Il coordinatore scrive le tuple del dataset in un file di snapshot condiviso e assegna a ogni
+ * worker un intervallo contiguo di righe come centroidi candidati. Ad ogni iterazione di QT:
+ * </p>
+ * <ol>
+ *   <li>ogni worker calcola il proprio miglior candidato locale sull'intero dataset;</li>
+ *   <li>il coordinatore sceglie il vincitore globale (dimensione massima, a parità la riga minore);</li>
+ *   <li>le righe del cluster vincitore vengono inviate a tutti i worker, che le marcano come clusterizzate.</li>
+ * </ol>
+ * <p>
+ * Poiché la regola di scelta e' la stessa di {@link QTMiner#compute(Data)}, i cluster ottenuti
+ * sono identici a quelli del calcolo su una sola JVM. I worker possono essere avviati dal coordinatore
+ * come processi locali sull'interfaccia di loopback, oppure avviati a mano e collegati alla porta indicata.
+ * </p>
+ *
+ * @see QTWorker
+ */
+public class DistributedQTMiner {
+
+	/**
+	 * Tempo massimo di attesa della connessione dei worker, in millisecondi.
+	 */
+	private static final int ACCEPT_TIMEOUT_MILLIS = 60000;
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Numero di worker.
+	 */
+	private int workers;
+
+	/**
+	 * Porta su cui il coordinatore attende i worker (0 per una porta libera qualsiasi).
+	 */
+	private int port;
+
+	/**
+	 * Indica se i worker vengono avviati dal coordinatore come processi locali.
+	 */
+	private boolean launchWorkers;
+
+	/**
+	 * Destinatario della porta di ascolto, {@code null} se non impostato.
+	 */
+	private IntConsumer portListener;
+
+	/**
+	 * Costruttore: i worker vengono avviati dal coordinatore come processi JVM locali.
+	 *
+	 * @param radius raggio di clustering
+	 * @param workers numero di processi worker
+	 * @throws IllegalArgumentException se {@code radius} o {@code workers} non sono positivi
+	 */
+	public DistributedQTMiner(double radius, int workers) {
+		this(radius, workers, 0, true);
+	}
+
+	/**
+	 * Costruttore: inizializza raggio, numero di worker, porta di ascolto e modalità di avvio dei worker.
+	 *
+	 * @param radius raggio di clustering
+	 * @param workers numero di processi worker
+	 * @param port porta su cui attendere i worker (0 per una porta libera qualsiasi)
+	 * @param launchWorkers {@code true} per avviare i worker come processi locali,
+	 *        {@code false} se vengono avviati a mano con {@code java mining.QTWorker <host> <porta>}
+	 *        (vedi {@link #setPortListener(IntConsumer)})
+	 * @throws IllegalArgumentException se {@code radius} o {@code workers} non sono positivi o {@code port} non e' valida
+	 */
+	public DistributedQTMiner(double radius, int workers, int port, boolean launchWorkers) {
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + radius);
+		}
+		if (workers <= 0) {
+			throw new IllegalArgumentException("Il numero di worker deve essere positivo: " + workers);
+		}
+		if (port < 0 || port > 65535) {
+			throw new IllegalArgumentException("Porta non valida: " + port);
+		}
+		this.radius = radius;
+		this.workers = workers;
+		this.port = port;
+		this.launchWorkers = launchWorkers;
+	}
+
+	/**
+	 * Imposta il destinatario della porta su cui il coordinatore attende i worker, notificato a ogni
+	 * calcolo prima di accettare le connessioni. Serve soprattutto quando i worker vengono avviati a mano
+	 * e la porta e' scelta dal sistema (porta 0).
+	 *
+	 * @param portListener destinatario della porta, {@code null} per non notificarla
+	 */
+	public void setPortListener(IntConsumer portListener) {
+		this.portListener = portListener;
+	}
+
+	/**
+	 * Applica il QT-Clustering distribuito al dataset.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @return oggetto {@link QTMiner} che contiene i cluster trovati
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws ClusteringRadiusException se l'algoritmo produce un solo cluster
+	 * @throws IOException se la scrittura dello snapshot, l'avvio dei worker o la comunicazione falliscono
+	 * @throws IllegalArgumentException se {@code data} e' {@code null}
+	 */
+	public QTMiner compute(Data data) throws EmptyDatasetException, ClusteringRadiusException, IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Il dataset non può essere null.");
+		}
+		if (data.getNumberOfExamples() == 0) {
+			throw new EmptyDatasetException("Il dataset e' vuoto.");
+		}
+
+		int n = data.getNumberOfExamples();
+		Tuple[] tuples = new Tuple[n];
+		for (int i = 0; i < n; i++) {
+			tuples[i] = data.getItemSet(i);
+		}
+		int shards = Math.min(workers, n);
+
+		File snapshot = File.createTempFile("qtsnapshot", ".bin");
+		List<Process> processes = new ArrayList<>();
+		List<Socket> sockets = new ArrayList<>();
+		try (ServerSocket server = new ServerSocket(port, shards, InetAddress.getLoopbackAddress())) {
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(snapshot)))) {
+				out.writeObject(tuples);
+			}
+
+			if (portListener != null) {
+				portListener.accept(server.getLocalPort());
+			}
+			if (launchWorkers) {
+				for (int k = 0; k < shards; k++) {
+					processes.add(launchWorker(server.getLocalPort()));
+				}
+			}
+
+			server.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+			DataInputStream[] in = new DataInputStream[shards];
+			DataOutputStream[] out = new DataOutputStream[shards];
+			for (int k = 0; k < shards; k++) {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				in[k] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				out[k] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				out[k].writeUTF(snapshot.getAbsolutePath());
+				out[k].writeDouble(radius);
+				out[k].writeInt((int) ((long) n * k / shards));
+				out[k].writeInt((int) ((long) n * (k + 1) / shards));
+				out[k].flush();
+			}
+			for (int k = 0; k < shards; k++) {
+				in[k].readBoolean();		// attende il caricamento dello snapshot
+			}
+
+			List<Cluster> clusters = coordinate(tuples, in, out);
+			if (clusters.size() == 1) {
+				throw new ClusteringRadiusException("L'algoritmo ha prodotto un solo cluster.");
+			}
+			return new QTMiner(radius, clusters, data);
+		} finally {
+			for (Socket s : sockets) {
+				s.close();
+			}
+			for (Process p : processes) {
+				try {
+					p.waitFor();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					p.destroy();
+				}
+			}
+			snapshot.delete();
+		}
+	}
+
+	/**
+	 * Esegue le iterazioni di QT coordinando i worker: a ogni passo raccoglie i candidati locali,
+	 * sceglie il vincitore e diffonde le righe da marcare come clusterizzate.
+	 *
+	 * @param tuples tuple del dataset
+	 * @param in flussi delle risposte dei worker
+	 * @param out flussi delle richieste ai worker
+	 * @return cluster trovati nell'ordine di scoperta
+	 * @throws IOException se la comunicazione con un worker fallisce
+	 */
+	private List<Cluster> coordinate(Tuple[] tuples, DataInputStream[] in, DataOutputStream[] out) throws IOException {
+		List<Cluster> clusters = new ArrayList<>();
+		int clustered = 0;
+
+		while (clustered < tuples.length) {
+			for (DataOutputStream o : out) {
+				o.writeByte(QTWorker.BEST);
+				o.flush();
+			}
+			int winner = -1;
+			int bestRow = -1;
+			int bestSize = 0;
+			for (int k = 0; k < in.length; k++) {
+				int row = in[k].readInt();
+				int size = in[k].readInt();
+				// gli shard sono contigui e ordinati: a parità vince lo shard precedente, cioè la riga minore
+				if (row >= 0 && size > bestSize) {
+					winner = k;
+					bestRow = row;
+					bestSize = size;
+				}
+			}
+			if (winner < 0) {
+				break;
+			}
+
+			out[winner].writeByte(QTWorker.MEMBERS);
+			out[winner].flush();
+			int count = in[winner].readInt();
+			Cluster cluster = new Cluster(tuples[bestRow]);
+			int[] members = new int[count];
+			for (int m = 0; m < count; m++) {
+				members[m] = in[winner].readInt();
+				cluster.addData(members[m]);
+			}
+
+			for (DataOutputStream o : out) {
+				o.writeByte(QTWorker.CLUSTERED);
+				o.writeInt(count);
+				for (int id : members) {
+					o.writeInt(id);
+				}
+				o.flush();
+			}
+			clusters.add(cluster);
+			clustered += count;
+		}
+
+		for (DataOutputStream o : out) {
+			o.writeByte(QTWorker.STOP);
+			o.flush();
+		}
+		return clusters;
+	}
+
+	/**
+	 * Avvia un processo worker sulla stessa installazione Java e con lo stesso classpath del coordinatore.
+	 *
+	 * @param serverPort porta del coordinatore
+	 * @return processo avviato
+	 * @throws IOException se il processo non può essere avviato
+	 */
+	private Process launchWorker(int serverPort) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				QTWorker.class.getName(), InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(serverPort));
+		builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		return builder.start();
+	}
+}
@@ -0,0 +1,274 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import data.Data;
+import data.EmptyDatasetException;
+import data.Tuple;
+
+/**
+ * La classe {@code IncrementalQTMiner} mantiene un QT-Clustering aggiornato rispetto
+ * a inserimenti e cancellazioni di tuple, senza rieseguire l'algoritmo sull'intero dataset.
+ * <p>
+ * Per ogni lotto di modifiche vengono individuati i cluster la cui struttura dei candidati
+ * e' cambiata:
+ * </p>
+ * <ul>
+ *   <li>i cluster che contenevano una tupla cancellata;</li>
+ *   <li>i cluster con almeno una tupla entro il raggio da una tupla inserita
+ *       (la nuova tupla può unirsi a quei cluster o diventare un centroide migliore).</li>
+ * </ul>
+ * <p>
+ * Tali cluster vengono sciolti e l'algoritmo QT viene rieseguito solo sulle loro tuple
+ * e su quelle inserite; gli altri cluster restano invariati. Il risultato e' una
+ * riparazione locale: il metodo {@link #matchesFullRecompute()} permette di verificare
+ * se coincide con il clustering ottenuto rieseguendo QT da zero.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public class IncrementalQTMiner {
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Tuple correnti, ordinate per identificativo come le righe di un dataset.
+	 */
+	private TreeMap<Integer, Tuple> tuples = new TreeMap<>();
+
+	/**
+	 * Cluster correnti.
+	 */
+	private List<Cluster> clusters = new ArrayList<>();
+
+	/**
+	 * Cluster di appartenenza di ciascuna tupla.
+	 */
+	private Map<Integer, Cluster> owner = new HashMap<>();
+
+	/**
+	 * Costruttore: clusterizza l'intero dataset, usando come identificativi gli indici delle righe.
+	 *
+	 * @param radius raggio di clustering
+	 * @param data dataset iniziale
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code radius} non e' positivo o {@code data} e' {@code null}
+	 */
+	public IncrementalQTMiner(double radius, Data data) throws EmptyDatasetException {
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + radius);
+		}
+		if (data == null) {
+			throw new IllegalArgumentException("Il dataset non può essere null.");
+		}
+		if (data.getNumberOfExamples() == 0) {
+			throw new EmptyDatasetException("Il dataset e' vuoto.");
+		}
+		this.radius = radius;
+		for (int i = 0; i < data.getNumberOfExamples(); i++) {
+			tuples.put(i, data.getItemSet(i));
+		}
+		recluster(tuples.keySet());
+	}
+
+	/**
+	 * Inserisce una nuova tupla e aggiorna localmente il clustering.
+	 *
+	 * @param id identificativo della tupla
+	 * @param tuple tupla da inserire
+	 * @throws IllegalArgumentException se {@code id} e' già presente o {@code tuple} non e' valida
+	 */
+	public void insert(int id, Tuple tuple) {
+		update(Collections.singletonMap(id, tuple), Collections.<Integer>emptySet());
+	}
+
+	/**
+	 * Cancella una tupla e aggiorna localmente il clustering.
+	 *
+	 * @param id identificativo della tupla da cancellare
+	 * @throws IllegalArgumentException se {@code id} non e' presente
+	 */
+	public void delete(int id) {
+		update(Collections.<Integer, Tuple>emptyMap(), Collections.singleton(id));
+	}
+
+	/**
+	 * Applica un lotto di inserimenti e cancellazioni, riparando una sola volta
+	 * i cluster coinvolti. Le cancellazioni vengono applicate prima degli inserimenti;
+	 * un identificativo ripetuto in {@code deleted} viene cancellato una sola volta.
+	 *
+	 * @param inserted tuple da inserire, indicizzate per identificativo
+	 * @param deleted identificativi delle tuple da cancellare
+	 * @throws IllegalArgumentException se i parametri sono {@code null}, se si cancella una tupla
+	 *         inesistente o si inserisce un identificativo già presente o una tupla non valida
+	 */
+	public void update(Map<Integer, Tuple> inserted, Collection<Integer> deleted) {
+		if (inserted == null || deleted == null) {
+			throw new IllegalArgumentException("Gli insiemi delle modifiche non possono essere null.");
+		}
+		Set<Integer> removed = new HashSet<>(deleted);
+		for (Integer id : removed) {
+			if (id == null || !tuples.containsKey(id)) {
+				throw new IllegalArgumentException("Tupla inesistente: " + id);
+			}
+		}
+		int length = tuples.isEmpty() ? -1 : tuples.firstEntry().getValue().getLength();
+		for (Map.Entry<Integer, Tuple> e : inserted.entrySet()) {
+			if (e.getKey() == null || e.getKey() < 0 || e.getValue() == null) {
+				throw new IllegalArgumentException("Inserimento non valido: " + e.getKey());
+			}
+			if (tuples.containsKey(e.getKey()) && !removed.contains(e.getKey())) {
+				throw new IllegalArgumentException("Identificativo già presente: " + e.getKey());
+			}
+			if (length >= 0 && e.getValue().getLength() != length) {
+				throw new IllegalArgumentException("Le tuple devono avere la stessa dimensione.");
+			}
+		}
+
+		Set<Cluster> affected = new HashSet<>();
+		Set<Integer> freed = new TreeSet<>();
+		for (Integer id : removed) {
+			affected.add(owner.get(id));
+			tuples.remove(id);
+			owner.remove(id);
+		}
+		for (Map.Entry<Integer, Tuple> e : inserted.entrySet()) {
+			for (Map.Entry<Integer, Tuple> t : tuples.entrySet()) {
+				Cluster c = owner.get(t.getKey());
+				if (c != null && !affected.contains(c) && e.getValue().getDistance(t.getValue()) <= radius) {
+					affected.add(c);
+				}
+			}
+		}
+		for (Map.Entry<Integer, Tuple> e : inserted.entrySet()) {
+			tuples.put(e.getKey(), e.getValue());
+			freed.add(e.getKey());
+		}
+
+		for (Cluster c : affected) {
+			clusters.remove(c);
+			for (Integer id : c) {
+				if (tuples.containsKey(id)) {
+					owner.remove(id);
+					freed.add(id);
+				}
+			}
+		}
+		recluster(freed);
+	}
+
+	/**
+	 * Riesegue QT sulle tuple indicate e aggiunge i cluster trovati a quelli correnti.
+	 *
+	 * @param ids identificativi delle tuple da clusterizzare
+	 */
+	private void recluster(Collection<Integer> ids) {
+		int[] rows = new int[ids.size()];
+		Tuple[] selected = new Tuple[rows.length];
+		int i = 0;
+		for (Integer id : ids) {
+			rows[i] = id;
+			selected[i] = tuples.get(id);
+			i++;
+		}
+		for (Cluster c : QTMiner.cluster(rows, selected, radius, 0, null)) {
+			clusters.add(c);
+			for (Integer id : c) {
+				owner.put(id, c);
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di tuple correnti.
+	 *
+	 * @return numero di tuple
+	 */
+	public int getNumberOfTuples() {
+		return tuples.size();
+	}
+
+	/**
+	 * Restituisce il numero di cluster correnti.
+	 *
+	 * @return numero di cluster
+	 */
+	public int getNumberOfClusters() {
+		return clusters.size();
+	}
+
+	/**
+	 * Restituisce l'insieme dei cluster correnti.
+	 *
+	 * @return insieme dei cluster
+	 */
+	public ClusterSet getC() {
+		ClusterSet clusterSet = new ClusterSet();
+		for (Cluster c : clusters) {
+			clusterSet.add(c);
+		}
+		return clusterSet;
+	}
+
+	/**
+	 * Verifica se il clustering mantenuto incrementalmente coincide con quello ottenuto
+	 * rieseguendo QT da zero su tutte le tuple correnti. Il confronto riguarda la partizione
+	 * delle tuple (insiemi dei membri di ciascun cluster). L'operazione ha il costo di un
+	 * clustering completo ed e' pensata per controlli periodici o di collaudo.
+	 *
+	 * @return {@code true} se le due partizioni coincidono, {@code false} altrimenti
+	 */
+	public boolean matchesFullRecompute() {
+		int[] rows = new int[tuples.size()];
+		Tuple[] all = new Tuple[rows.length];
+		int i = 0;
+		for (Map.Entry<Integer, Tuple> e : tuples.entrySet()) {
+			rows[i] = e.getKey();
+			all[i] = e.getValue();
+			i++;
+		}
+		return partition(QTMiner.cluster(rows, all, radius, 0, null)).equals(partition(clusters));
+	}
+
+	/**
+	 * Restituisce la partizione delle tuple indotta da una lista di cluster.
+	 *
+	 * @param list cluster da convertire
+	 * @return insieme degli insiemi di identificativi dei membri
+	 */
+	private static Set<Set<Integer>> partition(List<Cluster> list) {
+		Set<Set<Integer>> result = new HashSet<>();
+		for (Cluster c : list) {
+			Set<Integer> members = new HashSet<>();
+			Iterator<Integer> it = c.iterator();
+			while (it.hasNext()) {
+				members.add(it.next());
+			}
+			result.add(members);
+		}
+		return result;
+	}
+
+	/**
+	 * Restituisce una rappresentazione testuale dei cluster correnti.
+	 *
+	 * @return stringa contenente i centroidi dei cluster
+	 */
+	@Override
+	public String toString() {
+		return getC().toString();
+	}
+}
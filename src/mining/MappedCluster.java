@@ -0,0 +1,129 @@
+package mining;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+import data.Tuple;
+
+/**
+ * Cluster in sola lettura di un {@link MappedClusterModel}: la dimensione viene dalla tabella
+ * degli offset, mentre centroide e tuple vengono decodificati dal file mappato al primo accesso.
+ * <p>
+ * Le operazioni di modifica ({@code addData}, {@code removeTuple}) non sono supportate. Nella
+ * serializzazione Java il cluster viene sostituito da un {@link Cluster} ordinario con lo stesso contenuto.
+ * </p>
+ */
+class MappedCluster extends Cluster {
+
+	/**
+	 * Identificativo di versione per la serializzazione.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Modello da cui viene letto il cluster.
+	 */
+	private transient MappedClusterModel model;
+
+	/**
+	 * Indice del cluster nel modello.
+	 */
+	private transient int index;
+
+	/**
+	 * Centroide decodificato, {@code null} fino al primo accesso.
+	 */
+	private transient volatile Tuple centroid;
+
+	/**
+	 * ID delle tuple decodificati, {@code null} fino al primo accesso.
+	 */
+	private transient volatile Set<Integer> members;
+
+	/**
+	 * ID minimo delle tuple, -1 fino al primo confronto con un cluster della stessa dimensione.
+	 */
+	private transient volatile int first = -1;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param model modello da cui leggere il cluster
+	 * @param index indice del cluster nel modello
+	 */
+	MappedCluster(MappedClusterModel model, int index) {
+		this.model = model;
+		this.index = index;
+	}
+
+	@Override
+	Tuple getCentroid() {
+		Tuple c = centroid;
+		if (c == null) {
+			try {
+				c = model.readCentroid(index);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Centroide del cluster " + index + " non leggibile.", e);
+			}
+			centroid = c;
+		}
+		return c;
+	}
+
+	@Override
+	Set<Integer> members() {
+		Set<Integer> m = members;
+		if (m == null) {
+			try {
+				m = model.readMembers(index);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Tuple del cluster " + index + " non leggibili.", e);
+			}
+			members = m;
+		}
+		return m;
+	}
+
+	@Override
+	int getSize() {
+		return model.getSize(index);
+	}
+
+	/**
+	 * Legge dal record solo il primo ID di tupla, senza decodificare le altre: i confronti tra
+	 * cluster della stessa dimensione non annullano così la decodifica lazy. Se le tuple sono già
+	 * state decodificate il minimo viene calcolato da queste, così da funzionare anche a modello chiuso.
+	 */
+	@Override
+	int firstMember() {
+		int f = first;
+		if (f < 0) {
+			if (members != null) {
+				f = super.firstMember();
+			} else {
+				try {
+					f = model.readFirstMember(index);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Tuple del cluster " + index + " non leggibili.", e);
+				}
+			}
+			first = f;
+		}
+		return f;
+	}
+
+	/**
+	 * Sostituisce il cluster con un {@link Cluster} ordinario nella serializzazione Java,
+	 * perché il file mappato non può essere trasferito insieme all'oggetto.
+	 *
+	 * @return copia del cluster
+	 */
+	private Object writeReplace() {
+		Cluster copy = new Cluster(getCentroid());
+		for (Integer id : members()) {
+			copy.addData(id);
+		}
+		return copy;
+	}
+}
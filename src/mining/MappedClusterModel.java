@@ -0,0 +1,372 @@
+package mining;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import data.MappedBuffers;
+import data.Tuple;
+import data.TupleCodec;
+
+/**
+ * La classe {@code MappedClusterModel} e' una vista in sola lettura di un file di clustering
+ * (formato {@link ClusterModelFile}) mappato in memoria.
+ * <p>
+ * All'apertura vengono decodificati solo l'intestazione, lo schema degli attributi e la tabella
+ * degli offset; il centroide e le tuple di un cluster vengono decodificati dal file mappato al primo
+ * accesso e poi conservati nel {@link Cluster} corrispondente; nei file compressi viene decompresso solo
+ * il blocco che contiene il record del cluster. Le pagine del file sono gestite dalla
+ * cache del sistema operativo: più modelli aperti sullo stesso file, anche da processi diversi,
+ * condividono la stessa memoria fisica.
+ * </p>
+ * <p>
+ * Il file viene mappato per intero e il canale chiuso subito dopo: la mappatura resta valida fino
+ * a {@link #close()}. {@link QTMiner#salva(String)} sostituisce i file con una rinomina, quindi un
+ * modello aperto continua a leggere il contenuto con cui e' stato aperto; su Windows, però, un file
+ * mappato non può essere sostituito né cancellato finché la mappatura non viene rilasciata con
+ * {@link #close()} (o dal garbage collector). I cluster già decodificati restano utilizzabili dopo
+ * la chiusura.
+ * </p>
+ */
+public class MappedClusterModel implements Closeable {
+
+	/**
+	 * Contenuto del file mappato in memoria.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Metadati letti dall'intestazione.
+	 */
+	private ModelHeader header;
+
+	/**
+	 * Codec dello schema degli attributi.
+	 */
+	private TupleCodec codec;
+
+	/**
+	 * Posizione del record di ciascun cluster: nel file, oppure nel flusso logico dei record
+	 * decompressi se il file e' compresso.
+	 */
+	private long[] offsets;
+
+	/**
+	 * Numero di tuple di ciascun cluster, letto dalla tabella degli offset.
+	 */
+	private int[] sizes;
+
+	/**
+	 * Dimensione dei blocchi decompressi (solo file compressi).
+	 */
+	private int blockSize;
+
+	/**
+	 * Posizione nel file di ciascun blocco compresso (vuoto se il file non e' compresso).
+	 */
+	private long[] blockOffsets = new long[0];
+
+	/**
+	 * Lunghezza di ciascun blocco compresso (vuoto se il file non e' compresso).
+	 */
+	private int[] blockLengths = new int[0];
+
+	/**
+	 * Cluster del modello, creati all'apertura ma decodificati solo all'accesso.
+	 */
+	private MappedCluster[] clusters;
+
+	/**
+	 * Indica se la mappatura e' stata rilasciata con {@link #close()}.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Costruttore: mappa il file in memoria e ne decodifica intestazione, schema e tabella degli offset.
+	 *
+	 * @param fileName percorso del file di clustering
+	 * @throws IOException se il file non può essere letto o non e' nel formato atteso
+	 */
+	public MappedClusterModel(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File di clustering troppo grande per essere mappato: " + fileName);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			readIndex(fileName);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodifica intestazione, schema e tabella degli offset del file mappato.
+	 *
+	 * @param fileName percorso del file di clustering, per i messaggi di errore
+	 * @throws IOException se il file non e' nel formato atteso
+	 */
+	private void readIndex(String fileName) throws IOException {
+		ByteBuffer view = buffer.duplicate();
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(view));
+		if (view.remaining() < 6) {
+			throw new IOException("Il file non e' un file di clustering: " + fileName);
+		}
+		header = ClusterModelFile.readHeader(in, fileName);
+		codec = TupleCodec.readSchema(in);
+
+		int n = header.getNumberOfClusters();
+		if ((long) n * ClusterModelFile.TABLE_ENTRY_BYTES > view.remaining()) {
+			throw new IOException("Numero di cluster non valido: " + n);
+		}
+		offsets = new long[n];
+		sizes = new int[n];
+		clusters = new MappedCluster[n];
+		for (int i = 0; i < n; i++) {
+			offsets[i] = in.readLong();
+			sizes[i] = in.readInt();
+			clusters[i] = new MappedCluster(this, i);
+		}
+		if (header.isCompressed()) {
+			readBlockIndex(in, view.remaining());
+		}
+
+		long limit = header.isCompressed() ? (long) blockSize * blockOffsets.length : buffer.limit();
+		for (int i = 0; i < n; i++) {
+			if (offsets[i] < 0 || offsets[i] >= limit || sizes[i] < 0) {
+				throw new IOException("Voce " + i + " della tabella degli offset non valida.");
+			}
+		}
+	}
+
+	/**
+	 * Legge l'indice dei blocchi di un file compresso.
+	 *
+	 * @param in flusso posizionato all'inizio dell'indice
+	 * @param remaining byte del file che seguono la posizione di {@code in}
+	 * @throws IOException se l'indice non e' valido
+	 */
+	private void readBlockIndex(DataInputStream in, int remaining) throws IOException {
+		blockSize = in.readInt();
+		int count = in.readInt();
+		if (blockSize <= 0 || count < 0 || (long) count * ClusterModelFile.TABLE_ENTRY_BYTES > remaining) {
+			throw new IOException("Indice dei blocchi non valido.");
+		}
+		blockOffsets = new long[count];
+		blockLengths = new int[count];
+		for (int b = 0; b < count; b++) {
+			blockOffsets[b] = in.readLong();
+			blockLengths[b] = in.readInt();
+			if (blockOffsets[b] < 0 || blockLengths[b] < 0 || blockOffsets[b] + blockLengths[b] > buffer.limit()) {
+				throw new IOException("Voce " + b + " dell'indice dei blocchi non valida.");
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il raggio di clustering del modello.
+	 *
+	 * @return raggio di clustering
+	 */
+	public double getRadius() {
+		return header.getRadius();
+	}
+
+	/**
+	 * Restituisce i metadati del modello.
+	 *
+	 * @return metadati letti dall'intestazione
+	 */
+	public ModelHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * Restituisce il numero di cluster del modello.
+	 *
+	 * @return numero di cluster
+	 */
+	public int getNumberOfClusters() {
+		return clusters.length;
+	}
+
+	/**
+	 * Restituisce l'i-esimo cluster del modello, nell'ordine del file. Il centroide e le tuple
+	 * vengono decodificati al primo accesso.
+	 *
+	 * @param i indice del cluster
+	 * @return cluster in sola lettura
+	 * @throws IndexOutOfBoundsException se {@code i} non e' un indice valido
+	 */
+	public Cluster getCluster(int i) {
+		return clusters[i];
+	}
+
+	/**
+	 * Restituisce i cluster del modello come {@link ClusterSet}. L'inserimento nell'insieme
+	 * usa le dimensioni della tabella degli offset e, solo per i cluster della stessa dimensione,
+	 * il primo ID di tupla del record: nessun cluster viene decodificato per intero.
+	 *
+	 * @return insieme dei cluster del modello
+	 */
+	public ClusterSet getC() {
+		ClusterSet clusterSet = new ClusterSet();
+		for (MappedCluster c : clusters) {
+			clusterSet.add(c);
+		}
+		return clusterSet;
+	}
+
+	/**
+	 * Restituisce il numero di tuple dell'i-esimo cluster.
+	 *
+	 * @param i indice del cluster
+	 * @return numero di tuple
+	 */
+	int getSize(int i) {
+		return sizes[i];
+	}
+
+	/**
+	 * Decodifica il centroide dell'i-esimo cluster.
+	 *
+	 * @param i indice del cluster
+	 * @return centroide
+	 * @throws IOException se il record non e' valido
+	 */
+	Tuple readCentroid(int i) throws IOException {
+		try (DataInputStream in = record(i)) {
+			return codec.readTuple(in);
+		}
+	}
+
+	/**
+	 * Decodifica gli identificatori delle tuple dell'i-esimo cluster.
+	 *
+	 * @param i indice del cluster
+	 * @return insieme non modificabile degli ID delle tuple
+	 * @throws IOException se il record non e' valido
+	 */
+	Set<Integer> readMembers(int i) throws IOException {
+		try (DataInputStream in = record(i)) {
+			codec.readTuple(in);		// salta il centroide
+			int size = TupleCodec.readVarInt(in);
+			if (size != sizes[i]) {
+				throw new IOException("Il cluster " + i + " non corrisponde alla tabella degli offset.");
+			}
+			Set<Integer> members = new HashSet<>(size * 4 / 3 + 1);
+			int id = 0;
+			for (int k = 0; k < size; k++) {
+				id += TupleCodec.readVarInt(in);
+				members.add(id);
+			}
+			return Collections.unmodifiableSet(members);
+		}
+	}
+
+	/**
+	 * Decodifica il più piccolo identificatore di tupla dell'i-esimo cluster. Le tuple sono
+	 * memorizzate in ordine crescente, quindi basta leggere il primo varint dopo il centroide.
+	 *
+	 * @param i indice del cluster
+	 * @return ID minimo, {@link Integer#MAX_VALUE} se il cluster e' vuoto
+	 * @throws IOException se il record non e' valido
+	 */
+	int readFirstMember(int i) throws IOException {
+		if (sizes[i] == 0) {
+			return Integer.MAX_VALUE;
+		}
+		try (DataInputStream in = record(i)) {
+			codec.readTuple(in);		// salta il centroide
+			if (TupleCodec.readVarInt(in) != sizes[i]) {
+				throw new IOException("Il cluster " + i + " non corrisponde alla tabella degli offset.");
+			}
+			return TupleCodec.readVarInt(in);
+		}
+	}
+
+	/**
+	 * Rilascia la mappatura del file. I cluster già decodificati restano utilizzabili; la lettura
+	 * di un cluster non ancora decodificato solleva {@link IllegalStateException}. La chiusura non
+	 * deve avvenire mentre altri thread stanno decodificando cluster del modello.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			MappedBuffers.release(buffer);
+		}
+	}
+
+	/**
+	 * Restituisce un flusso posizionato all'inizio del record dell'i-esimo cluster.
+	 * Ogni flusso lavora su una copia indipendente della posizione del buffer, così che
+	 * cluster diversi possano essere decodificati in parallelo. Nei file compressi il flusso
+	 * decomprime solo i blocchi che contengono il record.
+	 *
+	 * @param i indice del cluster
+	 * @return flusso di lettura del record, da chiudere dopo l'uso
+	 * @throws IOException se il blocco che contiene il record non e' valido
+	 * @throws IllegalStateException se il modello e' stato chiuso
+	 */
+	private DataInputStream record(int i) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Il modello di clustering e' stato chiuso.");
+		}
+		if (header.isCompressed()) {
+			return new DataInputStream(new BlockInputStream(buffer, blockOffsets, blockLengths, blockSize, offsets[i]));
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) offsets[i]);
+		return new DataInputStream(new ByteBufferInputStream(view));
+	}
+
+	/**
+	 * Adattatore che legge un {@link ByteBuffer} come {@link InputStream}.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		/**
+		 * Buffer di origine, letto dalla sua posizione corrente.
+		 */
+		private ByteBuffer source;
+
+		/**
+		 * Costruttore.
+		 *
+		 * @param source buffer di origine
+		 */
+		ByteBufferInputStream(ByteBuffer source) {
+			this.source = source;
+		}
+
+		@Override
+		public int read() {
+			return source.hasRemaining() ? source.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!source.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, source.remaining());
+			source.get(b, off, count);
+			return count;
+		}
+	}
+}
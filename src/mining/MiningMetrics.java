@@ -0,0 +1,229 @@
+package mining;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Implementazione di {@link MiningMetricsMXBean}: tiene i {@link MiningMonitor} dei calcoli in corso,
+ * quello dell'ultimo calcolo terminato e i totali. Gli attributi del singolo calcolo riguardano il
+ * calcolo in corso avviato per primo, così che un calcolo avviato dopo non lo nasconda finché non
+ * termina; in assenza di calcoli in corso riguardano l'ultimo terminato.
+ * <p>
+ * L'unica istanza viene registrata nel server MBean della piattaforma all'avvio del primo calcolo;
+ * se la registrazione non riesce (ad esempio per le politiche di sicurezza) il clustering prosegue
+ * comunque, senza pubblicazione, e il motivo viene registrato nel log a livello {@code FINE}.
+ * </p>
+ */
+final class MiningMetrics implements MiningMetricsMXBean {
+
+	/**
+	 * Nome JMX dell'MBean.
+	 */
+	static final String OBJECT_NAME = "mining:type=QTMiner";
+
+	private static final Logger LOG = Logger.getLogger(MiningMetrics.class.getName());
+	private static final MiningMetrics INSTANCE = new MiningMetrics();
+	private static boolean registered;
+
+	private final Set<MiningMonitor> active = ConcurrentHashMap.newKeySet();
+	private volatile MiningMonitor last;		// ultimo calcolo terminato
+	private final AtomicLong totalCompleted = new AtomicLong();
+	private final AtomicLong totalFailed = new AtomicLong();
+	private final AtomicLong totalDistanceEvaluations = new AtomicLong();
+
+	private MiningMetrics() {
+	}
+
+	/**
+	 * Avvia la registrazione di un calcolo e la rende visibile tramite JMX tra i calcoli in corso.
+	 *
+	 * @param dataset nome del dataset, oppure {@code null} se non noto
+	 * @param radius raggio di clustering
+	 * @return registro del calcolo, da chiudere con {@link #end(MiningMonitor, boolean)}
+	 */
+	static MiningMonitor begin(String dataset, double radius) {
+		register();
+		MiningMonitor monitor = new MiningMonitor(dataset, radius);
+		INSTANCE.active.add(monitor);
+		return monitor;
+	}
+
+	/**
+	 * Conclude la registrazione di un calcolo avviato con {@link #begin(String, double)}, anche se interrotto da un errore.
+	 *
+	 * @param monitor registro del calcolo
+	 * @param completed {@code true} se il calcolo e' arrivato al termine, {@code false} se e' stato interrotto da un errore
+	 * @return statistiche finali del calcolo
+	 */
+	static MiningStats end(MiningMonitor monitor, boolean completed) {
+		MiningStats stats = monitor.finish();
+		INSTANCE.last = monitor;
+		INSTANCE.active.remove(monitor);
+		(completed ? INSTANCE.totalCompleted : INSTANCE.totalFailed).incrementAndGet();
+		INSTANCE.totalDistanceEvaluations.addAndGet(stats.getDistanceEvaluations());
+		return stats;
+	}
+
+	/**
+	 * Registra l'MBean alla prima chiamata.
+	 */
+	private static synchronized void register() {
+		if (registered) {
+			return;
+		}
+		registered = true;
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		} catch (JMException | SecurityException e) {
+			LOG.log(Level.FINE, "Statistiche del clustering non pubblicate via JMX", e);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		MiningMonitor monitor = current();
+		return monitor != null && monitor.isRunning();
+	}
+
+	@Override
+	public int getActiveRuns() {
+		return active.size();
+	}
+
+	@Override
+	public String[] getActiveRunSummaries() {
+		List<MiningMonitor> running = new ArrayList<>(active);
+		running.sort(Comparator.comparingLong(MiningMonitor::getStartNanos));
+		String[] summaries = new String[running.size()];
+		for (int i = 0; i < summaries.length; i++) {
+			MiningMonitor monitor = running.get(i);
+			summaries[i] = (monitor.getDataset() == null ? "" : monitor.getDataset() + ": ") + monitor.snapshot();
+		}
+		return summaries;
+	}
+
+	@Override
+	public String getDataset() {
+		MiningMonitor monitor = current();
+		return monitor == null ? null : monitor.getDataset();
+	}
+
+	@Override
+	public double getRadius() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getRadius();
+	}
+
+	@Override
+	public long getTuples() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getTuples();
+	}
+
+	@Override
+	public double getClusteredFraction() {
+		MiningMonitor monitor = current();
+		long tuples = monitor == null ? 0 : monitor.getTuples();
+		return tuples == 0 ? 0 : (double) monitor.getClustered() / tuples;
+	}
+
+	@Override
+	public int getIterations() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getIterationCount();
+	}
+
+	@Override
+	public double getAverageClusterSize() {
+		MiningMonitor monitor = current();
+		int iterations = monitor == null ? 0 : monitor.getIterationCount();
+		return iterations == 0 ? 0 : (double) monitor.getClustered() / iterations;
+	}
+
+	@Override
+	public long getDistanceEvaluations() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getDistanceEvaluations();
+	}
+
+	@Override
+	public long getDistancesPruned() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getDistancesPruned();
+	}
+
+	@Override
+	public long getElapsedMillis() {
+		MiningMonitor monitor = current();
+		return monitor == null ? 0 : monitor.getElapsedNanos() / 1_000_000L;
+	}
+
+	@Override
+	public double getLastIterationMillis() {
+		MiningStats.Iteration last = lastIteration();
+		return last == null ? 0 : last.getDurationNanos() / 1e6;
+	}
+
+	@Override
+	public int getLastCandidates() {
+		MiningStats.Iteration last = lastIteration();
+		return last == null ? 0 : last.getCandidates();
+	}
+
+	@Override
+	public int getLastClusterSize() {
+		MiningStats.Iteration last = lastIteration();
+		return last == null ? 0 : last.getClusterSize();
+	}
+
+	@Override
+	public long getTotalCompleted() {
+		return totalCompleted.get();
+	}
+
+	@Override
+	public long getTotalFailed() {
+		return totalFailed.get();
+	}
+
+	@Override
+	public long getTotalDistanceEvaluations() {
+		return totalDistanceEvaluations.get();
+	}
+
+	/**
+	 * Restituisce il calcolo descritto dagli attributi del singolo calcolo: il calcolo in corso avviato
+	 * per primo oppure, se non ce ne sono, l'ultimo terminato.
+	 *
+	 * @return registro del calcolo, oppure {@code null} se non e' stato avviato alcun calcolo
+	 */
+	private MiningMonitor current() {
+		MiningMonitor oldest = null;
+		for (MiningMonitor monitor : active) {
+			if (oldest == null || monitor.getStartNanos() - oldest.getStartNanos() < 0) {
+				oldest = monitor;
+			}
+		}
+		return oldest != null ? oldest : last;
+	}
+
+	/**
+	 * Restituisce l'ultima iterazione del calcolo descritto dagli attributi del singolo calcolo.
+	 *
+	 * @return iterazione, oppure {@code null} se non ce ne sono
+	 */
+	private MiningStats.Iteration lastIteration() {
+		MiningMonitor monitor = current();
+		return monitor == null ? null : monitor.lastIteration();
+	}
+}
@@ -0,0 +1,142 @@
+package mining;
+
+/**
+ * Interfaccia JMX con cui il QT-Clustering pubblica l'andamento del calcolo, registrata come
+ * {@value MiningMetrics#OBJECT_NAME} nel server MBean della piattaforma (ad esempio in JConsole o VisualVM).
+ * <p>
+ * I calcoli sono quelli avviati con {@link QTMiner#compute(data.Data)}, {@link QTMiner#compute(data.Data, String)},
+ * {@link QTMiner#riprendi(data.Data, String)} o {@link PartitionedQTMiner#compute(data.Data, int)}. Gli attributi
+ * senza prefisso {@code Total} o {@code ActiveRun} riguardano un solo calcolo: il calcolo in corso avviato per primo
+ * oppure, se non ce ne sono, l'ultimo terminato. I calcoli in corso contemporaneamente sono elencati da
+ * {@link #getActiveRunSummaries()}.
+ * </p>
+ */
+public interface MiningMetricsMXBean {
+
+	/**
+	 * Indica se il calcolo descritto e' in corso.
+	 *
+	 * @return {@code true} se in corso
+	 */
+	boolean isRunning();
+
+	/**
+	 * Restituisce il numero di calcoli in corso.
+	 *
+	 * @return calcoli in corso
+	 */
+	int getActiveRuns();
+
+	/**
+	 * Restituisce un riepilogo su una riga di ciascun calcolo in corso, nell'ordine di avvio.
+	 *
+	 * @return riepiloghi, vuoto se non ci sono calcoli in corso
+	 */
+	String[] getActiveRunSummaries();
+
+	/**
+	 * Restituisce il nome del dataset del calcolo descritto.
+	 *
+	 * @return nome del dataset, oppure {@code null}
+	 */
+	String getDataset();
+
+	/**
+	 * Restituisce il raggio del calcolo descritto.
+	 *
+	 * @return raggio, 0 se non e' stato avviato alcun calcolo
+	 */
+	double getRadius();
+
+	/**
+	 * Restituisce il numero di tuple da clusterizzare.
+	 *
+	 * @return numero di tuple
+	 */
+	long getTuples();
+
+	/**
+	 * Restituisce la frazione delle tuple già clusterizzate, indicatore dell'avanzamento.
+	 *
+	 * @return frazione in [0, 1]
+	 */
+	double getClusteredFraction();
+
+	/**
+	 * Restituisce il numero di iterazioni eseguite, pari ai cluster trovati.
+	 *
+	 * @return iterazioni
+	 */
+	int getIterations();
+
+	/**
+	 * Restituisce la dimensione media dei cluster trovati finora.
+	 *
+	 * @return dimensione media
+	 */
+	double getAverageClusterSize();
+
+	/**
+	 * Restituisce il numero di distanze calcolate.
+	 *
+	 * @return distanze calcolate
+	 */
+	long getDistanceEvaluations();
+
+	/**
+	 * Restituisce il numero di distanze evitate perché una delle tuple era già clusterizzata.
+	 *
+	 * @return distanze evitate
+	 */
+	long getDistancesPruned();
+
+	/**
+	 * Restituisce il tempo trascorso dall'inizio del calcolo descritto (fino alla fine, se terminato).
+	 *
+	 * @return tempo in millisecondi
+	 */
+	long getElapsedMillis();
+
+	/**
+	 * Restituisce la durata dell'ultima iterazione.
+	 *
+	 * @return durata in millisecondi, 0 se non ce ne sono
+	 */
+	double getLastIterationMillis();
+
+	/**
+	 * Restituisce il numero di candidati valutati nell'ultima iterazione.
+	 *
+	 * @return candidati, 0 se non ci sono iterazioni
+	 */
+	int getLastCandidates();
+
+	/**
+	 * Restituisce la dimensione del cluster scelto nell'ultima iterazione.
+	 *
+	 * @return dimensione, 0 se non ci sono iterazioni
+	 */
+	int getLastClusterSize();
+
+	/**
+	 * Restituisce il numero di calcoli arrivati al termine dall'avvio della JVM.
+	 *
+	 * @return calcoli completati
+	 */
+	long getTotalCompleted();
+
+	/**
+	 * Restituisce il numero di calcoli interrotti da un errore dall'avvio della JVM.
+	 *
+	 * @return calcoli falliti
+	 */
+	long getTotalFailed();
+
+	/**
+	 * Restituisce il numero di distanze calcolate da tutti i calcoli terminati dall'avvio della JVM,
+	 * completati o falliti.
+	 *
+	 * @return distanze calcolate
+	 */
+	long getTotalDistanceEvaluations();
+}
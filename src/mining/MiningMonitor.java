@@ -0,0 +1,202 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registra l'andamento di un'esecuzione del QT-Clustering, anche quando più partizioni vengono
+ * clusterizzate in parallelo (vedi {@link PartitionedQTMiner}).
+ * <p>
+ * Il costo e' trascurabile rispetto al calcolo: le distanze calcolate ed evitate vengono contate in
+ * variabili locali da {@link QTMiner#buildCandidateCluster(int[], data.Tuple[], boolean[], double, long[])}
+ * e la registrazione avviene una volta per iterazione. I contatori sono {@link LongAdder},
+ * ripartiti tra i thread che li aggiornano; solo l'elenco delle iterazioni e' sincronizzato.
+ * </p>
+ */
+final class MiningMonitor {
+
+	private final String dataset;
+	private final double radius;
+	private final long start = System.nanoTime();
+	private volatile long end;			// istante di fine, 0 se il calcolo e' in corso
+
+	private final LongAdder tuples = new LongAdder();
+	private final LongAdder clustered = new LongAdder();
+	private final LongAdder distanceEvaluations = new LongAdder();
+	private final LongAdder distancesPruned = new LongAdder();
+	private final List<MiningStats.Iteration> iterations = new ArrayList<>();
+
+	/**
+	 * Costruttore: il calcolo si considera iniziato alla creazione.
+	 *
+	 * @param dataset nome del dataset, oppure {@code null} se non noto
+	 * @param radius raggio di clustering
+	 */
+	MiningMonitor(String dataset, double radius) {
+		this.dataset = dataset;
+		this.radius = radius;
+	}
+
+	/**
+	 * Registra un insieme di tuple da clusterizzare (l'intero dataset o una partizione).
+	 *
+	 * @param count numero di tuple
+	 * @param alreadyClustered tuple già clusterizzate, ad esempio da un journal ripreso
+	 */
+	void addTuples(int count, int alreadyClustered) {
+		tuples.add(count);
+		clustered.add(alreadyClustered);
+	}
+
+	/**
+	 * Registra un'iterazione conclusa.
+	 *
+	 * @param durationNanos durata dell'iterazione
+	 * @param candidates tuple non clusterizzate all'inizio dell'iterazione, ciascuna valutata come centroide
+	 * @param computed distanze calcolate nell'iterazione
+	 * @param pruned distanze evitate nell'iterazione perché la tupla era già clusterizzata
+	 * @param clusterSize dimensione del cluster scelto
+	 */
+	void iteration(long durationNanos, int candidates, long computed, long pruned, int clusterSize) {
+		distanceEvaluations.add(computed);
+		distancesPruned.add(pruned);
+		clustered.add(clusterSize);
+		long total = tuples.sum();
+		MiningStats.Iteration it = new MiningStats.Iteration(durationNanos, candidates, clusterSize,
+				total == 0 ? 0 : (double) clustered.sum() / total);
+		synchronized (iterations) {
+			iterations.add(it);
+		}
+	}
+
+	/**
+	 * Segna la fine del calcolo.
+	 *
+	 * @return statistiche finali
+	 */
+	MiningStats finish() {
+		if (end == 0) {
+			end = System.nanoTime();
+		}
+		return snapshot();
+	}
+
+	/**
+	 * Restituisce le statistiche correnti.
+	 *
+	 * @return fotografia delle statistiche
+	 */
+	MiningStats snapshot() {
+		List<MiningStats.Iteration> copy;
+		synchronized (iterations) {
+			copy = new ArrayList<>(iterations);
+		}
+		return new MiningStats(dataset, radius, isRunning(), getTuples(), getClustered(), getDistanceEvaluations(),
+				getDistancesPruned(), getElapsedNanos(), copy);
+	}
+
+	/**
+	 * Restituisce l'ultima iterazione registrata.
+	 *
+	 * @return ultima iterazione, oppure {@code null} se non ce ne sono
+	 */
+	MiningStats.Iteration lastIteration() {
+		synchronized (iterations) {
+			return iterations.isEmpty() ? null : iterations.get(iterations.size() - 1);
+		}
+	}
+
+	/**
+	 * Indica se il calcolo e' in corso.
+	 *
+	 * @return {@code true} se non e' ancora terminato
+	 */
+	boolean isRunning() {
+		return end == 0;
+	}
+
+	/**
+	 * Restituisce l'istante di inizio del calcolo, confrontabile solo con altri valori di {@link System#nanoTime()}.
+	 *
+	 * @return istante di inizio in nanosecondi
+	 */
+	long getStartNanos() {
+		return start;
+	}
+
+	/**
+	 * Restituisce il nome del dataset.
+	 *
+	 * @return nome del dataset, oppure {@code null}
+	 */
+	String getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Restituisce il raggio di clustering.
+	 *
+	 * @return raggio
+	 */
+	double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Restituisce il numero di tuple da clusterizzare registrate finora.
+	 *
+	 * @return numero di tuple
+	 */
+	long getTuples() {
+		return tuples.sum();
+	}
+
+	/**
+	 * Restituisce il numero di tuple clusterizzate finora.
+	 *
+	 * @return tuple clusterizzate
+	 */
+	long getClustered() {
+		return clustered.sum();
+	}
+
+	/**
+	 * Restituisce il numero di iterazioni registrate finora.
+	 *
+	 * @return iterazioni
+	 */
+	int getIterationCount() {
+		synchronized (iterations) {
+			return iterations.size();
+		}
+	}
+
+	/**
+	 * Restituisce il numero di distanze calcolate finora.
+	 *
+	 * @return distanze calcolate
+	 */
+	long getDistanceEvaluations() {
+		return distanceEvaluations.sum();
+	}
+
+	/**
+	 * Restituisce il numero di distanze evitate finora.
+	 *
+	 * @return distanze evitate
+	 */
+	long getDistancesPruned() {
+		return distancesPruned.sum();
+	}
+
+	/**
+	 * Restituisce il tempo trascorso dall'inizio del calcolo (fino alla fine, se terminato).
+	 *
+	 * @return tempo in nanosecondi
+	 */
+	long getElapsedNanos() {
+		long stop = end;
+		return (stop == 0 ? System.nanoTime() : stop) - start;
+	}
+}
@@ -0,0 +1,223 @@
+package mining;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistiche di un'esecuzione del QT-Clustering, fotografate in un certo istante: durante il calcolo
+ * (tramite {@link MiningMetricsMXBean}) oppure al termine (tramite {@link QTMiner#getStats()}).
+ * <p>
+ * Ogni iterazione dell'algoritmo valuta come centroide ciascuna tupla non ancora clusterizzata
+ * (i candidati), calcolando la distanza da tutte le altre tuple non clusterizzate, e accetta il
+ * candidato con più tuple. Le distanze verso le tuple già clusterizzate non vengono calcolate e sono
+ * contate come evitate.
+ * </p>
+ */
+public class MiningStats {
+
+	/**
+	 * Statistiche di una singola iterazione.
+	 */
+	public static final class Iteration {
+
+		private final long durationNanos;
+		private final int candidates;
+		private final int clusterSize;
+		private final double clusteredFraction;
+
+		Iteration(long durationNanos, int candidates, int clusterSize, double clusteredFraction) {
+			this.durationNanos = durationNanos;
+			this.candidates = candidates;
+			this.clusterSize = clusterSize;
+			this.clusteredFraction = clusteredFraction;
+		}
+
+		/**
+		 * Restituisce la durata dell'iterazione.
+		 *
+		 * @return durata in nanosecondi
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * Restituisce il numero di candidati valutati, cioe' delle tuple non clusterizzate all'inizio dell'iterazione.
+		 *
+		 * @return numero di candidati
+		 */
+		public int getCandidates() {
+			return candidates;
+		}
+
+		/**
+		 * Restituisce il numero di tuple del cluster scelto.
+		 *
+		 * @return dimensione del cluster
+		 */
+		public int getClusterSize() {
+			return clusterSize;
+		}
+
+		/**
+		 * Restituisce la frazione delle tuple clusterizzate al termine dell'iterazione.
+		 *
+		 * @return frazione in [0, 1]
+		 */
+		public double getClusteredFraction() {
+			return clusteredFraction;
+		}
+	}
+
+	private final String dataset;
+	private final double radius;
+	private final boolean running;
+	private final long tuples;
+	private final long clusteredTuples;
+	private final long distanceEvaluations;
+	private final long distancesPruned;
+	private final long elapsedNanos;
+	private final List<Iteration> iterations;
+
+	/**
+	 * Costruttore.
+	 *
+	 * @param dataset nome del dataset, oppure {@code null} se non noto
+	 * @param radius raggio di clustering
+	 * @param running {@code true} se il calcolo e' ancora in corso
+	 * @param tuples numero di tuple da clusterizzare
+	 * @param clusteredTuples numero di tuple clusterizzate
+	 * @param distanceEvaluations distanze calcolate
+	 * @param distancesPruned distanze evitate
+	 * @param elapsedNanos tempo trascorso dall'inizio del calcolo
+	 * @param iterations iterazioni eseguite, nell'ordine
+	 */
+	MiningStats(String dataset, double radius, boolean running, long tuples, long clusteredTuples,
+			long distanceEvaluations, long distancesPruned, long elapsedNanos, List<Iteration> iterations) {
+		this.dataset = dataset;
+		this.radius = radius;
+		this.running = running;
+		this.tuples = tuples;
+		this.clusteredTuples = clusteredTuples;
+		this.distanceEvaluations = distanceEvaluations;
+		this.distancesPruned = distancesPruned;
+		this.elapsedNanos = elapsedNanos;
+		this.iterations = Collections.unmodifiableList(iterations);
+	}
+
+	/**
+	 * Restituisce il nome del dataset clusterizzato.
+	 *
+	 * @return nome del dataset, oppure {@code null} se non noto
+	 */
+	public String getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Restituisce il raggio di clustering.
+	 *
+	 * @return raggio
+	 */
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Indica se il calcolo era ancora in corso quando le statistiche sono state fotografate.
+	 *
+	 * @return {@code true} se il calcolo era in corso
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Restituisce il numero di tuple da clusterizzare.
+	 *
+	 * @return numero di tuple
+	 */
+	public long getTuples() {
+		return tuples;
+	}
+
+	/**
+	 * Restituisce il numero di tuple già assegnate a un cluster.
+	 *
+	 * @return tuple clusterizzate
+	 */
+	public long getClusteredTuples() {
+		return clusteredTuples;
+	}
+
+	/**
+	 * Restituisce la frazione delle tuple già assegnate a un cluster.
+	 *
+	 * @return frazione in [0, 1]
+	 */
+	public double getClusteredFraction() {
+		return tuples == 0 ? 0 : (double) clusteredTuples / tuples;
+	}
+
+	/**
+	 * Restituisce il numero di distanze calcolate.
+	 *
+	 * @return distanze calcolate
+	 */
+	public long getDistanceEvaluations() {
+		return distanceEvaluations;
+	}
+
+	/**
+	 * Restituisce il numero di distanze evitate perché una delle due tuple era già clusterizzata.
+	 *
+	 * @return distanze evitate
+	 */
+	public long getDistancesPruned() {
+		return distancesPruned;
+	}
+
+	/**
+	 * Restituisce il tempo trascorso dall'inizio del calcolo (fino alla fine, se terminato).
+	 *
+	 * @return tempo in nanosecondi
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Restituisce le iterazioni eseguite, una per cluster trovato.
+	 *
+	 * @return iterazioni, nell'ordine
+	 */
+	public List<Iteration> getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Restituisce la dimensione media dei cluster trovati: valori vicini a 1 indicano un raggio troppo
+	 * piccolo, un solo cluster con tutte le tuple un raggio troppo grande.
+	 *
+	 * @return dimensione media, 0 se non ci sono iterazioni
+	 */
+	public double getAverageClusterSize() {
+		return iterations.isEmpty() ? 0 : (double) clusteredTuples / iterations.size();
+	}
+
+	/**
+	 * Restituisce un riepilogo su una riga.
+	 *
+	 * @return riepilogo delle statistiche
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"%s raggio %s: %d iterazioni in %.1f ms, %d/%d tuple clusterizzate (%.1f%%), "
+						+ "dimensione media dei cluster %.1f, distanze calcolate %d, evitate %d",
+				running ? "In corso," : "Completato,", radius, iterations.size(), elapsedNanos / 1e6,
+				clusteredTuples, tuples, getClusteredFraction() * 100, getAverageClusterSize(),
+				distanceEvaluations, distancesPruned);
+	}
+}
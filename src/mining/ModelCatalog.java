@@ -0,0 +1,185 @@
+package mining;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * La classe {@code ModelCatalog} e' un indice dei file di clustering presenti in una cartella,
+ * costruito leggendo solo le intestazioni dei file ({@link ModelHeader}).
+ * <p>
+ * Il catalogo conserva, per ogni file, data di ultima modifica e dimensione: {@link #refresh()} rilegge
+ * l'intestazione solo dei file nuovi o modificati e dimentica quelli rimossi, così che aggiornare
+ * l'elenco di una cartella con migliaia di modelli costi una scansione della cartella e poche letture.
+ * I file che non sono nel formato binario (ad esempio quelli salvati con la serializzazione Java)
+ * non compaiono nell'elenco; si possono convertire con {@link QTMiner#migra(String, String)}.
+ * </p>
+ */
+public class ModelCatalog {
+
+	/**
+	 * Voce del catalogo: stato del file alla lettura e metadati letti.
+	 */
+	private static class Entry {
+
+		/**
+		 * Data di ultima modifica del file alla lettura.
+		 */
+		private long lastModified;
+
+		/**
+		 * Dimensione del file alla lettura.
+		 */
+		private long size;
+
+		/**
+		 * Metadati del file, {@code null} se il file non e' un file di clustering leggibile.
+		 */
+		private ModelHeader header;
+
+		/**
+		 * Costruttore.
+		 *
+		 * @param lastModified data di ultima modifica del file
+		 * @param size dimensione del file
+		 * @param header metadati del file, {@code null} se non leggibili
+		 */
+		Entry(long lastModified, long size, ModelHeader header) {
+			this.lastModified = lastModified;
+			this.size = size;
+			this.header = header;
+		}
+	}
+
+	/**
+	 * Cartella dei modelli.
+	 */
+	private Path directory;
+
+	/**
+	 * Voci del catalogo, per nome di file.
+	 */
+	private Map<String, Entry> entries = new TreeMap<>();
+
+	/**
+	 * Costruttore: crea un catalogo vuoto per la cartella indicata. L'elenco viene popolato
+	 * alla prima chiamata di {@link #refresh()}.
+	 *
+	 * @param directory cartella dei modelli
+	 * @throws IllegalArgumentException se {@code directory} e' {@code null} o non e' una cartella
+	 */
+	public ModelCatalog(String directory) {
+		if (directory == null || !Files.isDirectory(Paths.get(directory))) {
+			throw new IllegalArgumentException("La cartella dei modelli non esiste: " + directory);
+		}
+		this.directory = Paths.get(directory);
+	}
+
+	/**
+	 * Aggiorna il catalogo con lo stato attuale della cartella: legge l'intestazione dei file
+	 * nuovi o modificati dall'ultimo aggiornamento e rimuove le voci dei file eliminati.
+	 *
+	 * @return numero di intestazioni lette
+	 * @throws IOException se la cartella non può essere letta
+	 */
+	public synchronized int refresh() throws IOException {
+		Set<String> seen = new HashSet<>();
+		int read = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				} catch (IOException e) {
+					continue;		// file rimosso durante la scansione
+				}
+				if (!attributes.isRegularFile()) {
+					continue;
+				}
+				String name = file.getFileName().toString();
+				seen.add(name);
+				long lastModified = attributes.lastModifiedTime().toMillis();
+				Entry entry = entries.get(name);
+				if (entry != null && entry.lastModified == lastModified && entry.size == attributes.size()) {
+					continue;
+				}
+				ModelHeader header;
+				try {
+					header = ModelHeader.read(file.toString());
+				} catch (IOException e) {
+					header = null;
+				}
+				entries.put(name, new Entry(lastModified, attributes.size(), header));
+				read++;
+			}
+		}
+		Iterator<String> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			if (!seen.contains(it.next())) {
+				it.remove();
+			}
+		}
+		return read;
+	}
+
+	/**
+	 * Restituisce i metadati di tutti i file di clustering del catalogo, in ordine di nome di file.
+	 *
+	 * @return metadati dei modelli
+	 */
+	public List<ModelHeader> list() {
+		return find(h -> true);
+	}
+
+	/**
+	 * Restituisce i metadati dei file di clustering che soddisfano il filtro, in ordine di nome di file.
+	 *
+	 * @param filter condizione sui metadati
+	 * @return metadati dei modelli selezionati
+	 * @throws IllegalArgumentException se {@code filter} e' {@code null}
+	 */
+	public synchronized List<ModelHeader> find(Predicate<ModelHeader> filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("Il filtro non può essere null.");
+		}
+		List<ModelHeader> result = new ArrayList<>();
+		for (Entry entry : entries.values()) {
+			if (entry.header != null && filter.test(entry.header)) {
+				result.add(entry.header);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Restituisce i metadati dei file di clustering calcolati sulla tabella indicata.
+	 *
+	 * @param tableName nome della tabella (confrontato senza distinzione tra maiuscole e minuscole)
+	 * @return metadati dei modelli della tabella
+	 */
+	public List<ModelHeader> findByTable(String tableName) {
+		return find(h -> h.getTableName() != null && h.getTableName().equalsIgnoreCase(tableName));
+	}
+
+	/**
+	 * Restituisce i metadati dei file di clustering con raggio compreso nell'intervallo indicato.
+	 *
+	 * @param minRadius raggio minimo (incluso)
+	 * @param maxRadius raggio massimo (incluso)
+	 * @return metadati dei modelli selezionati
+	 */
+	public List<ModelHeader> findByRadius(double minRadius, double maxRadius) {
+		return find(h -> h.getRadius() >= minRadius && h.getRadius() <= maxRadius);
+	}
+}
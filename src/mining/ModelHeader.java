@@ -0,0 +1,189 @@
+package mining;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * La classe {@code ModelHeader} contiene i metadati di un file di clustering: tabella di origine,
+ * raggio, numero di cluster e di tuple, data di creazione.
+ * <p>
+ * I metadati sono in un'intestazione a dimensione fissa all'inizio del file (vedi {@link ClusterModelFile})
+ * e vengono letti con una sola lettura di {@link ClusterModelFile#HEADER_BYTES} byte, senza decodificare
+ * schema e cluster.
+ * </p>
+ *
+ * @see ModelCatalog
+ */
+public class ModelHeader {
+
+	/**
+	 * Percorso del file di clustering.
+	 */
+	private String fileName;
+
+	/**
+	 * Versione del formato del file.
+	 */
+	private int version;
+
+	/**
+	 * Flag del formato (vedi {@link ClusterModelFile#FLAG_DEFLATE}).
+	 */
+	private int flags;
+
+	/**
+	 * Data di creazione del clustering, in millisecondi dall'epoca.
+	 */
+	private long createdAt;
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Numero di cluster salvati nel file.
+	 */
+	private int numberOfClusters;
+
+	/**
+	 * Numero di tuple clusterizzate, -1 se non noto.
+	 */
+	private int numberOfTuples;
+
+	/**
+	 * Nome della tabella di origine, {@code null} se non noto.
+	 */
+	private String tableName;
+
+	/**
+	 * Costruttore: inizializza tutti i metadati.
+	 *
+	 * @param fileName percorso del file di clustering
+	 * @param version versione del formato
+	 * @param flags flag del formato
+	 * @param createdAt data di creazione in millisecondi dall'epoca
+	 * @param radius raggio di clustering
+	 * @param numberOfClusters numero di cluster
+	 * @param numberOfTuples numero di tuple, -1 se non noto
+	 * @param tableName nome della tabella di origine, {@code null} se non noto
+	 */
+	ModelHeader(String fileName, int version, int flags, long createdAt, double radius,
+			int numberOfClusters, int numberOfTuples, String tableName) {
+		this.fileName = fileName;
+		this.version = version;
+		this.flags = flags;
+		this.createdAt = createdAt;
+		this.radius = radius;
+		this.numberOfClusters = numberOfClusters;
+		this.numberOfTuples = numberOfTuples;
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Legge i metadati di un file di clustering dalla sola intestazione a dimensione fissa.
+	 *
+	 * @param fileName percorso del file di clustering
+	 * @return metadati del file
+	 * @throws IOException se il file non può essere letto o non e' un file di clustering nel formato binario
+	 */
+	public static ModelHeader read(String fileName) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName),
+				ClusterModelFile.HEADER_BYTES))) {
+			return ClusterModelFile.readHeader(in, fileName);
+		}
+	}
+
+	/**
+	 * Restituisce il percorso del file di clustering.
+	 *
+	 * @return percorso del file
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Restituisce la versione del formato del file.
+	 *
+	 * @return versione del formato
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Indica se i record dei cluster sono compressi a blocchi.
+	 *
+	 * @return {@code true} se il file e' compresso
+	 */
+	public boolean isCompressed() {
+		return (flags & ClusterModelFile.FLAG_DEFLATE) != 0;
+	}
+
+	/**
+	 * Restituisce la data di creazione del clustering.
+	 *
+	 * @return data di creazione in millisecondi dall'epoca
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Restituisce il raggio di clustering.
+	 *
+	 * @return raggio di clustering (0 per i file convertiti dalla serializzazione Java)
+	 */
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Restituisce il numero di cluster salvati nel file.
+	 *
+	 * @return numero di cluster
+	 */
+	public int getNumberOfClusters() {
+		return numberOfClusters;
+	}
+
+	/**
+	 * Restituisce il numero di tuple clusterizzate.
+	 *
+	 * @return numero di tuple, -1 se non noto
+	 */
+	public int getNumberOfTuples() {
+		return numberOfTuples;
+	}
+
+	/**
+	 * Restituisce il nome della tabella da cui sono state caricate le tuple clusterizzate.
+	 *
+	 * @return nome della tabella, {@code null} se non noto
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Restituisce una descrizione su una riga dei metadati, adatta a un elenco di modelli.
+	 *
+	 * @return descrizione dei metadati
+	 */
+	@Override
+	public String toString() {
+		return new File(fileName).getName()
+				+ " tabella=" + (tableName == null ? "?" : tableName)
+				+ " raggio=" + radius
+				+ " cluster=" + numberOfClusters
+				+ " tuple=" + (numberOfTuples < 0 ? "?" : String.valueOf(numberOfTuples))
+				+ (isCompressed() ? " compresso" : "")
+				+ " creato=" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(createdAt));
+	}
+}
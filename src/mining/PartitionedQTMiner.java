@@ -0,0 +1,413 @@
+package mining;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import data.Data;
+import data.EmptyDatasetException;
+import data.Tuple;
+import data.TupleCodec;
+
+/**
+ * La classe {@code PartitionedQTMiner} applica il QT-Clustering con una strategia divide et impera,
+ * per dataset troppo grandi per il calcolo di tutte le distanze tra coppie di tuple.
+ * <p>
+ * Il dataset viene diviso in partizioni di al più {@code maxPartitionSize} tuple secondo un attributo:
+ * </p>
+ * <ul>
+ *   <li>attributo discreto: una partizione per valore (suddivisa in blocchi se troppo numerosa);</li>
+ *   <li>attributo continuo: blocchi contigui di tuple ordinate per valore (blocchi spaziali).</li>
+ * </ul>
+ * <p>
+ * Ogni partizione viene clusterizzata in modo indipendente e in parallelo con l'algoritmo QT di
+ * {@link QTMiner}. Nella fase di fusione le tuple di confine, cioè entro il raggio dal centroide di
+ * un cluster di una partizione vicina, vengono spostate nel cluster più numeroso che le accetta,
+ * se più numeroso di quello di partenza, come farebbe la scelta greedy di QT. I centroidi non vengono spostati.
+ * </p>
+ * <p>
+ * Il clustering e' partizionato ma non fuori memoria: il dataset resta interamente in memoria nella
+ * rappresentazione colonnare di {@link Data}, da cui vengono costruite le tuple delle partizioni e,
+ * nella fase di fusione, quelle di confine. Se e' indicata una directory di appoggio, le tuple di
+ * ciascuna partizione vengono scritte su disco come righe compatte di {@link TupleCodec} e ricostruite
+ * solo dal thread che la elabora: in memoria restano così gli oggetti {@link Tuple} delle sole
+ * partizioni in elaborazione, molto più ingombranti delle colonne del dataset.
+ * </p>
+ * <p>
+ * Il risultato e' un'approssimazione del clustering esatto: le partizioni vicine sono quelle con
+ * lo stesso valore discreto (o tutte, se il raggio consente di superare la distanza 1 tra valori diversi)
+ * e, per gli attributi continui, i blocchi adiacenti.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public class PartitionedQTMiner {
+
+	/**
+	 * Partizione del dataset.
+	 */
+	private static class Partition {
+
+		/**
+		 * Indici delle righe della partizione, in ordine crescente.
+		 */
+		private int[] rows;
+
+		/**
+		 * File su cui sono state scritte le tuple della partizione codificate con {@link TupleCodec},
+		 * {@code null} se sono in memoria.
+		 */
+		private File spillFile;
+
+		/**
+		 * Tuple della partizione, {@code null} se sono state scritte su disco.
+		 */
+		private Tuple[] tuples;
+
+		/**
+		 * Posizioni delle partizioni vicine.
+		 */
+		private int[] neighbours = new int[0];
+
+		/**
+		 * Cluster trovati nella partizione.
+		 */
+		private List<Cluster> clusters;
+	}
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Numero massimo di tuple per partizione.
+	 */
+	private int maxPartitionSize;
+
+	/**
+	 * Numero di thread usati per clusterizzare le partizioni.
+	 */
+	private int threads;
+
+	/**
+	 * Directory su cui scrivere le tuple delle partizioni, {@code null} per mantenerle in memoria.
+	 */
+	private File spillDirectory;
+
+	/**
+	 * Costruttore: partizioni mantenute in memoria e un thread per processore disponibile.
+	 *
+	 * @param radius raggio di clustering
+	 * @param maxPartitionSize numero massimo di tuple per partizione
+	 * @throws IllegalArgumentException se {@code radius} o {@code maxPartitionSize} non sono positivi
+	 */
+	public PartitionedQTMiner(double radius, int maxPartitionSize) {
+		this(radius, maxPartitionSize, Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	/**
+	 * Costruttore: inizializza raggio, dimensione delle partizioni, parallelismo e directory di appoggio.
+	 *
+	 * @param radius raggio di clustering
+	 * @param maxPartitionSize numero massimo di tuple per partizione
+	 * @param threads numero di thread usati per clusterizzare le partizioni
+	 * @param spillDirectory directory su cui scrivere le tuple delle partizioni, {@code null} per mantenerle in memoria
+	 * @throws IllegalArgumentException se {@code radius}, {@code maxPartitionSize} o {@code threads}
+	 *         non sono positivi, oppure se {@code spillDirectory} non e' una directory
+	 */
+	public PartitionedQTMiner(double radius, int maxPartitionSize, int threads, File spillDirectory) {
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + radius);
+		}
+		if (maxPartitionSize <= 0) {
+			throw new IllegalArgumentException("La dimensione delle partizioni deve essere positiva: " + maxPartitionSize);
+		}
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Il numero di thread deve essere positivo: " + threads);
+		}
+		if (spillDirectory != null && !spillDirectory.isDirectory()) {
+			throw new IllegalArgumentException("Directory di appoggio non valida: " + spillDirectory);
+		}
+		this.radius = radius;
+		this.maxPartitionSize = maxPartitionSize;
+		this.threads = threads;
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Applica il QT-Clustering partizionato al dataset.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param attributeIndex indice dell'attributo secondo cui partizionare il dataset
+	 * @return oggetto {@link QTMiner} che contiene i cluster trovati, salvabile con {@link QTMiner#salva(String)}
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws ClusteringRadiusException se l'algoritmo produce un solo cluster
+	 * @throws IOException se si verifica un errore nella scrittura o lettura delle partizioni su disco
+	 * @throws IllegalArgumentException se {@code data} e' {@code null} o {@code attributeIndex} non e' valido
+	 */
+	public QTMiner compute(Data data, int attributeIndex) throws EmptyDatasetException, ClusteringRadiusException, IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Il dataset non può essere null.");
+		}
+		if (data.getNumberOfExamples() == 0) {
+			throw new EmptyDatasetException("Il dataset e' vuoto.");
+		}
+		if (attributeIndex < 0 || attributeIndex >= data.getNumberOfAttributes()) {
+			throw new IllegalArgumentException("Indice dell'attributo non valido: " + attributeIndex);
+		}
+
+		MiningMonitor monitor = MiningMetrics.begin(data.getTableName(), radius);
+		List<Cluster> clusters = null;
+		MiningStats stats;
+		try {
+			TupleCodec codec = new TupleCodec(data.getItemSet(0));
+			List<Partition> partitions = partition(data, attributeIndex, codec);
+			try {
+				clusterPartitions(partitions, codec, monitor);
+			} finally {
+				for (Partition p : partitions) {
+					if (p.spillFile != null) {
+						p.spillFile.delete();
+					}
+				}
+			}
+			clusters = merge(data, partitions);
+		} finally {
+			stats = MiningMetrics.end(monitor, clusters != null);
+		}
+
+		if (clusters.size() == 1) {
+			throw new ClusteringRadiusException("L'algoritmo ha prodotto un solo cluster.");
+		}
+		QTMiner result = new QTMiner(radius, clusters, data);
+		result.setStats(stats);
+		return result;
+	}
+
+	/**
+	 * Divide le righe del dataset in partizioni secondo l'attributo indicato e ne calcola le vicinanze.
+	 *
+	 * @param data dataset da partizionare
+	 * @param attributeIndex indice dell'attributo di partizionamento
+	 * @param codec codifica delle tuple scritte su disco
+	 * @return partizioni del dataset
+	 * @throws IOException se si verifica un errore nella scrittura delle partizioni su disco
+	 */
+	private List<Partition> partition(Data data, int attributeIndex, TupleCodec codec) throws IOException {
+		int n = data.getNumberOfExamples();
+		List<Partition> partitions = new ArrayList<>();
+
+		if (data.getAttributeValue(0, attributeIndex) instanceof Double) {
+			// blocchi spaziali: righe ordinate per valore e tagliate in blocchi contigui
+			Integer[] order = new Integer[n];
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+				values[i] = (Double) data.getAttributeValue(i, attributeIndex);
+			}
+			Arrays.sort(order, Comparator.comparingDouble(i -> values[i]));
+			for (int from = 0; from < n; from += maxPartitionSize) {
+				int[] rows = new int[Math.min(maxPartitionSize, n - from)];
+				for (int k = 0; k < rows.length; k++) {
+					rows[k] = order[from + k];
+				}
+				partitions.add(newPartition(data, rows, codec));
+			}
+			for (int p = 0; p < partitions.size(); p++) {
+				List<Integer> near = new ArrayList<>();
+				if (p > 0) {
+					near.add(p - 1);
+				}
+				if (p < partitions.size() - 1) {
+					near.add(p + 1);
+				}
+				partitions.get(p).neighbours = toArray(near);
+			}
+		} else {
+			// una partizione per valore discreto, suddivisa in blocchi se troppo numerosa
+			Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+			for (int i = 0; i < n; i++) {
+				groups.computeIfAbsent(data.getAttributeValue(i, attributeIndex), k -> new ArrayList<>()).add(i);
+			}
+			List<Integer> groupOf = new ArrayList<>();
+			int group = 0;
+			for (List<Integer> rows : groups.values()) {
+				for (int from = 0; from < rows.size(); from += maxPartitionSize) {
+					List<Integer> block = rows.subList(from, Math.min(rows.size(), from + maxPartitionSize));
+					partitions.add(newPartition(data, toArray(block), codec));
+					groupOf.add(group);
+				}
+				group++;
+			}
+			// tuple con valori discreti diversi distano almeno 1
+			boolean crossValues = radius >= 1.0;
+			for (int p = 0; p < partitions.size(); p++) {
+				List<Integer> near = new ArrayList<>();
+				for (int q = 0; q < partitions.size(); q++) {
+					if (q != p && (crossValues || groupOf.get(q).equals(groupOf.get(p)))) {
+						near.add(q);
+					}
+				}
+				partitions.get(p).neighbours = toArray(near);
+			}
+		}
+		return partitions;
+	}
+
+	/**
+	 * Crea una partizione sulle righe indicate: ne costruisce le tuple, oppure, se e' indicata
+	 * una directory di appoggio, le scrive su disco una alla volta come righe codificate.
+	 *
+	 * @param data dataset di origine
+	 * @param rows righe della partizione
+	 * @param codec codifica delle tuple scritte su disco
+	 * @return partizione creata
+	 * @throws IOException se si verifica un errore nella scrittura su disco
+	 */
+	private Partition newPartition(Data data, int[] rows, TupleCodec codec) throws IOException {
+		Arrays.sort(rows);
+		Partition p = new Partition();
+		p.rows = rows;
+		if (spillDirectory == null) {
+			p.tuples = new Tuple[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				p.tuples[i] = data.getItemSet(rows[i]);
+			}
+		} else {
+			p.spillFile = File.createTempFile("qtpart", ".bin", spillDirectory);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(p.spillFile)))) {
+				for (int row : rows) {
+					codec.writeTuple(out, data.getItemSet(row));
+				}
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Clusterizza in parallelo le partizioni, riportando le iterazioni di tutte allo stesso registro.
+	 *
+	 * @param partitions partizioni da clusterizzare
+	 * @param codec codifica delle tuple scritte su disco
+	 * @param monitor registro dell'andamento del calcolo
+	 * @throws IOException se si verifica un errore nella lettura delle partizioni da disco
+	 */
+	private void clusterPartitions(List<Partition> partitions, TupleCodec codec, MiningMonitor monitor) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, partitions.size()));
+		try {
+			List<Future<List<Cluster>>> results = new ArrayList<>();
+			for (Partition p : partitions) {
+				results.add(pool.submit(() -> QTMiner.cluster(p.rows, loadTuples(p, codec), radius, 0, monitor)));
+			}
+			for (int i = 0; i < partitions.size(); i++) {
+				partitions.get(i).clusters = results.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Clustering delle partizioni interrotto.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Errore nel clustering di una partizione.", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Restituisce le tuple della partizione, rileggendole da disco se necessario.
+	 *
+	 * @param p partizione
+	 * @param codec codifica con cui le tuple sono state scritte
+	 * @return tuple della partizione
+	 * @throws IOException se si verifica un errore nella lettura da disco
+	 */
+	private static Tuple[] loadTuples(Partition p, TupleCodec codec) throws IOException {
+		if (p.tuples != null) {
+			return p.tuples;
+		}
+		Tuple[] tuples = new Tuple[p.rows.length];
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(p.spillFile)))) {
+			for (int i = 0; i < tuples.length; i++) {
+				tuples[i] = codec.readTuple(in);
+			}
+		}
+		return tuples;
+	}
+
+	/**
+	 * Fase di fusione: sposta le tuple di confine nel cluster più numeroso di una partizione vicina
+	 * che le accetta entro il raggio, se più numeroso del cluster di partenza. Le tuple vengono
+	 * ricostruite dal dataset in memoria una alla volta.
+	 *
+	 * @param data dataset di origine
+	 * @param partitions partizioni clusterizzate
+	 * @return cluster risultanti
+	 */
+	private List<Cluster> merge(Data data, List<Partition> partitions) {
+		List<Cluster> result = new ArrayList<>();
+		for (Partition p : partitions) {
+			for (Cluster c : p.clusters) {
+				List<Integer> members = new ArrayList<>();
+				for (Integer id : c) {
+					members.add(id);
+				}
+				for (Integer id : members) {
+					Tuple tuple = data.getItemSet(id);
+					if (tuple.getDistance(c.getCentroid()) == 0) {
+						continue;		// il centroide resta nel proprio cluster
+					}
+					Cluster target = null;
+					for (int q : p.neighbours) {
+						for (Cluster other : partitions.get(q).clusters) {
+							if (other.getSize() > c.getSize()
+									&& (target == null || other.getSize() > target.getSize())
+									&& tuple.getDistance(other.getCentroid()) <= radius) {
+								target = other;
+							}
+						}
+					}
+					if (target != null) {
+						c.removeTuple(id);
+						target.addData(id);
+					}
+				}
+				result.add(c);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Converte una lista di interi in array.
+	 *
+	 * @param list lista da convertire
+	 * @return array con gli stessi elementi
+	 */
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,185 @@
+package mining;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import data.Data;
+import data.EmptyDatasetException;
+
+/**
+ * La classe {@code ProgressiveQTMiner} esegue il QT-Clustering in modalità progressiva.
+ * <p>
+ * Il clustering esatto dell'intero dataset viene avviato in background; nel frattempo
+ * viene calcolata un'anteprima eseguendo QT su campioni casuali di dimensione crescente
+ * (raddoppiata a ogni passo), finché il passo successivo non rischia di superare il tempo
+ * massimo concesso all'anteprima. Il tempo dell'anteprima dipende quindi dal limite
+ * configurato e non dalla dimensione della tabella.
+ * </p>
+ * <p>
+ * Il tempo massimo viene controllato solo tra un'iterazione di QT e la successiva: una singola
+ * iterazione, che costa O(n²) distanze sul campione, non viene interrotta e può quindi superarlo.
+ * Il campione di un passo viene raddoppiato solo se la stima del suo costo rientra nel tempo
+ * rimasto, per cui il superamento resta limitato a un'iterazione.
+ * </p>
+ *
+ * @see ProgressiveResult
+ * @see QTMiner
+ */
+public class ProgressiveQTMiner {
+
+	/**
+	 * Tempo massimo predefinito per il calcolo dell'anteprima, in millisecondi.
+	 */
+	private static final long DEFAULT_PREVIEW_BUDGET_MILLIS = 500;
+
+	/**
+	 * Dimensione del primo campione clusterizzato per l'anteprima.
+	 */
+	private static final int INITIAL_SAMPLE_SIZE = 64;
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Tempo massimo per il calcolo dell'anteprima, in millisecondi.
+	 */
+	private long previewBudgetMillis;
+
+	/**
+	 * Executor su cui viene eseguito il clustering esatto, oppure {@code null} se a ogni calcolo
+	 * il miner crea un thread dedicato.
+	 */
+	private Executor executor;
+
+	/**
+	 * Seme del generatore pseudo-casuale usato per il campionamento.
+	 */
+	private long seed;
+
+	/**
+	 * Costruttore: usa il tempo massimo predefinito per l'anteprima (500 ms) e, per il clustering
+	 * esatto, un executor di proprietà del miner con un solo thread, creato a ogni chiamata di
+	 * {@link #compute(Data)} e chiuso al termine del calcolo. Il clustering esatto non occupa quindi
+	 * il pool comune di {@link java.util.concurrent.ForkJoinPool}, condiviso con il resto della JVM.
+	 *
+	 * @param radius raggio di clustering
+	 * @throws IllegalArgumentException se {@code radius} e' minore o uguale a zero
+	 */
+	public ProgressiveQTMiner(double radius) {
+		this(radius, DEFAULT_PREVIEW_BUDGET_MILLIS, 0L);
+	}
+
+	/**
+	 * Costruttore: inizializza raggio, tempo massimo dell'anteprima e seme; per il clustering esatto
+	 * usa, come {@link #ProgressiveQTMiner(double)}, un executor di proprietà del miner.
+	 *
+	 * @param radius raggio di clustering
+	 * @param previewBudgetMillis tempo massimo per il calcolo dell'anteprima, in millisecondi
+	 * @param seed seme del generatore pseudo-casuale usato per il campionamento
+	 * @throws IllegalArgumentException se {@code radius} o {@code previewBudgetMillis} non sono positivi
+	 */
+	public ProgressiveQTMiner(double radius, long previewBudgetMillis, long seed) {
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + radius);
+		}
+		if (previewBudgetMillis <= 0) {
+			throw new IllegalArgumentException("Il tempo massimo dell'anteprima deve essere positivo: " + previewBudgetMillis);
+		}
+		this.radius = radius;
+		this.previewBudgetMillis = previewBudgetMillis;
+		this.seed = seed;
+	}
+
+	/**
+	 * Costruttore: inizializza raggio, tempo massimo dell'anteprima, executor e seme.
+	 *
+	 * @param radius raggio di clustering
+	 * @param previewBudgetMillis tempo massimo per il calcolo dell'anteprima, in millisecondi
+	 * @param executor executor su cui eseguire il clustering esatto, gestito dal chiamante
+	 * @param seed seme del generatore pseudo-casuale usato per il campionamento
+	 * @throws IllegalArgumentException se {@code radius} o {@code previewBudgetMillis} non sono positivi
+	 *         oppure se {@code executor} e' {@code null}
+	 */
+	public ProgressiveQTMiner(double radius, long previewBudgetMillis, Executor executor, long seed) {
+		this(radius, previewBudgetMillis, seed);
+		if (executor == null) {
+			throw new IllegalArgumentException("L'executor non può essere null.");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Avvia il clustering esatto in background e restituisce l'anteprima calcolata
+	 * entro il tempo massimo configurato.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @return anteprima e future del clustering esatto
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code data} e' {@code null}
+	 */
+	public ProgressiveResult compute(Data data) throws EmptyDatasetException {
+		if (data == null) {
+			throw new IllegalArgumentException("Il dataset non può essere null.");
+		}
+		if (data.getNumberOfExamples() == 0) {
+			throw new EmptyDatasetException("Il dataset e' vuoto.");
+		}
+
+		ExecutorService owned = executor == null ? Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "qt-progressive");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+		CompletableFuture<QTMiner> exact = CompletableFuture.supplyAsync(() -> {
+			QTMiner qt = new QTMiner(radius);
+			try {
+				qt.compute(data);
+			} catch (ClusteringRadiusException | EmptyDatasetException e) {
+				throw new CompletionException(e);
+			}
+			return qt;
+		}, owned != null ? owned : executor);
+		if (owned != null) {
+			exact.whenComplete((qt, e) -> owned.shutdown());
+		}
+
+		long start = System.nanoTime();
+		long budget = previewBudgetMillis * 1_000_000L;
+		int n = data.getNumberOfExamples();
+		Random random = new Random(seed);
+
+		QTMiner preview = null;
+		int previewSize = 0;
+		int size = Math.min(n, INITIAL_SAMPLE_SIZE);
+		while (true) {
+			long stepStart = System.nanoTime();
+			long remaining = budget - (stepStart - start);
+			if (remaining <= 0) {
+				break;
+			}
+			QTMiner candidate = new QTMiner(radius);
+			if (candidate.cluster(data, RadiusAdvisor.sampleRows(n, size, random), remaining) < 0) {
+				break;		// campione troppo grande per il tempo rimasto: resta valida l'anteprima precedente
+			}
+			preview = candidate;
+			previewSize = size;
+
+			long now = System.nanoTime();
+			// il costo di QT cresce almeno quadraticamente con il numero di tuple
+			if (size == n || (now - start) + 4 * (now - stepStart) > budget) {
+				break;
+			}
+			size = (int) Math.min(n, 2L * size);
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+		ClusterSet clusters = preview != null ? preview.getC() : new ClusterSet();
+		return new ProgressiveResult(clusters, previewSize, elapsedMillis, exact);
+	}
+}
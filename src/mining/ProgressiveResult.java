@@ -0,0 +1,89 @@
+package mining;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * La classe {@code ProgressiveResult} rappresenta il risultato di un clustering progressivo:
+ * un'anteprima calcolata su un campione del dataset, disponibile subito, e il clustering esatto,
+ * consegnato in modo asincrono.
+ *
+ * @see ProgressiveQTMiner
+ */
+public class ProgressiveResult {
+
+	/**
+	 * Cluster dell'anteprima, calcolati sul campione.
+	 */
+	private ClusterSet preview;
+
+	/**
+	 * Numero di tuple del campione usato per l'anteprima.
+	 */
+	private int previewSampleSize;
+
+	/**
+	 * Tempo impiegato per calcolare l'anteprima, in millisecondi.
+	 */
+	private long previewMillis;
+
+	/**
+	 * Clustering esatto sull'intero dataset, completato in background.
+	 */
+	private CompletableFuture<QTMiner> exact;
+
+	/**
+	 * Costruttore: inizializza anteprima e clustering esatto.
+	 *
+	 * @param preview cluster dell'anteprima
+	 * @param previewSampleSize numero di tuple del campione
+	 * @param previewMillis tempo impiegato per l'anteprima in millisecondi
+	 * @param exact clustering esatto in corso
+	 */
+	ProgressiveResult(ClusterSet preview, int previewSampleSize, long previewMillis, CompletableFuture<QTMiner> exact) {
+		this.preview = preview;
+		this.previewSampleSize = previewSampleSize;
+		this.previewMillis = previewMillis;
+		this.exact = exact;
+	}
+
+	/**
+	 * Restituisce i cluster dell'anteprima. Gli indici delle tuple si riferiscono
+	 * alle righe del dataset originale, per cui l'anteprima può essere stampata con
+	 * {@link ClusterSet#toString(data.Data)}.
+	 *
+	 * @return cluster dell'anteprima (vuoto se nessun campione e' stato clusterizzato entro il tempo massimo)
+	 */
+	public ClusterSet getPreview() {
+		return preview;
+	}
+
+	/**
+	 * Restituisce il numero di tuple del campione usato per l'anteprima.
+	 *
+	 * @return dimensione del campione
+	 */
+	public int getPreviewSampleSize() {
+		return previewSampleSize;
+	}
+
+	/**
+	 * Restituisce il tempo impiegato per calcolare l'anteprima.
+	 *
+	 * @return tempo in millisecondi
+	 */
+	public long getPreviewMillis() {
+		return previewMillis;
+	}
+
+	/**
+	 * Restituisce il clustering esatto, completato in modo asincrono. Il future viene completato
+	 * eccezionalmente con {@link ClusteringRadiusException} se l'algoritmo produce un solo cluster.
+	 * Per ricevere il risultato tramite callback si può usare, ad esempio,
+	 * {@code getExact().thenAccept(qt -> ...)}.
+	 *
+	 * @return future del clustering esatto
+	 */
+	public CompletableFuture<QTMiner> getExact() {
+		return exact;
+	}
+}
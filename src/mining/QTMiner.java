@@ -1,14 +1,16 @@
 package mining;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -29,9 +31,13 @@ import data.EmptyDatasetException;
  *   <li>{@code QTMiner} ha una <b>composizione</b> con {@link ClusterSet}: ne e' responsabile della creazione e della vita.</li>
  *   <li>{@code QTMiner} ha una <b>associazione</b> con {@link Data}: usa i dati, ma non ne gestisce la vita.</li>
  * </ul>
+ * <p>
+ * Un oggetto letto da file con {@link #QTMiner(String)} tiene aperta la mappatura del file fino a
+ * {@link #close()} o {@link #salva(String)}: conviene quindi usarlo in un try-with-resources.
+ * </p>
  *
  */
-public class QTMiner implements Serializable {
+public class QTMiner implements Serializable, Closeable {
 	
 	/**
 	 * Insieme di cluster generati durante il clustering.
@@ -43,6 +49,32 @@ public class QTMiner implements Serializable {
 	 */
 	private double radius;
 	
+	/**
+	 * Nome della tabella da cui provengono le tuple clusterizzate, {@code null} se non noto.
+	 */
+	private String tableName;
+	
+	/**
+	 * Numero di tuple clusterizzate, -1 se non noto.
+	 */
+	private int numberOfTuples = -1;
+	
+	/**
+	 * Data del clustering in millisecondi dall'epoca, 0 se non nota.
+	 */
+	private long createdAt;
+	
+	/**
+	 * Modello mappato da cui sono stati letti i cluster, {@code null} se i cluster sono in memoria
+	 * o la mappatura e' già stata rilasciata.
+	 */
+	private transient MappedClusterModel model;
+	
+	/**
+	 * Statistiche dell'ultimo calcolo, {@code null} se i cluster non sono stati calcolati da questo oggetto.
+	 */
+	private transient MiningStats stats;
+	
 	/**
 	  * Costruttore: inizializza l'oggetto {@code QTMiner} con un raggio specificato.
 	 *
@@ -57,9 +89,33 @@ public class QTMiner implements Serializable {
 		C = new TreeSet<>();
 		
 	}
+
+	/**
+	 * Costruttore: inizializza l'oggetto {@code QTMiner} con cluster calcolati altrove
+	 * (ad esempio dal clustering partizionato), così da poterli salvare e stampare come
+	 * quelli prodotti da {@link #compute(Data)}.
+	 *
+	 * @param radius raggio di clustering con cui sono stati calcolati i cluster
+	 * @param clusters cluster da includere
+	 * @param data dataset clusterizzato
+	 * @throws IllegalArgumentException se {@code radius} e' minore o uguale a zero
+	 */
+	QTMiner(double radius, Collection<Cluster> clusters, Data data) {
+		this(radius);
+		C.addAll(clusters);
+		describe(data, data.getNumberOfExamples());
+	}
 	
 	/**
-	 * Costruttore che inizializza QTMiner leggendo l'insieme di cluster (C) da un file serializzato.
+	 * Costruttore che inizializza QTMiner leggendo l'insieme di cluster (C) da un file salvato.
+	 * <p>
+	 * I file nel formato binario scritto da {@link #salva(String)} vengono aperti con
+	 * {@link MappedClusterModel}: il file e' mappato in memoria e di ogni cluster si decodificano
+	 * centroide e tuple solo quando vengono usati; la mappatura viene rilasciata da {@link #close()} o da {@link #salva(String)}.
+	 * I file salvati dalle versioni precedenti con la serializzazione Java
+	 * vengono ancora letti con {@link ObjectInputStream} (in tal caso il raggio non e' noto e vale 0).
+	 * Per convertire un vecchio file nel formato binario si può usare {@link #migra(String, String)}.
+	 * </p>
 	 *
 	 * @param fileName percorso e nome del file da cui leggere l'oggetto
 	 * @throws FileNotFoundException se il file non esiste
@@ -73,6 +129,16 @@ public class QTMiner implements Serializable {
 	
 	public QTMiner(String fileName) throws FileNotFoundException, IOException, ClassNotFoundException {
 		
+		if (ClusterModelFile.version(fileName) != 0) {
+			this.model = new MappedClusterModel(fileName);
+			this.C = new TreeSet<>();
+			for (int i = 0; i < model.getNumberOfClusters(); i++) {
+				C.add(model.getCluster(i));
+			}
+			describe(model.getHeader());
+			return;
+		}
+
 	    // try-with-resources apre e chiude automaticamente il flusso 'in'
 	    try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(fileName))) {
 	        // Lettura dell'oggetto serializzato e cast a Set<Cluster>
@@ -87,21 +153,110 @@ public class QTMiner implements Serializable {
 	}
 
 	/**
-	 * Apre il file identificato da fileName e salva l'oggetto riferito da C in tale file (serializzazione).
+	 * Apre il file identificato da fileName e salva l'insieme di cluster riferito da C
+	 * nel formato binario versionato descritto in {@link ClusterModelFile}: schema degli attributi
+	 * nell'intestazione, centroidi come righe codificate e indici delle tuple come varint ordinati
+	 * e codificati per differenza. L'intestazione a dimensione fissa riporta tabella di origine,
+	 * raggio, numero di cluster e di tuple e data del clustering (vedi {@link ModelHeader}).
+	 * <p>
+	 * Se i cluster sono stati letti da un file mappato con {@link #QTMiner(String)}, prima della scrittura
+	 * vengono decodificati tutti e la mappatura viene rilasciata, così che il file di origine possa essere
+	 * sostituito anche su Windows, dove un file mappato non può essere rinominato né cancellato.
+	 * </p>
 	 *
 	 * @param fileName percorso e nome del file dove salvare l'oggetto
 	 * @throws FileNotFoundException se il file non può essere creato o sovrascritto
 	 * @throws IOException se si verifica un errore I/O durante la scrittura
 	 */
 	public void salva(String fileName) throws FileNotFoundException, IOException {
-	    
-	    // Uso di try-with-resources: 'out' viene chiuso automaticamente
-	    try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(fileName))) {
-	        
-	        // Salva l'insieme di cluster riferito da C (che deve implementare Serializable)
-	        out.writeObject(this.C); 
-	        
-	    }
+		salva(fileName, false);
+	}
+
+	/**
+	 * Salva l'insieme di cluster come {@link #salva(String)}, scegliendo se comprimere i record dei
+	 * cluster. Un file compresso a blocchi occupa molto meno spazio e si apre ancora con
+	 * {@link #QTMiner(String)} decodificando i cluster solo all'accesso, al costo di decomprimere
+	 * il blocco che contiene ciascun cluster letto.
+	 *
+	 * @param fileName percorso e nome del file dove salvare l'oggetto
+	 * @param compress {@code true} per comprimere i record con {@link java.util.zip.Deflater}
+	 * @throws FileNotFoundException se il file non può essere creato o sovrascritto
+	 * @throws IOException se si verifica un errore I/O durante la scrittura
+	 */
+	public void salva(String fileName, boolean compress) throws FileNotFoundException, IOException {
+		if (model != null) {
+			for (Cluster c : C) {
+				c.getCentroid();
+				c.members();
+			}
+			close();
+		}
+		ClusterModelFile.write(fileName, radius, C, tableName, numberOfTuples,
+				createdAt != 0 ? createdAt : System.currentTimeMillis(), compress);
+	}
+
+	/**
+	 * Registra i metadati del dataset clusterizzato, da salvare nell'intestazione del file.
+	 *
+	 * @param data dataset clusterizzato
+	 * @param numberOfTuples numero di tuple clusterizzate
+	 */
+	private void describe(Data data, int numberOfTuples) {
+		this.tableName = data.getTableName();
+		this.numberOfTuples = numberOfTuples;
+		this.createdAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Riprende i metadati letti dall'intestazione di un file, così che un nuovo salvataggio
+	 * (ad esempio con {@link #migra(String, String)}) li conservi.
+	 *
+	 * @param header metadati letti dal file
+	 */
+	private void describe(ModelHeader header) {
+		this.radius = header.getRadius();
+		this.tableName = header.getTableName();
+		this.numberOfTuples = header.getNumberOfTuples();
+		this.createdAt = header.getCreatedAt();
+	}
+
+	/**
+	 * Converte un file di clustering (anche salvato con la serializzazione Java dalle versioni
+	 * precedenti) nel formato binario corrente.
+	 *
+	 * @param fileName percorso del file da convertire
+	 * @param targetFileName percorso del file da scrivere
+	 * @throws IOException se si verifica un errore I/O durante la lettura o la scrittura
+	 * @throws ClassNotFoundException se la classe di un oggetto serializzato non viene trovata
+	 */
+	public static void migra(String fileName, String targetFileName) throws IOException, ClassNotFoundException {
+		try (QTMiner miner = new QTMiner(fileName)) {
+			miner.salva(targetFileName);
+		}
+	}
+
+	/**
+	 * Rilascia la mappatura del file da cui sono stati letti i cluster con {@link #QTMiner(String)},
+	 * così che il file possa essere sostituito o cancellato anche su Windows senza attendere il
+	 * garbage collector. I cluster già decodificati restano utilizzabili; la lettura di un cluster non
+	 * ancora decodificato solleva {@link IllegalStateException}. Non ha effetto se i cluster sono in
+	 * memoria o la mappatura e' già stata rilasciata.
+	 */
+	@Override
+	public void close() {
+		if (model != null) {
+			model.close();
+			model = null;
+		}
+	}
+
+	/**
+	 * Restituisce il raggio di clustering.
+	 *
+	 * @return raggio di clustering, 0 se i cluster sono stati letti da un file che non lo contiene
+	 */
+	public double getRadius() {
+		return radius;
 	}
 	
 	
@@ -117,6 +272,26 @@ public class QTMiner implements Serializable {
 	    }
 	    return clusterSet; // restituisce il ClusterSet completo
 	}
+
+	/**
+	 * Restituisce le statistiche dell'ultimo calcolo eseguito da questo oggetto: distanze calcolate ed
+	 * evitate, durata, candidati e dimensione del cluster scelto di ogni iterazione, tempo totale.
+	 * Durante il calcolo le stesse informazioni sono pubblicate via JMX (vedi {@link MiningMetricsMXBean}).
+	 *
+	 * @return statistiche, oppure {@code null} se i cluster sono stati letti da file
+	 */
+	public MiningStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Imposta le statistiche del calcolo che ha prodotto i cluster, se eseguito altrove (ad esempio dal clustering partizionato).
+	 *
+	 * @param stats statistiche del calcolo
+	 */
+	void setStats(MiningStats stats) {
+		this.stats = stats;
+	}
 	
 	/**
 	 * Applica l'algoritmo QT-Clustering al dataset specificato.
@@ -140,86 +315,331 @@ public class QTMiner implements Serializable {
 	        throw new EmptyDatasetException("Il dataset e' vuoto.");
 	    }
 
-	    int numClusters = 0;
-	    Set<Integer> isClustered = new HashSet<>();
+	    int[] rows = new int[data.getNumberOfExamples()];
+	    for (int i = 0; i < rows.length; i++) {
+	        rows[i] = i;
+	    }
+	    MiningMonitor monitor = MiningMetrics.begin(data.getTableName(), radius);
+	    int numClusters = -1;
+	    try {
+	        numClusters = cluster(data, rows, 0, monitor);
+	    } finally {
+	        stats = MiningMetrics.end(monitor, numClusters >= 0);
+	    }
+	    
+	    if(numClusters == 1){
+	    	throw new ClusteringRadiusException("L'algoritmo ha prodotto un solo cluster.");
+	    }
 
-	    while (isClustered.size() < data.getNumberOfExamples()) {
-	        Cluster candidateCluster = buildCandidateCluster(data, isClustered);
+	    return numClusters;
+	}
+
+	/**
+	 * Applica l'algoritmo QT-Clustering al dataset specificato come {@link #compute(Data)}, registrando
+	 * ogni cluster accettato nel journal {@code journalFileName} (vedi {@link ClusterJournal}) non appena
+	 * viene trovato. Un journal esistente viene sovrascritto. Se il processo termina prima della fine,
+	 * il calcolo può essere ripreso con {@link #riprendi(Data, String)}.
+	 * <p>
+	 * Al termine il journal resta su disco: può essere eliminato dopo aver salvato i cluster con {@link #salva(String)}.
+	 * </p>
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param journalFileName percorso del journal
+	 * @return numero di cluster trovati
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws ClusteringRadiusException se l'algoritmo produce un solo cluster
+	 * @throws IOException se il journal non può essere scritto
+	 * @throws IllegalArgumentException se {@code data} o {@code journalFileName} sono {@code null}
+	 */
+	public int compute(Data data, String journalFileName) throws ClusteringRadiusException, EmptyDatasetException, IOException {
+		return computeWithJournal(data, journalFileName, false);
+	}
+
+	/**
+	 * Riprende un calcolo avviato con {@link #compute(Data, String)} e interrotto: i cluster registrati
+	 * nel journal vengono ricostruiti e le relative tuple marcate come clusterizzate, quindi l'algoritmo
+	 * prosegue aggiungendo al journal i nuovi cluster. Un record incompleto in coda al journal viene scartato.
+	 * Se il journal non esiste o e' vuoto, il calcolo parte dall'inizio.
+	 * <p>
+	 * Il dataset e il raggio devono essere gli stessi del calcolo interrotto: il journal ne conserva il
+	 * numero di tuple e un CRC32, e la ripresa viene rifiutata se non corrispondono.
+	 * </p>
+	 *
+	 * @param data dataset da clusterizzare (lo stesso del calcolo interrotto)
+	 * @param journalFileName percorso del journal
+	 * @return numero di cluster trovati, compresi quelli letti dal journal
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws ClusteringRadiusException se l'algoritmo produce un solo cluster
+	 * @throws IOException se il journal non può essere letto o scritto o non corrisponde a raggio e dataset
+	 * @throws IllegalArgumentException se {@code data} o {@code journalFileName} sono {@code null}
+	 */
+	public int riprendi(Data data, String journalFileName) throws ClusteringRadiusException, EmptyDatasetException, IOException {
+		return computeWithJournal(data, journalFileName, true);
+	}
+
+	/**
+	 * Esegue il calcolo registrando i cluster nel journal, ripartendo dal suo contenuto se richiesto.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param journalFileName percorso del journal
+	 * @param resume {@code true} per ripartire dal contenuto del journal, se presente
+	 * @return numero di cluster trovati
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws ClusteringRadiusException se l'algoritmo produce un solo cluster
+	 * @throws IOException se il journal non può essere letto o scritto
+	 */
+	private int computeWithJournal(Data data, String journalFileName, boolean resume)
+			throws ClusteringRadiusException, EmptyDatasetException, IOException {
+		if (data == null) {
+	        throw new IllegalArgumentException("Il dataset non può essere null.");
+	    }
+		if (journalFileName == null) {
+	        throw new IllegalArgumentException("Il percorso del journal non può essere null.");
+	    }
+		if (data.getNumberOfExamples() == 0) {
+	        throw new EmptyDatasetException("Il dataset e' vuoto.");
+	    }
+
+		int n = data.getNumberOfExamples();
+		int[] rows = new int[n];
+		Tuple[] tuples = new Tuple[n];
+		for (int i = 0; i < n; i++) {
+			rows[i] = i;
+			tuples[i] = data.getItemSet(i);
+		}
+
+		boolean[] isClustered = new boolean[n];
+		List<Cluster> found = new ArrayList<>();
+		MiningMonitor monitor = MiningMetrics.begin(data.getTableName(), radius);
+		boolean completed = false;
+		try (ClusterJournal journal = resume && new File(journalFileName).length() > 0
+				? ClusterJournal.resume(journalFileName, radius, tuples, isClustered, found)
+				: ClusterJournal.create(journalFileName, radius, tuples)) {
+			cluster(rows, tuples, radius, 0, isClustered, found, journal, monitor);
+			completed = true;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			stats = MiningMetrics.end(monitor, completed);
+		}
+
+		C.addAll(found);
+		describe(data, n);
+		if (found.size() == 1) {
+	    	throw new ClusteringRadiusException("L'algoritmo ha prodotto un solo cluster.");
+		}
+		return found.size();
+	}
+
+	/**
+	 * Applica l'algoritmo QT-Clustering alle sole transazioni del dataset indicate da {@code rows}.
+	 * I cluster trovati vengono aggiunti a {@code C} e contengono gli indici originali delle righe.
+	 * <p>
+	 * Le tuple coinvolte vengono costruite una sola volta all'inizio, invece che a ogni confronto.
+	 * Se {@code timeoutNanos} e' positivo, il calcolo viene interrotto non appena il tempo trascorso
+	 * supera il limite: in tal caso {@code C} non viene modificato.
+	 * </p>
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param rows indici (in ordine crescente) delle righe da clusterizzare
+	 * @param timeoutNanos tempo massimo di calcolo in nanosecondi, oppure un valore non positivo per nessun limite
+	 * @return numero di cluster trovati, oppure {@code -1} se il tempo massimo e' stato superato
+	 */
+	int cluster(Data data, int[] rows, long timeoutNanos) {
+		MiningMonitor monitor = new MiningMonitor(data.getTableName(), radius);
+		try {
+			return cluster(data, rows, timeoutNanos, monitor);
+		} finally {
+			stats = monitor.finish();
+		}
+	}
+
+	/**
+	 * Applica l'algoritmo QT-Clustering alle righe indicate come {@link #cluster(Data, int[], long)},
+	 * registrandone l'andamento.
+	 *
+	 * @param data dataset da clusterizzare
+	 * @param rows indici (in ordine crescente) delle righe da clusterizzare
+	 * @param timeoutNanos tempo massimo di calcolo in nanosecondi, oppure un valore non positivo per nessun limite
+	 * @param monitor registro dell'andamento del calcolo
+	 * @return numero di cluster trovati, oppure {@code -1} se il tempo massimo e' stato superato
+	 */
+	private int cluster(Data data, int[] rows, long timeoutNanos, MiningMonitor monitor) {
+		Tuple[] tuples = new Tuple[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			tuples[i] = data.getItemSet(rows[i]);
+		}
+
+		List<Cluster> found = cluster(rows, tuples, radius, timeoutNanos, monitor);
+		if (found == null) {
+			return -1;
+		}
+		C.addAll(found);
+		describe(data, rows.length);
+		return found.size();
+	}
+
+	/**
+	 * Applica l'algoritmo QT-Clustering a un insieme di tuple identificate da {@code ids}.
+	 * <p>
+	 * E' il nucleo dell'algoritmo, condiviso da {@link #compute(Data)} e dalle modalità che
+	 * clusterizzano solo una parte delle tuple (anteprima, manutenzione incrementale).
+	 * </p>
+	 *
+	 * @param ids identificativi delle tuple, nell'ordine usato per risolvere le parità tra candidati
+	 * @param tuples tuple corrispondenti agli identificativi di {@code ids}
+	 * @param radius raggio di clustering
+	 * @param timeoutNanos tempo massimo di calcolo in nanosecondi, oppure un valore non positivo per nessun limite
+	 * @param monitor registro dell'andamento del calcolo, condivisibile tra thread, oppure {@code null}
+	 * @return cluster trovati nell'ordine di scoperta, oppure {@code null} se il tempo massimo e' stato superato
+	 */
+	static List<Cluster> cluster(int[] ids, Tuple[] tuples, double radius, long timeoutNanos, MiningMonitor monitor) {
+		List<Cluster> found = new ArrayList<>();
+		return cluster(ids, tuples, radius, timeoutNanos, new boolean[ids.length], found, null, monitor) ? found : null;
+	}
+
+	/**
+	 * Prosegue l'algoritmo QT-Clustering a partire da uno stato già noto (tuple clusterizzate
+	 * e cluster trovati), registrando facoltativamente ogni cluster accettato in un journal.
+	 *
+	 * @param ids identificativi delle tuple, nell'ordine usato per risolvere le parità tra candidati
+	 * @param tuples tuple corrispondenti agli identificativi di {@code ids}
+	 * @param radius raggio di clustering
+	 * @param timeoutNanos tempo massimo di calcolo in nanosecondi, oppure un valore non positivo per nessun limite
+	 * @param isClustered flag delle posizioni di {@code ids} già assegnate a un cluster, aggiornati dal calcolo
+	 * @param found cluster già trovati, a cui vengono aggiunti i nuovi nell'ordine di scoperta
+	 * @param journal journal su cui registrare i cluster accettati (con l'identificativo del centroide), oppure {@code null}
+	 * @param monitor registro a cui riportare tuple e iterazioni, oppure {@code null}
+	 * @return {@code true} se il calcolo e' terminato, {@code false} se il tempo massimo e' stato superato
+	 * @throws UncheckedIOException se la scrittura sul journal fallisce
+	 */
+	static boolean cluster(int[] ids, Tuple[] tuples, double radius, long timeoutNanos,
+			boolean[] isClustered, List<Cluster> found, ClusterJournal journal, MiningMonitor monitor) {
+		long start = System.nanoTime();
+	    int clustered = 0;
+	    for (boolean b : isClustered) {
+	        if (b) {
+	            clustered++;
+	        }
+	    }
+	    if (monitor != null) {
+	        monitor.addTuples(ids.length, clustered);
+	    }
+
+	    while (clustered < ids.length) {
+	        long iterationStart = System.nanoTime();
+	        if (timeoutNanos > 0 && iterationStart - start > timeoutNanos) {
+	            return false;
+	        }
+	        int clusteredBefore = clustered;
+	        long[] distances = new long[2];
+	        Cluster candidateCluster = buildCandidateCluster(ids, tuples, isClustered, radius, distances);
 
 	        if (candidateCluster == null || candidateCluster.getSize() == 0) {
 	            break;
 	        }
 
-	        // Aggiungi il cluster al Set C
-	        C.add(candidateCluster);
+	        found.add(candidateCluster);
 	        
-	        // Aggiungi gli elementi del cluster a isClustered usando iterator
-	        Iterator<Integer> it = candidateCluster.iterator();
-	        while (it.hasNext()) {
-	            Integer id = it.next();
-	            isClustered.add(id);
+	        // Marca come clusterizzate le tuple del cluster (l'ultimo candidato le ha già verificate)
+	        int centroid = -1;
+	        for (int j = 0; j < ids.length; j++) {
+	            if (!isClustered[j] && candidateCluster.contain(ids[j])) {
+	                isClustered[j] = true;
+	                clustered++;
+	                if (tuples[j] == candidateCluster.getCentroid()) {
+	                    centroid = ids[j];
+	                }
+	            }
+	        }
+	        if (monitor != null) {
+	            monitor.iteration(System.nanoTime() - iterationStart, ids.length - clusteredBefore, distances[0], distances[1],
+	                    candidateCluster.getSize());
 	        }
 
-	        numClusters++;
-	    }
-	    
-	    if(numClusters == 1){
-	    	throw new ClusteringRadiusException("L'algoritmo ha prodotto un solo cluster.");
+	        if (journal != null) {
+	            try {
+	                journal.append(centroid, candidateCluster);
+	            } catch (IOException e) {
+	                throw new UncheckedIOException(e);
+	            }
+	        }
 	    }
-
-	    return numClusters;
+	    return true;
 	}
 
 
 	/**
 	 * Costruisce un cluster candidato centrato su ciascuna tupla non ancora clusterizzata
 	 * e restituisce il cluster che contiene il maggior numero di tuple entro il raggio.
+	 * A parità di dimensione viene scelto il candidato che precede gli altri in {@code rows}.
+	 * E' visibile nel package per poterne misurare le prestazioni separatamente dal resto dell'algoritmo.
 	 *
-	 * @param data il dataset da clusterizzare
-	 * @param isClustered insieme di indici delle tuple già assegnate a un cluster
+	 * @param rows identificativi delle tuple considerate
+	 * @param tuples tuple corrispondenti agli identificativi di {@code rows}
+	 * @param isClustered flag delle posizioni di {@code rows} già assegnate a un cluster
+	 * @param radius raggio di clustering
 	 * @return cluster con il numero massimo di tuple compatibili (o null se nessuno)
-	 * @throws IllegalArgumentException se {@code data} o {@code isClustered} sono {@code null}
 	 */
-	private Cluster buildCandidateCluster(Data data, Set<Integer> isClustered) {
-	    
-		if (data == null) {
-	        throw new IllegalArgumentException("Il dataset non può essere null.");
-	    }
-	    if (isClustered == null) {
-	        throw new IllegalArgumentException("L'insieme degli indici clusterizzati non può essere null.");
-	    }
+	static Cluster buildCandidateCluster(int[] rows, Tuple[] tuples, boolean[] isClustered, double radius) {
+		return buildCandidateCluster(rows, tuples, isClustered, radius, null);
+	}
+
+	/**
+	 * Costruisce il cluster candidato come {@link #buildCandidateCluster(int[], Tuple[], boolean[], double)},
+	 * contando le distanze calcolate e quelle evitate perché la tupla era già clusterizzata. I conteggi
+	 * sono accumulati in variabili locali e scritti in {@code distances} una sola volta, al termine.
+	 *
+	 * @param rows identificativi delle tuple considerate
+	 * @param tuples tuple corrispondenti agli identificativi di {@code rows}
+	 * @param isClustered flag delle posizioni di {@code rows} già assegnate a un cluster
+	 * @param radius raggio di clustering
+	 * @param distances se non {@code null}, riceve in {@code distances[0]} le distanze calcolate e in
+	 *        {@code distances[1]} quelle evitate
+	 * @return cluster con il numero massimo di tuple compatibili (o null se nessuno)
+	 */
+	static Cluster buildCandidateCluster(int[] rows, Tuple[] tuples, boolean[] isClustered, double radius, long[] distances) {
 
 	    Cluster bestCluster = null;
+	    long computed = 0;
+	    long pruned = 0;
 
-	    for (int i = 0; i < data.getNumberOfExamples(); i++) {
-	        if (isClustered.contains(i)) {
+	    for (int i = 0; i < rows.length; i++) {
+	        if (isClustered[i]) {
 	            // Tupla già clusterizzata, salta
 	            continue;
 	        }
 	        
-	        Tuple centroid = data.getItemSet(i);
+	        Tuple centroid = tuples[i];
 	        Cluster cluster = new Cluster(centroid);
+	        long computedBefore = computed;
 
 	        // Aggiungo come primo elemento il centroide stesso
-	        cluster.addData(i);
+	        cluster.addData(rows[i]);
 
-	        for (int j = 0; j < data.getNumberOfExamples(); j++) {
-	            if (i == j || isClustered.contains(j)) {
+	        for (int j = 0; j < rows.length; j++) {
+	            if (i == j || isClustered[j]) {
 	                // Salto il centroide stesso e le tuple già clusterizzate
 	                continue;
 	            }
 
-	            Tuple candidate = data.getItemSet(j);
-	            if (centroid.getDistance(candidate) <= radius) {
-	                cluster.addData(j);
+	            computed++;
+	            if (centroid.getDistance(tuples[j]) <= radius) {
+	                cluster.addData(rows[j]);
 	            }
 	        }
+	        // le tuple escluse, oltre al centroide, sono quelle già clusterizzate
+	        pruned += rows.length - 1 - (computed - computedBefore);
 	        
 	        if (bestCluster == null || cluster.getSize() > bestCluster.getSize()) {
 	            bestCluster = cluster;
 	        }
 	    }
 
+	    if (distances != null) {
+	        distances[0] = computed;
+	        distances[1] = pruned;
+	    }
 	    return bestCluster;
 	}
 
@@ -0,0 +1,213 @@
+package mining;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import data.Tuple;
+
+/**
+ * La classe {@code QTWorker} e' il processo worker del QT-Clustering distribuito coordinato da
+ * {@link DistributedQTMiner}.
+ * <p>
+ * Il worker legge l'intero dataset dal file di snapshot condiviso, ma valuta come centroidi
+ * candidati solo le tuple del proprio intervallo di righe (shard). Ad ogni iterazione di QT
+ * comunica al coordinatore il proprio miglior candidato locale e marca come clusterizzate
+ * le tuple del cluster vincitore trasmesse dal coordinatore.
+ * </p>
+ * <p>
+ * Protocollo (su socket, tramite {@link DataInputStream}/{@link DataOutputStream}):
+ * </p>
+ * <ul>
+ *   <li>all'avvio il coordinatore invia percorso dello snapshot, raggio e shard {@code [from, to)};</li>
+ *   <li>{@code BEST}: il worker risponde con indice e dimensione del miglior candidato locale
+ *       ({@code -1} se non ne ha);</li>
+ *   <li>{@code MEMBERS}: il worker risponde con le righe del suo ultimo miglior candidato;</li>
+ *   <li>{@code CLUSTERED}: il coordinatore invia le righe da marcare come clusterizzate;</li>
+ *   <li>{@code STOP}: il worker termina.</li>
+ * </ul>
+ * <p>
+ * Avvio manuale: {@code java -cp <classpath> mining.QTWorker <host> <porta>}.
+ * </p>
+ */
+public class QTWorker {
+
+	/**
+	 * Richiesta del miglior candidato locale.
+	 */
+	static final byte BEST = 1;
+
+	/**
+	 * Richiesta delle righe del miglior candidato locale.
+	 */
+	static final byte MEMBERS = 2;
+
+	/**
+	 * Notifica delle righe clusterizzate dal cluster vincitore.
+	 */
+	static final byte CLUSTERED = 3;
+
+	/**
+	 * Richiesta di terminazione.
+	 */
+	static final byte STOP = 4;
+
+	/**
+	 * Tuple dell'intero dataset.
+	 */
+	private Tuple[] tuples;
+
+	/**
+	 * Raggio di clustering.
+	 */
+	private double radius;
+
+	/**
+	 * Prima riga (inclusa) dello shard di centroidi candidati.
+	 */
+	private int from;
+
+	/**
+	 * Ultima riga (esclusa) dello shard di centroidi candidati.
+	 */
+	private int to;
+
+	/**
+	 * Flag delle righe già clusterizzate.
+	 */
+	private boolean[] isClustered;
+
+	/**
+	 * Righe del miglior candidato locale calcolato all'ultima richiesta {@code BEST}.
+	 */
+	private int[] bestMembers = new int[0];
+
+	/**
+	 * Costruttore: inizializza il worker con il dataset e lo shard assegnato.
+	 *
+	 * @param tuples tuple dell'intero dataset
+	 * @param radius raggio di clustering
+	 * @param from prima riga (inclusa) dello shard
+	 * @param to ultima riga (esclusa) dello shard
+	 */
+	QTWorker(Tuple[] tuples, double radius, int from, int to) {
+		this.tuples = tuples;
+		this.radius = radius;
+		this.from = from;
+		this.to = to;
+		this.isClustered = new boolean[tuples.length];
+	}
+
+	/**
+	 * Calcola il miglior candidato locale: tra le righe non clusterizzate dello shard,
+	 * quella il cui cluster contiene più tuple non clusterizzate dell'intero dataset.
+	 * A parità di dimensione vince la riga con indice minore, come in {@link QTMiner}.
+	 *
+	 * @return {@code {riga, dimensione}} del miglior candidato, {@code {-1, 0}} se non ce ne sono
+	 */
+	int[] best() {
+		int bestRow = -1;
+		int bestSize = 0;
+		int[] members = new int[tuples.length];
+		int[] current = new int[tuples.length];
+		for (int i = from; i < to; i++) {
+			if (isClustered[i]) {
+				continue;
+			}
+			int size = 0;
+			for (int j = 0; j < tuples.length; j++) {
+				if (!isClustered[j] && (i == j || tuples[i].getDistance(tuples[j]) <= radius)) {
+					current[size++] = j;
+				}
+			}
+			if (size > bestSize) {
+				bestRow = i;
+				bestSize = size;
+				int[] swap = members;
+				members = current;
+				current = swap;
+			}
+		}
+		bestMembers = new int[bestSize];
+		System.arraycopy(members, 0, bestMembers, 0, bestSize);
+		return new int[] { bestRow, bestSize };
+	}
+
+	/**
+	 * Serve le richieste del coordinatore fino alla richiesta {@code STOP}.
+	 *
+	 * @param in flusso delle richieste
+	 * @param out flusso delle risposte
+	 * @throws IOException se la comunicazione con il coordinatore fallisce
+	 */
+	void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		while (true) {
+			byte command = in.readByte();
+			switch (command) {
+			case BEST:
+				int[] best = best();
+				out.writeInt(best[0]);
+				out.writeInt(best[1]);
+				out.flush();
+				break;
+			case MEMBERS:
+				out.writeInt(bestMembers.length);
+				for (int id : bestMembers) {
+					out.writeInt(id);
+				}
+				out.flush();
+				break;
+			case CLUSTERED:
+				int count = in.readInt();
+				for (int k = 0; k < count; k++) {
+					isClustered[in.readInt()] = true;
+				}
+				break;
+			case STOP:
+				return;
+			default:
+				throw new IOException("Comando sconosciuto: " + command);
+			}
+		}
+	}
+
+	/**
+	 * Punto di ingresso del processo worker: si connette al coordinatore, legge lo snapshot
+	 * indicato e serve le richieste fino alla terminazione.
+	 *
+	 * @param args host e porta del coordinatore
+	 * @throws IOException se la connessione o la lettura dello snapshot falliscono
+	 * @throws ClassNotFoundException se lo snapshot contiene classi non presenti nel classpath
+	 */
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		if (args.length != 2) {
+			System.err.println("Uso: java mining.QTWorker <host> <porta>");
+			System.exit(2);
+		}
+		try (Socket socket = new Socket(InetAddress.getByName(args[0]), Integer.parseInt(args[1]))) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			String snapshot = in.readUTF();
+			double radius = in.readDouble();
+			int from = in.readInt();
+			int to = in.readInt();
+
+			Tuple[] tuples;
+			try (ObjectInputStream s = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+				tuples = (Tuple[]) s.readObject();
+			}
+			out.writeBoolean(true);		// snapshot caricato
+			out.flush();
+
+			new QTWorker(tuples, radius, from, to).serve(in, out);
+		}
+	}
+}
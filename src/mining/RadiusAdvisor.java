@@ -0,0 +1,289 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import data.Data;
+import data.EmptyDatasetException;
+import data.Tuple;
+
+/**
+ * La classe {@code RadiusAdvisor} supporta la scelta del raggio da passare a {@link QTMiner#QTMiner(double)}
+ * senza eseguire il clustering completo per ogni tentativo.
+ * <p>
+ * Il dataset viene analizzato su due campioni casuali di dimensione limitata:
+ * </p>
+ * <ul>
+ *   <li>un insieme di coppie di tuple, le cui distanze alimentano un {@link DistanceSketch};</li>
+ *   <li>un insieme di tuple sul quale viene simulato il QT-Clustering per ogni raggio candidato,
+ *       riutilizzando una sola matrice delle distanze.</li>
+ * </ul>
+ * <p>
+ * Il numero di distanze calcolate dipende solo dalla dimensione dei campioni e non dal numero
+ * di transazioni del dataset: il tempo di esecuzione e' quindi limitato indipendentemente da {@code n}.
+ * Se il dataset contiene al più {@code sampleSize} tuple, la simulazione coincide con il clustering esatto.
+ * </p>
+ *
+ * @see DistanceSketch
+ * @see RadiusEstimate
+ */
+public class RadiusAdvisor {
+
+	/**
+	 * Dimensione predefinita del campione di tuple su cui simulare il clustering.
+	 */
+	private static final int DEFAULT_SAMPLE_SIZE = 256;
+
+	/**
+	 * Numero predefinito di coppie campionate per costruire lo sketch delle distanze.
+	 */
+	private static final int DEFAULT_PAIR_BUDGET = 20000;
+
+	/**
+	 * Numero di intervalli dello sketch delle distanze.
+	 */
+	private static final int SKETCH_BINS = 1024;
+
+	/**
+	 * Dimensione massima del campione di tuple su cui simulare il clustering.
+	 */
+	private int sampleSize;
+
+	/**
+	 * Numero di coppie campionate per costruire lo sketch delle distanze.
+	 */
+	private int pairBudget;
+
+	/**
+	 * Seme del generatore pseudo-casuale, per rendere ripetibili le stime.
+	 */
+	private long seed;
+
+	/**
+	 * Costruttore di default: usa la dimensione del campione e il numero di coppie predefiniti.
+	 */
+	public RadiusAdvisor() {
+		this(DEFAULT_SAMPLE_SIZE, DEFAULT_PAIR_BUDGET, 0L);
+	}
+
+	/**
+	 * Costruttore: inizializza la dimensione dei campioni e il seme del generatore.
+	 *
+	 * @param sampleSize dimensione massima del campione di tuple su cui simulare il clustering
+	 * @param pairBudget numero di coppie campionate per costruire lo sketch delle distanze
+	 * @param seed seme del generatore pseudo-casuale
+	 * @throws IllegalArgumentException se {@code sampleSize} o {@code pairBudget} non sono positivi
+	 */
+	public RadiusAdvisor(int sampleSize, int pairBudget, long seed) {
+		if (sampleSize <= 0) {
+			throw new IllegalArgumentException("La dimensione del campione deve essere positiva: " + sampleSize);
+		}
+		if (pairBudget <= 0) {
+			throw new IllegalArgumentException("Il numero di coppie deve essere positivo: " + pairBudget);
+		}
+		this.sampleSize = sampleSize;
+		this.pairBudget = pairBudget;
+		this.seed = seed;
+	}
+
+	/**
+	 * Costruisce lo sketch della distribuzione delle distanze campionando {@code pairBudget}
+	 * coppie di tuple distinte dal dataset.
+	 *
+	 * @param data dataset da analizzare
+	 * @return sketch delle distanze campionate
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code data} e' {@code null}
+	 */
+	public DistanceSketch sketch(Data data) throws EmptyDatasetException {
+		checkData(data);
+		int n = data.getNumberOfExamples();
+		DistanceSketch sketch = new DistanceSketch(SKETCH_BINS, data.getNumberOfAttributes());
+		if (n < 2) {
+			return sketch;
+		}
+
+		Random random = new Random(seed);
+		for (int k = 0; k < pairBudget; k++) {
+			int i = random.nextInt(n);
+			int j = random.nextInt(n - 1);
+			if (j >= i) {
+				j++;		// coppia di tuple distinte
+			}
+			sketch.add(data.getItemSet(i).getDistance(data.getItemSet(j)));
+		}
+		return sketch;
+	}
+
+	/**
+	 * Stima numero di cluster e dimensione del cluster più numeroso per un singolo raggio candidato.
+	 *
+	 * @param data dataset da analizzare
+	 * @param radius raggio candidato
+	 * @return stima relativa al raggio
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code data} e' {@code null} o {@code radius} non e' positivo
+	 */
+	public RadiusEstimate estimate(Data data, double radius) throws EmptyDatasetException {
+		return estimate(data, new double[] { radius }).get(0);
+	}
+
+	/**
+	 * Stima numero di cluster e dimensione del cluster più numeroso per ciascun raggio candidato.
+	 * <p>
+	 * Su un campione di al più {@code sampleSize} tuple viene calcolata una sola volta la matrice
+	 * delle distanze, sulla quale viene poi simulato il QT-Clustering per ogni raggio. Le dimensioni
+	 * osservate sul campione vengono riportate all'intero dataset:
+	 * </p>
+	 * <ul>
+	 *   <li>il cluster più numeroso e' scalato in proporzione a {@code n / sampleSize};</li>
+	 *   <li>i cluster con almeno due tuple sono contati una volta, mentre ogni cluster singoletto
+	 *       del campione rappresenta {@code n / sampleSize} cluster del dataset.</li>
+	 * </ul>
+	 *
+	 * @param data dataset da analizzare
+	 * @param radii raggi candidati
+	 * @return lista delle stime, nello stesso ordine dei raggi
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code data} o {@code radii} sono {@code null} o un raggio non e' positivo
+	 */
+	public List<RadiusEstimate> estimate(Data data, double[] radii) throws EmptyDatasetException {
+		checkData(data);
+		if (radii == null) {
+			throw new IllegalArgumentException("L'insieme dei raggi non può essere null.");
+		}
+		for (double r : radii) {
+			if (r <= 0) {
+				throw new IllegalArgumentException("Il raggio deve essere maggiore di zero: " + r);
+			}
+		}
+
+		int n = data.getNumberOfExamples();
+		int[] sample = sampleRows(n, Math.min(sampleSize, n), new Random(seed));
+		int s = sample.length;
+
+		Tuple[] tuples = new Tuple[s];
+		for (int i = 0; i < s; i++) {
+			tuples[i] = data.getItemSet(sample[i]);
+		}
+		double[][] distances = new double[s][s];
+		for (int i = 0; i < s; i++) {
+			for (int j = i + 1; j < s; j++) {
+				distances[i][j] = tuples[i].getDistance(tuples[j]);
+				distances[j][i] = distances[i][j];
+			}
+		}
+
+		DistanceSketch sketch = sketch(data);
+		double scale = (double) n / s;
+		List<RadiusEstimate> estimates = new ArrayList<>(radii.length);
+		for (double r : radii) {
+			int[] sizes = simulate(distances, r);
+			int largest = 0;
+			int singletons = 0;
+			for (int size : sizes) {
+				largest = Math.max(largest, size);
+				if (size == 1) {
+					singletons++;
+				}
+			}
+			long clusters = (sizes.length - singletons) + Math.round(singletons * scale);
+			estimates.add(new RadiusEstimate(r, sketch.fractionWithin(r),
+					(int) Math.min(n, clusters), (int) Math.min(n, Math.round(largest * scale))));
+		}
+		return estimates;
+	}
+
+	/**
+	 * Simula il QT-Clustering sulla matrice delle distanze del campione, con la stessa regola
+	 * di scelta del candidato di {@link QTMiner} (a parità di dimensione vince la tupla con indice minore).
+	 *
+	 * @param distances matrice simmetrica delle distanze tra le tuple del campione
+	 * @param radius raggio di clustering
+	 * @return dimensioni dei cluster trovati, nell'ordine di scoperta
+	 */
+	private int[] simulate(double[][] distances, double radius) {
+		int s = distances.length;
+		boolean[] isClustered = new boolean[s];
+		int[] sizes = new int[s];
+		int numClusters = 0;
+		int clustered = 0;
+
+		while (clustered < s) {
+			int bestCenter = -1;
+			int bestSize = 0;
+			for (int i = 0; i < s; i++) {
+				if (isClustered[i]) {
+					continue;
+				}
+				int size = 1;
+				for (int j = 0; j < s; j++) {
+					if (i != j && !isClustered[j] && distances[i][j] <= radius) {
+						size++;
+					}
+				}
+				if (size > bestSize) {
+					bestSize = size;
+					bestCenter = i;
+				}
+			}
+
+			isClustered[bestCenter] = true;
+			for (int j = 0; j < s; j++) {
+				if (!isClustered[j] && distances[bestCenter][j] <= radius) {
+					isClustered[j] = true;
+				}
+			}
+			sizes[numClusters++] = bestSize;
+			clustered += bestSize;
+		}
+		return Arrays.copyOf(sizes, numClusters);
+	}
+
+	/**
+	 * Estrae senza ripetizioni {@code k} indici di riga da {@code [0, n)} con l'algoritmo di Floyd,
+	 * il cui costo dipende solo da {@code k}. Gli indici sono restituiti in ordine crescente,
+	 * così da preservare l'ordine delle transazioni nel dataset.
+	 *
+	 * @param n numero di righe del dataset
+	 * @param k numero di righe da estrarre
+	 * @param random generatore pseudo-casuale
+	 * @return indici estratti in ordine crescente
+	 */
+	static int[] sampleRows(int n, int k, Random random) {
+		Set<Integer> chosen = new HashSet<>();
+		for (int j = n - k; j < n; j++) {
+			int t = random.nextInt(j + 1);
+			if (!chosen.add(t)) {
+				chosen.add(j);
+			}
+		}
+		int[] rows = new int[k];
+		int i = 0;
+		for (int row : chosen) {
+			rows[i++] = row;
+		}
+		Arrays.sort(rows);
+		return rows;
+	}
+
+	/**
+	 * Verifica che il dataset sia valido e non vuoto.
+	 *
+	 * @param data dataset da verificare
+	 * @throws EmptyDatasetException se il dataset e' vuoto
+	 * @throws IllegalArgumentException se {@code data} e' {@code null}
+	 */
+	private void checkData(Data data) throws EmptyDatasetException {
+		if (data == null) {
+			throw new IllegalArgumentException("Il dataset non può essere null.");
+		}
+		if (data.getNumberOfExamples() == 0) {
+			throw new EmptyDatasetException("Il dataset e' vuoto.");
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package mining;
+
+/**
+ * La classe {@code RadiusEstimate} raccoglie la stima, prodotta da {@link RadiusAdvisor},
+ * dell'effetto di un raggio candidato sul QT-Clustering dell'intero dataset.
+ *
+ * @see RadiusAdvisor
+ */
+public class RadiusEstimate {
+
+	/**
+	 * Raggio candidato.
+	 */
+	private double radius;
+
+	/**
+	 * Frazione stimata delle coppie di tuple a distanza non superiore al raggio.
+	 */
+	private double pairFraction;
+
+	/**
+	 * Numero stimato di cluster.
+	 */
+	private int estimatedClusters;
+
+	/**
+	 * Numero stimato di tuple nel cluster più numeroso.
+	 */
+	private int estimatedLargestCluster;
+
+	/**
+	 * Costruttore: inizializza tutti i campi della stima.
+	 *
+	 * @param radius raggio candidato
+	 * @param pairFraction frazione stimata delle coppie entro il raggio
+	 * @param estimatedClusters numero stimato di cluster
+	 * @param estimatedLargestCluster dimensione stimata del cluster più numeroso
+	 */
+	RadiusEstimate(double radius, double pairFraction, int estimatedClusters, int estimatedLargestCluster) {
+		this.radius = radius;
+		this.pairFraction = pairFraction;
+		this.estimatedClusters = estimatedClusters;
+		this.estimatedLargestCluster = estimatedLargestCluster;
+	}
+
+	/**
+	 * Restituisce il raggio candidato.
+	 *
+	 * @return raggio candidato
+	 */
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Restituisce la frazione stimata delle coppie di tuple a distanza non superiore al raggio.
+	 *
+	 * @return frazione compresa nell'intervallo [0,1]
+	 */
+	public double getPairFraction() {
+		return pairFraction;
+	}
+
+	/**
+	 * Restituisce il numero stimato di cluster prodotti dal raggio.
+	 *
+	 * @return numero stimato di cluster
+	 */
+	public int getEstimatedClusters() {
+		return estimatedClusters;
+	}
+
+	/**
+	 * Restituisce il numero stimato di tuple nel cluster più numeroso.
+	 *
+	 * @return dimensione stimata del cluster più numeroso
+	 */
+	public int getEstimatedLargestCluster() {
+		return estimatedLargestCluster;
+	}
+
+	/**
+	 * Restituisce una rappresentazione testuale della stima.
+	 *
+	 * @return stringa rappresentante lo stato della stima
+	 */
+	@Override
+	public String toString() {
+		return "radius=" + radius + " coppieEntroRaggio=" + String.format("%.3f", pairFraction)
+				+ " clusterStimati=" + estimatedClusters + " clusterMassimo=" + estimatedLargestCluster;
+	}
+}